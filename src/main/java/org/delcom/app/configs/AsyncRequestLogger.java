@@ -0,0 +1,165 @@
+package org.delcom.app.configs;
+
+import java.io.PrintStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.web.method.HandlerMethod;
+
+// Logger request asinkron: thread request hanya menaruh event ke ring buffer (satu CAS, tanpa lock,
+// tanpa format string). Format ANSI + tulis ke System.out dikerjakan satu thread "request-log".
+// Buffer penuh -> event dibuang (dihitung); buffer hampir penuh -> request sukses hanya di-sampling.
+public class AsyncRequestLogger {
+
+    static final String RESET = "\u001B[0m";
+    static final String GREEN = "\u001B[32m";
+    static final String YELLOW = "\u001B[33m";
+    static final String RED = "\u001B[31m";
+    static final String CYAN = "\u001B[36m";
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    // Data mentah per request; handler disimpan apa adanya dan baru diformat di thread logger
+    record Event(String method, String uri, int status, long durationMs, Object handler, String remoteAddr) {
+    }
+
+    private final AtomicReferenceArray<Event> slots;
+    private final int mask;
+    private final int sampleThreshold; // jumlah event antre mulai sampling
+    private final int sampleEvery;
+
+    private final AtomicLong head = new AtomicLong(); // slot berikutnya yang diklaim producer
+    private volatile long tail;                       // slot berikutnya yang dibaca consumer
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public AsyncRequestLogger(int bufferSize, int sampleEvery) {
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1; // pangkat dua >= bufferSize
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.sampleThreshold = capacity - capacity / 4;
+        this.sampleEvery = Math.max(1, sampleEvery);
+
+        this.worker = new Thread(this::runWorker, "request-log");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    // Dipanggil dari thread request. false jika event dibuang (sampling atau buffer penuh).
+    public boolean log(Event event) {
+        long seq;
+        do {
+            seq = head.get();
+            long queued = seq - tail;
+            if (queued >= slots.length()) {
+                dropped.increment();
+                return false;
+            }
+            // Saat beban tinggi, error (>= 400) tetap dicatat; request sukses hanya 1 dari sampleEvery
+            if (queued >= sampleThreshold && event.status() < 400
+                    && ThreadLocalRandom.current().nextInt(sampleEvery) != 0) {
+                sampledOut.increment();
+                return false;
+            }
+        } while (!head.compareAndSet(seq, seq + 1));
+        slots.set((int) seq & mask, event);
+        return true;
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getSampledOutCount() {
+        return sampledOut.sum();
+    }
+
+    // Tulis semua event yang sudah masuk buffer (dipakai worker, shutdown, dan test)
+    public synchronized void flush() {
+        StringBuilder out = new StringBuilder(256);
+        long next = tail;
+        while (true) {
+            int index = (int) next & mask;
+            Event event = slots.get(index);
+            if (event == null) {
+                break; // kosong, atau producer sudah klaim slot tapi belum menulis
+            }
+            slots.set(index, null);
+            next++;
+            tail = next;
+            format(out, event);
+        }
+        long droppedNow = dropped.sumThenReset();
+        if (droppedNow > 0) {
+            out.append("[request-log] ").append(droppedNow).append(" log request dibuang (buffer penuh)\n");
+        }
+        if (!out.isEmpty()) {
+            PrintStream stdout = System.out;
+            stdout.print(out);
+            stdout.flush();
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void runWorker() {
+        while (running) {
+            flush();
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    static void format(StringBuilder out, Event event) {
+        int status = event.status();
+        String color;
+        if (status >= 500) {
+            color = RED;
+        } else if (status >= 400) {
+            color = YELLOW;
+        } else if (status >= 200) {
+            color = GREEN;
+        } else {
+            color = CYAN;
+        }
+
+        out.append(color).append(event.method());
+        for (int i = event.method().length(); i < 6; i++) {
+            out.append(' ');
+        }
+        out.append(' ').append(event.uri())
+                .append(' ').append(status)
+                .append(' ').append(event.durationMs()).append("ms")
+                .append(RESET)
+                .append(" [").append(describeHandler(event.handler())).append(']')
+                .append(" from ").append(event.remoteAddr())
+                .append('\n');
+    }
+
+    // Asal kode = method controller yang menangani request (tanpa stack walk)
+    static String describeHandler(Object handler) {
+        if (handler instanceof HandlerMethod handlerMethod) {
+            return handlerMethod.getBeanType().getName() + "." + handlerMethod.getMethod().getName();
+        }
+        if (handler != null) {
+            return handler.getClass().getName();
+        }
+        return "-";
+    }
+}
@@ -0,0 +1,51 @@
+package org.delcom.app.configs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Migrasi auth_tokens dari kolom token mentah (TEXT) ke token_hash (SHA-256, bytea, unique index).
+// Hanya berjalan jika kolom lama masih ada, dalam satu blok sehingga aman diulang di setiap startup.
+@Component
+public class AuthTokenSchemaInitializer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthTokenSchemaInitializer.class);
+
+    static final String MIGRATE_RAW_TOKENS =
+            "DO $$ BEGIN " +
+            "IF EXISTS (SELECT 1 FROM information_schema.columns WHERE table_schema = current_schema() " +
+            "AND table_name = 'auth_tokens' AND column_name = 'token') THEN " +
+            // 1. Token kembar (diterbitkan di detik yang sama) -> sisakan satu agar unique index bisa dibuat
+            "DELETE FROM auth_tokens a USING auth_tokens b WHERE a.token = b.token AND a.ctid < b.ctid; " +
+            // 2. Isi hash untuk baris lama (hasil sama dengan AuthToken.hashToken)
+            "UPDATE auth_tokens SET token_hash = sha256(convert_to(token, 'UTF8')) WHERE token_hash IS NULL; " +
+            // 3. Token mentah tidak disimpan lagi
+            "ALTER TABLE auth_tokens DROP COLUMN token; " +
+            "END IF; END $$";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AuthTokenSchemaInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        execute(MIGRATE_RAW_TOKENS);
+
+        // Index juga dideklarasikan di entity; dipastikan di sini untuk tabel lama
+        execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_auth_tokens_token_hash ON auth_tokens (token_hash)");
+    }
+
+    private void execute(String sql) {
+        try {
+            jdbcTemplate.execute(sql);
+        } catch (DataAccessException e) {
+            log.warn("Gagal menjalankan migrasi skema auth token: {}", e.getMostSpecificCause().getMessage());
+        }
+    }
+}
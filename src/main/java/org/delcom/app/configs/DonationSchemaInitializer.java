@@ -0,0 +1,53 @@
+package org.delcom.app.configs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Objek skema yang tidak bisa dibuat oleh ddl-auto=update (index ekspresi, backfill data lama).
+// Semua statement idempotent sehingga aman dijalankan di setiap startup / banyak instance.
+@Component
+public class DonationSchemaInitializer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DonationSchemaInitializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DonationSchemaInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // 1. Isi search_document untuk baris yang dibuat sebelum kolom ini ada
+        execute("UPDATE donations SET search_document = concat_ws(' ', " +
+                "NULLIF(name, ''), NULLIF(description, ''), NULLIF(category, ''), NULLIF(location, '')) " +
+                "WHERE search_document IS NULL");
+
+        // 2. Index GIN full-text (ekspresi sama dengan DonationRepository.SEARCH_VECTOR)
+        execute("CREATE INDEX IF NOT EXISTS idx_donations_search ON donations " +
+                "USING GIN (to_tsvector('simple', coalesce(search_document, '')))");
+
+        // 3. Isi remaining_portion untuk donasi lama (sebelum klaim per porsi ada)
+        execute("UPDATE donations SET remaining_portion = CASE WHEN status = 'AVAILABLE' " +
+                "THEN GREATEST(COALESCE(portion, 1), 1) ELSE 0 END " +
+                "WHERE remaining_portion IS NULL");
+
+        // 4. Index parsial untuk sapu jaring kedaluwarsa (DonationExpiryService): hanya baris AVAILABLE
+        execute("CREATE INDEX IF NOT EXISTS idx_donations_available_expiry ON donations (expired_time) " +
+                "WHERE status = 'AVAILABLE'");
+    }
+
+    private void execute(String sql) {
+        try {
+            jdbcTemplate.execute(sql);
+        } catch (DataAccessException e) {
+            // Jangan gagalkan startup; pencarian tetap jalan walau tanpa index
+            log.warn("Gagal menjalankan migrasi skema donasi: {}", e.getMostSpecificCause().getMessage());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.delcom.app.configs;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+
+// Metrik untuk scraper Prometheus (endpoint /actuator/prometheus, hanya dari localhost).
+// Latensi per route diambil dari timer bawaan Spring "http.server.requests" (tag uri = template route,
+// bukan path mentah, plus method & status; max sudah bawaan). Di sini ditambah histogram bucket
+// eksponensial (gaya HDR); p50/p95/p99 dihitung Prometheus, mis.:
+//   histogram_quantile(0.99, sum by (le, uri) (rate(http_server_requests_seconds_bucket[5m])))
+// JVM & pool Hikari sudah direkam otomatis oleh actuator; statistik Hibernate diaktifkan di bawah.
+@Configuration
+public class MetricsConfig {
+
+    public static final String HTTP_SERVER_REQUESTS = "http.server.requests";
+
+    @Bean
+    MeterFilter httpLatencyHistogram() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (!id.getName().equals(HTTP_SERVER_REQUESTS)) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .minimumExpectedValue((double) Duration.ofMillis(1).toNanos())
+                        .maximumExpectedValue((double) Duration.ofSeconds(30).toNanos())
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+
+    // Statistik Hibernate (query, entity load/fetch, cache) dibaca hibernate-micrometer
+    @Bean
+    HibernatePropertiesCustomizer hibernateStatistics(
+            @Value("${app.metrics.hibernate-statistics:true}") boolean enabled) {
+        return properties -> properties.putIfAbsent("hibernate.generate_statistics", enabled);
+    }
+}
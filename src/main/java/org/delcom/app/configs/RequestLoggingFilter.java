@@ -1,12 +1,13 @@
 package org.delcom.app.configs;
 
 import java.io.IOException;
-import java.util.Arrays;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter; // ✅ Tambahkan Import ini
+import org.springframework.web.servlet.HandlerMapping;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -16,18 +17,21 @@ import jakarta.servlet.http.HttpServletResponse;
 @Component
 public class RequestLoggingFilter extends OncePerRequestFilter {
 
-    private static final String RESET = "\u001B[0m";
-    private static final String GREEN = "\u001B[32m";
-    private static final String YELLOW = "\u001B[33m";
-    private static final String RED = "\u001B[31m";
-    private static final String CYAN = "\u001B[36m";
-
     @Value("${server.port:8080}")
     private int port;
 
     @Value("${spring.devtools.livereload.enabled:false}")
     private boolean livereload;
 
+    // Format & tulis log dikerjakan di thread lain, lihat AsyncRequestLogger
+    private final AsyncRequestLogger requestLogger;
+
+    @Autowired
+    public RequestLoggingFilter(@Value("${app.request-log.buffer-size:8192}") int bufferSize,
+                                @Value("${app.request-log.sample-every:10}") int sampleEvery) {
+        this.requestLogger = new AsyncRequestLogger(bufferSize, sampleEvery);
+    }
+
     @Override
     protected void doFilterInternal(
             @NonNull HttpServletRequest request,     // ✅ Tambahkan @NonNull
@@ -35,45 +39,33 @@ public class RequestLoggingFilter extends OncePerRequestFilter {
             @NonNull FilterChain filterChain         // ✅ Tambahkan @NonNull
     ) throws ServletException, IOException {
 
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         filterChain.doFilter(request, response);
-        long duration = System.currentTimeMillis() - start;
+        long duration = (System.nanoTime() - start) / 1_000_000;
 
-        int status = response.getStatus();
-        String color;
-        if (status >= 500) {
-            color = RED;
-        } else if (status >= 400) {
-            color = YELLOW;
-        } else if (status >= 200) {
-            color = GREEN;
-        } else {
-            color = CYAN;
+        String uri = request.getRequestURI();
+        if (uri.startsWith("/.well-known")) {
+            return;
         }
 
-        // Ambil asal kode dari stacktrace
-        StackTraceElement[] stack = Thread.currentThread().getStackTrace();
-        StackTraceElement origin = Arrays.stream(stack)
-                .filter(s -> s.getClassName().startsWith("org.delcom"))
-                .findFirst()
-                .orElse(stack[stack.length - 1]);
-        String originInfo = origin.getClassName() + "." + origin.getMethodName() + ":" + origin.getLineNumber();
-
-        String remoteAddr = request.getRemoteAddr();
+        // Asal kode: handler yang dipilih DispatcherServlet (HandlerMethod untuk controller)
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
 
-        String log = String.format(
-                "%s%-6s %s %d %dms%s [%s] from %s",
-                color,
+        requestLogger.log(new AsyncRequestLogger.Event(
                 request.getMethod(),
-                request.getRequestURI(),
-                status,
+                uri,
+                response.getStatus(),
                 duration,
-                RESET,
-                originInfo,
-                remoteAddr);
+                handler,
+                request.getRemoteAddr()));
+    }
 
-        if (!request.getRequestURI().startsWith("/.well-known")) {
-            System.out.println(log);
-        }
+    AsyncRequestLogger getRequestLogger() {
+        return requestLogger;
+    }
+
+    @Override
+    public void destroy() {
+        requestLogger.shutdown();
     }
-}
\ No newline at end of file
+}
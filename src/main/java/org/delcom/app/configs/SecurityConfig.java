@@ -1,17 +1,24 @@
 package org.delcom.app.configs;
 
+import org.delcom.app.utils.AdaptiveBCryptPasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.expression.WebExpressionAuthorizationManager;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
+
     @Bean
     SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -20,6 +27,9 @@ public class SecurityConfig {
                     res.sendRedirect("/auth/login");
                 }))
             .authorizeHttpRequests(auth -> auth
+                // Endpoint metrik/actuator hanya untuk scraper lokal (juga jika management port = port aplikasi)
+                .requestMatchers(EndpointRequest.toAnyEndpoint())
+                .access(new WebExpressionAuthorizationManager("hasIpAddress('127.0.0.1') or hasIpAddress('::1')"))
                 // PERBAIKAN DI SINI:
                 // Menambahkan "/uploads/**" agar gambar bisa diakses tanpa login
                 .requestMatchers(
@@ -45,8 +55,20 @@ public class SecurityConfig {
         return http.build();
     }
 
+    // Cost BCrypt: tetap jika bcrypt-strength > 0, selain itu diukur saat startup agar satu hash
+    // mendekati target-ms di mesin ini (tidak pernah di bawah min-strength)
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${app.password-hashing.bcrypt-strength:0}") int fixedStrength,
+            @Value("${app.password-hashing.target-ms:250}") long targetMs,
+            @Value("${app.password-hashing.min-strength:10}") int minStrength,
+            @Value("${app.password-hashing.max-strength:14}") int maxStrength) {
+        int strength = fixedStrength > 0
+                ? fixedStrength
+                : AdaptiveBCryptPasswordEncoder.calibrateStrength(targetMs, minStrength, maxStrength);
+        AdaptiveBCryptPasswordEncoder encoder = new AdaptiveBCryptPasswordEncoder(strength, minStrength);
+        log.info("BCrypt strength: {}{}", encoder.getStrength(),
+                fixedStrength > 0 ? " (fixed)" : " (calibrated, target " + targetMs + " ms)");
+        return encoder;
     }
 }
\ No newline at end of file
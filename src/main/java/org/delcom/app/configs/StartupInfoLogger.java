@@ -30,6 +30,9 @@ public class StartupInfoLogger implements ApplicationListener<ApplicationReadyEv
         String liveReloadPort =
                 env.getProperty("spring.devtools.livereload.port", "35729");
 
+        // Mode thread request & executor latar belakang (spring.threads.virtual.enabled)
+        boolean virtualThreads = Boolean.TRUE.equals(env.getProperty("spring.threads.virtual.enabled", Boolean.class));
+
         // Host default = localhost
         String host = env.getProperty("server.address", "localhost");
 
@@ -47,6 +50,7 @@ public class StartupInfoLogger implements ApplicationListener<ApplicationReadyEv
                         ? (YELLOW + "> LiveReload: ENABLED (port " + liveReloadPort + ")" + RESET)
                         : (YELLOW + "> LiveReload: DISABLED" + RESET)
         );
+        System.out.println(CYAN + "> Request threads: " + (virtualThreads ? "VIRTUAL" : "PLATFORM") + RESET);
         System.out.println();
     }
 }
@@ -1,19 +1,22 @@
 package org.delcom.app.configs;
 
+import org.delcom.app.interceptors.RateLimitInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+// File upload (/uploads/**) disajikan UploadController dari app.upload.dir, bukan resource handler
 @Configuration
 public class WebMvcConfig implements WebMvcConfigurer {
 
+    @Autowired
+    private RateLimitInterceptor rateLimitInterceptor;
+
     @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // Logika: 
-        // Jika browser minta URL: http://localhost:8080/uploads/foto.jpg
-        // Ambil file dari folder fisik: ./uploads/foto.jpg (di root project)
-        
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:./uploads/");
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Batas percobaan login/registrasi per IP
+        registry.addInterceptor(rateLimitInterceptor)
+                .addPathPatterns(RateLimitInterceptor.LIMITED_PATHS);
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package org.delcom.app.controllers;
 
-import org.delcom.app.services.DonationService;
+import org.delcom.app.dto.DonationStats;
+import org.delcom.app.services.DonationStatsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -9,15 +10,16 @@ import org.springframework.web.bind.annotation.GetMapping;
 @Controller
 public class DashboardController {
 
-    @Autowired private DonationService donationService;
+    @Autowired private DonationStatsService donationStatsService;
 
     @GetMapping("/dashboard")
     public String dashboard(Model model) {
-        long halalCount = donationService.countHalal(true);
-        long nonHalalCount = donationService.countHalal(false);
+        // Jumlah dari counter in-memory; rincian kategori dari query agregat yang di-cache singkat
+        DonationStats stats = donationStatsService.getStats();
         
-        model.addAttribute("halalCount", halalCount);
-        model.addAttribute("nonHalalCount", nonHalalCount);
+        model.addAttribute("stats", stats);
+        model.addAttribute("halalCount", stats.getHalalCount());
+        model.addAttribute("nonHalalCount", stats.getNonHalalCount());
         
         // PERBAIKAN: Sesuaikan path dengan lokasi file HTML kamu
         // Sebelumnya: "pages/dashboard" (Salah)
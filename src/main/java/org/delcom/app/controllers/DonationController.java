@@ -1,15 +1,28 @@
 package org.delcom.app.controllers;
 
+import org.delcom.app.configs.ApiResponse;
 import org.delcom.app.dto.DonationForm;
 import org.delcom.app.entities.Donation;
+import org.delcom.app.entities.PhotoJob;
 import org.delcom.app.entities.User;
+import org.delcom.app.services.DonationSearchIndex;
 import org.delcom.app.services.DonationService;
+import org.delcom.app.services.FileStorageService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication; // Import Penting
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Controller
@@ -33,6 +46,15 @@ public class DonationController {
         return "pages/donation/detail";
     }
 
+    // 1b. SARAN PENCARIAN (autocomplete kolom search, JSON)
+    @GetMapping("/suggest")
+    @ResponseBody
+    public ResponseEntity<ApiResponse<Map<String, List<DonationSearchIndex.Hit>>>> suggest(
+            @RequestParam(name = "q", required = false) String q) {
+        return ResponseEntity.ok(new ApiResponse<>("success", "Berhasil mendapatkan saran donasi",
+                Map.of("suggestions", donationService.suggestDonations(q))));
+    }
+
     // 2. FORM TAMBAH
     @GetMapping("/add")
     public String addForm(Model model) {
@@ -41,11 +63,18 @@ public class DonationController {
     }
 
     @PostMapping("/add")
-    public String save(@ModelAttribute DonationForm form, Authentication authentication) {
+    public String save(@ModelAttribute("donationForm") DonationForm form, BindingResult bindingResult,
+                       Authentication authentication) {
         // PERBAIKAN: Ambil Real User dari session
         User currentUser = getAuthUser(authentication);
         
-        donationService.saveDonation(form, currentUser);
+        try {
+            donationService.saveDonation(form, currentUser);
+        } catch (FileStorageService.UploadTooLargeException | FileStorageService.UnsupportedImageTypeException e) {
+            // Foto ditolak sebelum donasi disimpan: tampilkan lagi form beserta pesannya
+            bindingResult.rejectValue("photo", "error.donationForm", e.getMessage());
+            return "pages/donation/form";
+        }
         return "redirect:/"; // Redirect ke Home
     }
 
@@ -68,13 +97,43 @@ public class DonationController {
     }
 
     @PostMapping("/edit/{id}")
-    public String update(@PathVariable UUID id, @ModelAttribute DonationForm form, Authentication authentication) {
+    public String update(@PathVariable UUID id, @ModelAttribute("donationForm") DonationForm form,
+                         BindingResult bindingResult, Model model, Authentication authentication) {
         // PERBAIKAN: Ambil Real User
         User currentUser = getAuthUser(authentication);
-        donationService.updateDonation(id, form, currentUser);
+        try {
+            donationService.updateDonation(id, form, currentUser);
+        } catch (FileStorageService.UploadTooLargeException | FileStorageService.UnsupportedImageTypeException e) {
+            // Foto ditolak sebelum donasi diubah
+            bindingResult.rejectValue("photo", "error.donationForm", e.getMessage());
+            model.addAttribute("id", id);
+            return "pages/donation/edit";
+        }
         return "redirect:/";
     }
 
+    // 3b. GANTI FOTO (STREAMING): body request = isi gambar mentah dengan Content-Type image/*, bukan
+    // multipart, sehingga tidak di-spool oleh multipart resolver. Contoh (butuh header CSRF dari sesi):
+    //   PUT /donations/{id}/photo   Content-Type: image/jpeg   <bytes>
+    // 202 = foto diterima dan diproses worker; 413 = terlalu besar; 415 = bukan gambar yang didukung.
+    @PutMapping("/{id}/photo")
+    @ResponseBody
+    public ResponseEntity<ApiResponse<Map<String, UUID>>> uploadPhoto(@PathVariable UUID id,
+                                                                      HttpServletRequest request,
+                                                                      Authentication authentication) throws IOException {
+        User currentUser = getAuthUser(authentication);
+        try {
+            PhotoJob job = donationService.replacePhoto(id, currentUser, request.getInputStream(),
+                    request.getContentType(), request.getContentLengthLong());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(new ApiResponse<>("success",
+                    "Foto diterima dan sedang diproses", Map.of("jobId", job.getId())));
+        } catch (FileStorageService.UploadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(new ApiResponse<>("fail", e.getMessage(), null));
+        } catch (FileStorageService.UnsupportedImageTypeException e) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(new ApiResponse<>("fail", e.getMessage(), null));
+        }
+    }
+
     // 4. HAPUS
     @GetMapping("/delete/{id}")
     public String delete(@PathVariable UUID id, Authentication authentication) {
@@ -85,9 +144,21 @@ public class DonationController {
     
     // 5. CLAIM
     @GetMapping("/claim/{id}")
-    public String claim(@PathVariable UUID id, Authentication authentication) {
+    public String claim(@PathVariable UUID id, Authentication authentication, RedirectAttributes redirectAttributes) {
+        User currentUser = getAuthUser(authentication);
+        boolean won = donationService.claimDonation(id, currentUser);
+        redirectAttributes.addFlashAttribute("claimResult", won ? "success" : "taken");
+        return "redirect:/donations/" + id;
+    }
+
+    // 6. CLAIM SEBAGIAN (beberapa porsi)
+    @PostMapping("/claim/{id}")
+    public String claimPortions(@PathVariable UUID id, @RequestParam(defaultValue = "1") int portions,
+                                Authentication authentication, RedirectAttributes redirectAttributes) {
         User currentUser = getAuthUser(authentication);
-        donationService.claimDonation(id, currentUser);
+        boolean claimed = donationService.claimPortions(id, currentUser, portions);
+        redirectAttributes.addFlashAttribute("claimResult", claimed ? "success" : "insufficient");
+        redirectAttributes.addFlashAttribute("claimedPortions", portions);
         return "redirect:/donations/" + id;
     }
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+package org.delcom.app.controllers;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.delcom.app.services.FileStorageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Menyajikan file upload dari app.upload.dir (lihat FileStorageService.loadServableFile).
+// - Foto content-addressed (ab/cd/<hash>...): URL berubah jika isi berubah -> cache 1 tahun, immutable.
+//   Kunjungan ulang tidak mengirim request sama sekali.
+// - File lama (cover_<id>.<ext>, isi bisa diganti di tempat): no-cache, divalidasi ulang dengan
+//   ETag / Last-Modified dan dijawab 304 tanpa body selama file tidak berubah.
+// - Range satu rentang (206 / 416) untuk unduhan yang terputus; beberapa rentang dijawab file utuh.
+// - Di Tomcat body dikirim langsung oleh connector dari file (sendfile), tanpa disalin lewat heap JVM;
+//   di container lain memakai FileChannel.transferTo.
+@Controller
+public class UploadController {
+
+    // Atribut request sendfile Tomcat (org.apache.catalina.Globals)
+    static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
+
+    @Autowired private FileStorageService fileService;
+
+    @RequestMapping(value = "/uploads/{*path}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serve(@PathVariable String path, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        // {*path} diawali "/"
+        String filename = path.substring(1);
+        Path file = fileService.loadServableFile(filename);
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        boolean immutable = FileStorageService.isContentAddressed(filename);
+        // Strong ETag: nama file content-addressed sudah mewakili isinya; file lama memakai waktu ubah + ukuran
+        String etag = "\"" + (immutable
+                ? file.getFileName().toString()
+                : Long.toHexString(lastModified) + "-" + Long.toHexString(length)) + "\"";
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, (immutable ? IMMUTABLE : REVALIDATE).getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // If-None-Match / If-Modified-Since -> 304; juga mengisi header ETag & Last-Modified
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        long start = 0;
+        long end = length; // eksklusif
+        HttpRange range = singleRange(request, etag, lastModified);
+        if (range != null) {
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length) + 1;
+            if (start >= end) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+        }
+
+        response.setContentType(MediaTypeFactory.getMediaType(filename)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(end - start);
+        if (RequestMethod.HEAD.name().equals(request.getMethod())) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Body ditulis Tomcat setelah method ini selesai
+            request.setAttribute(SENDFILE_FILENAME, file.toRealPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        try (FileChannel in = FileChannel.open(file)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                long sent = in.transferTo(position, end - position, out);
+                if (sent <= 0) {
+                    break; // file terpotong saat dikirim
+                }
+                position += sent;
+            }
+        }
+    }
+
+    // Satu rentang dari header Range, atau null untuk mengirim file utuh: tanpa Range, Range tidak valid,
+    // beberapa rentang, atau If-Range tidak cocok (file sudah berubah sejak bagian sebelumnya diunduh)
+    private static HttpRange singleRange(HttpServletRequest request, String etag, long lastModified) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !ifRangeMatches(request, etag, lastModified)) {
+            return null;
+        }
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(header);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return ranges.size() == 1 ? ranges.get(0) : null;
+    }
+
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag); // hanya perbandingan strong
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -7,12 +7,15 @@ import org.delcom.app.configs.ApiResponse;
 import org.delcom.app.configs.AuthContext;
 import org.delcom.app.entities.AuthToken;
 import org.delcom.app.entities.User;
+import org.delcom.app.interceptors.RateLimitInterceptor;
 import org.delcom.app.services.AuthTokenService;
+import org.delcom.app.services.LoginRateLimiter;
+import org.delcom.app.services.PasswordHashingService;
 import org.delcom.app.services.UserService;
 import org.delcom.app.utils.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -25,10 +28,15 @@ import org.springframework.web.bind.annotation.RestController;
 public class UserController {
     private final UserService userService;
     private final AuthTokenService authTokenService;
+    private final PasswordHashingService passwordHashingService;
+    private final LoginRateLimiter rateLimiter;
 
-    public UserController(UserService userService, AuthTokenService authTokenService) {
+    public UserController(UserService userService, AuthTokenService authTokenService,
+            PasswordHashingService passwordHashingService, LoginRateLimiter rateLimiter) {
         this.userService = userService;
         this.authTokenService = authTokenService;
+        this.passwordHashingService = passwordHashingService;
+        this.rateLimiter = rateLimiter;
     }
 
     @Autowired
@@ -46,6 +54,12 @@ public class UserController {
             return ResponseEntity.badRequest().body(new ApiResponse<>("fail", "Data password tidak valid", null));
         }
 
+        // Batas percobaan per email
+        long waitMillis = rateLimiter.checkEmail(reqUser.getEmail());
+        if (waitMillis > 0) {
+            return tooManyAttempts(waitMillis);
+        }
+
         // Cek apakah email sudah terdaftar
         User existingUser = userService.getUserByEmail(reqUser.getEmail());
         if (existingUser != null) {
@@ -54,7 +68,7 @@ public class UserController {
                             null));
         }
 
-        String hashPassword = new BCryptPasswordEncoder().encode(reqUser.getPassword());
+        String hashPassword = passwordHashingService.encode(reqUser.getPassword());
 
         User createdUser = userService.createUser(
                 reqUser.getName(),
@@ -77,17 +91,25 @@ public class UserController {
             return ResponseEntity.badRequest().body(new ApiResponse<>("fail", "Data tidak valid", null));
         }
 
+        // Batas percobaan per email (sebelum lookup user & BCrypt)
+        long waitMillis = rateLimiter.checkEmail(reqUser.getEmail());
+        if (waitMillis > 0) {
+            return tooManyAttempts(waitMillis);
+        }
+
         User existingUser = userService.getUserByEmail(reqUser.getEmail());
         if (existingUser == null) {
             return ResponseEntity.badRequest().body(new ApiResponse<>("fail", "Email atau password salah", null));
         }
 
-        boolean isPasswordMatch = new BCryptPasswordEncoder()
-                .matches(reqUser.getPassword(), existingUser.getPassword());
+        boolean isPasswordMatch = passwordHashingService.matches(reqUser.getPassword(), existingUser.getPassword());
         if (!isPasswordMatch) {
             return ResponseEntity.badRequest().body(new ApiResponse<>("fail", "Email atau password salah", null));
         }
 
+        // Hash dengan cost BCrypt lama di-upgrade transparan
+        userService.upgradePasswordHashIfNeeded(existingUser, reqUser.getPassword());
+
         String jwtToken = JwtUtil.generateToken(existingUser.getId());
 
         // Hapus token lama jika ada
@@ -176,14 +198,13 @@ public class UserController {
         }
 
         // Validasi password lama
-        boolean isPasswordMatch = new BCryptPasswordEncoder()
-                .matches(oldPassword, authUser.getPassword());
+        boolean isPasswordMatch = passwordHashingService.matches(oldPassword, authUser.getPassword());
         if (!isPasswordMatch) {
             return ResponseEntity.badRequest().body(new ApiResponse<>("fail", "Konfirmasi password tidak cocok", null));
         }
 
         // Update password baru
-        String hashPassword = new BCryptPasswordEncoder().encode(newPassword);
+        String hashPassword = passwordHashingService.encode(newPassword);
         User updatedUser = userService.updatePassword(authUser.getId(), hashPassword);
         if (updatedUser == null) {
             ApiResponse<Void> response = new ApiResponse<>("fail", "User tidak ditemukan", null);
@@ -196,4 +217,18 @@ public class UserController {
         return ResponseEntity.ok(new ApiResponse<>("success", "Password berhasil diupdate", null));
     }
 
+    // Pool hashing password penuh -> tolak cepat dengan 503
+    // -------------------------------
+    @ExceptionHandler(PasswordHashingService.BusyException.class)
+    public ResponseEntity<ApiResponse<Void>> handlePasswordHashingBusy(PasswordHashingService.BusyException e) {
+        return ResponseEntity.status(503)
+                .header("Retry-After", "1")
+                .body(new ApiResponse<>("fail", e.getMessage(), null));
+    }
+
+    private <T> ResponseEntity<ApiResponse<T>> tooManyAttempts(long waitMillis) {
+        return ResponseEntity.status(429)
+                .header("Retry-After", String.valueOf(RateLimitInterceptor.retryAfterSeconds(waitMillis)))
+                .body(new ApiResponse<>("fail", "Terlalu banyak percobaan, silakan coba lagi nanti", null));
+    }
 }
@@ -0,0 +1,12 @@
+package org.delcom.app.dto;
+
+import org.delcom.app.entities.Donation;
+
+// Nilai baris donasi pada saat DELETE (RETURNING): foto yang dilepas & bucket statistik yang dikurangi
+public interface DeletedDonationRow {
+    String getPhotoUrl();
+
+    Donation.DonationStatus getStatus();
+
+    Boolean getIsHalal();
+}
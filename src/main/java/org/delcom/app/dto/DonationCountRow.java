@@ -0,0 +1,34 @@
+package org.delcom.app.dto;
+
+import org.delcom.app.entities.Donation;
+
+// Satu baris hasil GROUP BY (isHalal, status, category) untuk statistik donasi
+public class DonationCountRow {
+    private final Boolean isHalal;
+    private final Donation.DonationStatus status;
+    private final String category;
+    private final long count;
+
+    public DonationCountRow(Boolean isHalal, Donation.DonationStatus status, String category, long count) {
+        this.isHalal = isHalal;
+        this.status = status;
+        this.category = category;
+        this.count = count;
+    }
+
+    public Boolean getIsHalal() {
+        return isHalal;
+    }
+
+    public Donation.DonationStatus getStatus() {
+        return status;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,23 @@
+package org.delcom.app.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Donasi AVAILABLE yang akan kedaluwarsa: cukup id + waktu, tanpa memuat entity lengkap
+public class DonationExpiryRow {
+    private final UUID id;
+    private final LocalDateTime expiredTime;
+
+    public DonationExpiryRow(UUID id, LocalDateTime expiredTime) {
+        this.id = id;
+        this.expiredTime = expiredTime;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public LocalDateTime getExpiredTime() {
+        return expiredTime;
+    }
+}
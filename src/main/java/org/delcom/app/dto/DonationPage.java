@@ -0,0 +1,28 @@
+package org.delcom.app.dto;
+
+import java.util.List;
+
+import org.delcom.app.entities.Donation;
+
+// Satu halaman feed donasi + cursor untuk halaman berikutnya (keyset pagination)
+public class DonationPage {
+    private final List<Donation> items;
+    private final String nextCursor; // null jika sudah halaman terakhir
+
+    public DonationPage(List<Donation> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Donation> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
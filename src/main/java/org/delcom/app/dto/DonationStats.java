@@ -0,0 +1,47 @@
+package org.delcom.app.dto;
+
+import java.util.Map;
+
+import org.delcom.app.entities.Donation;
+
+// Ringkasan statistik donasi untuk dashboard & home (hasil satu query agregat)
+public class DonationStats {
+    private final long total;
+    private final long halalCount;
+    private final long nonHalalCount;
+    private final Map<Donation.DonationStatus, Long> statusCounts;
+    private final Map<String, Long> categoryCounts; // urut dari jumlah terbanyak
+
+    public DonationStats(long total, long halalCount, long nonHalalCount,
+                         Map<Donation.DonationStatus, Long> statusCounts, Map<String, Long> categoryCounts) {
+        this.total = total;
+        this.halalCount = halalCount;
+        this.nonHalalCount = nonHalalCount;
+        this.statusCounts = statusCounts;
+        this.categoryCounts = categoryCounts;
+    }
+
+    public long getHalalCount() {
+        return halalCount;
+    }
+
+    public long getNonHalalCount() {
+        return nonHalalCount;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getStatusCount(Donation.DonationStatus status) {
+        return statusCounts.getOrDefault(status, 0L);
+    }
+
+    public Map<Donation.DonationStatus, Long> getStatusCounts() {
+        return statusCounts;
+    }
+
+    public Map<String, Long> getCategoryCounts() {
+        return categoryCounts;
+    }
+}
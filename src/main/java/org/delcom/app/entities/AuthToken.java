@@ -1,14 +1,21 @@
 package org.delcom.app.entities;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "auth_tokens")
+@Table(name = "auth_tokens", indexes = {
+        @Index(name = "idx_auth_tokens_token_hash", columnList = "token_hash", unique = true),
+        @Index(name = "idx_auth_tokens_created_at", columnList = "created_at")
+})
 @JsonPropertyOrder({ "id", "token", "userId", "createdAt" })
 public class AuthToken {
     @Id
@@ -16,9 +23,13 @@ public class AuthToken {
     @Column(name = "id", updatable = false, nullable = false, columnDefinition = "uuid")
     private UUID id;
 
-    @Column(name = "token", nullable = false, columnDefinition = "TEXT")
+    // Token mentah hanya ada di memori (mis. untuk respons login); yang disimpan & dicari hanya SHA-256-nya
+    @Transient
     private String token;
 
+    @Column(name = "token_hash", columnDefinition = "bytea")
+    private byte[] tokenHash;
+
     @Column(name = "user_id", nullable = false)
     private UUID userId;
 
@@ -30,7 +41,7 @@ public class AuthToken {
 
     public AuthToken(UUID userId, String token) {
         this.userId = userId;
-        this.token = token;
+        setToken(token);
         this.createdAt = LocalDateTime.now();
     }
 
@@ -48,6 +59,12 @@ public class AuthToken {
 
     public void setToken(String token) {
         this.token = token;
+        this.tokenHash = token != null ? hashToken(token) : null;
+    }
+
+    @JsonIgnore
+    public byte[] getTokenHash() {
+        return tokenHash;
     }
 
     public UUID getUserId() {
@@ -67,4 +84,13 @@ public class AuthToken {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
     }
+
+    // SHA-256 token: 32 byte, dipakai sebagai key lookup (unique index)
+    public static byte[] hashToken(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 tidak tersedia", e);
+        }
+    }
 }
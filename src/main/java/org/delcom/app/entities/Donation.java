@@ -13,6 +13,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
@@ -20,7 +21,10 @@ import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "donations")
+@Table(name = "donations", indexes = {
+    // Index untuk feed keyset (ORDER BY created_at DESC, id DESC)
+    @Index(name = "idx_donations_created_at_id", columnList = "created_at DESC, id DESC")
+})
 public class Donation {
 
     @Id
@@ -45,6 +49,11 @@ public class Donation {
 
     private Integer portion;
 
+    // Sisa porsi yang masih bisa diklaim. Hanya diubah lewat UPDATE atomik di DonationRepository
+    // (updatable = false) agar save() entity tidak menimpa hasil klaim yang terjadi bersamaan.
+    @Column(name = "remaining_portion", updatable = false)
+    private Integer remainingPortion;
+
     @DateTimeFormat(pattern = "yyyy-MM-dd'T'HH:mm")
     private LocalDateTime expiredTime;
 
@@ -53,9 +62,22 @@ public class Donation {
 
     private String photoUrl;
 
+    // Lebar varian photoUrl ("400,800,1600"), ditulis worker foto bersama photo_url; null -> file asli saja
+    @Column(name = "photo_variant_widths", length = 32)
+    private String photoVariantWidths;
+
+    // created_at job foto (PhotoJob) yang terakhir dipasang; job yang lebih lama tidak lagi menimpa foto
+    @Column(name = "photo_job_created_at")
+    private LocalDateTime photoJobCreatedAt;
+
     @Enumerated(EnumType.STRING)
     private DonationStatus status; // Enum: AVAILABLE, BOOKED, EXPIRED
 
+    // Gabungan teks yang bisa dicari (nama, deskripsi, kategori, lokasi).
+    // Diisi otomatis saat persist/update; di-index GIN lewat to_tsvector (lihat DonationSchemaInitializer).
+    @Column(name = "search_document", columnDefinition = "TEXT")
+    private String searchDocument;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User createdBy;
@@ -84,11 +106,28 @@ public class Donation {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
         if (this.status == null) this.status = DonationStatus.AVAILABLE;
+        if (this.remainingPortion == null) {
+            this.remainingPortion = (this.portion != null && this.portion > 0) ? this.portion : 1;
+        }
+        refreshSearchDocument();
     }
 
     @PreUpdate
     protected void onUpdate() {
         this.updatedAt = LocalDateTime.now();
+        refreshSearchDocument();
+    }
+
+    // Juga dipanggil DonationService sebelum UPDATE terarah (tanpa @PreUpdate)
+    public void refreshSearchDocument() {
+        StringBuilder doc = new StringBuilder();
+        for (String part : new String[] { name, description, category, location }) {
+            if (part != null && !part.isBlank()) {
+                if (doc.length() > 0) doc.append(' ');
+                doc.append(part);
+            }
+        }
+        this.searchDocument = doc.toString();
     }
 
     // --- GETTERS AND SETTERS (MANUAL) ---
@@ -161,6 +200,14 @@ public class Donation {
         this.portion = portion;
     }
 
+    public Integer getRemainingPortion() {
+        return remainingPortion;
+    }
+
+    public void setRemainingPortion(Integer remainingPortion) {
+        this.remainingPortion = remainingPortion;
+    }
+
     public LocalDateTime getExpiredTime() {
         return expiredTime;
     }
@@ -185,6 +232,22 @@ public class Donation {
         this.photoUrl = photoUrl;
     }
 
+    public String getPhotoVariantWidths() {
+        return photoVariantWidths;
+    }
+
+    public void setPhotoVariantWidths(String photoVariantWidths) {
+        this.photoVariantWidths = photoVariantWidths;
+    }
+
+    public LocalDateTime getPhotoJobCreatedAt() {
+        return photoJobCreatedAt;
+    }
+
+    public void setPhotoJobCreatedAt(LocalDateTime photoJobCreatedAt) {
+        this.photoJobCreatedAt = photoJobCreatedAt;
+    }
+
     public DonationStatus getStatus() {
         return status;
     }
@@ -193,6 +256,10 @@ public class Donation {
         this.status = status;
     }
 
+    public String getSearchDocument() {
+        return searchDocument;
+    }
+
     public User getCreatedBy() {
         return createdBy;
     }
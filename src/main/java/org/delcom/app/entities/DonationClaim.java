@@ -0,0 +1,80 @@
+package org.delcom.app.entities;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import jakarta.persistence.*;
+
+// Satu baris klaim porsi: siapa mengambil berapa porsi dari donasi mana
+@Entity
+@Table(name = "donation_claims", indexes = {
+    @Index(name = "idx_donation_claims_donation_id", columnList = "donation_id")
+})
+public class DonationClaim {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "donation_id", nullable = false)
+    private UUID donationId;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(nullable = false)
+    private int portions;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public DonationClaim() {
+    }
+
+    public DonationClaim(UUID donationId, UUID userId, int portions) {
+        this.donationId = donationId;
+        this.userId = userId;
+        this.portions = portions;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public UUID getDonationId() {
+        return donationId;
+    }
+
+    public void setDonationId(UUID donationId) {
+        this.donationId = donationId;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public void setUserId(UUID userId) {
+        this.userId = userId;
+    }
+
+    public int getPortions() {
+        return portions;
+    }
+
+    public void setPortions(int portions) {
+        this.portions = portions;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    // ======= @PrePersist =======
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,97 @@
+package org.delcom.app.entities;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+// Foto di store content-addressed (lihat FileStorageService.promoteStaged): satu baris per isi file
+// (SHA-256), dipakai bersama oleh semua donasi yang mengunggah foto yang sama. File & varian
+// dihapus saat refCount mencapai 0.
+@Entity
+@Table(name = "photo_blobs")
+public class PhotoBlob {
+
+    // SHA-256 (hex) dari isi file
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    // Path relatif terhadap folder upload, mis. "ab/cd/abcd...ef.png"; nilai ini yang disimpan di donations.photo_url
+    @Column(nullable = false, unique = true)
+    private String filename;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    // Lebar varian yang sudah dibuat, mis. "400,800,1600" ("" jika isi bukan gambar yang bisa di-decode);
+    // null selama varian belum dibuat (lihat ImageVariantService.formatWidths)
+    @Column(name = "variant_widths", length = 32)
+    private String variantWidths;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public PhotoBlob() {
+    }
+
+    public PhotoBlob(String hash, String filename, int refCount) {
+        this.hash = hash;
+        this.filename = filename;
+        this.refCount = refCount;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(int refCount) {
+        this.refCount = refCount;
+    }
+
+    public String getVariantWidths() {
+        return variantWidths;
+    }
+
+    public void setVariantWidths(String variantWidths) {
+        this.variantWidths = variantWidths;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    // ======= @PrePersist & @PreUpdate =======
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
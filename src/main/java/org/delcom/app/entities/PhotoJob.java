@@ -0,0 +1,162 @@
+package org.delcom.app.entities;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import jakarta.persistence.*;
+
+// Antrean pemrosesan foto donasi (lihat PhotoJobService): file upload sudah disalin ke folder staging,
+// worker memindahkannya ke store foto, membuat varian, lalu mengisi donations.photo_url.
+// Job yang berhasil dihapus; yang gagal permanen tetap ada (status FAILED + lastError) untuk diperiksa.
+@Entity
+@Table(name = "photo_jobs", indexes = {
+    @Index(name = "idx_photo_jobs_status_next_attempt", columnList = "status, next_attempt_at")
+})
+public class PhotoJob {
+
+    public enum Status {
+        PENDING, RUNNING, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "donation_id", nullable = false)
+    private UUID donationId;
+
+    // Nama file di folder staging, ekstensi mengikuti file asli
+    @Column(name = "staged_file", nullable = false)
+    private String stagedFile;
+
+    // Nama file di store, dicatat bersama referensi photo_blobs (FileStorageService.acquireStaged) sebelum
+    // file staging dipindah; percobaan ulang melanjutkan dari sini tanpa menghitung referensi dua kali
+    @Column(name = "photo_file")
+    private String photoFile;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Batas waktu job RUNNING; lewat dari ini (worker mati) job diambil ulang
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public PhotoJob() {
+    }
+
+    public PhotoJob(UUID donationId, String stagedFile) {
+        this.donationId = donationId;
+        this.stagedFile = stagedFile;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public UUID getDonationId() {
+        return donationId;
+    }
+
+    public void setDonationId(UUID donationId) {
+        this.donationId = donationId;
+    }
+
+    public String getStagedFile() {
+        return stagedFile;
+    }
+
+    public void setStagedFile(String stagedFile) {
+        this.stagedFile = stagedFile;
+    }
+
+    public String getPhotoFile() {
+        return photoFile;
+    }
+
+    public void setPhotoFile(String photoFile) {
+        this.photoFile = photoFile;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    // ======= @PrePersist & @PreUpdate =======
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -6,10 +6,14 @@ import java.util.UUID;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
+import org.hibernate.annotations.BatchSize;
+
 import jakarta.persistence.*;
 
 @Entity
 @Table(name = "users")
+// Proxy User (createdBy/claimedBy) dari hasil query native dimuat sekaligus per halaman, bukan satu per satu
+@BatchSize(size = 100)
 @JsonPropertyOrder({ "id", "name", "email", "createdAt", "updatedAt" })
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class User {
@@ -50,6 +54,16 @@ public class User {
         this.password = password;
     }
 
+    // Salinan lepas (bukan managed entity), mis. untuk principal yang di-cache
+    public User(User other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.email = other.email;
+        this.password = other.password;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+    }
+
     // ======= Getters and Setters =======
     public UUID getId() {
         return id;
@@ -5,6 +5,7 @@ import java.util.UUID;
 import org.delcom.app.configs.AuthContext;
 import org.delcom.app.entities.AuthToken;
 import org.delcom.app.entities.User;
+import org.delcom.app.services.AuthPrincipalCache;
 import org.delcom.app.services.AuthTokenService;
 import org.delcom.app.services.UserService;
 import org.delcom.app.utils.JwtUtil;
@@ -13,6 +14,7 @@ import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
@@ -28,6 +30,9 @@ public class AuthInterceptor implements HandlerInterceptor {
     @Autowired
     protected UserService userService;
 
+    @Autowired
+    protected AuthPrincipalCache principalCache;
+
     @Override
     public boolean preHandle(
             @NonNull HttpServletRequest request,   // ✅ Tambahkan @NonNull
@@ -50,19 +55,29 @@ public class AuthInterceptor implements HandlerInterceptor {
             return false;
         }
 
-        // Validasi format token JWT
-        if (!JwtUtil.validateToken(token, true)) {
+        // Validasi tanda tangan & masa berlaku JWT (sekali parse, hasil verifikasi di-cache).
+        // Token expired ditolak di sini, sebelum principal cache bisa meloloskannya tanpa cek database.
+        Claims claims = JwtUtil.parseClaims(token, false);
+        if (claims == null) {
             sendErrorResponse(response, 401, "Token autentikasi tidak valid");
             return false;
         }
 
         // Ekstrak userId dari token
-        UUID userId = JwtUtil.extractUserId(token);
+        UUID userId = JwtUtil.extractUserId(claims);
         if (userId == null) {
             sendErrorResponse(response, 401, "Format token autentikasi tidak valid");
             return false;
         }
 
+        // Request "hangat": token & user sudah di-cache, tanpa query database
+        User cachedUser = principalCache.get(token, userId);
+        if (cachedUser != null) {
+            authContext.setAuthUser(cachedUser);
+            return true;
+        }
+        long cacheEpoch = principalCache.currentEpoch();
+
         // Cari token di database
         AuthToken authToken = authTokenService.findUserToken(userId, token);
         
@@ -79,6 +94,7 @@ public class AuthInterceptor implements HandlerInterceptor {
         }
 
         // Set user ke auth context
+        principalCache.put(token, authUser, cacheEpoch);
         authContext.setAuthUser(authUser);
         return true;
     }
@@ -0,0 +1,54 @@
+package org.delcom.app.interceptors;
+
+import org.delcom.app.services.LoginRateLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Batas percobaan per IP untuk endpoint login/registrasi, dijalankan sebelum UserController/AuthView
+// (sebelum lookup user dan BCrypt). Batas per email dicek di controller setelah body dibaca.
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    public static final String[] LIMITED_PATHS = {
+            "/api/auth/login",
+            "/api/auth/register",
+            "/auth/login/post",
+            "/auth/register/post"
+    };
+
+    @Autowired
+    protected LoginRateLimiter rateLimiter;
+
+    @Override
+    public boolean preHandle(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull Object handler
+    ) throws Exception {
+        if (!"POST".equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+
+        long waitMillis = rateLimiter.checkIp(request.getRemoteAddr());
+        if (waitMillis == 0) {
+            return true;
+        }
+
+        response.setStatus(429);
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds(waitMillis)));
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(
+                "{\"status\":\"fail\",\"message\":\"Terlalu banyak percobaan, silakan coba lagi nanti\",\"data\":null}");
+        return false;
+    }
+
+    public static long retryAfterSeconds(long waitMillis) {
+        return Math.max(1, (waitMillis + 999) / 1000);
+    }
+}
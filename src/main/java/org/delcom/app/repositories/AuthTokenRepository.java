@@ -1,24 +1,44 @@
 package org.delcom.app.repositories;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 import org.delcom.app.entities.AuthToken; // Gunakan AuthToken yang benar
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface AuthTokenRepository extends JpaRepository<AuthToken, UUID> {
 
-    // Perbaikan Query: Gunakan nama entity "AuthToken"
-    @Query("SELECT at FROM AuthToken at WHERE at.userId = ?1 AND at.token = ?2")
-    AuthToken findUserToken(UUID userId, String token);
+    // Lookup lewat SHA-256 token (unique index idx_auth_tokens_token_hash), bukan string JWT penuh
+    @Query("SELECT at FROM AuthToken at WHERE at.tokenHash = ?2 AND at.userId = ?1")
+    AuthToken findUserToken(UUID userId, byte[] tokenHash);
 
     @Modifying
     @Transactional
     // Perbaikan Query: Gunakan nama entity "AuthToken"
     @Query("DELETE FROM AuthToken at WHERE at.userId = ?1")
     void deleteByUserId(UUID userId);
-}
\ No newline at end of file
+
+    // --- PEMBERSIHAN (lihat AuthTokenPurgeService) ---
+    // Hapus per batch agar lock & transaksi tetap pendek; SKIP LOCKED agar beberapa instance tidak saling tunggu
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM auth_tokens WHERE id = ANY(ARRAY(" +
+                   "SELECT id FROM auth_tokens WHERE created_at < :cutoff LIMIT :batchSize FOR UPDATE SKIP LOCKED))",
+           nativeQuery = true)
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("batchSize") int batchSize);
+
+    // Token milik user yang sudah tidak ada
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM auth_tokens WHERE id = ANY(ARRAY(" +
+                   "SELECT t.id FROM auth_tokens t WHERE NOT EXISTS (SELECT 1 FROM users u WHERE u.id = t.user_id) " +
+                   "LIMIT :batchSize FOR UPDATE SKIP LOCKED))",
+           nativeQuery = true)
+    int deleteOrphaned(@Param("batchSize") int batchSize);
+}
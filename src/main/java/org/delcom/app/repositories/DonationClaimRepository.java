@@ -0,0 +1,26 @@
+package org.delcom.app.repositories;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.delcom.app.entities.DonationClaim;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface DonationClaimRepository extends JpaRepository<DonationClaim, UUID> {
+
+    List<DonationClaim> findByDonationId(UUID donationId);
+
+    @Query("SELECT COALESCE(SUM(c.portions), 0) FROM DonationClaim c WHERE c.donationId = :donationId")
+    long sumPortionsByDonationId(@Param("donationId") UUID donationId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DonationClaim c WHERE c.donationId = :donationId")
+    void deleteByDonationId(@Param("donationId") UUID donationId);
+}
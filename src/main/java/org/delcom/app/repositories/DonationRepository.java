@@ -1,13 +1,22 @@
 package org.delcom.app.repositories;
 
+import org.delcom.app.dto.DeletedDonationRow;
+import org.delcom.app.dto.DonationCountRow;
+import org.delcom.app.dto.DonationExpiryRow;
 import org.delcom.app.entities.Donation;
 import org.delcom.app.entities.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param; // Wajib ada
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -23,11 +32,173 @@ public interface DonationRepository extends JpaRepository<Donation, UUID> {
     // Statistik
     long countByIsHalal(Boolean isHalal);
     long countByStatus(Donation.DonationStatus status);
+
+    // --- CLAIM ATOMIK ---
+    // Satu UPDATE bersyarat: hanya baris yang masih AVAILABLE yang berubah, jadi dari banyak klaim
+    // bersamaan hanya satu yang mendapat hasil 1 (pemenang), sisanya 0. Klaim utuh menghabiskan semua porsi.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Donation d SET d.status = :booked, d.claimedBy = :claimant, d.remainingPortion = 0, d.updatedAt = :now " +
+           "WHERE d.id = :id AND d.status = :available")
+    int claimIfAvailable(@Param("id") UUID id,
+                         @Param("claimant") User claimant,
+                         @Param("now") LocalDateTime now,
+                         @Param("available") Donation.DonationStatus available,
+                         @Param("booked") Donation.DonationStatus booked);
+
+    // Klaim sebagian: kurangi sisa porsi hanya jika cukup (tidak pernah oversell).
+    // Klaim yang mengambil porsi terakhir sekaligus mengubah status menjadi BOOKED.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Donation d SET d.remainingPortion = d.remainingPortion - :portions, " +
+           "d.status = CASE WHEN d.remainingPortion = :portions THEN :booked ELSE d.status END, " +
+           "d.updatedAt = :now " +
+           "WHERE d.id = :id AND d.status = :available AND d.remainingPortion >= :portions")
+    int claimPortionsIfAvailable(@Param("id") UUID id,
+                                 @Param("portions") int portions,
+                                 @Param("now") LocalDateTime now,
+                                 @Param("available") Donation.DonationStatus available,
+                                 @Param("booked") Donation.DonationStatus booked);
+
+    // Sisa porsi yang masih bisa diklaim (0 jika sudah tidak AVAILABLE); kosong jika donasi tidak ada
+    @Query("SELECT CASE WHEN d.status = :available THEN COALESCE(d.remainingPortion, 0) ELSE 0 END " +
+           "FROM Donation d WHERE d.id = :id")
+    Optional<Integer> findAvailablePortions(@Param("id") UUID id,
+                                            @Param("available") Donation.DonationStatus available);
+
+    // Dipakai saat pemilik mengubah jumlah porsi: geser sisa porsi dengan selisihnya (minimal 0)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Donation d SET d.remainingPortion = " +
+           "CASE WHEN d.remainingPortion + :delta < 0 THEN 0 ELSE d.remainingPortion + :delta END " +
+           "WHERE d.id = :id")
+    int adjustRemainingPortion(@Param("id") UUID id, @Param("delta") int delta);
+
+    // Dipakai saat pemilik mengedit donasi: hanya kolom dari form (+ search_document & updated_at, karena
+    // @PreUpdate tidak jalan). Status, pengklaim, sisa porsi & photo_url tidak ditulis, jadi klaim,
+    // kedaluwarsa atau worker foto yang berjalan bersamaan tidak tertimpa nilai lama hasil findById.
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Donation d SET d.name = :#{#changes.name}, d.location = :#{#changes.location}, " +
+           "d.category = :#{#changes.category}, d.isHalal = :#{#changes.isHalal}, " +
+           "d.portion = :#{#changes.portion}, d.description = :#{#changes.description}, " +
+           "d.expiredTime = :#{#changes.expiredTime}, d.searchDocument = :#{#changes.searchDocument}, " +
+           "d.updatedAt = :now WHERE d.id = :id")
+    int updateDetails(@Param("id") UUID id, @Param("changes") Donation changes, @Param("now") LocalDateTime now);
+
+    // Dipakai worker foto (PhotoJobService): hanya kolom photo_url & lebar variannya, tidak menimpa
+    // editan yang berjalan. Return photo_url sebelumnya (elemen null jika belum ada foto) agar referensinya bisa dilepas;
+    // kosong jika donasi sudah dihapus, atau sudah memasang foto dari job yang lebih baru (job lama yang
+    // selesai belakangan, mis. setelah retry, tidak menimpanya). Job yang sama boleh memasang ulang (<=).
+    // Baris lama dikunci agar dua job untuk donasi yang sama tidak sama-sama membaca foto lama yang sama.
+    @Transactional
+    @Query(value = "UPDATE donations d SET photo_url = :photoUrl, photo_variant_widths = :variantWidths, " +
+                   "photo_job_created_at = :jobCreatedAt, updated_at = :now " +
+                   "FROM (SELECT id, photo_url FROM donations WHERE id = :id AND " +
+                   "(photo_job_created_at IS NULL OR photo_job_created_at <= :jobCreatedAt) FOR UPDATE) old " +
+                   "WHERE d.id = old.id RETURNING old.photo_url", nativeQuery = true)
+    List<String> swapPhotoUrl(@Param("id") UUID id,
+                              @Param("photoUrl") String photoUrl,
+                              @Param("variantWidths") String variantWidths,
+                              @Param("jobCreatedAt") LocalDateTime jobCreatedAt,
+                              @Param("now") LocalDateTime now);
+
+    // Hapus donasi dan return photo_url, status, is_halal pada saat baris dihapus; kosong jika sudah
+    // dihapus request lain. DELETE menunggu lock swapPhotoUrl/update status, jadi foto yang dilepas dan
+    // bucket statistik yang dikurangi selalu milik baris yang benar-benar terhapus, tepat satu kali.
+    @Transactional
+    @Query(value = "DELETE FROM donations WHERE id = :id "
+            + "RETURNING photo_url AS \"photoUrl\", status AS \"status\", is_halal AS \"isHalal\"", nativeQuery = true)
+    List<DeletedDonationRow> deleteReturningRow(@Param("id") UUID id);
+
+    // --- KEDALUWARSA (lihat DonationExpiryService) ---
+    // Donasi AVAILABLE yang kedaluwarsa dalam rentang (from, to], untuk dimuat ke delay queue
+    @Query("SELECT new org.delcom.app.dto.DonationExpiryRow(d.id, d.expiredTime) FROM Donation d " +
+           "WHERE d.status = :available AND d.expiredTime > :from AND d.expiredTime <= :to " +
+           "ORDER BY d.expiredTime")
+    List<DonationExpiryRow> findExpiringBetween(@Param("available") Donation.DonationStatus available,
+                                                @Param("from") LocalDateTime from,
+                                                @Param("to") LocalDateTime to,
+                                                Limit limit);
+
+    // Batch dari delay queue: syarat diperiksa ulang di database (waktu bisa sudah diedit, atau
+    // instance lain sudah memprosesnya). Mengembalikan id yang benar-benar berubah.
+    @Transactional
+    @Query(value = "UPDATE donations SET status = 'EXPIRED', updated_at = :now " +
+                   "WHERE id IN (:ids) AND status = 'AVAILABLE' AND expired_time <= :now " +
+                   "RETURNING id", nativeQuery = true)
+    List<UUID> expireAvailable(@Param("ids") List<UUID> ids, @Param("now") LocalDateTime now);
+
+    // Sapu jaring: semua yang sudah lewat waktu (mis. saat aplikasi mati), per batch.
+    // SKIP LOCKED agar beberapa instance bisa menyapu bersamaan tanpa saling menunggu.
+    @Transactional
+    @Query(value = "UPDATE donations SET status = 'EXPIRED', updated_at = :now " +
+                   "WHERE id = ANY(ARRAY(SELECT id FROM donations WHERE status = 'AVAILABLE' AND expired_time <= :now " +
+                   "ORDER BY expired_time LIMIT :batchSize FOR UPDATE SKIP LOCKED)) " +
+                   "RETURNING id", nativeQuery = true)
+    List<UUID> expireOverdue(@Param("now") LocalDateTime now, @Param("batchSize") int batchSize);
+
+    // Semua angka statistik (halal/non-halal, status, kategori) dalam satu query agregat
+    @Query("SELECT new org.delcom.app.dto.DonationCountRow(d.isHalal, d.status, d.category, COUNT(d)) " +
+           "FROM Donation d GROUP BY d.isHalal, d.status, d.category")
+    List<DonationCountRow> countGroupedByHalalStatusCategory();
     
-    // --- QUERY PENCARIAN (FIXED) ---
-    // Perbaikan: Hapus fungsi LOWER() pada parameter :keyword agar PostgreSQL tidak error tipe data
+    // --- FULL-TEXT SEARCH (PostgreSQL) ---
+    // Ekspresi harus sama persis dengan index GIN idx_donations_search agar index terpakai.
+    String SEARCH_VECTOR = "to_tsvector('simple', coalesce(d.search_document, ''))";
+
+    // Detail donasi: donatur & pengklaim untuk halaman view diambil dalam query yang sama (LEFT JOIN),
+    // bukan query users terpisah saat template membaca createdBy/claimedBy.
+    // Feed tidak menampilkan user, jadi tidak di-join; jika dibaca, User di-batch fetch (@BatchSize).
+    @EntityGraph(attributePaths = {"createdBy", "claimedBy"})
+    Optional<Donation> findDetailById(UUID id);
+
+    // --- FEED KEYSET PAGINATION ---
+    // Urutan tetap (createdAt DESC, id DESC) agar cursor stabil dan memakai index idx_donations_created_at_id.
+    // Halaman berikutnya dicari dengan "WHERE (createdAt, id) < cursor", bukan OFFSET,
+    // sehingga biaya per halaman tidak bergantung pada jumlah total baris.
+    @Query("SELECT d FROM Donation d WHERE " +
+           "(:isHalal IS NULL OR d.isHalal = :isHalal) " +
+           "ORDER BY d.createdAt DESC, d.id DESC")
+    List<Donation> findFeedFirstPage(@Param("isHalal") Boolean isHalal, Limit limit);
+
     @Query("SELECT d FROM Donation d WHERE " +
-           "(:keyword IS NULL OR LOWER(d.name) LIKE :keyword) AND " +
-           "(:isHalal IS NULL OR d.isHalal = :isHalal)")
-    List<Donation> searchDonations(@Param("keyword") String keyword, @Param("isHalal") Boolean isHalal);
-}
\ No newline at end of file
+           "(:isHalal IS NULL OR d.isHalal = :isHalal) AND " +
+           "(d.createdAt < :cursorCreatedAt OR (d.createdAt = :cursorCreatedAt AND d.id < :cursorId)) " +
+           "ORDER BY d.createdAt DESC, d.id DESC")
+    List<Donation> findFeedPageAfter(@Param("isHalal") Boolean isHalal,
+                                     @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                     @Param("cursorId") UUID cursorId,
+                                     Limit limit);
+
+    // --- FEED DENGAN KEYWORD: PERINGKAT RELEVANSI ---
+    // Index GIN menyaring baris yang cocok, lalu diurutkan (ts_rank DESC, id DESC). ts_rank dihitung per
+    // baris yang cocok, jadi biayanya mengikuti jumlah hasil, bukan ukuran tabel. Halaman berikutnya dicari
+    // dengan "(rank, id) < cursor" (bukan OFFSET) agar "Muat Lebih Banyak" stabil.
+    String SEARCH_RANK = "ts_rank(" + SEARCH_VECTOR + ", to_tsquery('simple', :query))";
+
+    @Query(value = "SELECT d.* FROM donations d WHERE " +
+                   SEARCH_VECTOR + " @@ to_tsquery('simple', :query) AND " +
+                   "(CAST(:isHalal AS boolean) IS NULL OR d.is_halal = CAST(:isHalal AS boolean)) " +
+                   "ORDER BY " + SEARCH_RANK + " DESC, d.id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<Donation> searchFeedFirstPage(@Param("query") String query,
+                                       @Param("isHalal") Boolean isHalal,
+                                       @Param("limit") int limit);
+
+    @Query(value = "SELECT d.* FROM donations d WHERE " +
+                   SEARCH_VECTOR + " @@ to_tsquery('simple', :query) AND " +
+                   "(CAST(:isHalal AS boolean) IS NULL OR d.is_halal = CAST(:isHalal AS boolean)) AND " +
+                   "(" + SEARCH_RANK + ", d.id) < (CAST(:cursorRank AS real), :cursorId) " +
+                   "ORDER BY " + SEARCH_RANK + " DESC, d.id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<Donation> searchFeedPageAfter(@Param("query") String query,
+                                       @Param("isHalal") Boolean isHalal,
+                                       @Param("cursorRank") float cursorRank,
+                                       @Param("cursorId") UUID cursorId,
+                                       @Param("limit") int limit);
+
+    // Peringkat item terakhir satu halaman, untuk cursor halaman berikutnya (lookup primary key)
+    @Query(value = "SELECT " + SEARCH_RANK + " FROM donations d WHERE d.id = :id", nativeQuery = true)
+    Optional<Float> findSearchRank(@Param("query") String query, @Param("id") UUID id);
+}
@@ -0,0 +1,56 @@
+package org.delcom.app.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.delcom.app.entities.PhotoBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface PhotoBlobRepository extends JpaRepository<PhotoBlob, String> {
+
+    // Tambah satu referensi untuk job foto (baris baru dengan refCount 1 jika isi ini belum pernah disimpan)
+    // dan catat filename-nya di photo_jobs.photo_file, dalam satu statement: keduanya tersimpan atau tidak
+    // sama sekali. Job yang photo_file-nya sudah terisi tidak menambah referensi lagi (return kosong);
+    // job dikunci agar dua worker yang mengambil job yang sama tidak sama-sama menambah referensi.
+    // Return filename yang tersimpan: upload pertama menentukan ekstensinya.
+    // Menunggu lock baris jika release() sedang menghapus isi yang sama, jadi setelah ini file boleh
+    // langsung ditulis tanpa tertimpa penghapusan.
+    @Transactional
+    @Query(value = "WITH job AS (SELECT id FROM photo_jobs WHERE id = :jobId AND photo_file IS NULL FOR UPDATE), " +
+                   "blob AS (INSERT INTO photo_blobs (hash, filename, ref_count, created_at, updated_at) " +
+                   "SELECT :hash, :filename, 1, :now, :now FROM job " +
+                   "ON CONFLICT (hash) DO UPDATE SET ref_count = photo_blobs.ref_count + 1, updated_at = :now " +
+                   "RETURNING filename) " +
+                   "UPDATE photo_jobs j SET photo_file = blob.filename, updated_at = :now FROM blob " +
+                   "WHERE j.id = :jobId RETURNING j.photo_file", nativeQuery = true)
+    List<String> acquire(@Param("hash") String hash,
+                         @Param("filename") String filename,
+                         @Param("jobId") UUID jobId,
+                         @Param("now") LocalDateTime now);
+
+    // Lebar varian yang tercatat untuk file ini; kosong jika belum dibuat (atau baris tidak ada)
+    @Query("SELECT b.variantWidths FROM PhotoBlob b WHERE b.filename = :filename")
+    Optional<String> findVariantWidths(@Param("filename") String filename);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PhotoBlob b SET b.variantWidths = :widths, b.updatedAt = :now WHERE b.filename = :filename")
+    int updateVariantWidths(@Param("filename") String filename,
+                            @Param("widths") String widths,
+                            @Param("now") LocalDateTime now);
+
+    // Dipakai release(): baris dikunci sampai transaksi selesai (termasuk penghapusan file)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<PhotoBlob> findByFilename(String filename);
+}
@@ -0,0 +1,39 @@
+package org.delcom.app.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.delcom.app.entities.PhotoJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface PhotoJobRepository extends JpaRepository<PhotoJob, UUID> {
+
+    // Ambil job yang jatuh tempo: PENDING yang sudah waktunya, atau RUNNING yang lease-nya habis
+    // (worker/instance mati di tengah jalan). SKIP LOCKED agar beberapa instance tidak mengambil job yang sama.
+    @Transactional
+    @Query(value = "UPDATE photo_jobs SET status = 'RUNNING', attempts = attempts + 1, " +
+                   "locked_until = :lockedUntil, updated_at = :now " +
+                   "WHERE id = ANY(ARRAY(SELECT id FROM photo_jobs WHERE " +
+                   "(status = 'PENDING' AND next_attempt_at <= :now) OR (status = 'RUNNING' AND locked_until <= :now) " +
+                   "ORDER BY next_attempt_at LIMIT :batchSize FOR UPDATE SKIP LOCKED)) " +
+                   "RETURNING id", nativeQuery = true)
+    List<UUID> claimDue(@Param("now") LocalDateTime now,
+                        @Param("lockedUntil") LocalDateTime lockedUntil,
+                        @Param("batchSize") int batchSize);
+
+    // Ambil satu job tertentu (langsung setelah enqueue); kosong jika sudah diambil worker lain
+    @Transactional
+    @Query(value = "UPDATE photo_jobs SET status = 'RUNNING', attempts = attempts + 1, " +
+                   "locked_until = :lockedUntil, updated_at = :now " +
+                   "WHERE id = :id AND status = 'PENDING' " +
+                   "RETURNING id", nativeQuery = true)
+    List<UUID> claim(@Param("id") UUID id,
+                     @Param("now") LocalDateTime now,
+                     @Param("lockedUntil") LocalDateTime lockedUntil);
+}
@@ -5,9 +5,20 @@
 
     import org.delcom.app.entities.User;
     import org.springframework.data.jpa.repository.JpaRepository;
+    import org.springframework.data.jpa.repository.Modifying;
+    import org.springframework.data.jpa.repository.Query;
+    import org.springframework.data.repository.query.Param;
     import org.springframework.stereotype.Repository;
+    import org.springframework.transaction.annotation.Transactional;
 
     @Repository
     public interface UserRepository extends JpaRepository<User, UUID> {
         Optional<User> findFirstByEmail(String email);
+
+        // Hash ulang saat login (cost naik): hanya jika hash belum berubah sejak dibaca,
+        // jadi ganti password yang terjadi bersamaan tidak tertimpa hash lama
+        @Modifying(clearAutomatically = true)
+        @Transactional
+        @Query("UPDATE User u SET u.password = :newHash WHERE u.id = :id AND u.password = :oldHash")
+        int replacePasswordHash(@Param("id") UUID id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
     }
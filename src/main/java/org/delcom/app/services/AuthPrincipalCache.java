@@ -0,0 +1,87 @@
+package org.delcom.app.services;
+
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.delcom.app.entities.AuthToken;
+import org.delcom.app.entities.User;
+import org.delcom.app.utils.TtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Cache principal API (token -> user) agar request yang sudah "hangat" tidak menyentuh database.
+// - Key = SHA-256 token, token mentah tidak disimpan.
+// - Dibuang eksplisit saat token dihapus (logout/ganti password) atau data user diubah.
+// - TTL pendek membatasi data basi bila perubahan terjadi di instance lain.
+@Service
+public class AuthPrincipalCache {
+
+    static final int MAX_ENTRIES = 10_000;
+
+    private record Principal(UUID userId, User user) {
+    }
+
+    private final TtlCache<String, Principal> principals;
+
+    // Naik setiap invalidasi; hasil lookup DB yang dimulai sebelum invalidasi tidak boleh masuk cache
+    private final AtomicLong epoch = new AtomicLong();
+
+    public AuthPrincipalCache(@Value("${app.auth.principal-cache-ttl-ms:60000}") long ttlMs) {
+        this.principals = new TtlCache<>(MAX_ENTRIES, ttlMs);
+    }
+
+    // Salinan user untuk token ini (milik userId), atau null jika belum/tidak lagi di-cache
+    public User get(String token, UUID userId) {
+        Principal principal = principals.get(hash(token));
+        if (principal == null || !principal.userId().equals(userId)) {
+            return null;
+        }
+        return new User(principal.user());
+    }
+
+    // Ambil sebelum lookup ke database, lalu serahkan ke put()
+    public long currentEpoch() {
+        return epoch.get();
+    }
+
+    public void put(String token, User user, long epochAtLookup) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        principals.put(hash(token), new Principal(user.getId(), new User(user)));
+        // Invalidasi terjadi selama lookup -> data mungkin sudah basi, jangan simpan
+        if (epoch.get() != epochAtLookup) {
+            principals.remove(hash(token));
+        }
+    }
+
+    // Dipanggil di dalam transaksi: dibuang sekarang dan sekali lagi setelah transaksi selesai,
+    // supaya request yang sempat membaca data lama sebelum commit tidak menyimpannya kembali
+    public void invalidateUser(UUID userId) {
+        evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(userId);
+                }
+            });
+        }
+    }
+
+    private void evict(UUID userId) {
+        epoch.incrementAndGet();
+        principals.removeIf(principal -> principal.userId().equals(userId));
+    }
+
+    public int size() {
+        return principals.size();
+    }
+
+    static String hash(String token) {
+        return HexFormat.of().formatHex(AuthToken.hashToken(token));
+    }
+}
@@ -0,0 +1,60 @@
+package org.delcom.app.services;
+
+import java.time.LocalDateTime;
+import java.util.function.IntSupplier;
+
+import org.delcom.app.repositories.AuthTokenRepository;
+import org.delcom.app.utils.JwtUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Pembersihan berkala auth_tokens: token yang lebih tua dari masa berlaku JWT dan token milik user
+// yang sudah dihapus. Dihapus per batch (tiap batch transaksi sendiri) agar tidak menahan lock lama.
+@Service
+public class AuthTokenPurgeService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthTokenPurgeService.class);
+
+    public record PurgeResult(int expired, int orphaned) {
+        public int total() {
+            return expired + orphaned;
+        }
+    }
+
+    private final AuthTokenRepository authTokenRepository;
+    private final int batchSize;
+
+    public AuthTokenPurgeService(AuthTokenRepository authTokenRepository,
+                                 @Value("${app.auth.token-purge-batch-size:1000}") int batchSize) {
+        this.authTokenRepository = authTokenRepository;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.auth.token-purge-interval-ms:3600000}",
+               initialDelayString = "${app.auth.token-purge-initial-delay-ms:60000}")
+    public PurgeResult purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(JwtUtil.getExpirationMillis() * 1_000_000L);
+        int expired = deleteInBatches(() -> authTokenRepository.deleteCreatedBefore(cutoff, batchSize));
+        int orphaned = deleteInBatches(() -> authTokenRepository.deleteOrphaned(batchSize));
+
+        PurgeResult result = new PurgeResult(expired, orphaned);
+        if (result.total() > 0) {
+            log.info("Pembersihan auth token: {} expired, {} tanpa user ({} baris)", expired, orphaned, result.total());
+        }
+        return result;
+    }
+
+    // Ulangi selama batch terakhir penuh
+    private int deleteInBatches(IntSupplier deleteBatch) {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = deleteBatch.getAsInt();
+            total += deleted;
+        } while (deleted >= batchSize);
+        return total;
+    }
+}
@@ -12,15 +12,17 @@ import org.springframework.transaction.annotation.Transactional;
 public class AuthTokenService {
     
     private final AuthTokenRepository authTokenRepository;
+    private final AuthPrincipalCache principalCache;
 
-    public AuthTokenService(AuthTokenRepository authTokenRepository) {
+    public AuthTokenService(AuthTokenRepository authTokenRepository, AuthPrincipalCache principalCache) {
         this.authTokenRepository = authTokenRepository;
+        this.principalCache = principalCache;
     }
 
     @Transactional(readOnly = true)
     public AuthToken findUserToken(UUID userId, String token) {
         // ✅ Fix: Membungkus userId agar aman dari null warning
-        return authTokenRepository.findUserToken(Objects.requireNonNull(userId), token);
+        return authTokenRepository.findUserToken(Objects.requireNonNull(userId), AuthToken.hashToken(token));
     }
 
     @Transactional
@@ -34,5 +36,6 @@ public class AuthTokenService {
     public void deleteAuthToken(UUID userId) {
         // ✅ Fix: Membungkus userId
         authTokenRepository.deleteByUserId(Objects.requireNonNull(userId));
+        principalCache.invalidateUser(userId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,160 @@
+package org.delcom.app.services;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+import org.delcom.app.dto.DonationExpiryRow;
+import org.delcom.app.entities.Donation;
+import org.delcom.app.repositories.DonationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Mesin kedaluwarsa donasi: AVAILABLE -> EXPIRED saat expiredTime lewat.
+// - Delay queue berisi donasi yang kedaluwarsa dalam jendela ke depan (lookahead), dimuat berkala dari
+//   database dan ditambah langsung saat donasi dibuat/diedit. Yang jatuh tempo diproses per batch UPDATE.
+// - Sapu jaring berkala (juga saat startup) untuk yang terlewat: aplikasi mati, dibuat di instance lain.
+// - Setiap UPDATE memeriksa ulang status & waktu di database, jadi aman dijalankan banyak instance.
+@Service
+public class DonationExpiryService {
+
+    private static final Logger log = LoggerFactory.getLogger(DonationExpiryService.class);
+
+    private final DonationRepository donationRepo;
+    private final DonationSearchIndex searchIndex;
+    private final DonationStatsService statsService;
+    private final PortionReservationService reservations;
+    private final long lookaheadMs;
+    private final int batchSize;
+
+    // Entri antrean; id -> jatuh tempo terbaru dipakai untuk membuang entri basi (waktu sudah diedit)
+    private record ExpiryEntry(UUID id, long dueAtMillis) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMillis, ((ExpiryEntry) other).dueAtMillis);
+        }
+    }
+
+    private final DelayQueue<ExpiryEntry> queue = new DelayQueue<>();
+    private final ConcurrentHashMap<UUID, Long> scheduled = new ConcurrentHashMap<>();
+
+    public DonationExpiryService(DonationRepository donationRepo,
+                                 DonationSearchIndex searchIndex,
+                                 DonationStatsService statsService,
+                                 PortionReservationService reservations,
+                                 @Value("${app.expiry.lookahead-ms:3600000}") long lookaheadMs,
+                                 @Value("${app.expiry.batch-size:500}") int batchSize) {
+        this.donationRepo = donationRepo;
+        this.searchIndex = searchIndex;
+        this.statsService = statsService;
+        this.reservations = reservations;
+        this.lookaheadMs = lookaheadMs;
+        this.batchSize = batchSize;
+    }
+
+    // --- PENJADWALAN ---
+    // Dipanggil DonationService setelah donasi dibuat/diedit. Di luar jendela lookahead diabaikan;
+    // akan termuat oleh loadUpcoming() saat sudah dekat.
+    public void schedule(UUID id, LocalDateTime expiredTime) {
+        if (id == null || expiredTime == null) {
+            return;
+        }
+        long dueAt = expiredTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (dueAt > System.currentTimeMillis() + lookaheadMs) {
+            scheduled.remove(id); // waktu diundur jauh: entri lama jadi basi
+            return;
+        }
+        Long previous = scheduled.put(id, dueAt);
+        if (previous == null || previous != dueAt) {
+            queue.add(new ExpiryEntry(id, dueAt));
+        }
+    }
+
+    public int pendingCount() {
+        return scheduled.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.expiry.reload-interval-ms:300000}",
+               initialDelayString = "${app.expiry.reload-interval-ms:300000}")
+    public void loadUpcoming() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plusNanos(lookaheadMs * 1_000_000L);
+        List<DonationExpiryRow> rows = donationRepo.findExpiringBetween(
+                Donation.DonationStatus.AVAILABLE, now, until, Limit.of(batchSize * 20));
+        for (DonationExpiryRow row : rows) {
+            schedule(row.getId(), row.getExpiredTime());
+        }
+    }
+
+    // --- PEMROSESAN ---
+    @Scheduled(fixedDelayString = "${app.expiry.poll-interval-ms:1000}")
+    public int expireDue() {
+        int expired = 0;
+        List<UUID> batch = new ArrayList<>();
+        ExpiryEntry entry;
+        while ((entry = queue.poll()) != null) {
+            // Lewati entri basi (sudah dijadwalkan ulang dengan waktu lain)
+            if (scheduled.remove(entry.id(), entry.dueAtMillis())) {
+                batch.add(entry.id());
+            }
+            if (batch.size() >= batchSize) {
+                expired += markExpired(donationRepo.expireAvailable(batch, LocalDateTime.now()));
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            expired += markExpired(donationRepo.expireAvailable(batch, LocalDateTime.now()));
+        }
+        return expired;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        sweepOverdue();
+        loadUpcoming();
+    }
+
+    @Scheduled(fixedDelayString = "${app.expiry.sweep-interval-ms:60000}",
+               initialDelayString = "${app.expiry.sweep-interval-ms:60000}")
+    public int sweepOverdue() {
+        int expired = 0;
+        List<UUID> ids;
+        do {
+            ids = donationRepo.expireOverdue(LocalDateTime.now(), batchSize);
+            expired += markExpired(ids);
+        } while (ids.size() >= batchSize);
+        if (expired > 0) {
+            log.info("{} donasi ditandai EXPIRED oleh sapu jaring", expired);
+        }
+        return expired;
+    }
+
+    // Sinkronkan struktur in-memory untuk donasi yang benar-benar berubah status
+    private int markExpired(List<UUID> ids) {
+        for (UUID id : ids) {
+            searchIndex.updateAvailability(id, false);
+            reservations.invalidate(id);
+        }
+        if (!ids.isEmpty()) {
+            statsService.onStatusChanged(Donation.DonationStatus.AVAILABLE, Donation.DonationStatus.EXPIRED, ids.size());
+        }
+        return ids.size();
+    }
+}
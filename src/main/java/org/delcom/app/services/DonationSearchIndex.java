@@ -0,0 +1,452 @@
+package org.delcom.app.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.delcom.app.entities.Donation;
+import org.delcom.app.repositories.DonationRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+// Inverted index in-memory untuk pencarian cepat (autocomplete) tanpa query ke PostgreSQL.
+// - Setiap donasi mendapat nomor urut (ordinal) int; posting list = int[] ordinal yang terurut naik.
+// - UUID disimpan sebagai dua long[] (msb/lsb), status hidup/tersedia sebagai BitSet.
+// - Update = hapus ordinal lama (tombstone) + tambah ordinal baru; tombstone dibersihkan lewat compaction.
+// Untuk 1 juta donasi dengan ~10 token unik per donasi: ~40 MB posting list + ~16 MB UUID.
+@Service
+public class DonationSearchIndex {
+
+    // Satu hasil pencarian: cukup id + nama untuk ditampilkan sebagai saran
+    public record Hit(UUID id, String name) {}
+
+    static final int REBUILD_BATCH_SIZE = 1000;
+    static final int COMPACT_MIN_DEAD = 1024;
+
+    private final DonationRepository donationRepo;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private State state = new State();
+    // Perubahan yang terjadi selama rebuild, diputar ulang ke index baru sebelum ditukar (null = tidak sedang rebuild)
+    private List<Op> pendingDuringRebuild;
+
+    public DonationSearchIndex(DonationRepository donationRepo) {
+        this.donationRepo = donationRepo;
+    }
+
+    // --- TOKENIZER ---
+    // Huruf kecil, dipisah pada karakter selain huruf/angka. Dipakai juga untuk menyusun tsquery.
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // --- UPDATE INKREMENTAL (dipanggil dari DonationService) ---
+    public void upsert(Donation donation) {
+        if (donation.getId() == null) {
+            return;
+        }
+        LinkedHashSet<String> tokens = new LinkedHashSet<>();
+        tokens.addAll(tokenize(donation.getName()));
+        tokens.addAll(tokenize(donation.getDescription()));
+        tokens.addAll(tokenize(donation.getCategory()));
+        boolean available = donation.getStatus() == null || donation.getStatus() == Donation.DonationStatus.AVAILABLE;
+        apply(new Op(OpType.UPSERT, donation.getId(), donation.getName(), tokens, available));
+    }
+
+    public void updateAvailability(UUID id, boolean available) {
+        apply(new Op(OpType.AVAILABILITY, id, null, List.of(), available));
+    }
+
+    public void remove(UUID id) {
+        apply(new Op(OpType.REMOVE, id, null, List.of(), false));
+    }
+
+    private void apply(Op op) {
+        lock.writeLock().lock();
+        try {
+            op.applyTo(state);
+            state.compactIfNeeded();
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(op);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- PENCARIAN ---
+    // Semua kata harus cocok (AND); tiap kata dicocokkan sebagai prefix. Hanya donasi AVAILABLE, terbaru dulu.
+    public List<Hit> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return state.search(tokens, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Jumlah donasi yang sedang ter-index (tanpa tombstone)
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return state.liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- REBUILD DARI DATABASE ---
+    // Dibaca per batch memakai feed keyset (terbaru dulu), lalu ordinal dibalik agar ordinal besar = terbaru.
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (pendingDuringRebuild != null) {
+                return; // rebuild lain sedang berjalan
+            }
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        State fresh = new State();
+        try {
+            List<Donation> page = donationRepo.findFeedFirstPage(null, Limit.of(REBUILD_BATCH_SIZE));
+            while (!page.isEmpty()) {
+                for (Donation donation : page) {
+                    LinkedHashSet<String> tokens = new LinkedHashSet<>();
+                    tokens.addAll(tokenize(donation.getName()));
+                    tokens.addAll(tokenize(donation.getDescription()));
+                    tokens.addAll(tokenize(donation.getCategory()));
+                    fresh.upsert(donation.getId(), donation.getName(), tokens,
+                            donation.getStatus() == null || donation.getStatus() == Donation.DonationStatus.AVAILABLE);
+                }
+                if (page.size() < REBUILD_BATCH_SIZE) {
+                    break;
+                }
+                Donation last = page.get(page.size() - 1);
+                page = donationRepo.findFeedPageAfter(null, last.getCreatedAt(), last.getId(), Limit.of(REBUILD_BATCH_SIZE));
+            }
+            fresh.reverseOrdinals();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Op op : pendingDuringRebuild) {
+                op.applyTo(fresh);
+            }
+            fresh.compactIfNeeded();
+            state = fresh;
+            pendingDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ==========================================
+    // Struktur internal
+    // ==========================================
+
+    private enum OpType { UPSERT, AVAILABILITY, REMOVE }
+
+    private record Op(OpType type, UUID id, String name, Collection<String> tokens, boolean available) {
+        void applyTo(State target) {
+            switch (type) {
+                case UPSERT -> target.upsert(id, name, tokens, available);
+                case AVAILABILITY -> target.setAvailable(id, available);
+                case REMOVE -> target.remove(id);
+            }
+        }
+    }
+
+    // Isi index; tidak thread-safe, selalu diakses di bawah lock milik DonationSearchIndex
+    static final class State {
+        private final TreeMap<String, IntList> postings = new TreeMap<>();
+        private final UuidIntMap ordinals = new UuidIntMap();
+        private final BitSet live = new BitSet();
+        private final BitSet available = new BitSet();
+        private long[] idMsb = new long[64];
+        private long[] idLsb = new long[64];
+        private String[] names = new String[64];
+        private int size;      // ordinal terpakai, termasuk tombstone
+        private int liveCount; // ordinal yang masih hidup
+
+        void upsert(UUID id, String name, Collection<String> tokens, boolean isAvailable) {
+            remove(id);
+            int ord = size++;
+            if (ord == idMsb.length) {
+                int capacity = idMsb.length * 2;
+                idMsb = Arrays.copyOf(idMsb, capacity);
+                idLsb = Arrays.copyOf(idLsb, capacity);
+                names = Arrays.copyOf(names, capacity);
+            }
+            idMsb[ord] = id.getMostSignificantBits();
+            idLsb[ord] = id.getLeastSignificantBits();
+            names[ord] = name;
+            live.set(ord);
+            available.set(ord, isAvailable);
+            ordinals.put(id, ord);
+            liveCount++;
+            for (String token : tokens) {
+                postings.computeIfAbsent(token, k -> new IntList()).add(ord);
+            }
+        }
+
+        void setAvailable(UUID id, boolean isAvailable) {
+            int ord = ordinals.get(id);
+            if (ord >= 0) {
+                available.set(ord, isAvailable);
+            }
+        }
+
+        void remove(UUID id) {
+            int ord = ordinals.remove(id);
+            if (ord >= 0) {
+                live.clear(ord);
+                available.clear(ord);
+                names[ord] = null;
+                liveCount--;
+            }
+        }
+
+        List<Hit> search(List<String> tokens, int limit) {
+            BitSet result = null;
+            for (String token : tokens) {
+                BitSet matches = new BitSet(size);
+                for (IntList list : postings.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+                    for (int i = 0; i < list.size; i++) {
+                        matches.set(list.values[i]);
+                    }
+                }
+                if (result == null) {
+                    result = matches;
+                } else {
+                    result.and(matches);
+                }
+                if (result.isEmpty()) {
+                    return List.of();
+                }
+            }
+            result.and(available);
+
+            List<Hit> hits = new ArrayList<>(Math.min(limit, result.cardinality()));
+            for (int ord = result.previousSetBit(size - 1); ord >= 0 && hits.size() < limit; ord = result.previousSetBit(ord - 1)) {
+                hits.add(new Hit(new UUID(idMsb[ord], idLsb[ord]), names[ord]));
+            }
+            return hits;
+        }
+
+        // Buang tombstone kalau jumlahnya sudah mendominasi (ordinal dipadatkan, urutan tetap)
+        void compactIfNeeded() {
+            int dead = size - liveCount;
+            if (dead >= COMPACT_MIN_DEAD && dead > liveCount) {
+                int[] remap = new int[size];
+                int next = 0;
+                for (int ord = 0; ord < size; ord++) {
+                    remap[ord] = live.get(ord) ? next++ : -1;
+                }
+                remapOrdinals(remap, next);
+            }
+        }
+
+        // Dipakai setelah rebuild (data dibaca terbaru dulu): ordinal i menjadi size-1-i
+        void reverseOrdinals() {
+            int[] remap = new int[size];
+            for (int ord = 0; ord < size; ord++) {
+                remap[ord] = live.get(ord) ? size - 1 - ord : -1;
+            }
+            remapOrdinals(remap, size);
+        }
+
+        // remap[ord] = ordinal baru (atau -1 untuk dibuang); harus monoton naik atau monoton turun
+        private void remapOrdinals(int[] remap, int newSize) {
+            long[] newMsb = new long[Math.max(64, newSize)];
+            long[] newLsb = new long[newMsb.length];
+            String[] newNames = new String[newMsb.length];
+            BitSet newAvailable = new BitSet(newSize);
+            live.clear();
+            ordinals.clear();
+            for (int ord = 0; ord < size; ord++) {
+                int target = remap[ord];
+                if (target < 0) {
+                    continue;
+                }
+                newMsb[target] = idMsb[ord];
+                newLsb[target] = idLsb[ord];
+                newNames[target] = names[ord];
+                newAvailable.set(target, available.get(ord));
+                live.set(target);
+                ordinals.put(new UUID(idMsb[ord], idLsb[ord]), target);
+            }
+            idMsb = newMsb;
+            idLsb = newLsb;
+            names = newNames;
+            available.clear();
+            available.or(newAvailable);
+            size = newSize;
+
+            postings.values().removeIf(list -> {
+                list.remap(remap);
+                return list.size == 0;
+            });
+        }
+    }
+
+    // Posting list: int[] yang bisa tumbuh, nilai selalu terurut
+    static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void remap(int[] remap) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int target = remap[values[i]];
+                if (target >= 0) {
+                    values[kept++] = target;
+                }
+            }
+            size = kept;
+            // Remap terbalik (reverseOrdinals) menghasilkan urutan menurun -> balik lagi agar tetap naik
+            if (size > 1 && values[0] > values[size - 1]) {
+                for (int i = 0, j = size - 1; i < j; i++, j--) {
+                    int tmp = values[i];
+                    values[i] = values[j];
+                    values[j] = tmp;
+                }
+            }
+        }
+    }
+
+    // Hash map UUID -> int dengan open addressing di atas array primitif (tanpa boxing per entri)
+    static final class UuidIntMap {
+        private static final int EMPTY = -1;
+        private static final int DELETED = -2;
+
+        private long[] msb;
+        private long[] lsb;
+        private int[] vals;
+        private int used; // slot terisi + slot DELETED
+
+        UuidIntMap() {
+            allocate(64);
+        }
+
+        private void allocate(int capacity) {
+            msb = new long[capacity];
+            lsb = new long[capacity];
+            vals = new int[capacity];
+            Arrays.fill(vals, EMPTY);
+            used = 0;
+        }
+
+        private int slot(long m, long l) {
+            long h = (m ^ l) * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32) & (vals.length - 1);
+        }
+
+        int get(UUID id) {
+            long m = id.getMostSignificantBits();
+            long l = id.getLeastSignificantBits();
+            for (int i = slot(m, l); vals[i] != EMPTY; i = (i + 1) & (vals.length - 1)) {
+                if (vals[i] >= 0 && msb[i] == m && lsb[i] == l) {
+                    return vals[i];
+                }
+            }
+            return -1;
+        }
+
+        void put(UUID id, int value) {
+            if ((used + 1) * 2 > vals.length) {
+                rehash();
+            }
+            long m = id.getMostSignificantBits();
+            long l = id.getLeastSignificantBits();
+            int i = slot(m, l);
+            while (vals[i] != EMPTY) {
+                if (vals[i] >= 0 && msb[i] == m && lsb[i] == l) {
+                    vals[i] = value;
+                    return;
+                }
+                i = (i + 1) & (vals.length - 1);
+            }
+            msb[i] = m;
+            lsb[i] = l;
+            vals[i] = value;
+            used++;
+        }
+
+        int remove(UUID id) {
+            long m = id.getMostSignificantBits();
+            long l = id.getLeastSignificantBits();
+            for (int i = slot(m, l); vals[i] != EMPTY; i = (i + 1) & (vals.length - 1)) {
+                if (vals[i] >= 0 && msb[i] == m && lsb[i] == l) {
+                    int value = vals[i];
+                    vals[i] = DELETED;
+                    return value;
+                }
+            }
+            return -1;
+        }
+
+        void clear() {
+            allocate(64);
+        }
+
+        private void rehash() {
+            long[] oldMsb = msb;
+            long[] oldLsb = lsb;
+            int[] oldVals = vals;
+            int live = 0;
+            for (int v : oldVals) {
+                if (v >= 0) live++;
+            }
+            int capacity = 64;
+            while (capacity < (live + 1) * 4) {
+                capacity <<= 1;
+            }
+            allocate(capacity);
+            for (int i = 0; i < oldVals.length; i++) {
+                if (oldVals[i] >= 0) {
+                    put(new UUID(oldMsb[i], oldLsb[i]), oldVals[i]);
+                }
+            }
+        }
+    }
+}
@@ -1,44 +1,70 @@
 package org.delcom.app.services;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.StringJoiner;
 import java.util.UUID;
 
+import org.delcom.app.dto.DeletedDonationRow;
 import org.delcom.app.dto.DonationForm;
+import org.delcom.app.dto.DonationPage;
 import org.delcom.app.entities.Donation;
+import org.delcom.app.entities.DonationClaim;
+import org.delcom.app.entities.PhotoJob;
 import org.delcom.app.entities.User;
+import org.delcom.app.repositories.DonationClaimRepository;
 import org.delcom.app.repositories.DonationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class DonationService {
 
+    public static final int DEFAULT_PAGE_SIZE = 12;
+    public static final int MAX_PAGE_SIZE = 50;
+    public static final int MAX_SUGGESTIONS = 10;
+
     @Autowired private DonationRepository donationRepo;
+    @Autowired private PhotoJobService photoJobs;
     @Autowired private FileStorageService fileService;
+    @Autowired private DonationSearchIndex searchIndex;
+    @Autowired private DonationStatsService statsService;
+    @Autowired private DonationClaimRepository claimRepo;
+    @Autowired private PortionReservationService reservations;
+    @Autowired private DonationExpiryService expiryService;
 
     // --- CREATE / TAMBAH DATA ---
     public void saveDonation(DonationForm form, User user) {
         Donation donation = new Donation();
         mapFormToEntity(form, donation);
         donation.setCreatedBy(user);
-        
-        // 1. Simpan dulu ke database agar ID (UUID) terbentuk
-        donation = donationRepo.save(donation);
-
-        // 2. Handle Upload Foto
-        if (form.getPhoto() != null && !form.getPhoto().isEmpty()) {
-            try {
-                // Menggunakan ID donasi untuk penamaan file
-                String fileName = fileService.storeFile(form.getPhoto(), donation.getId());
-                donation.setPhotoUrl(fileName);
-                
-                // 3. Simpan ulang (Update) untuk memasukkan nama file
-                donationRepo.save(donation);
-            } catch (Exception e) {
-                // Lempar RuntimeException agar tertangkap oleh Controller/Test
-                throw new RuntimeException("Gagal mengupload gambar: " + e.getMessage());
-            }
+
+        // 1. Foto divalidasi & di-staging sebelum donasi disimpan: upload yang ditolak
+        //    (UploadTooLargeException / UnsupportedImageTypeException) tidak menyisakan donasi setengah jadi
+        String staged = stagePhoto(form, "Gagal mengupload gambar: ");
+
+        // 2. Simpan ke database agar ID (UUID) terbentuk
+        try {
+            donation = donationRepo.save(donation);
+        } catch (RuntimeException e) {
+            discardStaged(staged);
+            throw e;
+        }
+        searchIndex.upsert(donation);
+        statsService.onCreated(donation.getIsHalal(), donation.getStatus());
+        expiryService.schedule(donation.getId(), donation.getExpiredTime());
+
+        // 3. Foto diproses di latar belakang (PhotoJobService); sampai selesai halaman menampilkan placeholder
+        if (staged != null) {
+            photoJobs.enqueueStaged(donation.getId(), staged);
         }
     }
 
@@ -53,19 +79,77 @@ public class DonationService {
             throw new RuntimeException("Unauthorized");
         }
 
-        mapFormToEntity(form, donation);
+        Boolean oldIsHalal = donation.getIsHalal();
+        int oldPortion = effectivePortion(donation.getPortion());
+
+        // Foto pengganti divalidasi sebelum update, seperti saveDonation
+        String staged = stagePhoto(form, "Gagal mengupload gambar saat update: ");
 
-        // Handle Ganti Foto
-        if (form.getPhoto() != null && !form.getPhoto().isEmpty()) {
-            try {
-                String fileName = fileService.storeFile(form.getPhoto(), donation.getId());
-                donation.setPhotoUrl(fileName);
-            } catch (Exception e) {
-                 throw new RuntimeException("Gagal mengupload gambar saat update: " + e.getMessage());
+        // Bukan save() seluruh entity: hanya kolom form yang ditulis, agar klaim / kedaluwarsa / foto baru
+        // dari worker yang terjadi setelah findById di atas tidak tertimpa nilai lama (lihat updateDetails)
+        Donation changes = new Donation();
+        changes.setExpiredTime(donation.getExpiredTime());
+        mapFormToEntity(form, changes);
+        changes.refreshSearchDocument();
+        try {
+            if (donationRepo.updateDetails(id, changes, LocalDateTime.now()) == 0) {
+                throw new RuntimeException("Donation not found");
             }
+        } catch (RuntimeException e) {
+            discardStaged(staged);
+            throw e;
         }
+        mapFormToEntity(form, donation);
+
+        searchIndex.upsert(donation);
+        statsService.onHalalChanged(oldIsHalal, donation.getIsHalal());
+        expiryService.schedule(id, donation.getExpiredTime());
 
-        donationRepo.save(donation);
+        // Porsi diubah pemilik: geser sisa porsi dengan selisihnya (atomik, tidak menimpa klaim yang berjalan)
+        int portionDelta = effectivePortion(donation.getPortion()) - oldPortion;
+        if (portionDelta != 0) {
+            donationRepo.adjustRemainingPortion(id, portionDelta);
+            reservations.invalidate(id);
+        }
+
+        // Ganti foto: di-antrekan terakhir (worker hanya mengubah kolom photo_url).
+        // Foto lama tetap tampil sampai foto baru selesai diproses.
+        if (staged != null) {
+            photoJobs.enqueueStaged(id, staged);
+        }
+    }
+
+    // Nama file staging, atau null jika form tanpa foto. Upload yang ditolak dilempar apa adanya
+    // agar controller bisa menampilkannya di form.
+    private String stagePhoto(DonationForm form, String errorPrefix) {
+        if (form.getPhoto() == null || form.getPhoto().isEmpty()) {
+            return null;
+        }
+        try {
+            return photoJobs.stage(form.getPhoto());
+        } catch (IOException e) {
+            // Lempar RuntimeException agar tertangkap oleh Controller/Test
+            throw new RuntimeException(errorPrefix + e.getMessage());
+        }
+    }
+
+    // Donasi gagal disimpan: file staging tidak akan pernah diantrekan
+    private void discardStaged(String staged) {
+        if (staged != null) {
+            fileService.deleteFile(FileStorageService.STAGING_DIR + "/" + staged);
+        }
+    }
+
+    // --- GANTI FOTO (STREAMING) ---
+    // Body request langsung dialirkan ke folder staging lalu diantrekan ke worker foto
+    public PhotoJob replacePhoto(UUID id, User user, InputStream body, String contentType, long contentLength)
+            throws IOException {
+        Donation donation = donationRepo.findById(id)
+                .orElseThrow(() -> new RuntimeException("Donation not found"));
+        if (!donation.getCreatedBy().getId().equals(user.getId())) {
+            throw new RuntimeException("Unauthorized");
+        }
+        return photoJobs.enqueueStream(id, body, contentType, contentLength);
     }
 
     // --- DELETE / HAPUS DATA ---
@@ -74,32 +158,139 @@ public class DonationService {
         
         // Hanya pemilik yang bisa menghapus
         if (donation.getCreatedBy().getId().equals(user.getId())) {
-            donationRepo.delete(donation);
+            claimRepo.deleteByDonationId(id);
+            List<DeletedDonationRow> deleted = donationRepo.deleteReturningRow(id);
+            if (deleted.isEmpty()) {
+                return; // sudah dihapus request lain (statistik & foto sudah diurus di sana)
+            }
+            // Memakai nilai dari DELETE, bukan dari findById: status bisa sudah berubah (klaim/konfirmasi)
+            // dan worker foto bisa sudah mengganti photo_url sejak baris dibaca.
+            DeletedDonationRow row = deleted.get(0);
+            reservations.invalidate(id);
+            searchIndex.remove(id);
+            statsService.onDeleted(row.getIsHalal(), row.getStatus());
+            // Foto bisa dipakai donasi lain (store content-addressed): hanya referensinya yang dilepas.
+            String photoUrl = row.getPhotoUrl();
+            if (photoUrl != null && !photoUrl.isEmpty()) {
+                fileService.release(photoUrl);
+            }
         }
     }
     
     // --- CLAIM DONASI ---
-    public void claimDonation(UUID id, User user) {
-        Donation d = donationRepo.findById(id).orElseThrow();
-        if (d.getStatus() == Donation.DonationStatus.AVAILABLE) {
-            d.setClaimedBy(user);
-            d.setStatus(Donation.DonationStatus.BOOKED);
-            donationRepo.save(d);
+    // true = user ini pemenangnya; false = sudah diklaim orang lain / tidak lagi AVAILABLE
+    public boolean claimDonation(UUID id, User user) {
+        int updated = donationRepo.claimIfAvailable(id, user, LocalDateTime.now(),
+                Donation.DonationStatus.AVAILABLE, Donation.DonationStatus.BOOKED);
+        if (updated == 0) {
+            // Bedakan "kalah cepat" dengan "tidak ada" (perilaku lama: NoSuchElementException)
+            if (!donationRepo.existsById(id)) {
+                throw new NoSuchElementException("Donation not found");
+            }
+            return false;
         }
+        reservations.invalidate(id);
+        searchIndex.updateAvailability(id, false);
+        statsService.onStatusChanged(Donation.DonationStatus.AVAILABLE, Donation.DonationStatus.BOOKED, 1);
+        return true;
     }
 
-    // --- GET DATA ---
-    public List<Donation> getAllDonations(String keyword, Boolean isHalal) {
-        return donationRepo.searchDonations(keyword, isHalal);
+    // --- CLAIM SEBAGIAN (PER PORSI) ---
+    // Banyak user bisa mengambil beberapa porsi dari donasi yang sama, tanpa pernah melebihi sisa porsi.
+    // true = porsi berhasil diklaim dan tercatat sebagai DonationClaim; false = sisa porsi tidak cukup.
+    @Transactional
+    public boolean claimPortions(UUID id, User user, int portions) {
+        if (portions < 1) {
+            throw new RuntimeException("Jumlah porsi tidak valid");
+        }
+        // 1. Saring di memori (CAS): klaim yang pasti tidak kebagian tidak menyentuh baris database
+        if (!reservations.tryReserve(id, portions)) {
+            return false;
+        }
+
+        try {
+            // 2. Kurangi sisa porsi secara atomik di database (sumber kebenaran)
+            int updated = donationRepo.claimPortionsIfAvailable(id, portions, LocalDateTime.now(),
+                    Donation.DonationStatus.AVAILABLE, Donation.DonationStatus.BOOKED);
+            if (updated == 0) {
+                // Counter memori tidak sinkron (instance lain, klaim utuh, donasi kedaluwarsa) -> muat ulang nanti
+                reservations.invalidate(id);
+                if (!donationRepo.existsById(id)) {
+                    throw new NoSuchElementException("Donation not found");
+                }
+                return false;
+            }
+            claimRepo.save(new DonationClaim(id, user.getId(), portions));
+        } catch (RuntimeException e) {
+            reservations.release(id, portions);
+            throw e;
+        }
+
+        // 3. Porsi terakhir baru saja diambil (baris masih terkunci oleh transaksi ini) -> BOOKED
+        if (donationRepo.findAvailablePortions(id, Donation.DonationStatus.AVAILABLE).orElse(0) == 0) {
+            searchIndex.updateAvailability(id, false);
+            statsService.onStatusChanged(Donation.DonationStatus.AVAILABLE, Donation.DonationStatus.BOOKED, 1);
+        }
+        return true;
+    }
+
+    // --- FEED PER HALAMAN (KEYSET) ---
+    // Tanpa keyword: terbaru dulu, cursor = posisi (createdAt, id) item terakhir halaman sebelumnya.
+    // Dengan keyword: full-text search (index GIN) diurutkan berdasarkan relevansi, cursor = (rank, id).
+    // cursor null (atau tidak valid) = halaman pertama.
+    public DonationPage getDonationPage(String keyword, Boolean isHalal, String cursor, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        String query = toTsQuery(keyword);
+        if (query != null) {
+            return getSearchPage(query, isHalal, cursor, limit);
+        }
+
+        // Ambil 1 baris ekstra untuk mengetahui apakah masih ada halaman berikutnya
+        FeedCursor after = decodeCursor(cursor);
+        List<Donation> rows = (after == null)
+                ? donationRepo.findFeedFirstPage(isHalal, Limit.of(limit + 1))
+                : donationRepo.findFeedPageAfter(isHalal, after.createdAt(), after.id(), Limit.of(limit + 1));
+
+        if (rows.size() <= limit) {
+            return new DonationPage(rows, null);
+        }
+        List<Donation> items = new ArrayList<>(rows.subList(0, limit));
+        Donation last = items.get(limit - 1);
+        return new DonationPage(items, encodeCursor(last.getCreatedAt().toString(), last.getId()));
     }
 
+    private DonationPage getSearchPage(String query, Boolean isHalal, String cursor, int limit) {
+        RankCursor after = decodeRankCursor(cursor);
+        List<Donation> rows = (after == null)
+                ? donationRepo.searchFeedFirstPage(query, isHalal, limit + 1)
+                : donationRepo.searchFeedPageAfter(query, isHalal, after.rank(), after.id(), limit + 1);
+
+        if (rows.size() <= limit) {
+            return new DonationPage(rows, null);
+        }
+        List<Donation> items = new ArrayList<>(rows.subList(0, limit));
+        UUID lastId = items.get(limit - 1).getId();
+        // Kosong jika item terakhir baru saja dihapus: tidak ada posisi untuk melanjutkan
+        String next = donationRepo.findSearchRank(query, lastId)
+                .map(rank -> encodeCursor(Float.toString(rank), lastId))
+                .orElse(null);
+        return new DonationPage(items, next);
+    }
+
+    // --- SARAN PENCARIAN (AUTOCOMPLETE) ---
+    // Dilayani dari index in-memory, tanpa query ke database per ketikan
+    public List<DonationSearchIndex.Hit> suggestDonations(String keyword) {
+        return searchIndex.search(keyword, MAX_SUGGESTIONS);
+    }
+
+    // Untuk halaman detail/edit: donatur & pengklaim ikut dimuat (tanpa query tambahan di template)
     public Donation getById(UUID id) {
-        return donationRepo.findById(id).orElseThrow(() -> new RuntimeException("Not found"));
+        return donationRepo.findDetailById(id).orElseThrow(() -> new RuntimeException("Not found"));
     }
     
-    // --- STATISTIK ---
-    public long countHalal(Boolean isHalal) {
-        return donationRepo.countByIsHalal(isHalal);
+    // Porsi kosong / tidak valid dianggap 1 (sama dengan Donation.onCreate)
+    private int effectivePortion(Integer portion) {
+        return (portion != null && portion > 0) ? portion : 1;
     }
 
     // --- HELPER MAPPING ---
@@ -115,4 +306,62 @@ public class DonationService {
              donation.setExpiredTime(LocalDateTime.parse(form.getExpiredTime()));
         }
     }
-}
\ No newline at end of file
+
+    // --- HELPER PENCARIAN ---
+    // Susun tsquery yang aman dari input bebas: hanya huruf/angka, tiap kata dicocokkan sebagai prefix.
+    // Contoh: "Nasi gor" -> "nasi:* & gor:*". Keyword kosong (atau tanpa kata) = tanpa filter.
+    private String toTsQuery(String keyword) {
+        if (keyword == null || keyword.isBlank()) {
+            return null;
+        }
+        StringJoiner query = new StringJoiner(" & ");
+        for (String token : DonationSearchIndex.tokenize(keyword)) {
+            query.add(token + ":*");
+        }
+        return query.length() == 0 ? null : query.toString();
+    }
+
+    // --- HELPER PAGINATION ---
+
+    private record FeedCursor(LocalDateTime createdAt, UUID id) {}
+
+    private record RankCursor(float rank, UUID id) {}
+
+    // "<posisi>|<id>" dalam Base64 URL-safe; posisi = createdAt (feed) atau rank (pencarian)
+    private String encodeCursor(String position, UUID id) {
+        String raw = position + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursorParts(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        return raw.split("\\|", 2);
+    }
+
+    // Cursor rusak/tidak valid (termasuk cursor pencarian dipakai di feed biasa) diperlakukan seperti halaman pertama
+    private FeedCursor decodeCursor(String cursor) {
+        try {
+            String[] parts = decodeCursorParts(cursor);
+            return parts == null ? null : new FeedCursor(LocalDateTime.parse(parts[0]), UUID.fromString(parts[1]));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Float.toString -> Float.parseFloat mengembalikan nilai yang sama persis dengan ts_rank di database
+    private RankCursor decodeRankCursor(String cursor) {
+        try {
+            String[] parts = decodeCursorParts(cursor);
+            if (parts == null) {
+                return null;
+            }
+            float rank = Float.parseFloat(parts[0]);
+            return Float.isFinite(rank) ? new RankCursor(rank, UUID.fromString(parts[1])) : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
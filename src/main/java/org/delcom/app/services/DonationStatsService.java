@@ -0,0 +1,179 @@
+package org.delcom.app.services;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.delcom.app.dto.DonationCountRow;
+import org.delcom.app.dto.DonationStats;
+import org.delcom.app.entities.Donation;
+import org.delcom.app.repositories.DonationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Statistik donasi untuk dashboard & home.
+// - Jumlah halal/non-halal/status: counter LongAdder in-memory, diubah oleh DonationService di setiap
+//   perubahan state, jadi dibaca O(1) tanpa query.
+// - Rekonsiliasi berkala (dan saat startup) dengan satu query GROUP BY membetulkan selisih
+//   (restart, instance lain, perubahan langsung di database).
+// - Rincian kategori diambil dari query agregat yang sama dan di-cache sebentar (TTL).
+@Service
+public class DonationStatsService {
+
+    static final String UNCATEGORIZED = "Lainnya";
+
+    private final DonationRepository donationRepo;
+    private final long ttlNanos;
+
+    private final LongAdder halalCounter = new LongAdder();
+    private final LongAdder nonHalalCounter = new LongAdder();
+    private final Map<Donation.DonationStatus, LongAdder> statusCounters = new EnumMap<>(Donation.DonationStatus.class);
+
+    private record CategorySnapshot(Map<String, Long> counts, long loadedAt) {}
+
+    private volatile CategorySnapshot categorySnapshot;
+    // Lock eksplisit, bukan synchronized: query di dalamnya tidak mengunci carrier virtual thread
+    private final ReentrantLock categoryRefreshLock = new ReentrantLock();
+
+    public DonationStatsService(DonationRepository donationRepo,
+                                @Value("${app.stats.cache-ttl-ms:5000}") long ttlMs) {
+        this.donationRepo = donationRepo;
+        this.ttlNanos = ttlMs * 1_000_000L;
+        for (Donation.DonationStatus status : Donation.DonationStatus.values()) {
+            statusCounters.put(status, new LongAdder());
+        }
+    }
+
+    // --- UPDATE COUNTER (dipanggil setelah perubahan tersimpan) ---
+    public void onCreated(Boolean isHalal, Donation.DonationStatus status) {
+        adjustHalal(isHalal, 1);
+        adjustStatus(status, 1);
+    }
+
+    public void onDeleted(Boolean isHalal, Donation.DonationStatus status) {
+        adjustHalal(isHalal, -1);
+        adjustStatus(status, -1);
+    }
+
+    public void onHalalChanged(Boolean from, Boolean to) {
+        if (!Objects.equals(from, to)) {
+            adjustHalal(from, -1);
+            adjustHalal(to, 1);
+        }
+    }
+
+    public void onStatusChanged(Donation.DonationStatus from, Donation.DonationStatus to, long count) {
+        if (from != to) {
+            adjustStatus(from, -count);
+            adjustStatus(to, count);
+        }
+    }
+
+    private void adjustHalal(Boolean isHalal, long delta) {
+        if (Boolean.TRUE.equals(isHalal)) {
+            halalCounter.add(delta);
+        } else if (Boolean.FALSE.equals(isHalal)) {
+            nonHalalCounter.add(delta);
+        }
+    }
+
+    private void adjustStatus(Donation.DonationStatus status, long delta) {
+        if (status != null) {
+            statusCounters.get(status).add(delta);
+        }
+    }
+
+    // --- BACA (O(1)) ---
+    public long getHalalCount(boolean isHalal) {
+        return Math.max(0, (isHalal ? halalCounter : nonHalalCounter).sum());
+    }
+
+    public DonationStats getStats() {
+        Map<Donation.DonationStatus, Long> statusCounts = new EnumMap<>(Donation.DonationStatus.class);
+        long total = 0;
+        for (Map.Entry<Donation.DonationStatus, LongAdder> entry : statusCounters.entrySet()) {
+            long count = Math.max(0, entry.getValue().sum());
+            statusCounts.put(entry.getKey(), count);
+            total += count;
+        }
+        return new DonationStats(total, getHalalCount(true), getHalalCount(false), statusCounts, getCategoryCounts());
+    }
+
+    private Map<String, Long> getCategoryCounts() {
+        CategorySnapshot current = categorySnapshot;
+        if (current != null && System.nanoTime() - current.loadedAt() < ttlNanos) {
+            return current.counts();
+        }
+        // Hanya satu thread yang menghitung ulang; thread lain memakai hasilnya
+        categoryRefreshLock.lock();
+        try {
+            current = categorySnapshot;
+            if (current == null || System.nanoTime() - current.loadedAt() >= ttlNanos) {
+                current = new CategorySnapshot(aggregateCategories(donationRepo.countGroupedByHalalStatusCategory()), System.nanoTime());
+                categorySnapshot = current;
+            }
+            return current.counts();
+        } finally {
+            categoryRefreshLock.unlock();
+        }
+    }
+
+    // --- REKONSILIASI ---
+    // Counter dikoreksi dengan selisih (db - nilai sebelum query) lewat add(), bukan di-reset,
+    // sehingga perubahan yang terjadi bersamaan tidak hilang. Selisih kecil karena perubahan
+    // yang sedang berjalan saat query akan terkoreksi di putaran berikutnya.
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.stats.reconcile-interval-ms:300000}",
+               initialDelayString = "${app.stats.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        long halalBefore = halalCounter.sum();
+        long nonHalalBefore = nonHalalCounter.sum();
+        Map<Donation.DonationStatus, Long> statusBefore = new EnumMap<>(Donation.DonationStatus.class);
+        statusCounters.forEach((status, counter) -> statusBefore.put(status, counter.sum()));
+
+        List<DonationCountRow> rows = donationRepo.countGroupedByHalalStatusCategory();
+
+        long halal = 0;
+        long nonHalal = 0;
+        Map<Donation.DonationStatus, Long> statusDb = new EnumMap<>(Donation.DonationStatus.class);
+        for (DonationCountRow row : rows) {
+            if (Boolean.TRUE.equals(row.getIsHalal())) {
+                halal += row.getCount();
+            } else if (Boolean.FALSE.equals(row.getIsHalal())) {
+                nonHalal += row.getCount();
+            }
+            if (row.getStatus() != null) {
+                statusDb.merge(row.getStatus(), row.getCount(), Long::sum);
+            }
+        }
+
+        halalCounter.add(halal - halalBefore);
+        nonHalalCounter.add(nonHalal - nonHalalBefore);
+        statusCounters.forEach((status, counter) ->
+                counter.add(statusDb.getOrDefault(status, 0L) - statusBefore.get(status)));
+        categorySnapshot = new CategorySnapshot(aggregateCategories(rows), System.nanoTime());
+    }
+
+    // --- HELPER AGREGASI ---
+    private Map<String, Long> aggregateCategories(List<DonationCountRow> rows) {
+        Map<String, Long> categoryCounts = new LinkedHashMap<>();
+        for (DonationCountRow row : rows) {
+            String category = (row.getCategory() == null || row.getCategory().isBlank())
+                    ? UNCATEGORIZED : row.getCategory().trim();
+            categoryCounts.merge(category, row.getCount(), Long::sum);
+        }
+
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        categoryCounts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+        return sorted;
+    }
+}
@@ -1,42 +1,292 @@
 package org.delcom.app.services;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
+import org.delcom.app.entities.PhotoBlob;
+import org.delcom.app.repositories.PhotoBlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 @Service
 public class FileStorageService {
+    // Upload yang belum diproses worker foto (PhotoJobService), di dalam folder upload
+    public static final String STAGING_DIR = "staging";
+
+    // Tipe gambar yang diterima upload (multipart & streaming) -> ekstensi file
+    public static final Map<String, String> IMAGE_TYPES = Map.of(
+            "image/jpeg", ".jpg",
+            "image/png", ".png",
+            "image/gif", ".gif",
+            "image/webp", ".webp");
+
+    // ab/cd/<sha256>[_w<lebar>].<ext>, dengan ab/cd = 4 karakter pertama hash
+    private static final Pattern CONTENT_NAME =
+            Pattern.compile("([0-9a-f]{2})/([0-9a-f]{2})/\\1\\2[0-9a-f]{60}(_w\\d+)?(\\.[A-Za-z0-9]+)?");
+
+    // Per panggilan transferFrom; salinan internal JDK tetap memakai buffer kecil yang konstan
+    private static final long TRANSFER_CHUNK = 1024 * 1024;
+    // Cukup untuk signature semua tipe di IMAGE_TYPES (WEBP: "RIFF" ???? "WEBP")
+    private static final int SIGNATURE_BYTES = 12;
+
+    public static class UploadTooLargeException extends RuntimeException {
+        public UploadTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    public static class UnsupportedImageTypeException extends RuntimeException {
+        public UnsupportedImageTypeException(String message) {
+            super(message);
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(FileStorageService.class);
+
+    @Autowired
+    private PhotoBlobRepository blobRepository;
+
+    @Autowired
+    private ImageVariantService imageVariants;
+
     @Value("${app.upload.dir:./uploads}")
     protected String uploadDir;
 
-    public String storeFile(MultipartFile file, UUID donationId) throws IOException {
-        // Buat directory jika belum ada
+    @Value("${app.upload.max-bytes:5242880}")
+    protected long maxUploadBytes = 5L * 1024 * 1024;
+
+    // Dipanggil di thread request: simpan upload ke folder staging. Upload multipart yang sudah di disk
+    // cukup di-rename oleh container, tanpa menyalin isi file. Tipe & signature diperiksa sama seperti
+    // stageStream, dan ekstensi diambil dari tipe yang terverifikasi (bukan dari nama file kiriman client,
+    // yang bisa saja ".html" dan nantinya disajikan sebagai text/html).
+    public String stageFile(MultipartFile file, UUID stagingId) throws IOException {
+        String type = imageType(file.getContentType());
+        if (file.getSize() > maxUploadBytes) {
+            throw new UploadTooLargeException("Ukuran file melebihi " + maxUploadBytes + " byte");
+        }
+
+        Path stagingPath = Paths.get(uploadDir).resolve(STAGING_DIR);
+        Files.createDirectories(stagingPath);
+        Path staged = stagingPath.resolve(stagingId.toString() + IMAGE_TYPES.get(type)).toAbsolutePath();
+        file.transferTo(staged.toFile());
+        try (FileChannel in = FileChannel.open(staged)) {
+            verifySignature(in, type);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(staged);
+            throw e;
+        }
+        return staged.getFileName().toString();
+    }
+
+    // Upload streaming (body request = isi file mentah, bukan multipart): dialirkan langsung ke file
+    // sementara di folder staging lewat FileChannel.transferFrom, tanpa spool multipart dan tanpa
+    // menampung file di memori. Ukuran dan signature gambar diperiksa selama streaming (upload yang
+    // salah dihentikan di awal), lalu file dipindah ke nama final dengan ATOMIC_MOVE.
+    public String stageStream(InputStream body, String contentType, long contentLength, UUID stagingId)
+            throws IOException {
+        String type = imageType(contentType);
+        String extension = IMAGE_TYPES.get(type);
+        if (contentLength > maxUploadBytes) {
+            throw new UploadTooLargeException("Ukuran file melebihi " + maxUploadBytes + " byte");
+        }
+
+        Path stagingPath = Paths.get(uploadDir).resolve(STAGING_DIR);
+        Files.createDirectories(stagingPath);
+        Path tmp = Files.createTempFile(stagingPath, stagingId.toString(), ".part");
+        try {
+            try (ReadableByteChannel in = Channels.newChannel(body);
+                 FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+                long written = 0;
+                boolean verified = false;
+                long transferred;
+                // Batas +1 byte: cukup untuk mengetahui body melebihi batas tanpa membaca sisanya
+                while ((transferred = out.transferFrom(in, written,
+                        Math.min(TRANSFER_CHUNK, maxUploadBytes + 1 - written))) > 0) {
+                    written += transferred;
+                    if (written > maxUploadBytes) {
+                        throw new UploadTooLargeException("Ukuran file melebihi " + maxUploadBytes + " byte");
+                    }
+                    if (!verified && written >= SIGNATURE_BYTES) {
+                        verifySignature(out, type);
+                        verified = true;
+                    }
+                }
+                if (!verified) {
+                    verifySignature(out, type); // file sangat kecil / kosong
+                }
+                out.force(false);
+            }
+            String filename = stagingId.toString() + extension;
+            Files.move(tmp, stagingPath.resolve(filename), StandardCopyOption.ATOMIC_MOVE);
+            return filename;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    // Content-Type tanpa parameter (huruf kecil); hanya tipe di IMAGE_TYPES yang diterima
+    private static String imageType(String contentType) {
+        String type = contentType == null ? "" : contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+        if (!IMAGE_TYPES.containsKey(type)) {
+            throw new UnsupportedImageTypeException("Tipe file tidak didukung: " + (type.isEmpty() ? "-" : type));
+        }
+        return type;
+    }
+
+    // Isi file harus cocok dengan Content-Type yang dikirim (bukan sekadar percaya header)
+    private static void verifySignature(FileChannel file, String type) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(SIGNATURE_BYTES);
+        int read;
+        do {
+            read = file.read(head, head.position());
+        } while (read > 0 && head.hasRemaining());
+        byte[] b = new byte[head.position()];
+        head.flip().get(b);
+        boolean matches = switch (type) {
+            case "image/jpeg" -> startsWith(b, 0, 0xFF, 0xD8, 0xFF);
+            case "image/png" -> startsWith(b, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A);
+            case "image/gif" -> startsWith(b, 0, 'G', 'I', 'F', '8');
+            default -> startsWith(b, 0, 'R', 'I', 'F', 'F') && startsWith(b, 8, 'W', 'E', 'B', 'P');
+        };
+        if (!matches) {
+            throw new UnsupportedImageTypeException("Isi file bukan " + type);
+        }
+    }
+
+    private static boolean startsWith(byte[] b, int offset, int... signature) {
+        if (b.length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((b[offset + i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Store content-addressed: nama file = SHA-256 isinya, dibagi ke subfolder ab/cd/ agar satu folder
+    // tidak berisi ribuan file. Foto yang sama (mis. donasi rutin dengan foto yang sama) hanya disimpan
+    // sekali dan referensinya dihitung di photo_blobs. Isi di balik sebuah nama tidak pernah berubah,
+    // jadi URL-nya aman di-cache selamanya.
+    //
+    // Langkah 1 (sekali per job): hash file staging, lalu tambah referensi sekaligus catat
+    // photo_jobs.photo_file dalam satu statement (PhotoBlobRepository.acquire). Return nama file di store,
+    // atau null jika photo_file job sudah tercatat (referensi tidak ditambah dua kali).
+    public String acquireStaged(UUID jobId, String stagedFile) throws IOException {
+        String hash = sha256(Paths.get(uploadDir).resolve(STAGING_DIR).resolve(stagedFile));
+        List<String> acquired = blobRepository.acquire(hash, contentName(hash, extensionOf(stagedFile)), jobId,
+                LocalDateTime.now());
+        return acquired.isEmpty() ? null : acquired.get(0);
+    }
+
+    // Langkah 2 (diulang sampai berhasil): pindahkan file staging ke nama dari acquireStaged. File staging
+    // sudah tidak ada tapi target ada -> sudah dipindah percobaan sebelumnya. Isi sama persis: menimpa
+    // file yang sudah ada (atomic) tidak mengubah apa pun bagi pembaca.
+    public void promoteStaged(String stagedFile, String filename) throws IOException {
         Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+        Path staged = uploadPath.resolve(STAGING_DIR).resolve(stagedFile);
+        Path target = uploadPath.resolve(filename);
+        if (!Files.exists(staged)) {
+            if (Files.exists(target)) {
+                return;
+            }
+            throw new NoSuchFileException(staged.toString());
         }
+        Files.createDirectories(target.getParent());
+        Files.move(staged, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Lebar varian yang sudah dicatat untuk foto di store, atau null jika variannya belum dibuat
+    public String findVariantWidths(String filename) {
+        return blobRepository.findVariantWidths(filename).orElse(null);
+    }
 
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String fileExtension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
+    public void recordVariantWidths(String filename, String widths) {
+        blobRepository.updateVariantWidths(filename, widths, LocalDateTime.now());
+    }
+
+    // Lepas satu referensi; file & varian dihapus jika itu referensi terakhir. Penghapusan dilakukan
+    // selama baris photo_blobs terkunci, sehingga acquire() untuk isi yang sama menunggu sampai selesai.
+    // Foto lama (cover_<id>.<ext>, sebelum store ini) tidak punya baris: langsung dihapus.
+    // Return true jika file dihapus.
+    @Transactional
+    public boolean release(String filename) {
+        PhotoBlob blob = blobRepository.findByFilename(filename).orElse(null);
+        if (blob != null) {
+            if (blob.getRefCount() > 1) {
+                blob.setRefCount(blob.getRefCount() - 1);
+                return false;
+            }
+            blobRepository.delete(blob);
+            blobRepository.flush();
+        }
+        try {
+            imageVariants.deleteVariants(filename);
+        } catch (IOException e) {
+            log.warn("Varian foto {} gagal dihapus: {}", filename, e.getMessage());
         }
+        return deleteFile(filename);
+    }
 
-        String filename = "cover_" + donationId.toString() + fileExtension;
+    // "ab/cd/abcd...ef.png"
+    public static String contentName(String hash, String extension) {
+        return hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + extension;
+    }
 
-        // Simpan file
-        Path filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+    // File di store content-addressed, termasuk variannya (ab/cd/<hash>_w400.jpg): isinya tidak pernah berubah
+    public static boolean isContentAddressed(String filename) {
+        return CONTENT_NAME.matcher(filename).matches();
+    }
 
-        return filename;
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String extensionOf(String filename) {
+        if (filename != null && filename.contains(".")) {
+            return filename.substring(filename.lastIndexOf("."));
+        }
+        return "";
     }
 
     public boolean deleteFile(String filename) {
@@ -55,4 +305,21 @@ public class FileStorageService {
     public boolean fileExists(String filename) {
         return Files.exists(loadFile(filename));
     }
+
+    // File yang boleh diunduh publik lewat /uploads/**: hanya file biasa di dalam folder upload,
+    // bukan folder staging (upload yang belum diproses). null jika tidak ada / tidak boleh.
+    public Path loadServableFile(String filename) {
+        Path root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path file;
+        try {
+            file = root.resolve(filename).normalize();
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        if (!file.startsWith(root) || file.equals(root) || file.startsWith(root.resolve(STAGING_DIR))
+                || !Files.isRegularFile(file)) {
+            return null;
+        }
+        return file;
+    }
 }
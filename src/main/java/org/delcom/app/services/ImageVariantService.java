@@ -0,0 +1,314 @@
+package org.delcom.app.services;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.StringJoiner;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+// Varian foto donasi yang sudah diperkecil & di-encode ulang (JPEG), disimpan di samping file asli
+// di store content-addressed:
+//   ab/cd/<hash>.png -> ab/cd/<hash>_w400.jpg, ab/cd/<hash>_w800.jpg, ab/cd/<hash>_w1600.jpg
+// Foto asli di-decode sekali; tiap varian diperkecil dari varian sebelumnya (besar -> kecil).
+// Lebar varian yang dibuat dicatat worker foto (photo_blobs.variant_widths & donations.photo_variant_widths),
+// jadi template memilih varian lewat srcset tanpa memeriksa filesystem; tanpa catatan dipakai file asli.
+@Service
+public class ImageVariantService {
+
+    // Kartu list (kotak 220px, 1-3 kolom) cukup 400/800; halaman detail memakai 800/1600
+    public static final int[] WIDTHS = {400, 800, 1600};
+
+    private static final Logger log = LoggerFactory.getLogger(ImageVariantService.class);
+
+    // Cukup untuk segmen EXIF (APP1) yang letaknya di awal file JPEG
+    private static final int EXIF_SCAN_BYTES = 128 * 1024;
+
+    @Value("${app.upload.dir:./uploads}")
+    protected String uploadDir;
+
+    @Value("${app.image.jpeg-quality:0.8}")
+    protected float jpegQuality = 0.8f;
+
+    // Buat semua varian untuk file upload. Varian lama dihapus dulu, supaya foto pengganti yang
+    // gagal di-decode tidak menampilkan varian foto sebelumnya. Return lebar varian yang dibuat
+    // (kosong jika file bukan gambar yang bisa dibaca ImageIO).
+    public List<Integer> generate(String filename) throws IOException {
+        deleteVariants(filename);
+        Path original = Paths.get(uploadDir).resolve(filename);
+
+        int orientation = readOrientation(original);
+        BufferedImage source;
+        try {
+            source = decode(original, orientation, WIDTHS[WIDTHS.length - 1]);
+        } catch (IOException e) {
+            log.warn("Foto {} tidak bisa di-decode, varian tidak dibuat: {}", filename, e.getMessage());
+            return List.of();
+        }
+        if (source == null) {
+            return List.of();
+        }
+        source = applyOrientation(source, orientation);
+
+        List<Integer> written = new ArrayList<>();
+        BufferedImage current = source;
+        for (int i = WIDTHS.length - 1; i >= 0; i--) {
+            int width = WIDTHS[i];
+            // Tidak memperbesar foto kecil; varian terkecil selalu dibuat (re-encode saja)
+            if (width > source.getWidth() && i > 0) {
+                continue;
+            }
+            current = resize(current, Math.min(width, current.getWidth()));
+            writeJpeg(current, variantPath(filename, width));
+            written.add(0, width);
+        }
+        return written;
+    }
+
+    public void deleteVariants(String filename) throws IOException {
+        for (int width : WIDTHS) {
+            Files.deleteIfExists(variantPath(filename, width));
+        }
+    }
+
+    // Nilai atribut srcset ("/uploads/a_w400.jpg 400w, ..."), atau null jika tidak ada varian.
+    // widths: lebar varian yang tercatat (formatWidths), mis. "400,800"
+    public String srcset(String filename, String widths) {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (int width : parseWidths(widths)) {
+            joiner.add("/uploads/" + variantName(filename, width) + " " + width + "w");
+        }
+        return joiner.length() > 0 ? joiner.toString() : null;
+    }
+
+    // Nama file untuk src: varian terkecil yang >= lebar kotak, varian terbesar yang ada, atau file asli
+    public String src(String filename, String widths, int boxWidth) {
+        String best = filename;
+        for (int width : parseWidths(widths)) {
+            best = variantName(filename, width);
+            if (width >= boxWidth) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    // Lebar varian dari generate() dalam bentuk kolom database: "400,800,1600"; "" jika tidak ada varian
+    public static String formatWidths(List<Integer> widths) {
+        StringJoiner joiner = new StringJoiner(",");
+        widths.forEach(width -> joiner.add(width.toString()));
+        return joiner.toString();
+    }
+
+    // Urutan kecil -> besar, sesuai yang ditulis formatWidths(); null / "" -> tidak ada varian
+    static int[] parseWidths(String widths) {
+        if (widths == null || widths.isBlank()) {
+            return new int[0];
+        }
+        String[] parts = widths.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Integer.parseInt(parts[i].trim());
+        }
+        return result;
+    }
+
+    public static String variantName(String filename, int width) {
+        int dot = filename.lastIndexOf('.');
+        String base = dot > 0 ? filename.substring(0, dot) : filename;
+        return base + "_w" + width + ".jpg";
+    }
+
+    private Path variantPath(String filename, int width) {
+        return Paths.get(uploadDir).resolve(variantName(filename, width));
+    }
+
+    // Foto yang jauh lebih besar dari varian terbesar di-decode dengan subsampling
+    // (mis. 8000px -> 2666px), sehingga memori decode tidak mengikuti resolusi kamera.
+    private static BufferedImage decode(Path file, int orientation, int maxWidth) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                boolean rotated = orientation >= 5; // 5-8: lebar tampil = tinggi tersimpan
+                int displayWidth = rotated ? reader.getHeight(0) : reader.getWidth(0);
+                int step = Math.max(1, displayWidth / (2 * maxWidth));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Perkecil bertahap (setengah per langkah) agar hasil bilinear tidak pecah, sekaligus
+    // ubah ke RGB tanpa alpha (latar putih) karena JPEG tidak punya transparansi.
+    static BufferedImage resize(BufferedImage image, int targetWidth) {
+        BufferedImage current = image;
+        int width = current.getWidth();
+        int height = current.getHeight();
+        do {
+            int nextWidth = Math.max(targetWidth, width / 2);
+            int nextHeight = Math.max(1, (int) Math.round((double) height * nextWidth / width));
+            current = draw(current, nextWidth, nextHeight, null);
+            width = nextWidth;
+            height = nextHeight;
+        } while (width > targetWidth);
+        return current;
+    }
+
+    // Orientasi EXIF: 3 = 180°, 6 = 90° searah jarum jam, 8 = 270°; orientasi cermin (2/4/5/7) jarang
+    // dipakai kamera ponsel dan dibiarkan apa adanya
+    static BufferedImage applyOrientation(BufferedImage image, int orientation) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 3 -> {
+                transform.translate(w, h);
+                transform.rotate(Math.PI);
+                return draw(image, w, h, transform);
+            }
+            case 6 -> {
+                transform.translate(h, 0);
+                transform.rotate(Math.PI / 2);
+                return draw(image, h, w, transform);
+            }
+            case 8 -> {
+                transform.translate(0, w);
+                transform.rotate(-Math.PI / 2);
+                return draw(image, h, w, transform);
+            }
+            default -> {
+                return image;
+            }
+        }
+    }
+
+    private static BufferedImage draw(BufferedImage image, int width, int height, AffineTransform transform) {
+        BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (transform != null) {
+                g.drawImage(image, transform, null);
+            } else {
+                g.drawImage(image, 0, 0, width, height, null);
+            }
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    // Ditulis ke file sementara lalu di-rename, sehingga request tidak pernah membaca varian setengah jadi
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(tmp.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static int readOrientation(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return readOrientation(in.readNBytes(EXIF_SCAN_BYTES));
+        }
+    }
+
+    // Tag Orientation (0x0112) di IFD0 segmen EXIF JPEG; 1 (normal) jika tidak ada / bukan JPEG
+    static int readOrientation(byte[] jpeg) {
+        if (jpeg.length < 4 || (jpeg[0] & 0xFF) != 0xFF || (jpeg[1] & 0xFF) != 0xD8) {
+            return 1;
+        }
+        int pos = 2;
+        while (pos + 4 <= jpeg.length && (jpeg[pos] & 0xFF) == 0xFF) {
+            int marker = jpeg[pos + 1] & 0xFF;
+            int length = u16(jpeg, pos + 2, true);
+            if (marker == 0xDA) {
+                break; // data gambar dimulai, tidak ada EXIF
+            }
+            if (marker == 0xE1 && pos + 10 <= jpeg.length
+                    && new String(jpeg, pos + 4, 6, StandardCharsets.ISO_8859_1).equals("Exif\0\0")) {
+                return tiffOrientation(jpeg, pos + 10, Math.min(jpeg.length, pos + 2 + length));
+            }
+            pos += 2 + length;
+        }
+        return 1;
+    }
+
+    private static int tiffOrientation(byte[] b, int start, int end) {
+        if (start + 8 > end) {
+            return 1;
+        }
+        boolean bigEndian = b[start] == 'M';
+        int ifd = start + (int) u32(b, start + 4, bigEndian);
+        if (ifd < start || ifd + 2 > end) {
+            return 1;
+        }
+        int count = u16(b, ifd, bigEndian);
+        for (int i = 0; i < count; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > end) {
+                break;
+            }
+            if (u16(b, entry, bigEndian) == 0x0112) {
+                int value = u16(b, entry + 8, bigEndian);
+                return value >= 1 && value <= 8 ? value : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static int u16(byte[] b, int pos, boolean bigEndian) {
+        int hi = b[bigEndian ? pos : pos + 1] & 0xFF;
+        int lo = b[bigEndian ? pos + 1 : pos] & 0xFF;
+        return (hi << 8) | lo;
+    }
+
+    private static long u32(byte[] b, int pos, boolean bigEndian) {
+        return bigEndian
+                ? ((long) u16(b, pos, true) << 16) | u16(b, pos + 2, true)
+                : ((long) u16(b, pos + 2, false) << 16) | u16(b, pos, false);
+    }
+}
@@ -0,0 +1,104 @@
+package org.delcom.app.services;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Pembatas percobaan login/registrasi per IP dan per email (token bucket, in-memory).
+// Setiap bucket = satu AtomicLong berisi "theoretical arrival time" (bentuk GCRA dari token bucket):
+// ambil token = satu CAS, tanpa lock dan tanpa alokasi di jalur normal.
+// Bucket yang sudah penuh kembali (idle) dibuang berkala, jadi memori mengikuti jumlah klien aktif.
+@Service
+public class LoginRateLimiter {
+
+    private static final class Limit {
+        private final long intervalNanos; // waktu isi ulang satu token
+        private final long burstNanos;    // kapasitas bucket dalam satuan waktu
+        private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+        private Limit(int capacity, int refillPerMinute) {
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, refillPerMinute);
+            this.burstNanos = intervalNanos * Math.max(1, capacity);
+        }
+    }
+
+    private final Limit ipLimit;
+    private final Limit emailLimit;
+    private final int maxKeys;
+    private final LongSupplier clock;
+
+    @Autowired
+    public LoginRateLimiter(@Value("${app.rate-limit.ip.capacity:20}") int ipCapacity,
+                            @Value("${app.rate-limit.ip.refill-per-minute:30}") int ipRefillPerMinute,
+                            @Value("${app.rate-limit.email.capacity:5}") int emailCapacity,
+                            @Value("${app.rate-limit.email.refill-per-minute:5}") int emailRefillPerMinute,
+                            @Value("${app.rate-limit.max-keys:100000}") int maxKeys) {
+        this(ipCapacity, ipRefillPerMinute, emailCapacity, emailRefillPerMinute, maxKeys, System::nanoTime);
+    }
+
+    LoginRateLimiter(int ipCapacity, int ipRefillPerMinute, int emailCapacity, int emailRefillPerMinute,
+                     int maxKeys, LongSupplier clock) {
+        this.ipLimit = new Limit(ipCapacity, ipRefillPerMinute);
+        this.emailLimit = new Limit(emailCapacity, emailRefillPerMinute);
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+    }
+
+    // 0 = boleh lanjut; > 0 = ditolak, tunggu sekian milidetik sampai token berikutnya
+    public long checkIp(String ip) {
+        return acquire(ipLimit, ip == null ? "" : ip);
+    }
+
+    public long checkEmail(String email) {
+        if (email == null || email.isBlank()) {
+            return 0; // ditolak validasi form/controller, bukan di sini
+        }
+        return acquire(emailLimit, email.trim().toLowerCase(Locale.ROOT));
+    }
+
+    public int trackedKeys() {
+        return ipLimit.buckets.size() + emailLimit.buckets.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.evict-interval-ms:60000}")
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        evictIdle(ipLimit, now);
+        evictIdle(emailLimit, now);
+    }
+
+    private long acquire(Limit limit, String key) {
+        long now = clock.getAsLong();
+        AtomicLong tat = limit.buckets.get(key);
+        if (tat == null) {
+            if (limit.buckets.size() >= maxKeys) {
+                evictIdle(limit, now);
+            }
+            tat = limit.buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + limit.intervalNanos;
+            long overBy = next - (now + limit.burstNanos);
+            if (overBy > 0) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(overBy));
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // Bucket penuh (TAT sudah lewat) sama dengan bucket baru, aman dibuang.
+    // Balapan dengan acquire() paling banyak "mengembalikan" satu token.
+    private void evictIdle(Limit limit, long now) {
+        limit.buckets.values().removeIf(tat -> tat.get() - now <= 0);
+    }
+}
@@ -0,0 +1,226 @@
+package org.delcom.app.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.delcom.app.entities.PhotoJob;
+import org.delcom.app.repositories.DonationRepository;
+import org.delcom.app.repositories.PhotoJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import jakarta.annotation.PreDestroy;
+
+// Antrean foto donasi yang tahan restart (tabel photo_jobs), dikerjakan pool worker di latar belakang.
+// - Thread request hanya menaruh upload di folder staging + INSERT job, lalu langsung selesai.
+// - Worker: pindahkan ke store content-addressed (FileStorageService.acquireStaged & promoteStaged),
+//   buat varian (ImageVariantService, lebarnya dicatat di photo_blobs), ganti donations.photo_url lalu
+//   lepas referensi foto lama.
+//   Sampai itu selesai, halaman donasi menampilkan foto lama / placeholder.
+// - Gagal -> dicoba ulang dengan jeda eksponensial; setelah maxAttempts job ditandai FAILED.
+// - Job diambil lewat UPDATE ... SKIP LOCKED dengan lease, jadi aman untuk banyak instance; job RUNNING
+//   milik worker yang mati diambil ulang setelah lease habis.
+@Service
+public class PhotoJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(PhotoJobService.class);
+
+    private final PhotoJobRepository jobRepo;
+    private final DonationRepository donationRepo;
+    private final FileStorageService fileService;
+    private final ImageVariantService imageVariants;
+    private final int workerCount;
+    private final int maxAttempts;
+    private final long retryDelayMs;
+    private final long leaseMs;
+
+    private final Executor workers;
+    private final AtomicInteger busy = new AtomicInteger();
+
+    @Autowired
+    public PhotoJobService(PhotoJobRepository jobRepo,
+                           DonationRepository donationRepo,
+                           FileStorageService fileService,
+                           ImageVariantService imageVariants,
+                           @Value("${app.photo-jobs.workers:2}") int workerCount,
+                           @Value("${app.photo-jobs.max-attempts:5}") int maxAttempts,
+                           @Value("${app.photo-jobs.retry-delay-ms:2000}") long retryDelayMs,
+                           @Value("${app.photo-jobs.lease-ms:60000}") long leaseMs) {
+        this(jobRepo, donationRepo, fileService, imageVariants, workerCount, maxAttempts, retryDelayMs, leaseMs,
+                Executors.newFixedThreadPool(Math.max(1, workerCount), runnable -> {
+                    Thread thread = new Thread(runnable, "photo-job");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    // Untuk test: executor sinkron
+    PhotoJobService(PhotoJobRepository jobRepo,
+                    DonationRepository donationRepo,
+                    FileStorageService fileService,
+                    ImageVariantService imageVariants,
+                    int workerCount,
+                    int maxAttempts,
+                    long retryDelayMs,
+                    long leaseMs,
+                    Executor workers) {
+        this.jobRepo = jobRepo;
+        this.donationRepo = donationRepo;
+        this.fileService = fileService;
+        this.imageVariants = imageVariants;
+        this.workerCount = Math.max(1, workerCount);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryDelayMs = retryDelayMs;
+        this.leaseMs = leaseMs;
+        this.workers = workers;
+    }
+
+    // Dipanggil di thread request sebelum donasi disimpan: upload divalidasi & disalin ke staging.
+    // Return nama file staging untuk enqueueStaged() setelah donasi tersimpan.
+    public String stage(MultipartFile photo) throws IOException {
+        return fileService.stageFile(photo, UUID.randomUUID());
+    }
+
+    // Upload streaming (PUT body mentah): lihat FileStorageService.stageStream
+    public PhotoJob enqueueStream(UUID donationId, InputStream body, String contentType, long contentLength)
+            throws IOException {
+        return enqueueStaged(donationId, fileService.stageStream(body, contentType, contentLength, UUID.randomUUID()));
+    }
+
+    public PhotoJob enqueueStaged(UUID donationId, String staged) {
+        PhotoJob job = jobRepo.save(new PhotoJob(donationId, staged));
+
+        // Ada worker menganggur: langsung dikerjakan. Jika tidak, diambil poll() berikutnya.
+        if (busy.get() < workerCount) {
+            UUID jobId = job.getId();
+            submit(() -> {
+                LocalDateTime now = LocalDateTime.now();
+                if (!jobRepo.claim(jobId, now, leaseUntil(now)).isEmpty()) {
+                    process(jobId);
+                }
+            });
+        }
+        return job;
+    }
+
+    // Ambil job jatuh tempo sebanyak worker yang menganggur (termasuk retry dan job dari sebelum restart)
+    @Scheduled(fixedDelayString = "${app.photo-jobs.poll-interval-ms:2000}")
+    public int poll() {
+        int free = workerCount - busy.get();
+        if (free <= 0) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<UUID> ids = jobRepo.claimDue(now, leaseUntil(now), free);
+        for (UUID id : ids) {
+            submit(() -> process(id));
+        }
+        return ids.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Job yang terpotong tetap RUNNING di database dan diambil ulang setelah lease habis
+        if (workers instanceof ExecutorService executor) {
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    // Job yang sudah di-claim (status RUNNING, attempts sudah bertambah)
+    void process(UUID jobId) {
+        PhotoJob job = jobRepo.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+        try {
+            String filename = job.getPhotoFile();
+            if (filename == null) {
+                // Referensi foto & photo_file job tersimpan bersama: percobaan ulang melanjutkan dari
+                // photo_file tanpa menambah referensi lagi
+                filename = fileService.acquireStaged(job.getId(), job.getStagedFile());
+                if (filename == null) {
+                    return; // photo_file sudah dicatat worker lain yang mengambil ulang job ini
+                }
+                job.setPhotoFile(filename);
+            }
+            fileService.promoteStaged(job.getStagedFile(), filename);
+            // Foto yang sama sudah pernah diunggah: varian yang ada dipakai ulang
+            String variantWidths = fileService.findVariantWidths(filename);
+            if (variantWidths == null) {
+                variantWidths = ImageVariantService.formatWidths(imageVariants.generate(filename));
+                fileService.recordVariantWidths(filename, variantWidths);
+            }
+            List<String> previous = donationRepo.swapPhotoUrl(job.getDonationId(), filename, variantWidths,
+                    job.getCreatedAt(), LocalDateTime.now());
+            // Job dihapus sebelum referensi dilepas: jika gagal di antaranya, paling buruk referensi
+            // berlebih (file tertinggal), tidak pernah dilepas dua kali.
+            jobRepo.delete(job);
+            if (previous.isEmpty()) {
+                // Donasi sudah dihapus selama foto menunggu diproses, atau foto dari upload yang lebih baru
+                // sudah terpasang: referensi milik job ini tidak dipakai
+                fileService.release(filename);
+            } else if (previous.get(0) != null && !previous.get(0).equals(filename)) {
+                // Foto lama == foto baru tidak dilepas: pada job yang diulang, itu referensi milik job ini
+                fileService.release(previous.get(0));
+            }
+        } catch (Exception e) {
+            fail(job, e);
+        }
+    }
+
+    private void fail(PhotoJob job, Exception e) {
+        String message = e.getClass().getSimpleName() + ": " + e.getMessage();
+        job.setLastError(message.length() > 1000 ? message.substring(0, 1000) : message);
+        job.setLockedUntil(null);
+        if (job.getAttempts() >= maxAttempts) {
+            // File staging dibiarkan agar job bisa diperiksa / dijalankan ulang manual
+            job.setStatus(PhotoJob.Status.FAILED);
+            log.error("Foto donasi {} gagal diproses setelah {} percobaan: {}", job.getDonationId(), job.getAttempts(), message);
+        } else {
+            // 2s, 4s, 8s, ... sejak percobaan terakhir
+            long delay = retryDelayMs << Math.min(job.getAttempts() - 1, 20);
+            job.setStatus(PhotoJob.Status.PENDING);
+            job.setNextAttemptAt(LocalDateTime.now().plusNanos(delay * 1_000_000L));
+            log.warn("Foto donasi {} gagal diproses (percobaan {}), dicoba lagi: {}", job.getDonationId(), job.getAttempts(), message);
+        }
+        jobRepo.save(job);
+    }
+
+    private void submit(Runnable task) {
+        busy.incrementAndGet();
+        try {
+            workers.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    // Mis. database tidak tersedia: job tetap di tabel dan diambil ulang oleh poll()
+                    log.warn("Worker foto gagal: {}", e.getMessage());
+                } finally {
+                    busy.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Aplikasi sedang berhenti: job tetap PENDING/RUNNING di database
+            busy.decrementAndGet();
+        }
+    }
+
+    private LocalDateTime leaseUntil(LocalDateTime now) {
+        return now.plusNanos(leaseMs * 1_000_000L);
+    }
+}
@@ -0,0 +1,77 @@
+package org.delcom.app.services;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.delcom.app.entities.Donation;
+import org.delcom.app.repositories.DonationRepository;
+import org.springframework.stereotype.Service;
+
+// Counter sisa porsi in-memory (CAS, tanpa lock) di depan UPDATE atomik di database.
+// Pada donasi yang sedang diperebutkan, hanya klaim yang masih kebagian porsi yang sampai ke UPDATE;
+// sisanya ditolak tanpa antre lock baris. Database tetap sumber kebenaran: kalau UPDATE gagal, counter
+// dibuang dan dimuat ulang pada klaim berikutnya, dan "tidak cukup" dari counter selalu dipastikan dengan
+// SELECT biasa (counter yang terlalu rendah dimuat ulang, bukan dipercaya terus).
+@Service
+public class PortionReservationService {
+
+    static final int MAX_TRACKED = 10_000;
+
+    private final DonationRepository donationRepo;
+    private final ConcurrentHashMap<UUID, AtomicInteger> remaining = new ConcurrentHashMap<>();
+
+    public PortionReservationService(DonationRepository donationRepo) {
+        this.donationRepo = donationRepo;
+    }
+
+    // true = porsi dipesan di memori (lanjutkan ke database); false = tidak cukup menurut database
+    public boolean tryReserve(UUID donationId, int portions) {
+        AtomicInteger counter = remaining.get(donationId);
+        if (counter == null) {
+            Integer available = donationRepo.findAvailablePortions(donationId, Donation.DonationStatus.AVAILABLE).orElse(null);
+            if (available == null) {
+                return true; // donasi tidak ada: biarkan jalur database yang melapor
+            }
+            if (remaining.size() >= MAX_TRACKED) {
+                remaining.clear();
+            }
+            counter = remaining.computeIfAbsent(donationId, id -> new AtomicInteger(available));
+        }
+        boolean reloaded = false;
+        while (true) {
+            int current = counter.get();
+            if (current < portions) {
+                if (reloaded) {
+                    return false;
+                }
+                // Counter bisa terlalu rendah (porsi dikembalikan lewat instance lain, porsi ditambah, ...):
+                // cek sisa di database (tanpa lock baris) dan muat ulang counter sebelum menolak
+                Integer available = donationRepo.findAvailablePortions(donationId, Donation.DonationStatus.AVAILABLE).orElse(null);
+                if (available == null) {
+                    invalidate(donationId);
+                    return true; // donasi sudah dihapus: biarkan jalur database yang melapor
+                }
+                counter.set(available);
+                reloaded = true;
+                continue;
+            }
+            if (counter.compareAndSet(current, current - portions)) {
+                return true;
+            }
+        }
+    }
+
+    // Kembalikan porsi yang sudah dipesan di memori tetapi gagal disimpan (mis. error database)
+    public void release(UUID donationId, int portions) {
+        AtomicInteger counter = remaining.get(donationId);
+        if (counter != null) {
+            counter.addAndGet(portions);
+        }
+    }
+
+    // Buang counter (porsi diedit, klaim utuh, donasi dihapus, atau memori tidak sinkron dengan database)
+    public void invalidate(UUID donationId) {
+        remaining.remove(donationId);
+    }
+}
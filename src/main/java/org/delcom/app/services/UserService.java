@@ -11,9 +11,14 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class UserService {
     private final UserRepository userRepository;
+    private final AuthPrincipalCache principalCache;
+    private final PasswordHashingService passwordHashingService;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, AuthPrincipalCache principalCache,
+                       PasswordHashingService passwordHashingService) {
         this.userRepository = userRepository;
+        this.principalCache = principalCache;
+        this.passwordHashingService = passwordHashingService;
     }
 
     @Transactional
@@ -40,6 +45,7 @@ public class UserService {
         }
         user.setName(name);
         user.setEmail(email);
+        principalCache.invalidateUser(id);
         return userRepository.save(user);
     }
 
@@ -51,6 +57,27 @@ public class UserService {
             return null;
         }
         user.setPassword(newPassword);
+        principalCache.invalidateUser(id);
         return userRepository.save(user);
     }
-}
\ No newline at end of file
+
+    // Dipanggil setelah login berhasil: hash dengan cost di bawah cost sekarang di-hash ulang.
+    // Hashing di luar transaksi (BCrypt lambat, tidak menahan koneksi); penyimpanan satu UPDATE bersyarat
+    // yang transaksional sendiri (bukan lewat updatePassword di class ini, yang @Transactional-nya
+    // terlewati karena dipanggil tanpa proxy). Kalau pool hashing sedang penuh, dicoba lagi di login berikutnya.
+    public void upgradePasswordHashIfNeeded(User user, String rawPassword) {
+        String oldHash = user.getPassword();
+        if (!passwordHashingService.needsRehash(oldHash)) {
+            return;
+        }
+        try {
+            String newHash = passwordHashingService.encode(rawPassword);
+            if (userRepository.replacePasswordHash(user.getId(), oldHash, newHash) > 0) {
+                user.setPassword(newHash);
+                principalCache.invalidateUser(user.getId());
+            }
+        } catch (PasswordHashingService.BusyException e) {
+            // lewati
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.delcom.app.utils;
+
+import java.util.function.IntToLongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+// BCrypt dengan cost (strength) yang dipilih dari hasil ukur di mesin ini, lihat calibrateStrength().
+// Cost tidak pernah di bawah batas minimum yang dikonfigurasi. upgradeEncoding() bernilai true hanya untuk
+// hash dengan cost lebih rendah, supaya di-hash ulang saat login berhasil; hash yang lebih kuat (mis. dari
+// kalibrasi di mesin yang lebih cepat) tidak pernah diturunkan.
+public class AdaptiveBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+
+    // Cost terendah yang diterima BCrypt
+    private static final int MIN_BCRYPT_STRENGTH = 4;
+
+    private final int strength;
+
+    public AdaptiveBCryptPasswordEncoder(int strength) {
+        this(strength, MIN_BCRYPT_STRENGTH);
+    }
+
+    public AdaptiveBCryptPasswordEncoder(int strength, int minStrength) {
+        super(Math.max(strength, minStrength));
+        this.strength = Math.max(strength, minStrength);
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        int cost = costOf(encodedPassword);
+        return cost != -1 && cost < strength;
+    }
+
+    // Cost dari hash BCrypt ("$2a$10$..." -> 10), atau -1 jika bukan hash BCrypt
+    public static int costOf(String encodedPassword) {
+        if (encodedPassword == null) {
+            return -1;
+        }
+        Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    public static int calibrateStrength(long targetMillis, int minStrength, int maxStrength) {
+        return calibrateStrength(targetMillis, minStrength, maxStrength, AdaptiveBCryptPasswordEncoder::measureNanos);
+    }
+
+    // Cost tertinggi dalam [min, max] yang waktu hash-nya masih <= target. Tiap +1 cost = 2x waktu,
+    // jadi cukup satu pengukuran di cost minimum (setelah pemanasan JIT).
+    static int calibrateStrength(long targetMillis, int minStrength, int maxStrength, IntToLongFunction nanosAtStrength) {
+        nanosAtStrength.applyAsLong(minStrength);
+        long nanos = nanosAtStrength.applyAsLong(minStrength);
+        long targetNanos = targetMillis * 1_000_000L;
+        int strength = minStrength;
+        while (strength < maxStrength && nanos * 2 <= targetNanos) {
+            strength++;
+            nanos *= 2;
+        }
+        return strength;
+    }
+
+    private static long measureNanos(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        long began = System.nanoTime();
+        encoder.encode("calibration-password");
+        return System.nanoTime() - began;
+    }
+}
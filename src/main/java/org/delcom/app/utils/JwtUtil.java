@@ -14,10 +14,24 @@ public class JwtUtil {
     private static final long EXPIRATION_TIME = 1000 * 60 * 60 * 2; // 2 jam
     private static final SecretKey key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
 
+    // Parser immutable & thread-safe: cukup dibuat sekali
+    private static final JwtParser parser = Jwts.parser().verifyWith(key).build();
+
+    // Cache token yang tanda tangannya sudah diverifikasi -> claims. Hanya token valid yang masuk cache,
+    // jadi ukurannya dibatasi jumlah token yang pernah diterbitkan, bukan oleh input penyerang.
+    static final int VERIFIED_CACHE_MAX_ENTRIES = 10_000;
+    static final long VERIFIED_CACHE_TTL_MS = 1000 * 60 * 5; // 5 menit
+    private static final TtlCache<String, Claims> verifiedTokens =
+            new TtlCache<>(VERIFIED_CACHE_MAX_ENTRIES, VERIFIED_CACHE_TTL_MS);
+
     public static SecretKey getKey() {
         return key;
     }
 
+    public static long getExpirationMillis() {
+        return EXPIRATION_TIME;
+    }
+
     public static String generateToken(UUID userId) {
         return Jwts.builder()
                 .subject(userId.toString())
@@ -27,13 +41,45 @@ public class JwtUtil {
                 .compact();
     }
 
+    /**
+     * Verifikasi token sekali dan kembalikan claims-nya (dari cache jika sudah pernah diverifikasi).
+     *
+     * @param token         JWT token
+     * @param ignoreExpired jika true maka token expired tetap dikembalikan claims-nya
+     * @return claims, atau null jika token tidak valid
+     */
+    public static Claims parseClaims(String token, boolean ignoreExpired) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        Claims claims = verifiedTokens.get(token);
+        if (claims == null) {
+            try {
+                claims = parser.parseSignedClaims(token).getPayload();
+            } catch (ExpiredJwtException e) {
+                claims = e.getClaims(); // tanda tangan sudah terverifikasi sebelum cek expired
+            } catch (Exception e) {
+                return null; // token invalid (tidak di-cache)
+            }
+            verifiedTokens.put(token, claims);
+        }
+        if (!ignoreExpired && isExpired(claims)) {
+            return null;
+        }
+        return claims;
+    }
+
+    public static UUID extractUserId(Claims claims) {
+        try {
+            return UUID.fromString(claims.getSubject());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     public static UUID extractUserId(String token) {
         try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            Claims claims = parser.parseSignedClaims(token).getPayload();
 
             return UUID.fromString(claims.getSubject());
         } catch (Exception e) {
@@ -43,16 +89,13 @@ public class JwtUtil {
 
     /**
      * Validasi token
-     * 
+     *
      * @param token         JWT token
      * @param ignoreExpired jika true maka token expired tetap dianggap valid
      */
     public static boolean validateToken(String token, boolean ignoreExpired) {
         try {
-            Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token);
+            parser.parseSignedClaims(token);
             return true; // valid
         } catch (ExpiredJwtException e) {
             if (ignoreExpired) {
@@ -63,4 +106,13 @@ public class JwtUtil {
             return false; // token invalid
         }
     }
-}
\ No newline at end of file
+
+    public static void clearVerifiedCache() {
+        verifiedTokens.clear();
+    }
+
+    private static boolean isExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.before(new Date());
+    }
+}
@@ -0,0 +1,67 @@
+package org.delcom.app.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+// Cache in-memory sederhana: setiap entri kedaluwarsa setelah TTL, jumlah entri dibatasi.
+// Saat penuh, entri kedaluwarsa dibuang dulu; kalau masih penuh, cache dikosongkan.
+public class TtlCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAtNanos) {
+    }
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    public TtlCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, System::nanoTime);
+    }
+
+    TtlCache(int maxEntries, long ttlMillis, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.clock = clock;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (clock.getAsLong() - entry.expiresAtNanos() >= 0) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value();
+    }
+
+    public void put(K key, V value) {
+        long now = clock.getAsLong();
+        if (entries.size() >= maxEntries) {
+            entries.values().removeIf(e -> now - e.expiresAtNanos() >= 0);
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+        }
+        entries.put(key, new Entry<>(value, now + ttlNanos));
+    }
+
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    public void removeIf(Predicate<V> predicate) {
+        entries.values().removeIf(e -> predicate.test(e.value()));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
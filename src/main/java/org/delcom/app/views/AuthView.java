@@ -6,6 +6,8 @@ import org.delcom.app.dto.LoginForm;
 import org.delcom.app.dto.RegisterForm;
 import org.delcom.app.entities.User;
 import org.delcom.app.services.AuthTokenService;
+import org.delcom.app.services.LoginRateLimiter;
+import org.delcom.app.services.PasswordHashingService;
 import org.delcom.app.services.UserService;
 import org.delcom.app.utils.ConstUtil;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
@@ -15,7 +17,6 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -24,6 +25,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 
@@ -35,9 +37,14 @@ import org.springframework.validation.BindingResult;
 public class AuthView {
 
     private final UserService userService;
+    private final PasswordHashingService passwordHashingService;
+    private final LoginRateLimiter rateLimiter;
 
-    public AuthView(UserService userService, AuthTokenService authTokenService) {
+    public AuthView(UserService userService, AuthTokenService authTokenService,
+            PasswordHashingService passwordHashingService, LoginRateLimiter rateLimiter) {
         this.userService = userService;
+        this.passwordHashingService = passwordHashingService;
+        this.rateLimiter = rateLimiter;
     }
 
     @GetMapping("/login")
@@ -59,6 +66,7 @@ public class AuthView {
     public String postLogin(@Valid @ModelAttribute("loginForm") LoginForm loginForm,
             BindingResult bindingResult,
             HttpSession session,
+            HttpServletResponse response,
             Model model) {
 
         // Validasi form
@@ -66,19 +74,35 @@ public class AuthView {
             return ConstUtil.TEMPLATE_PAGES_AUTH_LOGIN;
         }
 
+        // Batas percobaan per email (sebelum lookup user & BCrypt)
+        if (rateLimiter.checkEmail(loginForm.getEmail()) > 0) {
+            response.setStatus(429);
+            bindingResult.rejectValue("email", "error.loginForm", "Terlalu banyak percobaan, silakan coba lagi nanti");
+            return ConstUtil.TEMPLATE_PAGES_AUTH_LOGIN;
+        }
+
         User existingUser = userService.getUserByEmail(loginForm.getEmail());
         if (existingUser == null) {
             bindingResult.rejectValue("email", "error.loginForm", "Pengguna ini belum terdaftar");
             return ConstUtil.TEMPLATE_PAGES_AUTH_LOGIN;
         }
 
-        boolean isPasswordMatch = new BCryptPasswordEncoder()
-                .matches(loginForm.getPassword(), existingUser.getPassword());
+        boolean isPasswordMatch;
+        try {
+            isPasswordMatch = passwordHashingService.matches(loginForm.getPassword(), existingUser.getPassword());
+        } catch (PasswordHashingService.BusyException e) {
+            response.setStatus(503);
+            bindingResult.rejectValue("email", "error.loginForm", e.getMessage());
+            return ConstUtil.TEMPLATE_PAGES_AUTH_LOGIN;
+        }
         if (!isPasswordMatch) {
             bindingResult.rejectValue("email", "error.loginForm", "Email atau kata sandi salah");
             return ConstUtil.TEMPLATE_PAGES_AUTH_LOGIN;
         }
 
+        // Hash dengan cost BCrypt lama di-upgrade transparan
+        userService.upgradePasswordHashIfNeeded(existingUser, loginForm.getPassword());
+
         // Set authenticated user ke session
         List<GrantedAuthority> authorities = List.of(
                 new SimpleGrantedAuthority("ROLE_USER"));
@@ -119,6 +143,7 @@ public class AuthView {
             BindingResult bindingResult,
             RedirectAttributes redirectAttributes,
             HttpSession session,
+            HttpServletResponse response,
             Model model) {
 
         // Validasi form
@@ -126,6 +151,13 @@ public class AuthView {
             return ConstUtil.TEMPLATE_PAGES_AUTH_REGISTER;
         }
 
+        // Batas percobaan per email
+        if (rateLimiter.checkEmail(registerForm.getEmail()) > 0) {
+            response.setStatus(429);
+            bindingResult.rejectValue("email", "error.registerForm", "Terlalu banyak percobaan, silakan coba lagi nanti");
+            return ConstUtil.TEMPLATE_PAGES_AUTH_REGISTER;
+        }
+
         // Cek apakah email sudah terdaftar
         User existingUser = userService.getUserByEmail(registerForm.getEmail());
         if (existingUser != null) {
@@ -133,7 +165,14 @@ public class AuthView {
             return ConstUtil.TEMPLATE_PAGES_AUTH_REGISTER;
         }
 
-        String hashPassword = new BCryptPasswordEncoder().encode(registerForm.getPassword());
+        String hashPassword;
+        try {
+            hashPassword = passwordHashingService.encode(registerForm.getPassword());
+        } catch (PasswordHashingService.BusyException e) {
+            response.setStatus(503);
+            bindingResult.rejectValue("email", "error.registerForm", e.getMessage());
+            return ConstUtil.TEMPLATE_PAGES_AUTH_REGISTER;
+        }
 
         User createdUser = userService.createUser(
                 registerForm.getName(),
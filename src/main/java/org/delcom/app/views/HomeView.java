@@ -2,6 +2,7 @@ package org.delcom.app.views;
 
 import org.delcom.app.entities.User;
 import org.delcom.app.services.DonationService;
+import org.delcom.app.services.DonationStatsService;
 // Hapus import TodoForm dan TodoService yang lama
 // import org.delcom.app.utils.ConstUtil; // Opsional: Hapus jika ingin pakai String langsung
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
@@ -17,15 +18,18 @@ public class HomeView {
 
     // 1. Ganti Service dari TodoService ke DonationService
     private final DonationService donationService;
+    private final DonationStatsService donationStatsService;
 
     // Constructor Injection
-    public HomeView(DonationService donationService) {
+    public HomeView(DonationService donationService, DonationStatsService donationStatsService) {
         this.donationService = donationService;
+        this.donationStatsService = donationStatsService;
     }
 
     @GetMapping("/")
     public String home(@RequestParam(required = false) String search,
                        @RequestParam(required = false) Boolean halal,
+                       @RequestParam(required = false) String cursor,
                        Model model) {
         
         // --- LOGIC KEAMANAN (TIDAK DIUBAH) ---
@@ -45,20 +49,21 @@ public class HomeView {
 
         // --- LOGIC BARU: DONASI MAKANAN ---
         
-        // 1. Ambil daftar donasi (mendukung fitur search & filter)
+        // 1. Ambil daftar donasi per halaman (mendukung fitur search & filter)
         // Ini memenuhi Fitur Poin 6 (Daftar Data) & Fitur C (Pencarian)
-        var donations = donationService.getAllDonations(search, halal);
-        model.addAttribute("donations", donations);
+        // Keyset pagination: tombol "Muat Lebih Banyak" membawa cursor ke halaman berikutnya
+        var page = donationService.getDonationPage(search, halal, cursor, DonationService.DEFAULT_PAGE_SIZE);
+        model.addAttribute("donations", page.getItems());
+        model.addAttribute("nextCursor", page.getNextCursor());
 
         // 2. Ambil Statistik untuk Chart/Info (Fitur Poin 8 & D)
-        long countHalal = donationService.countHalal(true);
-        long countNonHalal = donationService.countHalal(false);
-        
-        model.addAttribute("halalCount", countHalal);
-        model.addAttribute("nonHalalCount", countNonHalal);
+        // Dibaca dari counter in-memory (O(1)), tanpa query COUNT per page view
+        model.addAttribute("halalCount", donationStatsService.getHalalCount(true));
+        model.addAttribute("nonHalalCount", donationStatsService.getHalalCount(false));
 
         // 3. Kembalikan nilai search agar input field tidak reset
         model.addAttribute("search", search);
+        model.addAttribute("halal", halal);
 
         // Arahkan ke file HTML list donasi yang sudah kita buat sebelumnya
         // Pastikan path ini sesuai dengan lokasi file HTML kamu (templates/pages/donation/list.html)
@@ -0,0 +1,60 @@
+package org.delcom.app.configs;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Server sungguhan + management server di port terpisah (seperti konfigurasi produksi)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "management.server.port=0",
+        "management.endpoints.web.exposure.include=health,prometheus"
+})
+@AutoConfigureObservability
+class MetricsConfigTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @LocalServerPort
+    private int port;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Test
+    @DisplayName("Endpoint Prometheus berisi histogram latensi per route + metrik JVM, Hikari, Hibernate")
+    void testPrometheusScrape() {
+        ResponseEntity<String> login = restTemplate.getForEntity(
+                "http://127.0.0.1:" + port + "/auth/login", String.class);
+        assertThat(login.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        ResponseEntity<String> scrape = restTemplate.getForEntity(
+                "http://127.0.0.1:" + managementPort + "/actuator/prometheus", String.class);
+        assertThat(scrape.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        // Tag uri = template route, bukan path mentah; bucket histogram untuk histogram_quantile()
+        String body = scrape.getBody();
+        assertThat(body).containsPattern("http_server_requests_seconds_bucket\\{[^}]*uri=\"/auth/login\",le=\"0.1[0-9]*\"");
+        assertThat(body).containsPattern("http_server_requests_seconds_max\\{[^}]*status=\"200\",uri=\"/auth/login\"");
+        assertThat(body).contains("jvm_memory_used_bytes");
+        assertThat(body).contains("hikaricp_connections");
+        assertThat(body).contains("hibernate_");
+    }
+
+    @Test
+    @DisplayName("Endpoint actuator tidak ada di port aplikasi")
+    void testActuatorNotOnApplicationPort() {
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                "http://127.0.0.1:" + port + "/actuator/prometheus", String.class);
+        assertThat(response.getBody()).doesNotContain("http_server_requests");
+    }
+}
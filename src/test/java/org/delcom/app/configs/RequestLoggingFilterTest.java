@@ -4,6 +4,7 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -13,10 +14,15 @@ import org.springframework.boot.test.system.OutputCaptureExtension;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
 
 import java.io.IOException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
@@ -28,13 +34,18 @@ class RequestLoggingFilterTest {
 
     @BeforeEach
     void setUp() {
-        filter = new RequestLoggingFilter();
+        filter = new RequestLoggingFilter(64, 10);
         // Karena ini Unit Test (bukan Integration), @Value tidak jalan otomatis.
         // Kita inject manual field private-nya.
         ReflectionTestUtils.setField(filter, "port", 8080);
         ReflectionTestUtils.setField(filter, "livereload", false);
     }
 
+    @AfterEach
+    void tearDown() {
+        filter.destroy();
+    }
+
     @Test
     @DisplayName("Harus mencetak log warna HIJAU untuk status 200 OK")
     void testLogSuccessRequest(CapturedOutput output) throws ServletException, IOException {
@@ -53,6 +64,7 @@ class RequestLoggingFilterTest {
 
         // 3. Jalankan Filter
         filter.doFilterInternal(request, response, filterChain);
+        filter.getRequestLogger().flush(); // log ditulis asinkron
 
         // 4. Verifikasi Output
         // Kode ANSI Hijau: \u001B[32m
@@ -76,6 +88,7 @@ class RequestLoggingFilterTest {
         }).when(filterChain).doFilter(any(), any());
 
         filter.doFilterInternal(request, response, filterChain);
+        filter.getRequestLogger().flush(); // log ditulis asinkron
 
         // Kode ANSI Kuning: \u001B[33m
         assertThat(output.getOut()).contains("\u001B[33m");
@@ -96,6 +109,7 @@ class RequestLoggingFilterTest {
         }).when(filterChain).doFilter(any(), any());
 
         filter.doFilterInternal(request, response, filterChain);
+        filter.getRequestLogger().flush(); // log ditulis asinkron
 
         // Kode ANSI Merah: \u001B[31m
         assertThat(output.getOut()).contains("\u001B[31m");
@@ -111,6 +125,7 @@ class RequestLoggingFilterTest {
         FilterChain filterChain = mock(FilterChain.class);
 
         filter.doFilterInternal(request, response, filterChain);
+        filter.getRequestLogger().flush(); // log ditulis asinkron
 
         // Assert bahwa TIDAK ADA output sama sekali
         assertThat(output.getOut()).isEmpty();
@@ -130,9 +145,73 @@ class RequestLoggingFilterTest {
         }).when(filterChain).doFilter(any(), any());
 
         filter.doFilterInternal(request, response, filterChain);
+        filter.getRequestLogger().flush(); // log ditulis asinkron
 
         // Kode ANSI Cyan: \u001B[36m
         assertThat(output.getOut()).contains("\u001B[36m");
         assertThat(output.getOut()).contains("101");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Asal kode diambil dari HandlerMethod yang dipilih DispatcherServlet")
+    void testLogHandlerMethodOrigin(CapturedOutput output) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+                new HandlerMethod(this, RequestLoggingFilterTest.class.getDeclaredMethod("setUp")));
+        request.setRemoteAddr("10.0.0.1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilterInternal(request, response, mock(FilterChain.class));
+        filter.getRequestLogger().flush();
+
+        assertThat(output.getOut()).contains("[org.delcom.app.configs.RequestLoggingFilterTest.setUp]");
+        assertThat(output.getOut()).contains("from 10.0.0.1");
+        assertThat(output.getOut()).contains("GET    /api/users 200 ");
+    }
+
+    @Test
+    @DisplayName("Handler non-controller ditulis nama kelasnya, tanpa handler ditulis '-'")
+    void testDescribeHandler() {
+        assertEquals("java.lang.String", AsyncRequestLogger.describeHandler("resource"));
+        assertEquals("-", AsyncRequestLogger.describeHandler(null));
+    }
+
+    @Test
+    @DisplayName("Buffer hampir penuh: request sukses di-sampling, error tetap dicatat; penuh: dibuang")
+    void testSamplingAndDropUnderOverload(CapturedOutput output) {
+        // sampleEvery sangat besar -> praktis semua request sukses di-sampling keluar saat beban tinggi
+        AsyncRequestLogger logger = new AsyncRequestLogger(8, Integer.MAX_VALUE);
+        logger.shutdown(); // hentikan worker agar buffer tidak dikosongkan selama test
+
+        for (int i = 0; i < 6; i++) {
+            assertTrue(logger.log(new AsyncRequestLogger.Event("GET", "/ok/" + i, 200, 1, null, "-")));
+        }
+        assertFalse(logger.log(new AsyncRequestLogger.Event("GET", "/sampled", 200, 1, null, "-")));
+        assertEquals(1, logger.getSampledOutCount());
+
+        assertTrue(logger.log(new AsyncRequestLogger.Event("GET", "/error/1", 500, 1, null, "-")));
+        assertTrue(logger.log(new AsyncRequestLogger.Event("GET", "/error/2", 404, 1, null, "-")));
+        assertFalse(logger.log(new AsyncRequestLogger.Event("GET", "/error/3", 500, 1, null, "-")));
+        assertEquals(1, logger.getDroppedCount());
+
+        logger.flush();
+        assertThat(output.getOut()).contains("/ok/5").contains("/error/2").doesNotContain("/sampled");
+        assertThat(output.getOut()).contains("1 log request dibuang");
+
+        // Setelah dikosongkan, buffer bisa dipakai lagi
+        assertTrue(logger.log(new AsyncRequestLogger.Event("GET", "/again", 200, 1, null, "-")));
+    }
+
+    @Test
+    @DisplayName("Worker latar belakang menulis log tanpa flush manual")
+    void testBackgroundWorkerWrites(CapturedOutput output) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/async");
+        filter.doFilterInternal(request, new MockHttpServletResponse(), mock(FilterChain.class));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!output.getOut().contains("/async") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(output.getOut()).contains("/async");
+    }
+}
@@ -108,4 +108,22 @@ class StartupInfoLoggerTest {
         // --- ASSERT ---
         verify(env).getProperty("server.servlet.context-path", "");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Scenario 4: Mode virtual thread dibaca dari spring.threads.virtual.enabled")
+    void testStartupWithVirtualThreads() {
+        // --- ARRANGE ---
+        when(env.getProperty(eq("server.port"), anyString())).thenReturn("8080");
+        when(env.getProperty(eq("server.servlet.context-path"), anyString())).thenReturn("");
+        when(env.getProperty(eq("server.address"), anyString())).thenReturn("localhost");
+        when(env.getProperty(eq("spring.devtools.livereload.enabled"), eq(Boolean.class), anyBoolean())).thenReturn(false);
+        when(env.getProperty(eq("spring.devtools.livereload.port"), anyString())).thenReturn("35729");
+        when(env.getProperty("spring.threads.virtual.enabled", Boolean.class)).thenReturn(true);
+
+        // --- ACT ---
+        startupInfoLogger.onApplicationEvent(event);
+
+        // --- ASSERT ---
+        verify(env).getProperty("spring.threads.virtual.enabled", Boolean.class);
+    }
+}
@@ -0,0 +1,208 @@
+package org.delcom.app.configs;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.delcom.app.Application;
+import org.delcom.app.services.DonationStatsService;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+// Load test mode thread request: platform (pool Tomcat, default 200 thread) vs virtual thread.
+// Aplikasi dijalankan sungguhan (Tomcat + PostgreSQL) dua kali, sekali per mode, lalu dibebani
+// CONCURRENCY klien paralel. Di mode virtual, JFR merekam jdk.VirtualThreadPinned untuk memastikan
+// tidak ada carrier yang terkunci oleh kode aplikasi (mis. synchronized di sekitar JDBC).
+// Tidak ikut `mvn test` biasa; jalankan dengan: mvn test -Pbenchmark
+@Tag("benchmark")
+class ThreadModeLoadBenchmarkTest {
+
+    private static final int CONCURRENCY = 600;
+    private static final Duration WARMUP = Duration.ofSeconds(3);
+    private static final Duration MEASURE = Duration.ofSeconds(8);
+
+    // Endpoint khusus load test, didaftarkan manual hanya di konteks load test ini
+    @RestController
+    static class LoadEndpoints {
+
+        private final JdbcTemplate jdbcTemplate;
+        private final DonationStatsService statsService;
+
+        LoadEndpoints(JdbcTemplate jdbcTemplate, DonationStatsService statsService) {
+            this.jdbcTemplate = jdbcTemplate;
+            this.statsService = statsService;
+        }
+
+        // JDBC blocking: statistik dashboard + query 10 ms di database
+        @GetMapping("/api/load-test/jdbc")
+        public String jdbc() {
+            statsService.getStats();
+            return String.valueOf(jdbcTemplate.queryForObject("SELECT 1 FROM pg_sleep(0.01)", Integer.class));
+        }
+
+        // I/O blocking lambat (mis. penyimpanan file di disk jaringan), 1 detik per request:
+        // permintaan 600 req/s, jauh di atas 200 thread Tomcat tapi masih di bawah batas CPU
+        @GetMapping("/api/load-test/io")
+        public String io() throws InterruptedException {
+            Thread.sleep(1000);
+            return "ok";
+        }
+    }
+
+    private record Result(double throughput, long p50Micros, long p99Micros, long maxMicros) {
+    }
+
+    @Test
+    @DisplayName("Benchmark: Throughput & tail latency, thread platform vs virtual thread")
+    void benchmarkThreadModes() throws Exception {
+        Map<String, Result> platform = runMode(false);
+        Map<String, Result> virtual = runMode(true);
+
+        System.out.printf("[benchmark] %-6s %-9s %10s %10s %10s %10s%n", "route", "mode", "req/s", "p50 ms", "p99 ms", "max ms");
+        for (String route : platform.keySet()) {
+            print(route, "platform", platform.get(route));
+            print(route, "virtual", virtual.get(route));
+        }
+
+        // Request I/O blocking melebihi jumlah thread Tomcat: virtual thread tidak mengantre di pool
+        assertTrue(virtual.get("io").throughput() > platform.get("io").throughput(),
+                "Virtual thread harus melayani lebih banyak request I/O blocking per detik");
+        assertTrue(virtual.get("io").p99Micros() < platform.get("io").p99Micros(),
+                "Virtual thread harus punya p99 lebih rendah untuk request I/O blocking");
+    }
+
+    private Map<String, Result> runMode(boolean virtualThreads) throws Exception {
+        Map<String, Result> results = new LinkedHashMap<>();
+        // Argumen command line: menimpa application.properties
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .initializers(ctx -> ((GenericApplicationContext) ctx).registerBean(LoadEndpoints.class))
+                .run("--server.port=0",
+                        "--management.server.port=0",
+                        "--spring.main.banner-mode=off",
+                        "--spring.devtools.restart.enabled=false",
+                        "--spring.datasource.hikari.maximum-pool-size=40",
+                        "--spring.threads.virtual.enabled=" + virtualThreads)) {
+            String baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+
+            Recording recording = null;
+            if (virtualThreads) {
+                recording = new Recording();
+                recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+                recording.start();
+            }
+
+            PrintStream stdout = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream())); // log request tidak membanjiri output
+            try {
+                for (String route : List.of("jdbc", "io")) {
+                    URI uri = URI.create(baseUrl + "/api/load-test/" + route);
+                    load(uri, WARMUP);
+                    results.put(route, load(uri, MEASURE));
+                }
+            } finally {
+                System.setOut(stdout);
+            }
+
+            if (recording != null) {
+                recording.stop();
+                assertNoApplicationPinning(recording);
+            }
+        }
+        return results;
+    }
+
+    private Result load(URI uri, Duration duration) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).GET().build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<List<Long>>> workers = new ArrayList<>();
+        // Klien memakai thread platform agar tidak berbagi carrier virtual thread dengan server
+        try (ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+             HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .build()) {
+            for (int i = 0; i < CONCURRENCY; i++) {
+                workers.add(clients.submit(() -> {
+                    List<Long> latencies = new ArrayList<>();
+                    while (System.nanoTime() < deadline) {
+                        long began = System.nanoTime();
+                        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                        assertEquals(200, response.statusCode());
+                        latencies.add(System.nanoTime() - began);
+                    }
+                    return latencies;
+                }));
+            }
+
+            long[] all = workers.stream().flatMap(f -> {
+                try {
+                    return f.get().stream();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }).mapToLong(Long::longValue).sorted().toArray();
+
+            double seconds = duration.toNanos() / 1e9;
+            return new Result(all.length / seconds,
+                    all[(int) (all.length * 0.50)] / 1000,
+                    all[(int) (all.length * 0.99)] / 1000,
+                    all[all.length - 1] / 1000);
+        }
+    }
+
+    private void assertNoApplicationPinning(Recording recording) throws Exception {
+        Path file = Files.createTempFile("pinned", ".jfr");
+        try {
+            recording.dump(file);
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            long inApplication = 0;
+            for (RecordedEvent event : events) {
+                boolean application = event.getStackTrace() != null && event.getStackTrace().getFrames().stream()
+                        .map(RecordedFrame::getMethod)
+                        .anyMatch(m -> m.getType().getName().startsWith("org.delcom"));
+                if (application) {
+                    inApplication++;
+                    System.out.println("[benchmark] pinned: " + event.getStackTrace().getFrames().get(0).getMethod().getType().getName()
+                            + " via org.delcom frame, " + event.getDuration().toMillis() + " ms");
+                }
+            }
+            System.out.printf("[benchmark] virtual thread pinned events: %d total, %d in org.delcom code%n",
+                    events.size(), inApplication);
+            assertEquals(0, inApplication, "Kode aplikasi tidak boleh mengunci carrier virtual thread");
+        } finally {
+            recording.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void print(String route, String mode, Result result) {
+        System.out.printf("[benchmark] %-6s %-9s %10.0f %10.1f %10.1f %10.1f%n", route, mode,
+                result.throughput(), result.p50Micros() / 1000.0, result.p99Micros() / 1000.0, result.maxMicros() / 1000.0);
+    }
+}
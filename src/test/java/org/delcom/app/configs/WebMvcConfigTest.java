@@ -16,6 +16,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -53,4 +55,17 @@ class WebMvcConfigIntegrationTest {
         mockMvc.perform(get("/uploads/test.txt"))
                 .andExpect(status().isOk()); // Sekarang harusnya 200 OK
     }
+
+    @Test
+    @WithMockUser(username = "testuser", roles = "USER")
+    void testContentAddressedUploadsAreCachedImmutable() throws Exception {
+        String hash = "abcd" + "0".repeat(60);
+        Path shard = Files.createDirectories(uploadsDir.resolve("ab/cd"));
+        Files.writeString(shard.resolve(hash + ".png"), "isi");
+
+        mockMvc.perform(get("/uploads/ab/cd/" + hash + ".png"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("isi"))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"));
+    }
 }
\ No newline at end of file
@@ -1,6 +1,10 @@
 package org.delcom.app.controllers;
 
-import org.delcom.app.services.DonationService;
+import java.util.Map;
+
+import org.delcom.app.dto.DonationStats;
+import org.delcom.app.entities.Donation;
+import org.delcom.app.services.DonationStatsService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -20,23 +24,28 @@ class DashboardControllerTest {
     private MockMvc mockMvc;
 
     @MockBean
-    private DonationService donationService;
+    private DonationStatsService donationStatsService;
 
     // Mocking Bean Security agar Application Context tidak error saat load
     @MockBean private org.delcom.app.services.UserService userService;
     @MockBean private org.delcom.app.configs.AuthContext authContext;
     @MockBean private org.delcom.app.services.AuthTokenService authTokenService;
+    @MockBean private org.delcom.app.services.AuthPrincipalCache authPrincipalCache;
+    @MockBean private org.delcom.app.services.LoginRateLimiter loginRateLimiter;
 
     @Test
     void testDashboard() throws Exception {
         // Arrange
-        when(donationService.countHalal(true)).thenReturn(10L);
-        when(donationService.countHalal(false)).thenReturn(5L);
+        DonationStats stats = new DonationStats(15L, 10L, 5L,
+                Map.of(Donation.DonationStatus.AVAILABLE, 12L, Donation.DonationStatus.BOOKED, 3L),
+                Map.of("Makanan Berat", 15L));
+        when(donationStatsService.getStats()).thenReturn(stats);
 
         // Act & Assert
         mockMvc.perform(get("/dashboard"))
                 .andExpect(status().isOk()) // Harapannya 200 OK (Bukan 401/403)
                 .andExpect(view().name("pages/donation/dashboard"))
+                .andExpect(model().attribute("stats", stats))
                 .andExpect(model().attribute("halalCount", 10L))
                 .andExpect(model().attribute("nonHalalCount", 5L));
     }
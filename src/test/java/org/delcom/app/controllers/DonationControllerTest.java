@@ -2,10 +2,13 @@ package org.delcom.app.controllers;
 
 import org.delcom.app.dto.DonationForm;
 import org.delcom.app.entities.Donation;
+import org.delcom.app.entities.PhotoJob;
 import org.delcom.app.entities.User;
 import org.delcom.app.services.DonationService;
+import org.delcom.app.services.FileStorageService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -15,10 +18,13 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -37,6 +43,9 @@ class DonationControllerTest {
     @MockBean private org.delcom.app.services.UserService userService;
     @MockBean private org.delcom.app.configs.AuthContext authContext;
     @MockBean private org.delcom.app.services.AuthTokenService authTokenService;
+    @MockBean private org.delcom.app.services.AuthPrincipalCache authPrincipalCache;
+    @MockBean private org.delcom.app.services.LoginRateLimiter loginRateLimiter;
+    @MockBean(name = "imageVariantService") private org.delcom.app.services.ImageVariantService imageVariantService;
 
     private User mockUser;
     private UsernamePasswordAuthenticationToken principal;
@@ -73,6 +82,47 @@ class DonationControllerTest {
                 .andExpect(model().attributeExists("donation"));
     }
 
+    @Test
+    void testDetail_PhotoUsesResizedVariants() throws Exception {
+        UUID id = UUID.randomUUID();
+        Donation d = new Donation();
+        d.setId(id);
+        d.setName("Nasi Goreng");
+        d.setIsHalal(true);
+        d.setStatus(Donation.DonationStatus.AVAILABLE);
+        d.setCreatedBy(mockUser);
+        d.setPhotoUrl("cover_" + id + ".png");
+        d.setPhotoVariantWidths("800,1600");
+
+        when(donationService.getById(id)).thenReturn(d);
+        when(imageVariantService.src(d.getPhotoUrl(), "800,1600", 800)).thenReturn("cover_" + id + "_w800.jpg");
+        when(imageVariantService.srcset(d.getPhotoUrl(), "800,1600"))
+                .thenReturn("/uploads/cover_" + id + "_w800.jpg 800w, /uploads/cover_" + id + "_w1600.jpg 1600w");
+
+        mockMvc.perform(get("/donations/" + id)
+                .principal(principal))
+                .andExpect(status().isOk())
+                .andExpect(content().string(org.hamcrest.Matchers.containsString(
+                        "src=\"/uploads/cover_" + id + "_w800.jpg\"")))
+                .andExpect(content().string(org.hamcrest.Matchers.containsString(
+                        "/uploads/cover_" + id + "_w1600.jpg 1600w")));
+    }
+
+    // --- TEST SUGGEST (JSON autocomplete) ---
+    @Test
+    void testSuggest() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(donationService.suggestDonations("nas"))
+                .thenReturn(List.of(new org.delcom.app.services.DonationSearchIndex.Hit(id, "Nasi Goreng")));
+
+        mockMvc.perform(get("/donations/suggest").param("q", "nas")
+                .principal(principal))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("success"))
+                .andExpect(jsonPath("$.data.suggestions[0].id").value(id.toString()))
+                .andExpect(jsonPath("$.data.suggestions[0].name").value("Nasi Goreng"));
+    }
+
     // --- TEST ADD FORM ---
     @Test
     void testAddForm() throws Exception {
@@ -93,6 +143,68 @@ class DonationControllerTest {
         verify(donationService).saveDonation(any(DonationForm.class), eq(mockUser));
     }
 
+    @Test
+    @DisplayName("Tambah: Foto ditolak -> form ditampilkan lagi dengan pesan di kolom foto")
+    void testSave_PhotoRejected() throws Exception {
+        doThrow(new FileStorageService.UnsupportedImageTypeException("Tipe file tidak didukung: text/html"))
+                .when(donationService).saveDonation(any(DonationForm.class), eq(mockUser));
+
+        mockMvc.perform(post("/donations/add")
+                .principal(principal)
+                .flashAttr("donationForm", new DonationForm()))
+                .andExpect(status().isOk())
+                .andExpect(view().name("pages/donation/form"))
+                .andExpect(model().attributeHasFieldErrors("donationForm", "photo"))
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("Tipe file tidak didukung: text/html")));
+    }
+
+    // --- TEST GANTI FOTO (STREAMING) ---
+    @Test
+    void testUploadPhoto_Accepted() throws Exception {
+        UUID id = UUID.randomUUID();
+        PhotoJob job = new PhotoJob(id, "x.png");
+        job.setId(UUID.randomUUID());
+        byte[] body = {(byte) 0x89, 'P', 'N', 'G'};
+        when(donationService.replacePhoto(eq(id), eq(mockUser), any(), eq("image/png"), eq(4L))).thenReturn(job);
+
+        mockMvc.perform(put("/donations/" + id + "/photo")
+                .principal(principal)
+                .contentType("image/png")
+                .content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("success"))
+                .andExpect(jsonPath("$.data.jobId").value(job.getId().toString()));
+    }
+
+    @Test
+    void testUploadPhoto_TooLarge() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(donationService.replacePhoto(eq(id), eq(mockUser), any(), any(), anyLong()))
+                .thenThrow(new FileStorageService.UploadTooLargeException("Ukuran file melebihi 5 byte"));
+
+        mockMvc.perform(put("/donations/" + id + "/photo")
+                .principal(principal)
+                .contentType("image/png")
+                .content(new byte[10]))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.status").value("fail"))
+                .andExpect(jsonPath("$.message").value("Ukuran file melebihi 5 byte"));
+    }
+
+    @Test
+    void testUploadPhoto_UnsupportedType() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(donationService.replacePhoto(eq(id), eq(mockUser), any(), any(), anyLong()))
+                .thenThrow(new FileStorageService.UnsupportedImageTypeException("Tipe file tidak didukung: text/plain"));
+
+        mockMvc.perform(put("/donations/" + id + "/photo")
+                .principal(principal)
+                .contentType("text/plain")
+                .content("halo"))
+                .andExpect(status().isUnsupportedMediaType())
+                .andExpect(jsonPath("$.status").value("fail"));
+    }
+
     // --- TEST EDIT FORM (Happy Path) ---
     @Test
     void testEditForm() throws Exception {
@@ -138,6 +250,23 @@ class DonationControllerTest {
         verify(donationService).updateDonation(eq(id), any(DonationForm.class), eq(mockUser));
     }
 
+    @Test
+    @DisplayName("Edit: Foto terlalu besar -> form edit ditampilkan lagi dengan pesan di kolom foto")
+    void testUpdate_PhotoRejected() throws Exception {
+        UUID id = UUID.randomUUID();
+        doThrow(new FileStorageService.UploadTooLargeException("Ukuran file melebihi 5242880 byte"))
+                .when(donationService).updateDonation(eq(id), any(DonationForm.class), eq(mockUser));
+
+        mockMvc.perform(post("/donations/edit/" + id)
+                .principal(principal)
+                .flashAttr("donationForm", new DonationForm()))
+                .andExpect(status().isOk())
+                .andExpect(view().name("pages/donation/edit"))
+                .andExpect(model().attribute("id", id))
+                .andExpect(model().attributeHasFieldErrors("donationForm", "photo"))
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("Ukuran file melebihi 5242880 byte")));
+    }
+
     @Test
     void testDelete() throws Exception {
         UUID id = UUID.randomUUID();
@@ -152,14 +281,53 @@ class DonationControllerTest {
     @Test
     void testClaim() throws Exception {
         UUID id = UUID.randomUUID();
+        when(donationService.claimDonation(id, mockUser)).thenReturn(true);
+
         mockMvc.perform(get("/donations/claim/" + id)
                 .principal(principal))
                 .andExpect(status().is3xxRedirection())
-                .andExpect(redirectedUrl("/donations/" + id));
+                .andExpect(redirectedUrl("/donations/" + id))
+                .andExpect(flash().attribute("claimResult", "success"));
 
         verify(donationService).claimDonation(id, mockUser);
     }
 
+    @Test
+    void testClaimPortions() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(donationService.claimPortions(id, mockUser, 3)).thenReturn(true);
+
+        mockMvc.perform(post("/donations/claim/" + id).param("portions", "3")
+                .principal(principal))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/donations/" + id))
+                .andExpect(flash().attribute("claimResult", "success"))
+                .andExpect(flash().attribute("claimedPortions", 3));
+    }
+
+    @Test
+    void testClaimPortions_Insufficient() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(donationService.claimPortions(id, mockUser, 1)).thenReturn(false);
+
+        mockMvc.perform(post("/donations/claim/" + id)
+                .principal(principal))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(flash().attribute("claimResult", "insufficient"));
+    }
+
+    @Test
+    void testClaim_AlreadyTaken() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(donationService.claimDonation(id, mockUser)).thenReturn(false);
+
+        mockMvc.perform(get("/donations/claim/" + id)
+                .principal(principal))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/donations/" + id))
+                .andExpect(flash().attribute("claimResult", "taken"));
+    }
+
     // 🔥 PERBAIKAN: Tambahkan 'throws Exception' di baris ini
     // 🔥 PERBAIKAN: Gunakan assertThrows untuk menangkap Exception yang meledak
     @Test
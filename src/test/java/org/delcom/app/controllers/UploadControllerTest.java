@@ -0,0 +1,211 @@
+package org.delcom.app.controllers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.delcom.app.services.FileStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = UploadController.class)
+@AutoConfigureMockMvc(addFilters = false)
+class UploadControllerTest {
+
+    // Selasa, 14 Nov 2023 22:13:20 GMT
+    private static final long MODIFIED = 1_700_000_000_000L;
+    private static final String HASH = "ab12" + "e".repeat(60);
+    private static final String CAS_NAME = "ab/12/" + HASH + "_w400.jpg";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private FileStorageService fileService;
+
+    // Mocking Bean Security agar Application Context tidak error saat load
+    @MockBean private org.delcom.app.services.UserService userService;
+    @MockBean private org.delcom.app.configs.AuthContext authContext;
+    @MockBean private org.delcom.app.services.AuthTokenService authTokenService;
+    @MockBean private org.delcom.app.services.AuthPrincipalCache authPrincipalCache;
+    @MockBean private org.delcom.app.services.LoginRateLimiter loginRateLimiter;
+
+    @TempDir
+    Path tempDir;
+
+    private Path legacy;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        legacy = tempDir.resolve("cover_x.png");
+        Files.writeString(legacy, "0123456789");
+        Files.setLastModifiedTime(legacy, FileTime.fromMillis(MODIFIED));
+        when(fileService.loadServableFile("cover_x.png")).thenReturn(legacy);
+    }
+
+    private String legacyEtag() {
+        return "\"" + Long.toHexString(MODIFIED) + "-a\"";
+    }
+
+    // ==========================================
+    // 1. CACHE & CONDITIONAL REQUEST
+    // ==========================================
+
+    @Test
+    @DisplayName("Content-addressed: Cache 1 tahun immutable, ETag = nama file, body utuh")
+    void testServe_ContentAddressed() throws Exception {
+        Path file = tempDir.resolve(HASH + "_w400.jpg");
+        Files.writeString(file, "jpeg");
+        when(fileService.loadServableFile(CAS_NAME)).thenReturn(file);
+
+        mockMvc.perform(get("/uploads/" + CAS_NAME))
+                .andExpect(status().isOk())
+                .andExpect(content().string("jpeg"))
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                .andExpect(header().string("ETag", "\"" + HASH + "_w400.jpg\""))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().longValue("Content-Length", 4));
+    }
+
+    @Test
+    @DisplayName("File lama: no-cache + ETag & Last-Modified untuk validasi ulang")
+    void testServe_LegacyRevalidates() throws Exception {
+        mockMvc.perform(get("/uploads/cover_x.png"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"))
+                .andExpect(content().contentType("image/png"))
+                .andExpect(header().string("Cache-Control", "no-cache, public"))
+                .andExpect(header().string("ETag", legacyEtag()))
+                .andExpect(header().dateValue("Last-Modified", MODIFIED));
+    }
+
+    @Test
+    @DisplayName("If-None-Match cocok -> 304 tanpa body")
+    void testServe_IfNoneMatch() throws Exception {
+        mockMvc.perform(get("/uploads/cover_x.png").header("If-None-Match", "\"lain\", " + legacyEtag()))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("If-Modified-Since tidak lebih lama dari file -> 304")
+    void testServe_IfModifiedSince() throws Exception {
+        mockMvc.perform(get("/uploads/cover_x.png").header("If-Modified-Since", "Tue, 14 Nov 2023 22:13:20 GMT"))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/uploads/cover_x.png").header("If-Modified-Since", "Mon, 13 Nov 2023 00:00:00 GMT"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("File tidak ada / tidak boleh diunduh -> 404")
+    void testServe_NotFound() throws Exception {
+        mockMvc.perform(get("/uploads/staging/antre.png"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("HEAD: Header lengkap tanpa body; tipe tidak dikenal -> octet-stream")
+    void testServe_Head() throws Exception {
+        Path file = tempDir.resolve("data.zzz");
+        Files.writeString(file, "abc");
+        when(fileService.loadServableFile("data.zzz")).thenReturn(file);
+
+        mockMvc.perform(head("/uploads/data.zzz"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""))
+                .andExpect(content().contentType("application/octet-stream"))
+                .andExpect(header().longValue("Content-Length", 3));
+    }
+
+    // ==========================================
+    // 2. RANGE
+    // ==========================================
+
+    @Test
+    @DisplayName("Range satu rentang -> 206 dengan Content-Range")
+    void testServe_Range() throws Exception {
+        mockMvc.perform(get("/uploads/cover_x.png").header("Range", "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("2345"))
+                .andExpect(header().string("Content-Range", "bytes 2-5/10"))
+                .andExpect(header().longValue("Content-Length", 4));
+
+        // Suffix: 3 byte terakhir
+        mockMvc.perform(get("/uploads/cover_x.png").header("Range", "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("789"))
+                .andExpect(header().string("Content-Range", "bytes 7-9/10"));
+    }
+
+    @Test
+    @DisplayName("Range di luar ukuran file -> 416 dengan ukuran file")
+    void testServe_RangeNotSatisfiable() throws Exception {
+        mockMvc.perform(get("/uploads/cover_x.png").header("Range", "bytes=50-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */10"));
+    }
+
+    @Test
+    @DisplayName("Beberapa rentang / Range tidak valid -> file utuh (200)")
+    void testServe_RangeIgnored() throws Exception {
+        mockMvc.perform(get("/uploads/cover_x.png").header("Range", "bytes=0-1,4-5"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"));
+
+        mockMvc.perform(get("/uploads/cover_x.png").header("Range", "items=0-1"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"));
+    }
+
+    @Test
+    @DisplayName("If-Range: ETag/tanggal cocok -> 206; berubah atau tidak valid -> file utuh")
+    void testServe_IfRange() throws Exception {
+        mockMvc.perform(get("/uploads/cover_x.png").header("Range", "bytes=0-1").header("If-Range", legacyEtag()))
+                .andExpect(status().isPartialContent());
+        mockMvc.perform(get("/uploads/cover_x.png").header("Range", "bytes=0-1")
+                        .header("If-Range", "Tue, 14 Nov 2023 22:13:20 GMT"))
+                .andExpect(status().isPartialContent());
+
+        mockMvc.perform(get("/uploads/cover_x.png").header("Range", "bytes=0-1").header("If-Range", "\"versi-lama\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"));
+        mockMvc.perform(get("/uploads/cover_x.png").header("Range", "bytes=0-1").header("If-Range", "W/" + legacyEtag()))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/uploads/cover_x.png").header("Range", "bytes=0-1")
+                        .header("If-Range", "Mon, 13 Nov 2023 00:00:00 GMT"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/uploads/cover_x.png").header("Range", "bytes=0-1").header("If-Range", "kemarin"))
+                .andExpect(status().isOk());
+    }
+
+    // ==========================================
+    // 3. SENDFILE
+    // ==========================================
+
+    @Test
+    @DisplayName("Container mendukung sendfile -> body tidak ditulis, rentang diserahkan ke connector")
+    void testServe_Sendfile() throws Exception {
+        mockMvc.perform(get("/uploads/cover_x.png").header("Range", "bytes=2-5")
+                        .requestAttr(UploadController.SENDFILE_SUPPORTED, Boolean.TRUE))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string(""))
+                .andExpect(header().longValue("Content-Length", 4))
+                .andExpect(request().attribute(UploadController.SENDFILE_FILENAME, legacy.toRealPath().toString()))
+                .andExpect(request().attribute(UploadController.SENDFILE_START, 2L))
+                .andExpect(request().attribute(UploadController.SENDFILE_END, 6L));
+    }
+}
@@ -4,7 +4,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.delcom.app.configs.AuthContext;
 import org.delcom.app.entities.AuthToken;
 import org.delcom.app.entities.User;
+import org.delcom.app.services.AuthPrincipalCache;
 import org.delcom.app.services.AuthTokenService;
+import org.delcom.app.services.LoginRateLimiter;
+import org.delcom.app.services.PasswordHashingService;
 import org.delcom.app.services.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -26,6 +29,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -48,13 +52,29 @@ class UserControllerTest {
     @MockBean
     private AuthContext authContext;
 
+    @MockBean
+    private AuthPrincipalCache authPrincipalCache;
+
+    @MockBean
+    private PasswordHashingService passwordHashingService;
+
+    @MockBean
+    private LoginRateLimiter loginRateLimiter; // default mock: 0 = tidak dibatasi
+
+    private final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
+
     private User mockUser;
     private String rawPassword = "password123";
 
     @BeforeEach
     void setUp() {
         // Enkripsi password asli agar cocok saat Controller melakukan cek matches()
-        String encodedPassword = new BCryptPasswordEncoder().encode(rawPassword);
+        String encodedPassword = encoder.encode(rawPassword);
+
+        // Pool hashing diganti BCrypt langsung (perilaku sama, tanpa thread pool)
+        when(passwordHashingService.encode(any())).thenAnswer(i -> encoder.encode(i.getArgument(0)));
+        when(passwordHashingService.matches(any(), any()))
+                .thenAnswer(i -> encoder.matches(i.getArgument(0), i.getArgument(1)));
 
         mockUser = new User("Budi", "budi@mail.com", encodedPassword);
         mockUser.setId(UUID.randomUUID());
@@ -79,6 +99,21 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.status").value("success"));
     }
 
+    @Test
+    @DisplayName("Register: Fail - Terlalu banyak percobaan untuk email -> 429")
+    void testRegister_RateLimited() throws Exception {
+        when(loginRateLimiter.checkEmail("budi@mail.com")).thenReturn(1000L);
+        User req = new User("Budi", "budi@mail.com", "pass");
+
+        mockMvc.perform(post("/api/auth/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"));
+
+        verify(userService, never()).createUser(any(), any(), any());
+    }
+
     @Test
     @DisplayName("Register: Fail - Email Already Exists")
     void testRegister_EmailExists() throws Exception {
@@ -162,6 +197,7 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.data.authToken").exists());
         
         verify(authTokenService).deleteAuthToken(mockUser.getId());
+        verify(userService).upgradePasswordHashIfNeeded(mockUser, rawPassword);
     }
 
     @Test
@@ -175,6 +211,51 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.message").value("Email atau password salah"));
     }
 
+    @Test
+    @DisplayName("Login: Fail - Pool hashing password penuh -> 503")
+    void testLogin_PasswordHashingBusy() throws Exception {
+        when(userService.getUserByEmail(mockUser.getEmail())).thenReturn(mockUser);
+        doThrow(new PasswordHashingService.BusyException("Server sedang sibuk, silakan coba lagi"))
+                .when(passwordHashingService).matches(any(), any());
+        User req = new User(null, "budi@mail.com", rawPassword);
+
+        mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.message").value("Server sedang sibuk, silakan coba lagi"));
+
+        verify(authTokenService, never()).createAuthToken(any());
+    }
+
+    @Test
+    @DisplayName("Login: Fail - Terlalu banyak percobaan untuk email -> 429")
+    void testLogin_RateLimited() throws Exception {
+        when(loginRateLimiter.checkEmail("budi@mail.com")).thenReturn(2500L);
+        User req = new User(null, "budi@mail.com", rawPassword);
+
+        mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "3"))
+                .andExpect(jsonPath("$.status").value("fail"));
+
+        verify(userService, never()).getUserByEmail(any());
+        verify(passwordHashingService, never()).matches(any(), any());
+    }
+
+    @Test
+    @DisplayName("Login: Fail - Token IP habis -> 429 sebelum controller")
+    void testLogin_IpRateLimited() throws Exception {
+        when(loginRateLimiter.checkIp(any())).thenReturn(500L);
+        User req = new User(null, "budi@mail.com", rawPassword);
+
+        mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"));
+
+        verify(loginRateLimiter, never()).checkEmail(any());
+        verify(userService, never()).getUserByEmail(any());
+    }
+
     @Test
     @DisplayName("Login: Fail - Wrong Password")
     void testLogin_WrongPassword() throws Exception {
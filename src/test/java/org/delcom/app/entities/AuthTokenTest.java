@@ -44,6 +44,10 @@ class AuthTokenTest {
         // 3. Test Getter
         assertThat(authToken.getId()).isEqualTo(newId);
         assertThat(authToken.getToken()).isEqualTo(newToken);
+        assertThat(authToken.getTokenHash()).isEqualTo(AuthToken.hashToken(newToken)).hasSize(32);
+
+        authToken.setToken(null);
+        assertThat(authToken.getTokenHash()).isNull();
     }
 
     @Test
@@ -69,7 +73,8 @@ class AuthTokenTest {
         assertThat(savedToken.getCreatedAt()).isNotNull();
         assertThat(savedToken.getCreatedAt()).isBeforeOrEqualTo(LocalDateTime.now());
         
-        // 5. Verifikasi Data Lain
-        assertThat(savedToken.getToken()).isEqualTo("db-token-test");
+        // 5. Verifikasi Data Lain (yang disimpan hanya hash token, bukan token mentah)
+        assertThat(savedToken.getToken()).isNull();
+        assertThat(savedToken.getTokenHash()).isEqualTo(AuthToken.hashToken("db-token-test"));
     }
 }
\ No newline at end of file
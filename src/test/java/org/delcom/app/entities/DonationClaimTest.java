@@ -0,0 +1,44 @@
+package org.delcom.app.entities;
+
+import java.lang.reflect.Method;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class DonationClaimTest {
+
+    @Test
+    void testGetterSetterAndConstructors() {
+        UUID donationId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+
+        DonationClaim claim = new DonationClaim(donationId, userId, 3);
+        Assertions.assertEquals(donationId, claim.getDonationId());
+        Assertions.assertEquals(userId, claim.getUserId());
+        Assertions.assertEquals(3, claim.getPortions());
+
+        UUID id = UUID.randomUUID();
+        DonationClaim empty = new DonationClaim();
+        empty.setId(id);
+        empty.setDonationId(donationId);
+        empty.setUserId(userId);
+        empty.setPortions(2);
+
+        Assertions.assertEquals(id, empty.getId());
+        Assertions.assertEquals(donationId, empty.getDonationId());
+        Assertions.assertEquals(userId, empty.getUserId());
+        Assertions.assertEquals(2, empty.getPortions());
+    }
+
+    @Test
+    void testOnCreateSetsCreatedAt() throws Exception {
+        DonationClaim claim = new DonationClaim();
+
+        Method onCreate = DonationClaim.class.getDeclaredMethod("onCreate");
+        onCreate.setAccessible(true);
+        onCreate.invoke(claim);
+
+        Assertions.assertNotNull(claim.getCreatedAt());
+    }
+}
@@ -65,6 +65,8 @@ class DonationTest {
         Assertions.assertNotNull(donation.getUpdatedAt());
         // Memastikan logic if (status == null) -> AVAILABLE berjalan
         Assertions.assertEquals(Donation.DonationStatus.AVAILABLE, donation.getStatus());
+        // Porsi kosong -> sisa porsi minimal 1
+        Assertions.assertEquals(1, donation.getRemainingPortion());
 
         // Test onUpdate
         Method onUpdate = Donation.class.getDeclaredMethod("onUpdate");
@@ -91,4 +93,26 @@ class DonationTest {
         Assertions.assertEquals(Donation.DonationStatus.BOOKED, donation.getStatus());
         Assertions.assertNotNull(donation.getCreatedAt());
     }
+
+    @Test
+    void testOnCreate_RemainingPortionFollowsPortion() throws Exception {
+        Method onCreate = Donation.class.getDeclaredMethod("onCreate");
+        onCreate.setAccessible(true);
+
+        Donation withPortion = new Donation();
+        withPortion.setPortion(8);
+        onCreate.invoke(withPortion);
+        Assertions.assertEquals(8, withPortion.getRemainingPortion());
+
+        Donation zeroPortion = new Donation();
+        zeroPortion.setPortion(0);
+        onCreate.invoke(zeroPortion);
+        Assertions.assertEquals(1, zeroPortion.getRemainingPortion());
+
+        Donation preset = new Donation();
+        preset.setPortion(8);
+        preset.setRemainingPortion(2);
+        onCreate.invoke(preset);
+        Assertions.assertEquals(2, preset.getRemainingPortion());
+    }
 }
\ No newline at end of file
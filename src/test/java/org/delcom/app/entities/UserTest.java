@@ -90,4 +90,25 @@ class UserTest {
         User fullUser = new User(name, email, password);
         assertEquals(name, fullUser.getName());
     }
-}
\ No newline at end of file
+
+    // ==========================================
+    // 4. Copy Constructor (salinan lepas untuk cache principal)
+    // ==========================================
+    @Test
+    @DisplayName("Test Copy Constructor")
+    void testCopyConstructor() {
+        User original = new User("Delcom User", "user@delcom.org", "123");
+        original.setId(UUID.randomUUID());
+        original.onCreate();
+
+        User copy = new User(original);
+        copy.setName("Diubah");
+
+        assertEquals(original.getId(), copy.getId());
+        assertEquals("Delcom User", original.getName());
+        assertEquals(original.getEmail(), copy.getEmail());
+        assertEquals(original.getPassword(), copy.getPassword());
+        assertEquals(original.getCreatedAt(), copy.getCreatedAt());
+        assertEquals(original.getUpdatedAt(), copy.getUpdatedAt());
+    }
+}
@@ -0,0 +1,63 @@
+package org.delcom.app.interceptors;
+
+import java.util.UUID;
+
+import org.delcom.app.utils.JwtUtil;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+// Benchmark overhead verifikasi JWT per request: jalur lama (parser baru + verifikasi HMAC dua kali)
+// vs jalur baru (JwtUtil.parseClaims: sekali parse, hasil verifikasi di-cache).
+// Tidak ikut `mvn test` biasa; jalankan dengan: mvn test -Pbenchmark
+@Tag("benchmark")
+class AuthInterceptorBenchmarkTest {
+
+    private static final int WARMUP = 50_000;
+    private static final int ITERATIONS = 200_000;
+
+    // Sama dengan AuthInterceptor sebelum perubahan: validateToken lalu extractUserId, masing-masing parse ulang
+    private static UUID legacyAuth(String token) {
+        Jwts.parser().verifyWith(JwtUtil.getKey()).build().parseSignedClaims(token);
+        Claims claims = Jwts.parser().verifyWith(JwtUtil.getKey()).build().parseSignedClaims(token).getPayload();
+        return UUID.fromString(claims.getSubject());
+    }
+
+    private static UUID cachedAuth(String token) {
+        return JwtUtil.extractUserId(JwtUtil.parseClaims(token, true));
+    }
+
+    private interface AuthPath {
+        UUID apply(String token);
+    }
+
+    private double nanosPerRequest(String label, AuthPath path, String token, UUID expected) {
+        for (int i = 0; i < WARMUP; i++) {
+            path.apply(token);
+        }
+        long began = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertEquals(expected, path.apply(token));
+        }
+        double perRequest = (System.nanoTime() - began) / (double) ITERATIONS;
+        System.out.printf("[benchmark] %-28s %8.0f ns/request%n", label, perRequest);
+        return perRequest;
+    }
+
+    @Test
+    @DisplayName("Benchmark: Overhead auth per request, parse ganda vs sekali parse + cache")
+    void benchmarkAuthOverhead() {
+        UUID userId = UUID.randomUUID();
+        String token = JwtUtil.generateToken(userId);
+        JwtUtil.clearVerifiedCache();
+
+        double legacy = nanosPerRequest("double parse (before)", AuthInterceptorBenchmarkTest::legacyAuth, token, userId);
+        double cached = nanosPerRequest("single parse + cache (after)", AuthInterceptorBenchmarkTest::cachedAuth, token, userId);
+
+        System.out.printf("[benchmark] speed-up = %.1fx%n", legacy / cached);
+    }
+}
@@ -2,11 +2,13 @@ package org.delcom.app.interceptors;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.Date;
 import java.util.UUID;
 
 import org.delcom.app.configs.AuthContext;
 import org.delcom.app.entities.AuthToken;
 import org.delcom.app.entities.User;
+import org.delcom.app.services.AuthPrincipalCache;
 import org.delcom.app.services.AuthTokenService;
 import org.delcom.app.services.UserService;
 import org.delcom.app.utils.JwtUtil;
@@ -19,11 +21,14 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
@@ -39,6 +44,9 @@ class AuthInterceptorTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private AuthPrincipalCache principalCache;
+
     @Mock
     private HttpServletRequest request;
 
@@ -141,7 +149,7 @@ class AuthInterceptorTest {
         setupResponseWriter();
 
         try (MockedStatic<JwtUtil> mockedJwt = mockStatic(JwtUtil.class)) {
-            mockedJwt.when(() -> JwtUtil.validateToken("invalid.token.here", true)).thenReturn(false);
+            mockedJwt.when(() -> JwtUtil.parseClaims("invalid.token.here", false)).thenReturn(null);
 
             boolean result = authInterceptor.preHandle(request, response, new Object());
 
@@ -159,9 +167,11 @@ class AuthInterceptorTest {
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
         setupResponseWriter();
 
+        Claims claims = Jwts.claims().subject("any").build();
+
         try (MockedStatic<JwtUtil> mockedJwt = mockStatic(JwtUtil.class)) {
-            mockedJwt.when(() -> JwtUtil.validateToken(token, true)).thenReturn(true);
-            mockedJwt.when(() -> JwtUtil.extractUserId(token)).thenReturn(null);
+            mockedJwt.when(() -> JwtUtil.parseClaims(token, false)).thenReturn(claims);
+            mockedJwt.when(() -> JwtUtil.extractUserId(claims)).thenReturn(null);
 
             boolean result = authInterceptor.preHandle(request, response, new Object());
 
@@ -181,9 +191,11 @@ class AuthInterceptorTest {
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
         setupResponseWriter();
 
+        Claims claims = Jwts.claims().subject("any").build();
+
         try (MockedStatic<JwtUtil> mockedJwt = mockStatic(JwtUtil.class)) {
-            mockedJwt.when(() -> JwtUtil.validateToken(token, true)).thenReturn(true);
-            mockedJwt.when(() -> JwtUtil.extractUserId(token)).thenReturn(userId);
+            mockedJwt.when(() -> JwtUtil.parseClaims(token, false)).thenReturn(claims);
+            mockedJwt.when(() -> JwtUtil.extractUserId(claims)).thenReturn(userId);
 
             when(authTokenService.findUserToken(userId, token)).thenReturn(null);
 
@@ -207,9 +219,11 @@ class AuthInterceptorTest {
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
         setupResponseWriter();
 
+        Claims claims = Jwts.claims().subject("any").build();
+
         try (MockedStatic<JwtUtil> mockedJwt = mockStatic(JwtUtil.class)) {
-            mockedJwt.when(() -> JwtUtil.validateToken(token, true)).thenReturn(true);
-            mockedJwt.when(() -> JwtUtil.extractUserId(token)).thenReturn(userId);
+            mockedJwt.when(() -> JwtUtil.parseClaims(token, false)).thenReturn(claims);
+            mockedJwt.when(() -> JwtUtil.extractUserId(claims)).thenReturn(userId);
 
             when(authTokenService.findUserToken(userId, token)).thenReturn(authToken);
             when(userService.getUserById(userId)).thenReturn(null);
@@ -240,9 +254,11 @@ class AuthInterceptorTest {
         when(request.getRequestURI()).thenReturn("/api/users/profile");
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
 
+        Claims claims = Jwts.claims().subject("any").build();
+
         try (MockedStatic<JwtUtil> mockedJwt = mockStatic(JwtUtil.class)) {
-            mockedJwt.when(() -> JwtUtil.validateToken(token, true)).thenReturn(true);
-            mockedJwt.when(() -> JwtUtil.extractUserId(token)).thenReturn(userId);
+            mockedJwt.when(() -> JwtUtil.parseClaims(token, false)).thenReturn(claims);
+            mockedJwt.when(() -> JwtUtil.extractUserId(claims)).thenReturn(userId);
 
             when(authTokenService.findUserToken(userId, token)).thenReturn(authToken);
             when(userService.getUserById(userId)).thenReturn(user);
@@ -251,6 +267,70 @@ class AuthInterceptorTest {
 
             assertTrue(result);
             verify(authContext).setAuthUser(user);
+            verify(principalCache).put(token, user, 0L);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Sukses: Principal sudah di-cache -> tanpa query token & user ke database")
+    void testCachedPrincipalSkipsDatabase() throws Exception {
+        UUID userId = UUID.randomUUID();
+        String token = JwtUtil.generateToken(userId);
+        User cachedUser = new User();
+        cachedUser.setId(userId);
+
+        when(request.getRequestURI()).thenReturn("/api/users/profile");
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
+        when(principalCache.get(token, userId)).thenReturn(cachedUser);
+
+        assertTrue(authInterceptor.preHandle(request, response, new Object()));
+
+        verify(authContext).setAuthUser(cachedUser);
+        verifyNoInteractions(authTokenService, userService);
+    }
+
+    // --- TEST CASE 5: TOKEN ASLI (TANPA MOCK JWT) ---
+
+    @Test
+    @DisplayName("Gagal 401: Token asli bertanda tangan valid tapi sudah expired, walau principal masih di-cache")
+    void testRealTokenExpired() throws Exception {
+        UUID userId = UUID.randomUUID();
+        String token = Jwts.builder()
+                .subject(userId.toString())
+                .issuedAt(new Date(System.currentTimeMillis() - 120_000))
+                .expiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(JwtUtil.getKey())
+                .compact();
+
+        when(request.getRequestURI()).thenReturn("/api/users/profile");
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
+        setupResponseWriter();
+
+        assertFalse(authInterceptor.preHandle(request, response, new Object()));
+
+        verify(response).setStatus(401);
+        assertTrue(responseWriter.toString().contains("Token autentikasi tidak valid"));
+        verifyNoInteractions(principalCache, authTokenService, userService, authContext);
+    }
+
+    @Test
+    @DisplayName("Sukses: Token asli diverifikasi sekali, request berikutnya memakai hasil cache")
+    void testRealTokenVerifiedOnce() throws Exception {
+        UUID userId = UUID.randomUUID();
+        String token = JwtUtil.generateToken(userId);
+        AuthToken authToken = new AuthToken();
+        authToken.setUserId(userId);
+        User user = new User();
+        user.setId(userId);
+
+        when(request.getRequestURI()).thenReturn("/api/users/profile");
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
+        when(authTokenService.findUserToken(userId, token)).thenReturn(authToken);
+        when(userService.getUserById(userId)).thenReturn(user);
+
+        assertTrue(authInterceptor.preHandle(request, response, new Object()));
+        assertTrue(authInterceptor.preHandle(request, response, new Object()));
+
+        verify(authContext, times(2)).setAuthUser(user);
+    }
+}
@@ -0,0 +1,81 @@
+package org.delcom.app.interceptors;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.delcom.app.services.LoginRateLimiter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitInterceptorTest {
+
+    @Mock
+    private LoginRateLimiter rateLimiter;
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @InjectMocks
+    private RateLimitInterceptor interceptor;
+
+    @Test
+    @DisplayName("Selain POST tidak dibatasi")
+    void testNonPostPasses() throws Exception {
+        when(request.getMethod()).thenReturn("GET");
+
+        assertTrue(interceptor.preHandle(request, response, new Object()));
+        verifyNoInteractions(rateLimiter);
+    }
+
+    @Test
+    @DisplayName("POST lolos jika masih ada token untuk IP")
+    void testAllowed() throws Exception {
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getRemoteAddr()).thenReturn("10.0.0.1");
+        when(rateLimiter.checkIp("10.0.0.1")).thenReturn(0L);
+
+        assertTrue(interceptor.preHandle(request, response, new Object()));
+        verifyNoInteractions(response);
+    }
+
+    @Test
+    @DisplayName("POST ditolak 429 dengan Retry-After jika token IP habis")
+    void testRejected() throws Exception {
+        StringWriter body = new StringWriter();
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getRemoteAddr()).thenReturn("10.0.0.1");
+        when(rateLimiter.checkIp("10.0.0.1")).thenReturn(1500L);
+        when(response.getWriter()).thenReturn(new PrintWriter(body));
+
+        assertFalse(interceptor.preHandle(request, response, new Object()));
+
+        verify(response).setStatus(429);
+        verify(response).setHeader("Retry-After", "2");
+        assertTrue(body.toString().contains("\"status\":\"fail\""));
+    }
+
+    @Test
+    @DisplayName("Retry-After dibulatkan ke atas, minimal 1 detik")
+    void testRetryAfterSeconds() {
+        assertEquals(1, RateLimitInterceptor.retryAfterSeconds(1));
+        assertEquals(1, RateLimitInterceptor.retryAfterSeconds(1000));
+        assertEquals(2, RateLimitInterceptor.retryAfterSeconds(1001));
+    }
+}
@@ -0,0 +1,126 @@
+package org.delcom.app.repositories;
+
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import org.delcom.app.configs.AuthTokenSchemaInitializer;
+import org.delcom.app.entities.AuthToken;
+import org.delcom.app.entities.User;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(AuthTokenSchemaInitializer.class)
+class AuthTokenRepositoryTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private AuthTokenRepository authTokenRepository;
+
+    @Autowired
+    private AuthTokenSchemaInitializer schemaInitializer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // Database lama mungkin masih punya kolom token mentah (rollback otomatis setelah tiap test)
+        schemaInitializer.run(null);
+        jdbcTemplate.update("DELETE FROM auth_tokens");
+    }
+
+    @Test
+    @DisplayName("findUserToken: Dicari lewat hash token dan userId")
+    void testFindUserTokenByHash() {
+        UUID userId = UUID.randomUUID();
+        AuthToken saved = entityManager.persistFlushFind(new AuthToken(userId, "jwt-token-a"));
+        entityManager.clear();
+
+        AuthToken found = authTokenRepository.findUserToken(userId, AuthToken.hashToken("jwt-token-a"));
+
+        assertThat(found.getId()).isEqualTo(saved.getId());
+        assertThat(found.getTokenHash()).hasSize(32);
+        assertThat(found.getToken()).isNull(); // token mentah tidak disimpan
+        assertThat(authTokenRepository.findUserToken(UUID.randomUUID(), AuthToken.hashToken("jwt-token-a"))).isNull();
+        assertThat(authTokenRepository.findUserToken(userId, AuthToken.hashToken("jwt-token-b"))).isNull();
+    }
+
+    @Test
+    @DisplayName("deleteByUserId: Semua token milik user terhapus")
+    void testDeleteByUserId() {
+        UUID userId = UUID.randomUUID();
+        UUID otherId = UUID.randomUUID();
+        entityManager.persist(new AuthToken(userId, "token-1"));
+        entityManager.persist(new AuthToken(userId, "token-2"));
+        entityManager.persist(new AuthToken(otherId, "token-3"));
+        entityManager.flush();
+
+        authTokenRepository.deleteByUserId(userId);
+
+        assertThat(authTokenRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Pembersihan: Token lama dan token tanpa user dihapus per batch")
+    void testDeleteCreatedBeforeAndOrphaned() {
+        User owner = entityManager.persist(new User("Owner", "owner-" + UUID.randomUUID() + "@mail.com", "secret"));
+        for (int i = 0; i < 3; i++) {
+            entityManager.persist(new AuthToken(owner.getId(), "old-" + i));
+        }
+        AuthToken fresh = entityManager.persist(new AuthToken(owner.getId(), "fresh"));
+        entityManager.persist(new AuthToken(UUID.randomUUID(), "orphan-1"));
+        entityManager.flush();
+        jdbcTemplate.update("UPDATE auth_tokens SET created_at = now() - interval '1 day' WHERE id <> ?", fresh.getId());
+        jdbcTemplate.update("UPDATE auth_tokens SET created_at = now() WHERE token_hash = ?", (Object) AuthToken.hashToken("orphan-1"));
+
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(2);
+        assertThat(authTokenRepository.deleteCreatedBefore(cutoff, 2)).isEqualTo(2);
+        assertThat(authTokenRepository.deleteCreatedBefore(cutoff, 2)).isEqualTo(1);
+        assertThat(authTokenRepository.deleteCreatedBefore(cutoff, 2)).isZero();
+        assertThat(authTokenRepository.deleteOrphaned(10)).isEqualTo(1);
+        assertThat(authTokenRepository.deleteOrphaned(10)).isZero();
+
+        entityManager.clear();
+        assertThat(authTokenRepository.findAll()).extracting(AuthToken::getId).containsExactly(fresh.getId());
+    }
+
+    @Test
+    @DisplayName("Migrasi: Token mentah lama di-hash, duplikat dibuang, kolom token dihapus")
+    void testMigrateRawTokens() {
+        UUID userId = UUID.randomUUID();
+        jdbcTemplate.execute("ALTER TABLE auth_tokens ADD COLUMN token TEXT");
+        for (String token : new String[] { "legacy-1", "legacy-2", "legacy-2" }) {
+            jdbcTemplate.update("INSERT INTO auth_tokens (id, token, user_id, created_at) VALUES (?, ?, ?, now())",
+                    UUID.randomUUID(), token, userId);
+        }
+
+        schemaInitializer.run(null);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM auth_tokens", Integer.class)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM information_schema.columns WHERE table_schema = current_schema() " +
+                "AND table_name = 'auth_tokens' AND column_name = 'token'", Integer.class)).isZero();
+        // Hash dari database sama dengan AuthToken.hashToken -> token lama tetap bisa dipakai login
+        byte[] hash = jdbcTemplate.queryForObject(
+                "SELECT token_hash FROM auth_tokens WHERE token_hash = decode(?, 'hex')", byte[].class,
+                HexFormat.of().formatHex(AuthToken.hashToken("legacy-1")));
+        assertThat(hash).isEqualTo(AuthToken.hashToken("legacy-1"));
+        assertThat(authTokenRepository.findUserToken(userId, AuthToken.hashToken("legacy-2"))).isNotNull();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT indexdef FROM pg_indexes WHERE indexname = 'idx_auth_tokens_token_hash'", String.class))
+                .contains("UNIQUE").contains("token_hash");
+    }
+}
@@ -0,0 +1,39 @@
+package org.delcom.app.repositories;
+
+import java.util.UUID;
+
+import org.delcom.app.entities.DonationClaim;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class DonationClaimRepositoryTest {
+
+    @Autowired
+    private DonationClaimRepository claimRepository;
+
+    @Test
+    @DisplayName("Jumlah porsi per donasi & hapus semua klaim milik satu donasi")
+    void testSumAndDeleteByDonation() {
+        UUID donationId = UUID.randomUUID();
+        UUID otherDonationId = UUID.randomUUID();
+        claimRepository.save(new DonationClaim(donationId, UUID.randomUUID(), 2));
+        claimRepository.save(new DonationClaim(donationId, UUID.randomUUID(), 3));
+        claimRepository.save(new DonationClaim(otherDonationId, UUID.randomUUID(), 1));
+
+        assertThat(claimRepository.sumPortionsByDonationId(donationId)).isEqualTo(5);
+        assertThat(claimRepository.findByDonationId(donationId)).hasSize(2)
+                .allSatisfy(c -> assertThat(c.getCreatedAt()).isNotNull());
+        assertThat(claimRepository.sumPortionsByDonationId(UUID.randomUUID())).isZero();
+
+        claimRepository.deleteByDonationId(donationId);
+
+        assertThat(claimRepository.findByDonationId(donationId)).isEmpty();
+        assertThat(claimRepository.findByDonationId(otherDonationId)).hasSize(1);
+    }
+}
@@ -0,0 +1,472 @@
+package org.delcom.app.repositories;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.delcom.app.dto.DeletedDonationRow;
+import org.delcom.app.dto.DonationCountRow;
+import org.delcom.app.dto.DonationExpiryRow;
+import org.delcom.app.entities.Donation;
+import org.delcom.app.entities.User;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class DonationRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private DonationRepository donationRepository;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        // Mulai dari tabel kosong (rollback otomatis setelah tiap test)
+        entityManager.getEntityManager().createQuery("DELETE FROM Donation").executeUpdate();
+        owner = entityManager.persist(new User("Owner", "owner-" + UUID.randomUUID() + "@mail.com", "secret"));
+    }
+
+    private Donation persistDonation(String name, boolean halal) {
+        return persistDonation(name, null, halal);
+    }
+
+    private Donation persistDonation(String name, String description, boolean halal) {
+        Donation d = new Donation();
+        d.setName(name);
+        d.setDescription(description);
+        d.setIsHalal(halal);
+        d.setCreatedBy(owner);
+        return entityManager.persist(d);
+    }
+
+    // Paksa semua baris punya createdAt yang sama agar tie-breaker (id) ikut diuji
+    private void forceSameCreatedAt(LocalDateTime createdAt) {
+        entityManager.flush();
+        entityManager.getEntityManager()
+                .createNativeQuery("UPDATE donations SET created_at = :createdAt")
+                .setParameter("createdAt", createdAt)
+                .executeUpdate();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("Feed keyset: Menelusuri semua halaman tanpa duplikat/terlewat, urut (createdAt, id) DESC")
+    void testFeedKeysetWalksAllRowsOnce() {
+        for (int i = 0; i < 7; i++) {
+            persistDonation("Nasi " + i, i % 2 == 0);
+        }
+        forceSameCreatedAt(LocalDateTime.of(2025, 1, 1, 12, 0));
+
+        List<Donation> walked = new ArrayList<>();
+        List<Donation> page = donationRepository.findFeedFirstPage(null, Limit.of(3));
+        while (!page.isEmpty()) {
+            walked.addAll(page);
+            Donation last = page.get(page.size() - 1);
+            page = donationRepository.findFeedPageAfter(null, last.getCreatedAt(), last.getId(), Limit.of(3));
+        }
+
+        assertThat(walked).hasSize(7);
+        assertThat(walked).extracting(Donation::getId).doesNotHaveDuplicates();
+        List<UUID> ids = walked.stream().map(Donation::getId).toList();
+        assertThat(ids).isSortedAccordingTo((a, b) -> compareUuid(b, a));
+    }
+
+    @Test
+    @DisplayName("Feed keyset: Filter halal tetap berlaku")
+    void testFeedKeysetHalalFilter() {
+        persistDonation("Nasi Goreng", true);
+        persistDonation("Nasi Uduk", false);
+        entityManager.flush();
+
+        List<Donation> result = donationRepository.findFeedFirstPage(false, Limit.of(10));
+
+        assertThat(result).extracting(Donation::getName).containsExactly("Nasi Uduk");
+    }
+
+    @Test
+    @DisplayName("Full-text: Cocok di nama/deskripsi/kategori, prefix, dan diurutkan berdasarkan relevansi")
+    void testFullTextSearchRanking() {
+        persistDonation("Roti Tawar", "Sisa acara, bukan nasi", true);
+        persistDonation("Nasi Goreng", "Nasi goreng spesial pakai telur", true);
+        persistDonation("Es Teh", "Minuman", true);
+        entityManager.flush();
+
+        List<Donation> result = donationRepository.searchFeedFirstPage("nasi:*", null, 10);
+
+        assertThat(result).extracting(Donation::getName).containsExactly("Nasi Goreng", "Roti Tawar");
+        assertThat(donationRepository.findSearchRank("nasi:*", result.get(0).getId()).orElseThrow())
+                .isGreaterThan(donationRepository.findSearchRank("nasi:*", result.get(1).getId()).orElseThrow());
+        assertThat(donationRepository.searchFeedFirstPage("gor:* & telur:*", true, 10))
+                .extracting(Donation::getName).containsExactly("Nasi Goreng");
+        assertThat(donationRepository.searchFeedFirstPage("nasi:*", false, 10)).isEmpty();
+        assertThat(donationRepository.findSearchRank("nasi:*", UUID.randomUUID())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Full-text feed: Keyset (rank, id) menelusuri semua hasil sekali, urut relevansi, termasuk rank yang sama")
+    void testFullTextFeedKeyset() {
+        for (int i = 0; i < 5; i++) {
+            persistDonation("Nasi Kotak " + i, true); // rank sama -> tie-breaker id
+        }
+        persistDonation("Nasi Nasi", "Nasi uduk", true); // paling relevan
+        persistDonation("Roti", true);
+        entityManager.flush();
+
+        List<Donation> walked = new ArrayList<>();
+        List<Donation> page = donationRepository.searchFeedFirstPage("nasi:*", null, 2);
+        while (!page.isEmpty()) {
+            walked.addAll(page);
+            Donation last = page.get(page.size() - 1);
+            float rank = donationRepository.findSearchRank("nasi:*", last.getId()).orElseThrow();
+            page = donationRepository.searchFeedPageAfter("nasi:*", null, rank, last.getId(), 2);
+        }
+
+        assertThat(walked).hasSize(6);
+        assertThat(walked).extracting(Donation::getId).doesNotHaveDuplicates();
+        assertThat(walked.get(0).getName()).isEqualTo("Nasi Nasi");
+    }
+
+    @Test
+    @DisplayName("Statistik: Satu GROUP BY (isHalal, status, category) menghasilkan jumlah per kombinasi")
+    void testCountGroupedByHalalStatusCategory() {
+        persistDonation("Nasi A", true).setCategory("Makanan Berat");
+        persistDonation("Nasi B", true).setCategory("Makanan Berat");
+        Donation booked = persistDonation("Roti", false);
+        booked.setCategory("Snack");
+        booked.setStatus(Donation.DonationStatus.BOOKED);
+        entityManager.flush();
+
+        List<DonationCountRow> rows = donationRepository.countGroupedByHalalStatusCategory();
+
+        assertThat(rows).hasSize(2);
+        DonationCountRow halalRow = rows.stream().filter(r -> Boolean.TRUE.equals(r.getIsHalal())).findFirst().orElseThrow();
+        assertThat(halalRow.getCount()).isEqualTo(2);
+        assertThat(halalRow.getStatus()).isEqualTo(Donation.DonationStatus.AVAILABLE);
+        assertThat(halalRow.getCategory()).isEqualTo("Makanan Berat");
+        DonationCountRow bookedRow = rows.stream().filter(r -> Boolean.FALSE.equals(r.getIsHalal())).findFirst().orElseThrow();
+        assertThat(bookedRow.getStatus()).isEqualTo(Donation.DonationStatus.BOOKED);
+        assertThat(bookedRow.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Claim atomik: Hanya berhasil sekali selama status masih AVAILABLE")
+    void testClaimIfAvailable() {
+        Donation d = persistDonation("Nasi", true);
+        User claimant = entityManager.persist(new User("Claimant", "claimant-" + UUID.randomUUID() + "@mail.com", "secret"));
+        entityManager.flush();
+
+        int first = donationRepository.claimIfAvailable(d.getId(), claimant, LocalDateTime.now(),
+                Donation.DonationStatus.AVAILABLE, Donation.DonationStatus.BOOKED);
+        int second = donationRepository.claimIfAvailable(d.getId(), owner, LocalDateTime.now(),
+                Donation.DonationStatus.AVAILABLE, Donation.DonationStatus.BOOKED);
+
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isZero();
+        Donation reloaded = entityManager.find(Donation.class, d.getId());
+        assertThat(reloaded.getStatus()).isEqualTo(Donation.DonationStatus.BOOKED);
+        assertThat(reloaded.getClaimedBy().getId()).isEqualTo(claimant.getId());
+    }
+
+    @Test
+    @DisplayName("Klaim porsi: Sisa porsi berkurang, tidak pernah minus, porsi terakhir -> BOOKED")
+    void testClaimPortionsIfAvailable() {
+        Donation d = new Donation();
+        d.setName("Nasi Kotak");
+        d.setPortion(5); // sisa porsi awal = porsi (Donation.onCreate)
+        d.setCreatedBy(owner);
+        UUID id = entityManager.persistAndFlush(d).getId();
+
+        assertThat(claimPortions(id, 3)).isEqualTo(1);
+        assertThat(claimPortions(id, 3)).isZero(); // sisa 2, tidak cukup
+        assertThat(donationRepository.findAvailablePortions(id, Donation.DonationStatus.AVAILABLE)).contains(2);
+        assertThat(claimPortions(id, 2)).isEqualTo(1);
+        assertThat(claimPortions(id, 1)).isZero();
+
+        Donation reloaded = entityManager.find(Donation.class, id);
+        assertThat(reloaded.getRemainingPortion()).isZero();
+        assertThat(reloaded.getStatus()).isEqualTo(Donation.DonationStatus.BOOKED);
+        assertThat(donationRepository.findAvailablePortions(id, Donation.DonationStatus.AVAILABLE)).contains(0);
+        assertThat(donationRepository.findAvailablePortions(UUID.randomUUID(), Donation.DonationStatus.AVAILABLE)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Sisa porsi: save() entity tidak menimpa hasil klaim; edit porsi menggeser sisa (minimal 0)")
+    void testRemainingPortionOnlyChangedAtomically() {
+        Donation d = persistDonation("Roti", true); // porsi kosong -> sisa porsi awal 1
+        entityManager.flush();
+        UUID id = d.getId();
+        claimPortions(id, 1);
+
+        Donation stale = entityManager.find(Donation.class, id);
+        stale.setRemainingPortion(99);
+        stale.setName("Roti Manis");
+        entityManager.flush();
+        entityManager.clear();
+        assertThat(entityManager.find(Donation.class, id).getRemainingPortion()).isZero();
+
+        donationRepository.adjustRemainingPortion(id, 3);
+        assertThat(entityManager.find(Donation.class, id).getRemainingPortion()).isEqualTo(3);
+        donationRepository.adjustRemainingPortion(id, -10);
+        assertThat(entityManager.find(Donation.class, id).getRemainingPortion()).isZero();
+    }
+
+    @Test
+    @DisplayName("Kedaluwarsa: Muat yang akan lewat dalam rentang waktu, urut paling dulu")
+    void testFindExpiringBetween() {
+        LocalDateTime now = LocalDateTime.now();
+        Donation later = persistExpiring("Nasi Nanti", now.plusMinutes(30));
+        Donation sooner = persistExpiring("Nasi Segera", now.plusMinutes(5));
+        persistExpiring("Nasi Besok", now.plusDays(1));
+        persistExpiring("Nasi Lewat", now.minusMinutes(1));
+        persistExpiring("Nasi Dipesan", now.plusMinutes(10)).setStatus(Donation.DonationStatus.BOOKED);
+        persistDonation("Tanpa Waktu", true);
+        entityManager.flush();
+
+        List<DonationExpiryRow> rows = donationRepository.findExpiringBetween(
+                Donation.DonationStatus.AVAILABLE, now, now.plusHours(1), Limit.of(10));
+
+        assertThat(rows).extracting(DonationExpiryRow::getId).containsExactly(sooner.getId(), later.getId());
+        assertThat(donationRepository.findExpiringBetween(
+                Donation.DonationStatus.AVAILABLE, now, now.plusHours(1), Limit.of(1))).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Kedaluwarsa batch: Hanya yang AVAILABLE dan sudah lewat waktu yang diubah")
+    void testExpireAvailable() {
+        LocalDateTime now = LocalDateTime.now();
+        Donation due = persistExpiring("Nasi Lewat", now.minusMinutes(1));
+        Donation notYet = persistExpiring("Nasi Nanti", now.plusMinutes(1)); // waktu sudah diedit
+        Donation booked = persistExpiring("Nasi Dipesan", now.minusMinutes(1));
+        booked.setStatus(Donation.DonationStatus.BOOKED);
+        entityManager.flush();
+
+        List<UUID> expired = donationRepository.expireAvailable(List.of(due.getId(), notYet.getId(), booked.getId()), now);
+        entityManager.clear();
+
+        assertThat(expired).containsExactly(due.getId());
+        assertThat(entityManager.find(Donation.class, due.getId()).getStatus()).isEqualTo(Donation.DonationStatus.EXPIRED);
+        assertThat(entityManager.find(Donation.class, notYet.getId()).getStatus()).isEqualTo(Donation.DonationStatus.AVAILABLE);
+        assertThat(entityManager.find(Donation.class, booked.getId()).getStatus()).isEqualTo(Donation.DonationStatus.BOOKED);
+        assertThat(donationRepository.expireAvailable(List.of(due.getId()), now)).isEmpty(); // tidak diproses dua kali
+    }
+
+    @Test
+    @DisplayName("Foto: swapPhotoUrl hanya mengubah photo_url & lebar varian, mengembalikan nilai lama; kosong jika donasi sudah dihapus")
+    void testSwapPhotoUrl() {
+        Donation d = persistDonation("Nasi", true);
+        entityManager.flush();
+
+        LocalDateTime job1 = LocalDateTime.now().minusMinutes(2);
+        LocalDateTime job2 = job1.plusMinutes(1);
+        assertThat(donationRepository.swapPhotoUrl(d.getId(), "ab/cd/abcd.jpg", "400", job1, LocalDateTime.now())).containsExactly((String) null);
+        assertThat(donationRepository.swapPhotoUrl(d.getId(), "ef/01/ef01.jpg", "400,800", job2, LocalDateTime.now())).containsExactly("ab/cd/abcd.jpg");
+        entityManager.clear();
+        Donation reloaded = donationRepository.findById(d.getId()).orElseThrow();
+        assertThat(reloaded.getPhotoUrl()).isEqualTo("ef/01/ef01.jpg");
+        assertThat(reloaded.getPhotoVariantWidths()).isEqualTo("400,800");
+        assertThat(reloaded.getName()).isEqualTo("Nasi");
+
+        assertThat(donationRepository.swapPhotoUrl(UUID.randomUUID(), "x.jpg", "", job2, LocalDateTime.now())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Foto: Job lama yang selesai setelah job baru tidak menimpa foto; job yang sama boleh memasang ulang")
+    void testSwapPhotoUrlIgnoresOlderJob() {
+        Donation d = persistDonation("Nasi", true);
+        entityManager.flush();
+        LocalDateTime older = LocalDateTime.now().minusMinutes(2);
+        LocalDateTime newer = older.plusMinutes(1);
+
+        // Job baru selesai dulu, job lama (mis. retry dengan jeda) selesai belakangan
+        assertThat(donationRepository.swapPhotoUrl(d.getId(), "ef/01/baru.jpg", "400", newer, LocalDateTime.now())).containsExactly((String) null);
+        assertThat(donationRepository.swapPhotoUrl(d.getId(), "ab/cd/lama.jpg", "400", older, LocalDateTime.now())).isEmpty();
+        // Percobaan ulang job baru (mis. gagal setelah swap): foto lama == baru
+        assertThat(donationRepository.swapPhotoUrl(d.getId(), "ef/01/baru.jpg", "400", newer, LocalDateTime.now())).containsExactly("ef/01/baru.jpg");
+
+        entityManager.clear();
+        Donation reloaded = donationRepository.findById(d.getId()).orElseThrow();
+        assertThat(reloaded.getPhotoUrl()).isEqualTo("ef/01/baru.jpg");
+        assertThat(reloaded.getPhotoJobCreatedAt()).isEqualToIgnoringNanos(newer);
+    }
+
+    @Test
+    @DisplayName("Edit: updateDetails menulis kolom form saja; photo_url dari worker & klaim tidak tertimpa")
+    void testUpdateDetailsKeepsPhotoAndClaim() {
+        Donation d = persistDonation("Nasi", true);
+        entityManager.flush();
+        Donation stale = donationRepository.findById(d.getId()).orElseThrow();
+        entityManager.clear();
+
+        // Setelah edit membaca baris: worker memasang foto & donasi diklaim
+        donationRepository.swapPhotoUrl(d.getId(), "ab/cd/abcd.jpg", "400", LocalDateTime.now(), LocalDateTime.now());
+        User claimant = entityManager.persist(new User("Penerima", "claimer-" + UUID.randomUUID() + "@mail.com", "secret"));
+        donationRepository.claimIfAvailable(d.getId(), claimant, LocalDateTime.now(),
+                Donation.DonationStatus.AVAILABLE, Donation.DonationStatus.BOOKED);
+
+        stale.setName("Nasi Goreng");
+        stale.setDescription("Pedas");
+        stale.refreshSearchDocument();
+        assertThat(donationRepository.updateDetails(d.getId(), stale, LocalDateTime.now())).isEqualTo(1);
+
+        Donation reloaded = donationRepository.findDetailById(d.getId()).orElseThrow();
+        assertThat(reloaded.getName()).isEqualTo("Nasi Goreng");
+        assertThat(reloaded.getSearchDocument()).isEqualTo("Nasi Goreng Pedas");
+        assertThat(reloaded.getPhotoUrl()).isEqualTo("ab/cd/abcd.jpg");
+        assertThat(reloaded.getStatus()).isEqualTo(Donation.DonationStatus.BOOKED);
+        assertThat(reloaded.getClaimedBy().getId()).isEqualTo(claimant.getId());
+        assertThat(donationRepository.updateDetails(UUID.randomUUID(), stale, LocalDateTime.now())).isZero();
+    }
+
+    @Test
+    @DisplayName("Hapus: deleteReturningRow mengembalikan photo_url/status/is_halal saat dihapus; kosong jika sudah terhapus")
+    void testDeleteReturningRow() {
+        Donation withPhoto = persistDonation("Nasi", true);
+        Donation withoutPhoto = persistDonation("Roti", false);
+        withoutPhoto.setStatus(Donation.DonationStatus.BOOKED);
+        entityManager.flush();
+        donationRepository.swapPhotoUrl(withPhoto.getId(), "ab/cd/abcd.jpg", "400", LocalDateTime.now(), LocalDateTime.now());
+
+        List<DeletedDonationRow> first = donationRepository.deleteReturningRow(withPhoto.getId());
+        assertThat(first).hasSize(1);
+        assertThat(first.get(0).getPhotoUrl()).isEqualTo("ab/cd/abcd.jpg");
+        assertThat(first.get(0).getStatus()).isEqualTo(Donation.DonationStatus.AVAILABLE);
+        assertThat(first.get(0).getIsHalal()).isTrue();
+        assertThat(donationRepository.deleteReturningRow(withPhoto.getId())).isEmpty();
+
+        List<DeletedDonationRow> noPhoto = donationRepository.deleteReturningRow(withoutPhoto.getId());
+        assertThat(noPhoto).hasSize(1);
+        assertThat(noPhoto.get(0).getPhotoUrl()).isNull();
+        assertThat(noPhoto.get(0).getStatus()).isEqualTo(Donation.DonationStatus.BOOKED);
+        assertThat(noPhoto.get(0).getIsHalal()).isFalse();
+        entityManager.clear();
+        assertThat(donationRepository.existsById(withPhoto.getId())).isFalse();
+    }
+
+    @Test
+    @DisplayName("Sapu jaring: Semua yang lewat waktu diproses per batch, paling lama dulu")
+    void testExpireOverdueInBatches() {
+        LocalDateTime now = LocalDateTime.now();
+        Donation oldest = persistExpiring("Nasi 1", now.minusHours(3));
+        Donation middle = persistExpiring("Nasi 2", now.minusHours(2));
+        Donation newest = persistExpiring("Nasi 3", now.minusHours(1));
+        persistExpiring("Nasi Nanti", now.plusHours(1));
+        entityManager.flush();
+
+        assertThat(donationRepository.expireOverdue(now, 2)).containsExactlyInAnyOrder(oldest.getId(), middle.getId());
+        assertThat(donationRepository.expireOverdue(now, 2)).containsExactly(newest.getId());
+        assertThat(donationRepository.expireOverdue(now, 2)).isEmpty();
+    }
+
+    // ==========================================
+    // N+1: jumlah query per halaman tetap, tidak bergantung jumlah baris / user berbeda
+    // ==========================================
+
+    @Test
+    @DisplayName("N+1: Halaman feed tidak men-join user; jika dibaca, dimuat dengan 1 query batch")
+    void testFeedPageLoadsUsersInFixedQueryCount() {
+        persistDonationsByDistinctUsers(30);
+
+        entityManager.clear();
+        List<Donation> page = donationRepository.findFeedFirstPage(null, Limit.of(30));
+        assertThat(page).allSatisfy(d -> assertThat(Hibernate.isInitialized(d.getCreatedBy())).isFalse());
+
+        long small = countQueries(() -> donationRepository.findFeedFirstPage(null, Limit.of(3)));
+        long large = countQueries(() -> donationRepository.findFeedFirstPage(null, Limit.of(30)));
+
+        // 1 query donasi + 1 query batch users (createdBy & claimedBy sekaligus)
+        assertThat(small).isEqualTo(2);
+        assertThat(large).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("N+1: Hasil pencarian native memuat user dengan 1 query batch, berapa pun ukurannya")
+    void testSearchPageLoadsUsersInFixedQueryCount() {
+        persistDonationsByDistinctUsers(30);
+
+        long small = countQueries(() -> donationRepository.searchFeedFirstPage("nasi:*", null, 3));
+        long large = countQueries(() -> donationRepository.searchFeedFirstPage("nasi:*", null, 30));
+
+        // 1 query donasi + 1 query batch users (createdBy & claimedBy sekaligus)
+        assertThat(small).isEqualTo(2);
+        assertThat(large).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("N+1: Detail donasi memuat donatur & pengklaim dalam 1 query")
+    void testDetailLoadsUsersInSingleQuery() {
+        Donation claimed = persistDonationsByDistinctUsers(2).get(1);
+
+        long queries = countQueries(() -> donationRepository.findDetailById(claimed.getId()).stream().toList());
+
+        assertThat(queries).isEqualTo(1);
+    }
+
+    // Setiap donasi punya donatur sendiri; donasi ganjil juga diklaim user lain
+    private List<Donation> persistDonationsByDistinctUsers(int count) {
+        List<Donation> donations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Donation d = new Donation();
+            d.setName("Nasi " + i);
+            d.setIsHalal(true);
+            d.setCreatedBy(entityManager.persist(new User("Donatur " + i, "donor-" + UUID.randomUUID() + "@mail.com", "secret")));
+            if (i % 2 == 1) {
+                d.setClaimedBy(entityManager.persist(new User("Penerima " + i, "claimer-" + UUID.randomUUID() + "@mail.com", "secret")));
+            }
+            donations.add(entityManager.persist(d));
+        }
+        entityManager.flush();
+        return donations;
+    }
+
+    // Jumlah statement SQL untuk memuat halaman lalu membaca relasi user seperti template view
+    private long countQueries(Supplier<List<Donation>> page) {
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Donation> donations = page.get();
+        assertThat(donations).isNotEmpty();
+        for (Donation d : donations) {
+            assertThat(d.getCreatedBy().getName()).startsWith("Donatur");
+            if (d.getClaimedBy() != null) {
+                assertThat(d.getClaimedBy().getName()).startsWith("Penerima");
+            }
+        }
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Donation persistExpiring(String name, LocalDateTime expiredTime) {
+        Donation d = persistDonation(name, true);
+        d.setExpiredTime(expiredTime);
+        return d;
+    }
+
+    private int claimPortions(UUID id, int portions) {
+        return donationRepository.claimPortionsIfAvailable(id, portions, LocalDateTime.now(),
+                Donation.DonationStatus.AVAILABLE, Donation.DonationStatus.BOOKED);
+    }
+
+    // Urutan uuid di PostgreSQL = perbandingan byte unsigned
+    private static int compareUuid(UUID a, UUID b) {
+        int cmp = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return cmp != 0 ? cmp : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+}
@@ -0,0 +1,99 @@
+package org.delcom.app.repositories;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.delcom.app.entities.PhotoBlob;
+import org.delcom.app.entities.PhotoJob;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class PhotoBlobRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PhotoBlobRepository blobRepository;
+
+    @BeforeEach
+    void setUp() {
+        // Mulai dari tabel kosong (rollback otomatis setelah tiap test)
+        entityManager.getEntityManager().createQuery("DELETE FROM PhotoBlob").executeUpdate();
+    }
+
+    @Test
+    @DisplayName("acquire: Isi baru -> baris refCount 1; isi sama -> refCount bertambah, filename pertama dipakai")
+    void testAcquire() {
+        LocalDateTime now = LocalDateTime.now();
+        PhotoJob first = persistJob();
+        PhotoJob second = persistJob();
+
+        assertThat(blobRepository.acquire("abcd", "ab/cd/abcd.png", first.getId(), now)).containsExactly("ab/cd/abcd.png");
+        assertThat(blobRepository.acquire("abcd", "ab/cd/abcd.jpg", second.getId(), now)).containsExactly("ab/cd/abcd.png");
+        entityManager.clear();
+
+        PhotoBlob blob = blobRepository.findById("abcd").orElseThrow();
+        assertThat(blob.getRefCount()).isEqualTo(2);
+        assertThat(blob.getFilename()).isEqualTo("ab/cd/abcd.png");
+        assertThat(blob.getCreatedAt()).isNotNull();
+        // photo_file job tercatat dalam statement yang sama
+        assertThat(entityManager.find(PhotoJob.class, second.getId()).getPhotoFile()).isEqualTo("ab/cd/abcd.png");
+    }
+
+    @Test
+    @DisplayName("acquire: Job yang photo_file-nya sudah tercatat (percobaan ulang) / tidak ada -> referensi tidak bertambah")
+    void testAcquireOncePerJob() {
+        LocalDateTime now = LocalDateTime.now();
+        PhotoJob job = persistJob();
+
+        assertThat(blobRepository.acquire("abcd", "ab/cd/abcd.png", job.getId(), now)).containsExactly("ab/cd/abcd.png");
+        assertThat(blobRepository.acquire("abcd", "ab/cd/abcd.png", job.getId(), now)).isEmpty();
+        assertThat(blobRepository.acquire("ef01", "ef/01/ef01.png", UUID.randomUUID(), now)).isEmpty();
+        entityManager.clear();
+
+        assertThat(blobRepository.findById("abcd").orElseThrow().getRefCount()).isEqualTo(1);
+        assertThat(blobRepository.findById("ef01")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("findByFilename: Baris ditemukan lewat nama file; perubahan refCount tersimpan")
+    void testFindByFilename() {
+        entityManager.persistAndFlush(new PhotoBlob("ef01", "ef/01/ef01.jpg", 3));
+
+        PhotoBlob blob = blobRepository.findByFilename("ef/01/ef01.jpg").orElseThrow();
+        blob.setRefCount(2);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(blobRepository.findById("ef01").orElseThrow().getRefCount()).isEqualTo(2);
+        assertThat(blobRepository.findByFilename("tidak/ada.png")).isEmpty();
+        assertThat(blob.getUpdatedAt()).isAfterOrEqualTo(blob.getCreatedAt());
+    }
+
+    @Test
+    @DisplayName("Lebar varian: null sampai dicatat worker, lalu dibaca lewat nama file")
+    void testVariantWidths() {
+        LocalDateTime now = LocalDateTime.now();
+        blobRepository.acquire("abcd", "ab/cd/abcd.png", persistJob().getId(), now);
+
+        assertThat(blobRepository.findVariantWidths("ab/cd/abcd.png")).isEmpty();
+        assertThat(blobRepository.updateVariantWidths("ab/cd/abcd.png", "400,800", now)).isEqualTo(1);
+        assertThat(blobRepository.findVariantWidths("ab/cd/abcd.png")).contains("400,800");
+
+        assertThat(blobRepository.updateVariantWidths("tidak/ada.png", "400", now)).isZero();
+        assertThat(blobRepository.findVariantWidths("tidak/ada.png")).isEmpty();
+    }
+
+    private PhotoJob persistJob() {
+        return entityManager.persistAndFlush(new PhotoJob(UUID.randomUUID(), UUID.randomUUID() + ".png"));
+    }
+}
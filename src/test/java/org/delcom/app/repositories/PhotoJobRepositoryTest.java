@@ -0,0 +1,98 @@
+package org.delcom.app.repositories;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.delcom.app.entities.PhotoJob;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class PhotoJobRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PhotoJobRepository jobRepository;
+
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        // Mulai dari tabel kosong (rollback otomatis setelah tiap test)
+        entityManager.getEntityManager().createQuery("DELETE FROM PhotoJob").executeUpdate();
+        now = LocalDateTime.now();
+    }
+
+    private PhotoJob persistJob(PhotoJob.Status status, LocalDateTime nextAttemptAt, LocalDateTime lockedUntil) {
+        PhotoJob job = new PhotoJob(UUID.randomUUID(), UUID.randomUUID() + ".jpg");
+        job.setStatus(status);
+        job.setNextAttemptAt(nextAttemptAt);
+        job.setLockedUntil(lockedUntil);
+        return entityManager.persist(job);
+    }
+
+    @Test
+    @DisplayName("claimDue: PENDING jatuh tempo & RUNNING dengan lease habis diambil, sisanya tidak")
+    void testClaimDue() {
+        PhotoJob due = persistJob(PhotoJob.Status.PENDING, now.minusSeconds(5), null);
+        PhotoJob abandoned = persistJob(PhotoJob.Status.RUNNING, now.minusMinutes(5), now.minusSeconds(1));
+        persistJob(PhotoJob.Status.PENDING, now.plusMinutes(1), null);                   // retry belum waktunya
+        persistJob(PhotoJob.Status.RUNNING, now.minusMinutes(1), now.plusMinutes(1));    // sedang dikerjakan
+        persistJob(PhotoJob.Status.FAILED, now.minusMinutes(1), null);
+        entityManager.flush();
+
+        LocalDateTime lease = now.plusMinutes(1);
+        assertThat(jobRepository.claimDue(now, lease, 10)).containsExactlyInAnyOrder(due.getId(), abandoned.getId());
+        entityManager.clear();
+
+        PhotoJob claimed = jobRepository.findById(due.getId()).orElseThrow();
+        assertThat(claimed.getStatus()).isEqualTo(PhotoJob.Status.RUNNING);
+        assertThat(claimed.getAttempts()).isEqualTo(1);
+        assertThat(claimed.getLockedUntil()).isNotNull();
+        // Sudah di-claim dengan lease baru: tidak diambil lagi
+        assertThat(jobRepository.claimDue(now, lease, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("claimDue: Dibatasi batchSize, urut next_attempt_at")
+    void testClaimDue_BatchSize() {
+        PhotoJob oldest = persistJob(PhotoJob.Status.PENDING, now.minusMinutes(3), null);
+        persistJob(PhotoJob.Status.PENDING, now.minusMinutes(1), null);
+        entityManager.flush();
+
+        assertThat(jobRepository.claimDue(now, now.plusMinutes(1), 1)).containsExactly(oldest.getId());
+    }
+
+    @Test
+    @DisplayName("claim: Hanya job PENDING yang bisa diambil, sekali saja")
+    void testClaimSingle() {
+        PhotoJob job = persistJob(PhotoJob.Status.PENDING, now, null);
+        entityManager.flush();
+
+        assertThat(jobRepository.claim(job.getId(), now, now.plusMinutes(1))).containsExactly(job.getId());
+        assertThat(jobRepository.claim(job.getId(), now, now.plusMinutes(1))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Entity: createdAt/updatedAt & nextAttemptAt default terisi saat persist")
+    void testDefaultsOnPersist() {
+        PhotoJob job = entityManager.persistFlushFind(new PhotoJob(UUID.randomUUID(), "a.jpg"));
+
+        assertThat(job.getStatus()).isEqualTo(PhotoJob.Status.PENDING);
+        assertThat(job.getCreatedAt()).isNotNull();
+        assertThat(job.getNextAttemptAt()).isEqualTo(job.getCreatedAt());
+
+        job.setLastError("x");
+        entityManager.flush();
+        assertThat(job.getUpdatedAt()).isAfterOrEqualTo(job.getCreatedAt());
+    }
+}
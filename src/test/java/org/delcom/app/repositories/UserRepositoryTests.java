@@ -0,0 +1,36 @@
+package org.delcom.app.repositories;
+
+import java.util.UUID;
+
+import org.delcom.app.entities.User;
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserRepositoryTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    @DisplayName("replacePasswordHash: Hanya jika hash belum berubah sejak dibaca")
+    void testReplacePasswordHash() {
+        User user = entityManager.persistAndFlush(new User("Budi", "budi-" + UUID.randomUUID() + "@mail.com", "$2a$10$old"));
+
+        assertThat(userRepository.replacePasswordHash(user.getId(), "$2a$10$old", "$2a$12$new")).isEqualTo(1);
+        // Password sudah diganti (hash lain) -> hash ulang dari login lama tidak menimpanya
+        assertThat(userRepository.replacePasswordHash(user.getId(), "$2a$10$old", "$2a$12$other")).isZero();
+        assertThat(userRepository.replacePasswordHash(UUID.randomUUID(), "$2a$12$new", "$2a$12$x")).isZero();
+
+        assertThat(userRepository.findById(user.getId()).orElseThrow().getPassword()).isEqualTo("$2a$12$new");
+    }
+}
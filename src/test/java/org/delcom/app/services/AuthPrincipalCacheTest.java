@@ -0,0 +1,107 @@
+package org.delcom.app.services;
+
+import java.util.UUID;
+
+import org.delcom.app.entities.User;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class AuthPrincipalCacheTest {
+
+    private final AuthPrincipalCache cache = new AuthPrincipalCache(60_000);
+
+    private User user(UUID id) {
+        User user = new User("Budi", "budi@mail.com", "hash");
+        user.setId(id);
+        return user;
+    }
+
+    @Test
+    @DisplayName("get: Mengembalikan salinan user; userId token harus cocok")
+    void testPutAndGetReturnsCopy() {
+        UUID userId = UUID.randomUUID();
+        User original = user(userId);
+        cache.put("token-a", original, cache.currentEpoch());
+
+        User first = cache.get("token-a", userId);
+        first.setName("Diubah di request");
+        User second = cache.get("token-a", userId);
+
+        assertNotSame(original, first);
+        assertEquals("Budi", second.getName());
+        assertEquals("hash", second.getPassword());
+        assertNull(cache.get("token-a", UUID.randomUUID()));
+        assertNull(cache.get("token-lain", userId));
+    }
+
+    @Test
+    @DisplayName("put: User null / tanpa id diabaikan")
+    void testPutIgnoresInvalidUser() {
+        cache.put("token-a", null, cache.currentEpoch());
+        cache.put("token-b", new User(), cache.currentEpoch());
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("invalidateUser: Semua token milik user dibuang, user lain tetap")
+    void testInvalidateUser() {
+        UUID userId = UUID.randomUUID();
+        UUID otherId = UUID.randomUUID();
+        cache.put("token-1", user(userId), cache.currentEpoch());
+        cache.put("token-2", user(userId), cache.currentEpoch());
+        cache.put("token-3", user(otherId), cache.currentEpoch());
+
+        cache.invalidateUser(userId);
+
+        assertNull(cache.get("token-1", userId));
+        assertNull(cache.get("token-2", userId));
+        assertEquals(otherId, cache.get("token-3", otherId).getId());
+    }
+
+    @Test
+    @DisplayName("put: Lookup DB yang dimulai sebelum invalidasi tidak masuk cache")
+    void testStaleLookupNotCached() {
+        UUID userId = UUID.randomUUID();
+        long epochAtLookup = cache.currentEpoch();
+
+        cache.invalidateUser(UUID.randomUUID());
+        cache.put("token-a", user(userId), epochAtLookup);
+
+        assertNull(cache.get("token-a", userId));
+    }
+
+    @Test
+    @DisplayName("invalidateUser: Dalam transaksi, dibuang lagi setelah transaksi selesai")
+    void testInvalidateAgainAfterTransaction() {
+        UUID userId = UUID.randomUUID();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidateUser(userId);
+            // Request lain membaca data lama sebelum commit
+            cache.put("token-a", user(userId), cache.currentEpoch());
+
+            for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+                sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertNull(cache.get("token-a", userId));
+    }
+
+    @Test
+    @DisplayName("hash: SHA-256 hex, berbeda per token")
+    void testHash() {
+        assertEquals(64, AuthPrincipalCache.hash("token-a").length());
+        assertEquals(AuthPrincipalCache.hash("token-a"), AuthPrincipalCache.hash("token-a"));
+        assertNotEquals(AuthPrincipalCache.hash("token-a"), AuthPrincipalCache.hash("token-b"));
+    }
+}
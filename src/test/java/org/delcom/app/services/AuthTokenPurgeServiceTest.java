@@ -0,0 +1,53 @@
+package org.delcom.app.services;
+
+import java.time.LocalDateTime;
+
+import org.delcom.app.repositories.AuthTokenRepository;
+import org.delcom.app.utils.JwtUtil;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthTokenPurgeServiceTest {
+
+    private final AuthTokenRepository authTokenRepository = mock(AuthTokenRepository.class);
+    private final AuthTokenPurgeService purgeService = new AuthTokenPurgeService(authTokenRepository, 100);
+
+    @Test
+    @DisplayName("purge: Hapus per batch selama batch penuh, laporkan jumlah baris")
+    void testPurgeInBatches() {
+        when(authTokenRepository.deleteCreatedBefore(any(LocalDateTime.class), eq(100))).thenReturn(100, 100, 7);
+        when(authTokenRepository.deleteOrphaned(100)).thenReturn(3);
+
+        AuthTokenPurgeService.PurgeResult result = purgeService.purge();
+
+        assertEquals(207, result.expired());
+        assertEquals(3, result.orphaned());
+        assertEquals(210, result.total());
+        verify(authTokenRepository, times(3)).deleteCreatedBefore(any(LocalDateTime.class), eq(100));
+        verify(authTokenRepository, times(1)).deleteOrphaned(100);
+    }
+
+    @Test
+    @DisplayName("purge: Batas waktu = sekarang - masa berlaku JWT; tidak ada yang dihapus -> 0")
+    void testPurgeCutoffAndNothingToDelete() {
+        when(authTokenRepository.deleteCreatedBefore(any(LocalDateTime.class), eq(100))).thenReturn(0);
+        when(authTokenRepository.deleteOrphaned(100)).thenReturn(0);
+        LocalDateTime before = LocalDateTime.now();
+
+        assertEquals(0, purgeService.purge().total());
+
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(authTokenRepository).deleteCreatedBefore(cutoff.capture(), eq(100));
+        LocalDateTime expected = before.minusNanos(JwtUtil.getExpirationMillis() * 1_000_000L);
+        assertThat(cutoff.getValue()).isBetween(expected, expected.plusSeconds(5));
+    }
+}
@@ -24,6 +24,9 @@ class AuthTokenServiceTest {
     @Mock
     private AuthTokenRepository authTokenRepository;
 
+    @Mock
+    private AuthPrincipalCache principalCache;
+
     @InjectMocks
     private AuthTokenService authTokenService;
 
@@ -40,7 +43,7 @@ class AuthTokenServiceTest {
         AuthToken mockToken = new AuthToken(); 
         // Set properti mockToken jika perlu, misal mockToken.setToken(tokenString);
         
-        when(authTokenRepository.findUserToken(userId, tokenString)).thenReturn(mockToken);
+        when(authTokenRepository.findUserToken(userId, AuthToken.hashToken(tokenString))).thenReturn(mockToken);
 
         // Act
         AuthToken result = authTokenService.findUserToken(userId, tokenString);
@@ -48,7 +51,7 @@ class AuthTokenServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals(mockToken, result);
-        verify(authTokenRepository, times(1)).findUserToken(userId, tokenString);
+        verify(authTokenRepository, times(1)).findUserToken(userId, AuthToken.hashToken(tokenString));
     }
 
     @Test
@@ -110,6 +113,7 @@ class AuthTokenServiceTest {
 
         // Assert
         verify(authTokenRepository, times(1)).deleteByUserId(userId);
+        verify(principalCache).invalidateUser(userId);
     }
 
     @Test
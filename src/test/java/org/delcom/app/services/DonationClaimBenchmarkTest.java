@@ -0,0 +1,129 @@
+package org.delcom.app.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.delcom.app.entities.Donation;
+import org.delcom.app.entities.User;
+import org.delcom.app.repositories.DonationClaimRepository;
+import org.delcom.app.repositories.DonationRepository;
+import org.delcom.app.repositories.UserRepository;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+// Benchmark throughput klaim porsi: satu baris "panas" vs klaim yang tersebar ke banyak baris.
+// Tidak ikut `mvn test` biasa; jalankan dengan: mvn test -Pbenchmark
+@Tag("benchmark")
+@SpringBootTest
+class DonationClaimBenchmarkTest {
+
+    private static final int THREADS = 32;
+    private static final int TOTAL_PORTIONS = 4096; // habis dibagi SPREAD_ROWS
+    private static final int SPREAD_ROWS = 64;
+
+    @Autowired private DonationService donationService;
+    @Autowired private DonationRepository donationRepository;
+    @Autowired private DonationClaimRepository claimRepository;
+    @Autowired private UserRepository userRepository;
+
+    private final List<UUID> createdDonations = new ArrayList<>();
+    private User owner;
+
+    @AfterEach
+    void cleanUp() {
+        for (UUID id : createdDonations) {
+            claimRepository.deleteByDonationId(id);
+            donationRepository.deleteById(id);
+        }
+        if (owner != null) {
+            userRepository.deleteById(owner.getId());
+        }
+    }
+
+    private List<UUID> createDonations(int rows, int portionsEach) {
+        if (owner == null) {
+            owner = userRepository.save(new User("Bench", "bench-" + UUID.randomUUID() + "@mail.com", "secret"));
+        }
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            Donation d = new Donation();
+            d.setName("Benchmark " + i);
+            d.setIsHalal(true);
+            d.setPortion(portionsEach);
+            d.setCreatedBy(owner);
+            ids.add(donationRepository.save(d).getId());
+        }
+        createdDonations.addAll(ids);
+        return ids;
+    }
+
+    // Semua thread mengklaim 1 porsi berulang-ulang sampai semua baris habis; hasil = klaim sukses per detik
+    private double run(String label, List<UUID> ids) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger successes = new AtomicInteger();
+        AtomicInteger attempts = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                int soldOutInARow = 0;
+                for (int i = offset; soldOutInARow < ids.size(); i++) {
+                    attempts.incrementAndGet();
+                    if (donationService.claimPortions(ids.get(i % ids.size()), owner, 1)) {
+                        successes.incrementAndGet();
+                        soldOutInARow = 0;
+                    } else {
+                        soldOutInARow++;
+                    }
+                }
+                return null;
+            }));
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get(5, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - began) / 1e9;
+        pool.shutdown();
+
+        double perSecond = successes.get() / seconds;
+        System.out.printf("[benchmark] %-22s rows=%-3d claims=%d attempts=%d time=%.2fs -> %.0f claims/s%n",
+                label, ids.size(), successes.get(), attempts.get(), seconds, perSecond);
+
+        // Tidak boleh oversell di skenario mana pun
+        assertEquals(TOTAL_PORTIONS, successes.get());
+        for (UUID id : ids) {
+            Donation d = donationRepository.findById(id).orElseThrow();
+            assertEquals(0, d.getRemainingPortion());
+            assertEquals(d.getPortion(), (int) claimRepository.sumPortionsByDonationId(id));
+        }
+        return perSecond;
+    }
+
+    @Test
+    @DisplayName("Benchmark: Klaim per detik pada satu baris panas vs tersebar ke banyak baris")
+    void benchmarkHotRowVersusSpreadRows() throws Exception {
+        // Pemanasan (JIT, pool koneksi) sebelum diukur
+        run("warm-up", createDonations(SPREAD_ROWS, TOTAL_PORTIONS / SPREAD_ROWS));
+
+        double hot = run("single hot row", createDonations(1, TOTAL_PORTIONS));
+        double spread = run("spread over " + SPREAD_ROWS + " rows", createDonations(SPREAD_ROWS, TOTAL_PORTIONS / SPREAD_ROWS));
+
+        System.out.printf("[benchmark] spread/hot throughput ratio = %.2f%n", spread / hot);
+    }
+}
@@ -0,0 +1,207 @@
+package org.delcom.app.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.delcom.app.dto.DonationForm;
+import org.delcom.app.entities.Donation;
+import org.delcom.app.entities.User;
+import org.delcom.app.repositories.DonationClaimRepository;
+import org.delcom.app.repositories.DonationRepository;
+import org.delcom.app.repositories.UserRepository;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+// Klaim bersamaan terhadap database sungguhan: hanya UPDATE bersyarat yang bisa menjamin satu pemenang
+@SpringBootTest
+class DonationClaimConcurrencyTest {
+
+    private static final int CLAIMANTS = 50;
+    private static final int CLAIMS = 2000;
+    private static final int THREADS = 64;
+
+    @Autowired private DonationService donationService;
+    @Autowired private DonationRepository donationRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private DonationClaimRepository claimRepository;
+
+    private final List<UUID> createdUsers = new ArrayList<>();
+    private UUID donationId;
+
+    @AfterEach
+    void cleanUp() {
+        if (donationId != null) {
+            claimRepository.deleteByDonationId(donationId);
+            donationRepository.deleteById(donationId);
+        }
+        userRepository.deleteAllById(createdUsers);
+    }
+
+    private User createUser(String name) {
+        User user = userRepository.save(new User(name, name + "-" + UUID.randomUUID() + "@mail.com", "secret"));
+        createdUsers.add(user.getId());
+        return user;
+    }
+
+    @Test
+    @DisplayName("claim: Ribuan klaim bersamaan pada satu donasi -> tepat satu yang berhasil")
+    void testConcurrentClaimsHaveExactlyOneWinner() throws Exception {
+        User owner = createUser("owner");
+        Donation donation = new Donation();
+        donation.setName("Nasi Kotak Rebutan");
+        donation.setIsHalal(true);
+        donation.setPortion(1);
+        donation.setCreatedBy(owner);
+        donationId = donationRepository.save(donation).getId();
+
+        List<User> claimants = new ArrayList<>();
+        for (int i = 0; i < CLAIMANTS; i++) {
+            claimants.add(createUser("claimant" + i));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<UUID> winners = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < CLAIMS; i++) {
+            User claimant = claimants.get(i % CLAIMANTS);
+            futures.add(pool.submit(() -> {
+                start.await();
+                if (donationService.claimDonation(donationId, claimant)) {
+                    winners.add(claimant.getId());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS); // lempar ulang error dari thread klaim
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1, winners.size());
+        Donation saved = donationRepository.findById(donationId).orElseThrow();
+        assertEquals(Donation.DonationStatus.BOOKED, saved.getStatus());
+        assertEquals(winners.peek(), saved.getClaimedBy().getId());
+    }
+
+    @Test
+    @DisplayName("claimPortions: Ratusan klaim porsi bersamaan -> tidak pernah melebihi jumlah porsi")
+    void testConcurrentPortionClaimsNeverOversell() throws Exception {
+        User owner = createUser("owner");
+        Donation donation = new Donation();
+        donation.setName("Nasi Kotak Acara");
+        donation.setIsHalal(true);
+        donation.setPortion(100);
+        donation.setCreatedBy(owner);
+        donationId = donationRepository.save(donation).getId();
+
+        List<User> claimants = new ArrayList<>();
+        for (int i = 0; i < CLAIMANTS; i++) {
+            claimants.add(createUser("claimant" + i));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Integer> granted = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            User claimant = claimants.get(i % CLAIMANTS);
+            int portions = 1 + i % 3;
+            futures.add(pool.submit(() -> {
+                start.await();
+                if (donationService.claimPortions(donationId, claimant, portions)) {
+                    granted.add(portions);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        int grantedPortions = granted.stream().mapToInt(Integer::intValue).sum();
+        Donation saved = donationRepository.findById(donationId).orElseThrow();
+        assertTrue(saved.getRemainingPortion() >= 0);
+        assertEquals(100, grantedPortions + saved.getRemainingPortion());
+        assertEquals(grantedPortions, claimRepository.sumPortionsByDonationId(donationId));
+        assertEquals(granted.size(), claimRepository.findByDonationId(donationId).size());
+        if (saved.getRemainingPortion() == 0) {
+            assertEquals(Donation.DonationStatus.BOOKED, saved.getStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("update vs claim: Pemilik mengedit saat donasi diklaim -> klaim tidak tertimpa status lama")
+    void testEditRacingClaimKeepsClaim() throws Exception {
+        User owner = createUser("owner");
+        Donation donation = new Donation();
+        donation.setName("Nasi Kotak");
+        donation.setIsHalal(true);
+        donation.setPortion(1);
+        donation.setCreatedBy(owner);
+        donationId = donationRepository.save(donation).getId();
+
+        List<User> claimants = new ArrayList<>();
+        for (int i = 0; i < CLAIMANTS; i++) {
+            claimants.add(createUser("claimant" + i));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<UUID> winners = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            if (i % 2 == 0) {
+                DonationForm form = new DonationForm();
+                form.setName("Nasi Kotak (edit " + i + ")");
+                form.setIsHalal(true);
+                form.setPortion(1);
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    donationService.updateDonation(donationId, form, owner);
+                    return null;
+                }));
+            } else {
+                User claimant = claimants.get(i % CLAIMANTS);
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    if (donationService.claimDonation(donationId, claimant)) {
+                        winners.add(claimant.getId());
+                    }
+                    return null;
+                }));
+            }
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Edit yang membaca baris sebelum klaim tidak boleh mengembalikan status AVAILABLE / menghapus pengklaim
+        assertEquals(1, winners.size());
+        Donation saved = donationRepository.findDetailById(donationId).orElseThrow();
+        assertEquals(Donation.DonationStatus.BOOKED, saved.getStatus());
+        assertEquals(winners.peek(), saved.getClaimedBy().getId());
+        assertEquals(0, saved.getRemainingPortion());
+        assertTrue(saved.getName().startsWith("Nasi Kotak (edit "));
+    }
+}
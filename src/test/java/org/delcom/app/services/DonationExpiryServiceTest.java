@@ -0,0 +1,169 @@
+package org.delcom.app.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.delcom.app.dto.DonationExpiryRow;
+import org.delcom.app.entities.Donation;
+import org.delcom.app.repositories.DonationRepository;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+@ExtendWith(MockitoExtension.class)
+class DonationExpiryServiceTest {
+
+    private static final long LOOKAHEAD_MS = 60_000;
+    private static final int BATCH_SIZE = 2;
+
+    @Mock private DonationRepository donationRepo;
+    @Mock private DonationSearchIndex searchIndex;
+    @Mock private DonationStatsService statsService;
+    @Mock private PortionReservationService reservations;
+
+    private DonationExpiryService expiryService;
+
+    @BeforeEach
+    void setUp() {
+        expiryService = new DonationExpiryService(donationRepo, searchIndex, statsService, reservations,
+                LOOKAHEAD_MS, BATCH_SIZE);
+    }
+
+    // Database mengembalikan semua id yang diminta (semua masih AVAILABLE)
+    private void expireAllRequested() {
+        when(donationRepo.expireAvailable(anyList(), any(LocalDateTime.class)))
+                .thenAnswer(inv -> new ArrayList<>(inv.<List<UUID>>getArgument(0)));
+    }
+
+    // ==========================================
+    // 1. PENJADWALAN
+    // ==========================================
+
+    @Test
+    @DisplayName("schedule: Dalam jendela masuk antrean; di luar jendela / null diabaikan")
+    void testScheduleRespectsLookahead() {
+        UUID soon = UUID.randomUUID();
+        UUID far = UUID.randomUUID();
+
+        expiryService.schedule(soon, LocalDateTime.now().plusSeconds(10));
+        expiryService.schedule(far, LocalDateTime.now().plusDays(1));
+        expiryService.schedule(null, LocalDateTime.now());
+        expiryService.schedule(UUID.randomUUID(), null);
+
+        assertEquals(1, expiryService.pendingCount());
+        assertEquals(0, expiryService.expireDue()); // belum jatuh tempo
+        verifyNoInteractions(donationRepo);
+    }
+
+    @Test
+    @DisplayName("expireDue: Yang jatuh tempo diproses per batch, index/counter/statistik ikut diperbarui")
+    void testExpireDueInBatches() {
+        expireAllRequested();
+        List<UUID> ids = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        for (UUID id : ids) {
+            expiryService.schedule(id, LocalDateTime.now().minusSeconds(1));
+        }
+
+        assertEquals(3, expiryService.expireDue());
+
+        verify(donationRepo, times(2)).expireAvailable(anyList(), any(LocalDateTime.class));
+        for (UUID id : ids) {
+            verify(searchIndex).updateAvailability(id, false);
+            verify(reservations).invalidate(id);
+        }
+        verify(statsService).onStatusChanged(Donation.DonationStatus.AVAILABLE, Donation.DonationStatus.EXPIRED, 2);
+        verify(statsService).onStatusChanged(Donation.DonationStatus.AVAILABLE, Donation.DonationStatus.EXPIRED, 1);
+        assertEquals(0, expiryService.pendingCount());
+    }
+
+    @Test
+    @DisplayName("expireDue: Entri basi (waktu diedit / diundur jauh) dilewati; jadwal sama tidak dobel")
+    void testStaleEntriesSkipped() {
+        expireAllRequested();
+        UUID rescheduled = UUID.randomUUID();
+        UUID postponed = UUID.randomUUID();
+        UUID duplicate = UUID.randomUUID();
+        LocalDateTime past = LocalDateTime.now().minusSeconds(1);
+
+        expiryService.schedule(rescheduled, past);
+        expiryService.schedule(rescheduled, LocalDateTime.now().plusSeconds(30)); // entri lama jadi basi
+        expiryService.schedule(postponed, past);
+        expiryService.schedule(postponed, LocalDateTime.now().plusDays(1));
+        expiryService.schedule(duplicate, past);
+        expiryService.schedule(duplicate, past);
+
+        assertEquals(1, expiryService.expireDue());
+        verify(donationRepo).expireAvailable(eq(List.of(duplicate)), any(LocalDateTime.class));
+        assertEquals(1, expiryService.pendingCount()); // rescheduled masih menunggu
+    }
+
+    @Test
+    @DisplayName("expireDue: Donasi yang sudah diklaim (UPDATE 0 baris) tidak mengubah statistik")
+    void testExpireDueNothingChanged() {
+        when(donationRepo.expireAvailable(anyList(), any(LocalDateTime.class))).thenReturn(List.of());
+        expiryService.schedule(UUID.randomUUID(), LocalDateTime.now().minusSeconds(1));
+
+        assertEquals(0, expiryService.expireDue());
+        verifyNoInteractions(searchIndex, reservations, statsService);
+    }
+
+    // ==========================================
+    // 2. MUAT ULANG & SAPU JARING
+    // ==========================================
+
+    @Test
+    @DisplayName("loadUpcoming: Baris dari database masuk antrean")
+    void testLoadUpcoming() {
+        UUID id = UUID.randomUUID();
+        when(donationRepo.findExpiringBetween(eq(Donation.DonationStatus.AVAILABLE), any(LocalDateTime.class),
+                any(LocalDateTime.class), any(Limit.class)))
+                .thenReturn(List.of(new DonationExpiryRow(id, LocalDateTime.now().plusSeconds(5))));
+
+        expiryService.loadUpcoming();
+
+        assertEquals(1, expiryService.pendingCount());
+    }
+
+    @Test
+    @DisplayName("sweepOverdue: Ulangi selama batch penuh, berhenti saat batch tidak penuh")
+    void testSweepOverdueLoopsWhileFull() {
+        List<UUID> full = List.of(UUID.randomUUID(), UUID.randomUUID());
+        List<UUID> partial = List.of(UUID.randomUUID());
+        when(donationRepo.expireOverdue(any(LocalDateTime.class), eq(BATCH_SIZE))).thenReturn(full, partial);
+
+        assertEquals(3, expiryService.sweepOverdue());
+
+        verify(donationRepo, times(2)).expireOverdue(any(LocalDateTime.class), anyInt());
+        verify(statsService).onStatusChanged(Donation.DonationStatus.AVAILABLE, Donation.DonationStatus.EXPIRED, 2);
+        verify(statsService).onStatusChanged(Donation.DonationStatus.AVAILABLE, Donation.DonationStatus.EXPIRED, 1);
+    }
+
+    @Test
+    @DisplayName("onStartup: Sapu yang terlewat selama aplikasi mati, lalu muat jadwal ke depan")
+    void testOnStartup() {
+        when(donationRepo.expireOverdue(any(LocalDateTime.class), anyInt())).thenReturn(List.of());
+        when(donationRepo.findExpiringBetween(any(), any(), any(), any())).thenReturn(List.of());
+
+        expiryService.onStartup();
+
+        verify(donationRepo).expireOverdue(any(LocalDateTime.class), eq(BATCH_SIZE));
+        verify(donationRepo).findExpiringBetween(any(), any(), any(), any());
+        verify(statsService, never()).onStatusChanged(any(), any(), anyInt());
+    }
+}
@@ -0,0 +1,233 @@
+package org.delcom.app.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.delcom.app.entities.Donation;
+import org.delcom.app.repositories.DonationRepository;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.springframework.data.domain.Limit;
+
+class DonationSearchIndexTest {
+
+    private DonationRepository donationRepo;
+    private DonationSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        donationRepo = mock(DonationRepository.class);
+        index = new DonationSearchIndex(donationRepo);
+    }
+
+    // --- HELPER ---
+    private Donation donation(String name, String description, String category) {
+        Donation d = new Donation();
+        d.setId(UUID.randomUUID());
+        d.setName(name);
+        d.setDescription(description);
+        d.setCategory(category);
+        d.setStatus(Donation.DonationStatus.AVAILABLE);
+        return d;
+    }
+
+    private List<String> names(List<DonationSearchIndex.Hit> hits) {
+        return hits.stream().map(DonationSearchIndex.Hit::name).toList();
+    }
+
+    // ==========================================
+    // 1. TOKENIZER
+    // ==========================================
+
+    @Test
+    @DisplayName("tokenize: Huruf kecil, pisah non huruf/angka, null -> kosong")
+    void testTokenize() {
+        assertEquals(List.of("nasi", "goreng", "s", "2"), DonationSearchIndex.tokenize("  Nasi-Goreng's #2 "));
+        assertTrue(DonationSearchIndex.tokenize(null).isEmpty());
+        assertTrue(DonationSearchIndex.tokenize("!!!").isEmpty());
+    }
+
+    // ==========================================
+    // 2. UPDATE INKREMENTAL & PENCARIAN
+    // ==========================================
+
+    @Test
+    @DisplayName("search: Prefix per kata, AND antar kata, cocok di nama/deskripsi/kategori, terbaru dulu")
+    void testSearchPrefixAndNewestFirst() {
+        index.upsert(donation("Nasi Goreng", "Pakai telur", "Makanan Berat"));
+        index.upsert(donation("Roti Tawar", "Bukan nasi", "Snack"));
+        index.upsert(donation("Es Teh", null, "Minuman"));
+
+        assertEquals(List.of("Roti Tawar", "Nasi Goreng"), names(index.search("NAS", 10)));
+        assertEquals(List.of("Nasi Goreng"), names(index.search("nasi tel", 10)));
+        assertEquals(List.of("Es Teh"), names(index.search("minum", 10)));
+        assertTrue(index.search("nasi minuman", 10).isEmpty());
+        assertTrue(index.search("xyz", 10).isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    @DisplayName("search: Query kosong / limit <= 0 -> kosong, limit dihormati")
+    void testSearchEmptyQueryAndLimit() {
+        for (int i = 0; i < 5; i++) {
+            index.upsert(donation("Nasi " + i, null, null));
+        }
+
+        assertTrue(index.search(null, 10).isEmpty());
+        assertTrue(index.search(" ! ", 10).isEmpty());
+        assertTrue(index.search("nasi", 0).isEmpty());
+        assertEquals(List.of("Nasi 4", "Nasi 3"), names(index.search("nasi", 2)));
+    }
+
+    @Test
+    @DisplayName("upsert: Update mengganti token lama, id tetap satu entri")
+    void testUpsertReplacesOldTokens() {
+        Donation d = donation("Nasi Goreng", null, null);
+        index.upsert(d);
+
+        d.setName("Mie Ayam");
+        index.upsert(d);
+
+        assertTrue(index.search("nasi", 10).isEmpty());
+        assertEquals(List.of(d.getId()), index.search("mie", 10).stream().map(DonationSearchIndex.Hit::id).toList());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    @DisplayName("upsert: Donasi tanpa id (belum tersimpan) diabaikan; status null dianggap tersedia")
+    void testUpsertIgnoresMissingIdAndTreatsNullStatusAsAvailable() {
+        Donation unsaved = donation("Nasi", null, null);
+        unsaved.setId(null);
+        index.upsert(unsaved);
+        assertEquals(0, index.size());
+
+        Donation fresh = donation("Nasi", null, null);
+        fresh.setStatus(null);
+        index.upsert(fresh);
+        assertEquals(1, index.search("nasi", 10).size());
+    }
+
+    @Test
+    @DisplayName("availability & remove: Donasi BOOKED / terhapus tidak muncul; id tak dikenal diabaikan")
+    void testAvailabilityAndRemove() {
+        Donation a = donation("Nasi A", null, null);
+        Donation b = donation("Nasi B", null, null);
+        Donation booked = donation("Nasi C", null, null);
+        booked.setStatus(Donation.DonationStatus.BOOKED);
+        index.upsert(a);
+        index.upsert(b);
+        index.upsert(booked);
+
+        index.updateAvailability(a.getId(), false);
+        index.remove(b.getId());
+        index.remove(UUID.randomUUID());
+        index.updateAvailability(UUID.randomUUID(), true);
+
+        assertTrue(index.search("nasi", 10).isEmpty());
+        assertEquals(2, index.size());
+
+        index.updateAvailability(a.getId(), true);
+        assertEquals(List.of("Nasi A"), names(index.search("nasi", 10)));
+    }
+
+    @Test
+    @DisplayName("compaction: Banyak update/hapus -> tombstone dibersihkan, hasil tetap benar & urut")
+    void testCompactionKeepsResults() {
+        List<Donation> all = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Donation d = donation("Roti " + i, null, i % 2 == 0 ? "Genap" : "Ganjil");
+            all.add(d);
+            index.upsert(d);
+        }
+        for (int i = 0; i < 2900; i++) {
+            index.remove(all.get(i).getId());
+        }
+
+        assertEquals(100, index.size());
+        List<DonationSearchIndex.Hit> hits = index.search("roti genap", 1000);
+        assertEquals(50, hits.size());
+        assertEquals("Roti 2998", hits.get(0).name());
+        assertEquals("Roti 2900", hits.get(hits.size() - 1).name());
+
+        // Entri yang tersisa masih bisa di-update dan dihapus setelah compaction
+        index.remove(all.get(2999).getId());
+        index.updateAvailability(all.get(2998).getId(), false);
+        assertEquals("Roti 2997", index.search("roti", 1).get(0).name());
+    }
+
+    // ==========================================
+    // 3. REBUILD DARI DATABASE
+    // ==========================================
+
+    @Test
+    @DisplayName("rebuild: Membaca semua halaman keyset, hasil tetap terbaru dulu")
+    void testRebuildPagesThroughRepository() {
+        int total = DonationSearchIndex.REBUILD_BATCH_SIZE + 2;
+        List<Donation> newestFirst = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = total - 1; i >= 0; i--) {
+            Donation d = donation("Nasi " + i, null, null);
+            d.setCreatedAt(now.minusMinutes(total - i));
+            newestFirst.add(d);
+        }
+        int batch = DonationSearchIndex.REBUILD_BATCH_SIZE;
+        Donation lastOfFirstPage = newestFirst.get(batch - 1);
+        when(donationRepo.findFeedFirstPage(isNull(), any(Limit.class))).thenReturn(newestFirst.subList(0, batch));
+        when(donationRepo.findFeedPageAfter(isNull(), eq(lastOfFirstPage.getCreatedAt()), eq(lastOfFirstPage.getId()), any(Limit.class)))
+                .thenReturn(newestFirst.subList(batch, total));
+
+        index.upsert(donation("Sisa Lama", null, null)); // hilang setelah rebuild
+        index.rebuild();
+
+        assertEquals(total, index.size());
+        assertEquals(List.of("Nasi " + (total - 1), "Nasi " + (total - 2)), names(index.search("nasi", 2)));
+        assertTrue(index.search("sisa", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("rebuild: Perubahan selama rebuild diputar ulang ke index baru; rebuild ganda diabaikan")
+    void testRebuildReplaysConcurrentChanges() {
+        Donation inDb = donation("Nasi Lama", null, null);
+        Donation added = donation("Nasi Baru", null, null);
+        when(donationRepo.findFeedFirstPage(isNull(), any(Limit.class))).thenAnswer(inv -> {
+            // Terjadi di tengah rebuild: simpan baru, claim data lama, dan rebuild kedua
+            index.upsert(added);
+            index.updateAvailability(inDb.getId(), false);
+            index.rebuild();
+            return List.of(inDb);
+        });
+
+        index.rebuild();
+
+        assertEquals(2, index.size());
+        assertEquals(List.of("Nasi Baru"), names(index.search("nasi", 10)));
+    }
+
+    @Test
+    @DisplayName("rebuild: Gagal baca DB -> index lama tetap dipakai dan rebuild berikutnya bisa jalan")
+    void testRebuildFailureKeepsOldIndex() {
+        index.upsert(donation("Nasi", null, null));
+        when(donationRepo.findFeedFirstPage(isNull(), any(Limit.class)))
+                .thenThrow(new RuntimeException("db down"))
+                .thenReturn(List.of());
+
+        assertThrows(RuntimeException.class, () -> index.rebuild());
+        assertEquals(1, index.search("nasi", 10).size());
+
+        index.rebuild();
+        assertEquals(0, index.size());
+        assertThat(index.search("nasi", 10)).isEmpty();
+    }
+}
@@ -1,29 +1,55 @@
 package org.delcom.app.services;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.delcom.app.dto.DeletedDonationRow;
 import org.delcom.app.dto.DonationForm;
+import org.delcom.app.dto.DonationPage;
 import org.delcom.app.entities.Donation;
 import org.delcom.app.entities.User;
+import org.delcom.app.entities.DonationClaim;
+import org.delcom.app.entities.PhotoJob;
+import org.delcom.app.repositories.DonationClaimRepository;
 import org.delcom.app.repositories.DonationRepository;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.web.multipart.MultipartFile;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,9 +58,27 @@ class DonationServiceTest {
     @Mock
     private DonationRepository donationRepo;
 
+    @Mock
+    private PhotoJobService photoJobs;
+
     @Mock
     private FileStorageService fileService;
 
+    @Mock
+    private DonationSearchIndex searchIndex;
+
+    @Mock
+    private DonationStatsService statsService;
+
+    @Mock
+    private DonationClaimRepository claimRepo;
+
+    @Mock
+    private PortionReservationService reservations;
+
+    @Mock
+    private DonationExpiryService expiryService;
+
     @InjectMocks
     private DonationService donationService;
 
@@ -45,6 +89,15 @@ class DonationServiceTest {
         return user;
     }
 
+    // Baris hasil DELETE ... RETURNING
+    private DeletedDonationRow deletedRow(String photoUrl, Donation.DonationStatus status, Boolean isHalal) {
+        return new DeletedDonationRow() {
+            public String getPhotoUrl() { return photoUrl; }
+            public Donation.DonationStatus getStatus() { return status; }
+            public Boolean getIsHalal() { return isHalal; }
+        };
+    }
+
     private DonationForm createBasicForm() {
         DonationForm form = new DonationForm();
         form.setName("Test Food");
@@ -70,17 +123,23 @@ class DonationServiceTest {
         when(file.isEmpty()).thenReturn(false);
         form.setPhoto(file);
 
+        when(photoJobs.stage(file)).thenReturn("staged.png");
         when(donationRepo.save(any())).thenAnswer(i -> {
             Donation d = i.getArgument(0);
             if(d.getId() == null) d.setId(UUID.randomUUID());
             return d;
         });
-        when(fileService.storeFile(any(), any())).thenReturn("img.jpg");
 
         donationService.saveDonation(form, user);
 
-        verify(donationRepo, times(2)).save(any());
-        verify(fileService).storeFile(any(), any());
+        // Foto divalidasi sebelum INSERT; diantrekan untuk worker setelah pembukuan, photoUrl diisi belakangan
+        InOrder order = inOrder(photoJobs, donationRepo, searchIndex, statsService, expiryService);
+        order.verify(photoJobs).stage(file);
+        order.verify(donationRepo, times(1)).save(any());
+        order.verify(searchIndex).upsert(any(Donation.class));
+        order.verify(statsService).onCreated(eq(true), any());
+        order.verify(expiryService).schedule(any(UUID.class), any());
+        order.verify(photoJobs).enqueueStaged(any(UUID.class), eq("staged.png"));
     }
 
     @Test
@@ -96,7 +155,8 @@ class DonationServiceTest {
 
         donationService.saveDonation(form, user);
 
-        verify(fileService, never()).storeFile(any(), any());
+        verify(photoJobs, never()).stage(any());
+        verify(photoJobs, never()).enqueueStaged(any(), any());
     }
 
     @Test
@@ -110,7 +170,8 @@ class DonationServiceTest {
 
         donationService.saveDonation(form, user);
 
-        verify(fileService, never()).storeFile(any(), any());
+        verify(photoJobs, never()).stage(any());
+        verify(photoJobs, never()).enqueueStaged(any(), any());
     }
 
     @Test
@@ -122,14 +183,43 @@ class DonationServiceTest {
         when(file.isEmpty()).thenReturn(false);
         form.setPhoto(file);
 
-        when(donationRepo.save(any())).thenAnswer(i -> {
-            Donation d = i.getArgument(0);
-            d.setId(UUID.randomUUID());
-            return d;
-        });
-        doThrow(new IOException("Error")).when(fileService).storeFile(any(), any());
+        doThrow(new IOException("Error")).when(photoJobs).stage(any());
 
         assertThrows(RuntimeException.class, () -> donationService.saveDonation(form, user));
+        verify(donationRepo, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("save: Foto ditolak (tipe/ukuran) -> dilempar apa adanya, donasi tidak disimpan")
+    void testSave_PhotoRejected() throws Exception {
+        User user = createUser(UUID.randomUUID());
+        DonationForm form = createBasicForm();
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.isEmpty()).thenReturn(false);
+        form.setPhoto(file);
+        when(photoJobs.stage(file)).thenThrow(new FileStorageService.UnsupportedImageTypeException("Tipe file tidak didukung: text/html"));
+
+        assertThrows(FileStorageService.UnsupportedImageTypeException.class, () -> donationService.saveDonation(form, user));
+
+        verify(donationRepo, never()).save(any());
+        verifyNoInteractions(searchIndex, statsService, expiryService);
+    }
+
+    @Test
+    @DisplayName("save: INSERT gagal -> file staging dihapus, tidak diantrekan")
+    void testSave_InsertFailsDiscardsStaged() throws Exception {
+        User user = createUser(UUID.randomUUID());
+        DonationForm form = createBasicForm();
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.isEmpty()).thenReturn(false);
+        form.setPhoto(file);
+        when(photoJobs.stage(file)).thenReturn("staged.png");
+        when(donationRepo.save(any())).thenThrow(new RuntimeException("DB down"));
+
+        assertThrows(RuntimeException.class, () -> donationService.saveDonation(form, user));
+
+        verify(fileService).deleteFile(FileStorageService.STAGING_DIR + "/staged.png");
+        verify(photoJobs, never()).enqueueStaged(any(), any());
     }
 
     // ==========================================
@@ -197,13 +287,29 @@ class DonationServiceTest {
         when(file.isEmpty()).thenReturn(false);
         form.setPhoto(file);
 
+        when(photoJobs.stage(file)).thenReturn("staged.png");
         when(donationRepo.findById(id)).thenReturn(Optional.of(existing));
-        when(fileService.storeFile(any(), any())).thenReturn("updated.jpg");
+        when(donationRepo.updateDetails(eq(id), any(Donation.class), any(LocalDateTime.class))).thenReturn(1);
+        existing.setPhotoUrl("old.jpg");
 
         donationService.updateDonation(id, form, user);
 
-        verify(fileService).storeFile(any(), any());
-        assertEquals("updated.jpg", existing.getPhotoUrl());
+        // Foto divalidasi sebelum UPDATE; hanya kolom form yang di-UPDATE (bukan save() entity), lalu foto baru
+        // diantrekan setelah pembukuan; foto lama tetap tampil sampai worker selesai
+        ArgumentCaptor<Donation> changes = ArgumentCaptor.forClass(Donation.class);
+        InOrder order = inOrder(donationRepo, photoJobs, searchIndex);
+        order.verify(photoJobs).stage(file);
+        order.verify(donationRepo).updateDetails(eq(id), changes.capture(), any(LocalDateTime.class));
+        order.verify(searchIndex).upsert(existing);
+        order.verify(photoJobs).enqueueStaged(id, "staged.png");
+        verify(donationRepo, never()).save(any());
+        assertEquals("Test Food", changes.getValue().getName());
+        assertEquals("Test Food Desc Food Test Loc", changes.getValue().getSearchDocument());
+        assertEquals("old.jpg", existing.getPhotoUrl());
+        assertEquals("Test Food", existing.getName());
+        verify(searchIndex).upsert(existing);
+        verify(statsService).onHalalChanged(null, true);
+        verify(expiryService).schedule(eq(id), any());
     }
 
     @Test
@@ -219,9 +325,35 @@ class DonationServiceTest {
         form.setPhoto(null);
 
         when(donationRepo.findById(id)).thenReturn(Optional.of(existing));
+        when(donationRepo.updateDetails(eq(id), any(Donation.class), any(LocalDateTime.class))).thenReturn(1);
 
         donationService.updateDonation(id, form, user);
-        verify(fileService, never()).storeFile(any(), any());
+        verify(photoJobs, never()).stage(any());
+        verify(photoJobs, never()).enqueueStaged(any(), any());
+        // Porsi tetap 1 -> sisa porsi tidak disentuh
+        verify(donationRepo, never()).adjustRemainingPortion(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("update: Porsi berubah -> sisa porsi digeser atomik sebesar selisihnya")
+    void testUpdate_PortionChanged() {
+        UUID id = UUID.randomUUID();
+        User user = createUser(UUID.randomUUID());
+        Donation existing = new Donation();
+        existing.setId(id);
+        existing.setCreatedBy(user);
+        existing.setPortion(10);
+
+        DonationForm form = createBasicForm();
+        form.setPortion(4);
+
+        when(donationRepo.findById(id)).thenReturn(Optional.of(existing));
+        when(donationRepo.updateDetails(eq(id), any(Donation.class), any(LocalDateTime.class))).thenReturn(1);
+
+        donationService.updateDonation(id, form, user);
+
+        verify(donationRepo).adjustRemainingPortion(id, -6);
+        verify(reservations).invalidate(id);
     }
 
     @Test
@@ -239,9 +371,56 @@ class DonationServiceTest {
         form.setPhoto(file);
 
         when(donationRepo.findById(id)).thenReturn(Optional.of(existing));
+        when(donationRepo.updateDetails(eq(id), any(Donation.class), any(LocalDateTime.class))).thenReturn(1);
 
         donationService.updateDonation(id, form, user);
-        verify(fileService, never()).storeFile(any(), any());
+        verify(photoJobs, never()).stage(any());
+        verify(photoJobs, never()).enqueueStaged(any(), any());
+    }
+
+    @Test
+    @DisplayName("update: Waktu kedaluwarsa tidak diisi di form -> nilai lama ikut di-UPDATE")
+    void testUpdate_KeepsExpiredTime() {
+        UUID id = UUID.randomUUID();
+        User user = createUser(UUID.randomUUID());
+        LocalDateTime expiredTime = LocalDateTime.of(2030, 1, 1, 12, 0);
+        Donation existing = new Donation();
+        existing.setId(id);
+        existing.setCreatedBy(user);
+        existing.setExpiredTime(expiredTime);
+
+        when(donationRepo.findById(id)).thenReturn(Optional.of(existing));
+        when(donationRepo.updateDetails(eq(id), any(Donation.class), any(LocalDateTime.class))).thenReturn(1);
+
+        donationService.updateDonation(id, createBasicForm(), user);
+
+        ArgumentCaptor<Donation> changes = ArgumentCaptor.forClass(Donation.class);
+        verify(donationRepo).updateDetails(eq(id), changes.capture(), any(LocalDateTime.class));
+        assertEquals(expiredTime, changes.getValue().getExpiredTime());
+    }
+
+    @Test
+    @DisplayName("update: Donasi terhapus setelah dibaca (UPDATE 0 baris) -> error, foto tidak diantrekan")
+    void testUpdate_DeletedMeanwhile() throws Exception {
+        UUID id = UUID.randomUUID();
+        User user = createUser(UUID.randomUUID());
+        Donation existing = new Donation();
+        existing.setId(id);
+        existing.setCreatedBy(user);
+
+        DonationForm form = createBasicForm();
+        MultipartFile file = mock(MultipartFile.class);
+        form.setPhoto(file);
+
+        when(photoJobs.stage(file)).thenReturn("staged.png");
+        when(donationRepo.findById(id)).thenReturn(Optional.of(existing));
+        when(donationRepo.updateDetails(eq(id), any(Donation.class), any(LocalDateTime.class))).thenReturn(0);
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> donationService.updateDonation(id, form, user));
+        assertEquals("Donation not found", ex.getMessage());
+        verify(fileService).deleteFile(FileStorageService.STAGING_DIR + "/staged.png");
+        verify(photoJobs, never()).enqueueStaged(any(), any());
+        verifyNoInteractions(searchIndex);
     }
 
     @Test
@@ -269,6 +448,45 @@ class DonationServiceTest {
         );
     }
 
+    @Test
+    @DisplayName("replacePhoto: Pemilik -> body diteruskan ke antrean foto (streaming)")
+    void testReplacePhoto_Owner() throws Exception {
+        UUID id = UUID.randomUUID();
+        User user = createUser(UUID.randomUUID());
+        Donation existing = new Donation();
+        existing.setId(id);
+        existing.setCreatedBy(user);
+        InputStream body = new ByteArrayInputStream(new byte[] {1});
+        PhotoJob job = new PhotoJob(id, "x.png");
+
+        when(donationRepo.findById(id)).thenReturn(Optional.of(existing));
+        when(photoJobs.enqueueStream(id, body, "image/png", 1)).thenReturn(job);
+
+        assertEquals(job, donationService.replacePhoto(id, user, body, "image/png", 1));
+    }
+
+    @Test
+    @DisplayName("replacePhoto: Bukan pemilik / donasi tidak ada -> ditolak sebelum body dibaca")
+    void testReplacePhoto_Rejected() throws Exception {
+        UUID id = UUID.randomUUID();
+        Donation existing = new Donation();
+        existing.setCreatedBy(createUser(UUID.randomUUID()));
+        InputStream body = mock(InputStream.class);
+
+        when(donationRepo.findById(id)).thenReturn(Optional.of(existing));
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> donationService.replacePhoto(id, createUser(UUID.randomUUID()), body, "image/png", 1));
+        assertEquals("Unauthorized", ex.getMessage());
+
+        UUID missing = UUID.randomUUID();
+        when(donationRepo.findById(missing)).thenReturn(Optional.empty());
+        assertThrows(RuntimeException.class,
+                () -> donationService.replacePhoto(missing, createUser(UUID.randomUUID()), body, "image/png", 1));
+
+        verify(photoJobs, never()).enqueueStream(any(), any(), any(), anyLong());
+        verifyNoInteractions(body);
+    }
+
     @Test
     void testUpdate_UploadError() throws Exception {
         UUID id = UUID.randomUUID();
@@ -283,9 +501,34 @@ class DonationServiceTest {
         form.setPhoto(file);
 
         when(donationRepo.findById(id)).thenReturn(Optional.of(existing));
-        doThrow(new IOException("Fail")).when(fileService).storeFile(any(), any());
+        doThrow(new IOException("Fail")).when(photoJobs).stage(any());
 
         assertThrows(RuntimeException.class, () -> donationService.updateDonation(id, form, user));
+        verify(donationRepo, never()).updateDetails(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("update: Foto ditolak -> dilempar apa adanya sebelum UPDATE, pembukuan tidak tersentuh")
+    void testUpdate_PhotoRejected() throws Exception {
+        UUID id = UUID.randomUUID();
+        User user = createUser(UUID.randomUUID());
+        Donation existing = new Donation();
+        existing.setId(id);
+        existing.setCreatedBy(user);
+
+        DonationForm form = createBasicForm();
+        form.setPortion(3);
+        MultipartFile file = mock(MultipartFile.class);
+        form.setPhoto(file);
+
+        when(donationRepo.findById(id)).thenReturn(Optional.of(existing));
+        when(photoJobs.stage(file)).thenThrow(new FileStorageService.UploadTooLargeException("Ukuran file melebihi 10 byte"));
+
+        assertThrows(FileStorageService.UploadTooLargeException.class, () -> donationService.updateDonation(id, form, user));
+
+        verify(donationRepo, never()).updateDetails(any(), any(), any());
+        verify(donationRepo, never()).adjustRemainingPortion(any(), anyInt());
+        verifyNoInteractions(searchIndex, statsService, expiryService, reservations);
     }
 
     // ==========================================
@@ -293,42 +536,158 @@ class DonationServiceTest {
     // ==========================================
 
     @Test
-    @DisplayName("claim: Status AVAILABLE -> Success (True Branch)")
+    @DisplayName("claim: UPDATE bersyarat mengubah 1 baris -> pemenang (True Branch)")
     void testClaim_Success() {
         UUID id = UUID.randomUUID();
         User user = createUser(UUID.randomUUID());
-        Donation d = new Donation();
-        d.setStatus(Donation.DonationStatus.AVAILABLE);
 
-        when(donationRepo.findById(id)).thenReturn(Optional.of(d));
-        donationService.claimDonation(id, user);
+        when(donationRepo.claimIfAvailable(eq(id), eq(user), any(LocalDateTime.class),
+                eq(Donation.DonationStatus.AVAILABLE), eq(Donation.DonationStatus.BOOKED))).thenReturn(1);
 
-        assertEquals(Donation.DonationStatus.BOOKED, d.getStatus());
-        assertEquals(user, d.getClaimedBy());
-        verify(donationRepo).save(d);
+        assertTrue(donationService.claimDonation(id, user));
+        verify(reservations).invalidate(id);
+        verify(donationRepo, never()).findById(any());
+        verify(donationRepo, never()).save(any());
+        verify(searchIndex).updateAvailability(id, false);
+        verify(statsService).onStatusChanged(Donation.DonationStatus.AVAILABLE, Donation.DonationStatus.BOOKED, 1);
     }
 
     @Test
-    @DisplayName("claim: Status BOOKED -> Skip (False Branch)")
+    @DisplayName("claim: Sudah BOOKED / kalah cepat -> false, tanpa efek samping (False Branch)")
     void testClaim_AlreadyBooked() {
         UUID id = UUID.randomUUID();
-        Donation d = new Donation();
-        d.setStatus(Donation.DonationStatus.BOOKED); // NOT AVAILABLE
+        when(donationRepo.claimIfAvailable(eq(id), any(), any(), any(), any())).thenReturn(0);
+        when(donationRepo.existsById(id)).thenReturn(true);
 
-        when(donationRepo.findById(id)).thenReturn(Optional.of(d));
-        donationService.claimDonation(id, new User());
+        assertFalse(donationService.claimDonation(id, new User()));
 
-        // Save tidak boleh dipanggil
-        verify(donationRepo, never()).save(any());
+        verify(searchIndex, never()).updateAvailability(any(), eq(false));
+        verify(statsService, never()).onStatusChanged(any(), any(), anyLong());
     }
     
     @Test
     void testClaim_NotFound() {
         UUID id = UUID.randomUUID();
-        when(donationRepo.findById(id)).thenReturn(Optional.empty());
+        when(donationRepo.claimIfAvailable(eq(id), any(), any(), any(), any())).thenReturn(0);
+        when(donationRepo.existsById(id)).thenReturn(false);
         assertThrows(NoSuchElementException.class, () -> donationService.claimDonation(id, new User()));
     }
 
+    // ==========================================
+    // 4b. CLAIM SEBAGIAN (PER PORSI)
+    // ==========================================
+
+    private void stubPortionClaim(UUID id, int portions, int updated) {
+        when(donationRepo.claimPortionsIfAvailable(eq(id), eq(portions), any(LocalDateTime.class),
+                eq(Donation.DonationStatus.AVAILABLE), eq(Donation.DonationStatus.BOOKED))).thenReturn(updated);
+    }
+
+    @Test
+    @DisplayName("claimPortions: Porsi masih tersisa -> sukses, baris klaim tersimpan, status tetap AVAILABLE")
+    void testClaimPortions_Success() {
+        UUID id = UUID.randomUUID();
+        User user = createUser(UUID.randomUUID());
+        when(reservations.tryReserve(id, 2)).thenReturn(true);
+        stubPortionClaim(id, 2, 1);
+        when(donationRepo.findAvailablePortions(id, Donation.DonationStatus.AVAILABLE)).thenReturn(Optional.of(3));
+
+        assertTrue(donationService.claimPortions(id, user, 2));
+
+        verify(claimRepo).save(any(DonationClaim.class));
+        verify(searchIndex, never()).updateAvailability(any(), eq(false));
+        verify(statsService, never()).onStatusChanged(any(), any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("claimPortions: Mengambil porsi terakhir -> donasi menjadi BOOKED di index & statistik")
+    void testClaimPortions_LastPortion() {
+        UUID id = UUID.randomUUID();
+        User user = createUser(UUID.randomUUID());
+        when(reservations.tryReserve(id, 1)).thenReturn(true);
+        stubPortionClaim(id, 1, 1);
+        when(donationRepo.findAvailablePortions(id, Donation.DonationStatus.AVAILABLE)).thenReturn(Optional.of(0));
+
+        assertTrue(donationService.claimPortions(id, user, 1));
+
+        verify(searchIndex).updateAvailability(id, false);
+        verify(statsService).onStatusChanged(Donation.DonationStatus.AVAILABLE, Donation.DonationStatus.BOOKED, 1);
+    }
+
+    @Test
+    @DisplayName("claimPortions: Donasi hilang setelah UPDATE -> dianggap habis")
+    void testClaimPortions_RowGoneAfterUpdate() {
+        UUID id = UUID.randomUUID();
+        when(reservations.tryReserve(id, 1)).thenReturn(true);
+        stubPortionClaim(id, 1, 1);
+        when(donationRepo.findAvailablePortions(id, Donation.DonationStatus.AVAILABLE)).thenReturn(Optional.empty());
+
+        assertTrue(donationService.claimPortions(id, createUser(UUID.randomUUID()), 1));
+        verify(searchIndex).updateAvailability(id, false);
+    }
+
+    @Test
+    @DisplayName("claimPortions: Counter memori bilang habis -> ditolak tanpa UPDATE")
+    void testClaimPortions_RejectedInMemory() {
+        UUID id = UUID.randomUUID();
+        when(reservations.tryReserve(id, 5)).thenReturn(false);
+
+        assertFalse(donationService.claimPortions(id, createUser(UUID.randomUUID()), 5));
+
+        verify(donationRepo, never()).claimPortionsIfAvailable(any(), anyInt(), any(), any(), any());
+        verify(claimRepo, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("claimPortions: Database menolak (sisa tidak cukup) -> false, counter memori dibuang")
+    void testClaimPortions_DatabaseRejects() {
+        UUID id = UUID.randomUUID();
+        when(reservations.tryReserve(id, 3)).thenReturn(true);
+        stubPortionClaim(id, 3, 0);
+        when(donationRepo.existsById(id)).thenReturn(true);
+
+        assertFalse(donationService.claimPortions(id, createUser(UUID.randomUUID()), 3));
+
+        verify(reservations).invalidate(id);
+        verify(reservations, never()).release(any(), anyInt());
+        verify(claimRepo, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("claimPortions: Donasi tidak ada -> NoSuchElementException, pesanan memori dikembalikan")
+    void testClaimPortions_NotFound() {
+        UUID id = UUID.randomUUID();
+        User user = createUser(UUID.randomUUID());
+        when(reservations.tryReserve(id, 1)).thenReturn(true);
+        stubPortionClaim(id, 1, 0);
+        when(donationRepo.existsById(id)).thenReturn(false);
+
+        assertThrows(NoSuchElementException.class, () -> donationService.claimPortions(id, user, 1));
+        verify(reservations).release(id, 1);
+    }
+
+    @Test
+    @DisplayName("claimPortions: Gagal simpan baris klaim -> error diteruskan, pesanan memori dikembalikan")
+    void testClaimPortions_SaveFails() {
+        UUID id = UUID.randomUUID();
+        User user = createUser(UUID.randomUUID());
+        when(reservations.tryReserve(id, 2)).thenReturn(true);
+        stubPortionClaim(id, 2, 1);
+        when(claimRepo.save(any())).thenThrow(new RuntimeException("db down"));
+
+        assertThrows(RuntimeException.class, () -> donationService.claimPortions(id, user, 2));
+        verify(reservations).release(id, 2);
+    }
+
+    @Test
+    @DisplayName("claimPortions: Jumlah porsi < 1 -> ditolak")
+    void testClaimPortions_InvalidAmount() {
+        UUID id = UUID.randomUUID();
+        User user = createUser(UUID.randomUUID());
+
+        assertThrows(RuntimeException.class, () -> donationService.claimPortions(id, user, 0));
+        verify(reservations, never()).tryReserve(any(), anyInt());
+    }
+
     // ==========================================
     // 5. DELETE & GETTERS
     // ==========================================
@@ -341,8 +700,83 @@ class DonationServiceTest {
         d.setCreatedBy(user);
 
         when(donationRepo.findById(id)).thenReturn(Optional.of(d));
+        when(donationRepo.deleteReturningRow(id)).thenReturn(List.of(deletedRow(null, Donation.DonationStatus.AVAILABLE, true)));
         donationService.deleteDonation(id, user);
-        verify(donationRepo).delete(d);
+        verify(claimRepo).deleteByDonationId(id);
+        verify(donationRepo).deleteReturningRow(id);
+        verify(donationRepo, never()).delete(any());
+        verify(reservations).invalidate(id);
+        verify(searchIndex).remove(id);
+        verify(statsService).onDeleted(true, Donation.DonationStatus.AVAILABLE);
+        verifyNoInteractions(fileService);
+    }
+
+    @Test
+    @DisplayName("Delete: Referensi foto yang dilepas adalah photo_url saat baris dihapus, bukan hasil findById")
+    void testDelete_ReleasesPhoto() {
+        UUID id = UUID.randomUUID();
+        User user = createUser(UUID.randomUUID());
+        Donation d = new Donation();
+        d.setCreatedBy(user);
+        d.setPhotoUrl("ab/cd/lama.png"); // sudah diganti worker foto setelah dibaca
+
+        when(donationRepo.findById(id)).thenReturn(Optional.of(d));
+        when(donationRepo.deleteReturningRow(id)).thenReturn(List.of(deletedRow("ab/cd/abcd.png", Donation.DonationStatus.AVAILABLE, true)));
+        donationService.deleteDonation(id, user);
+
+        InOrder order = inOrder(donationRepo, fileService);
+        order.verify(donationRepo).deleteReturningRow(id);
+        order.verify(fileService).release("ab/cd/abcd.png");
+        verify(fileService, never()).release("ab/cd/lama.png");
+    }
+
+    @Test
+    @DisplayName("Delete: Statistik dikurangi dari status/halal saat baris dihapus, bukan hasil findById")
+    void testDelete_StatsFromDeletedRow() {
+        UUID id = UUID.randomUUID();
+        User user = createUser(UUID.randomUUID());
+        Donation d = new Donation();
+        d.setCreatedBy(user);
+        d.setIsHalal(true);
+        d.setStatus(Donation.DonationStatus.AVAILABLE); // sudah diklaim setelah dibaca
+
+        when(donationRepo.findById(id)).thenReturn(Optional.of(d));
+        when(donationRepo.deleteReturningRow(id)).thenReturn(List.of(deletedRow(null, Donation.DonationStatus.BOOKED, false)));
+        donationService.deleteDonation(id, user);
+
+        verify(statsService).onDeleted(false, Donation.DonationStatus.BOOKED);
+        verify(statsService, never()).onDeleted(true, Donation.DonationStatus.AVAILABLE);
+    }
+
+    @Test
+    @DisplayName("Delete: photoUrl kosong -> tidak ada yang dilepas")
+    void testDelete_EmptyPhotoUrl() {
+        UUID id = UUID.randomUUID();
+        User user = createUser(UUID.randomUUID());
+        Donation d = new Donation();
+        d.setCreatedBy(user);
+
+        when(donationRepo.findById(id)).thenReturn(Optional.of(d));
+        when(donationRepo.deleteReturningRow(id)).thenReturn(List.of(deletedRow("", Donation.DonationStatus.AVAILABLE, true)));
+        donationService.deleteDonation(id, user);
+
+        verifyNoInteractions(fileService);
+    }
+
+    @Test
+    @DisplayName("Delete: Request lain sudah menghapus lebih dulu -> foto & statistik tidak diproses dua kali")
+    void testDelete_AlreadyDeleted() {
+        UUID id = UUID.randomUUID();
+        User user = createUser(UUID.randomUUID());
+        Donation d = new Donation();
+        d.setCreatedBy(user);
+        d.setPhotoUrl("ab/cd/abcd.png");
+
+        when(donationRepo.findById(id)).thenReturn(Optional.of(d));
+        when(donationRepo.deleteReturningRow(id)).thenReturn(List.of());
+        donationService.deleteDonation(id, user);
+
+        verifyNoInteractions(fileService, statsService, searchIndex);
     }
 
     @Test
@@ -355,7 +789,9 @@ class DonationServiceTest {
 
         when(donationRepo.findById(id)).thenReturn(Optional.of(d));
         donationService.deleteDonation(id, other);
-        verify(donationRepo, never()).delete(any());
+        verify(donationRepo, never()).deleteReturningRow(any());
+        verify(searchIndex, never()).remove(any());
+        verify(statsService, never()).onDeleted(any(), any());
     }
     
     @Test
@@ -366,29 +802,149 @@ class DonationServiceTest {
     }
 
     @Test
-    void testGetAll() {
-        donationService.getAllDonations("key", true);
-        verify(donationRepo).searchDonations("key", true);
+    @DisplayName("suggest: Dilayani dari index in-memory dengan batas MAX_SUGGESTIONS")
+    void testSuggestDonations() {
+        List<DonationSearchIndex.Hit> hits = List.of(new DonationSearchIndex.Hit(UUID.randomUUID(), "Nasi Goreng"));
+        when(searchIndex.search("nas", DonationService.MAX_SUGGESTIONS)).thenReturn(hits);
+
+        assertEquals(hits, donationService.suggestDonations("nas"));
+        verifyNoInteractions(donationRepo);
     }
 
     @Test
     void testGetById_Found() {
         UUID id = UUID.randomUUID();
         Donation d = new Donation();
-        when(donationRepo.findById(id)).thenReturn(Optional.of(d));
+        when(donationRepo.findDetailById(id)).thenReturn(Optional.of(d));
         assertEquals(d, donationService.getById(id));
     }
 
     @Test
     void testGetById_NotFound() {
         UUID id = UUID.randomUUID();
-        when(donationRepo.findById(id)).thenReturn(Optional.empty());
+        when(donationRepo.findDetailById(id)).thenReturn(Optional.empty());
         assertThrows(RuntimeException.class, () -> donationService.getById(id));
     }
 
+    // ==========================================
+    // 6. FEED KEYSET PAGINATION
+    // ==========================================
+
+    private List<Donation> createFeedRows(int count) {
+        List<Donation> rows = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 12, 0);
+        for (int i = 0; i < count; i++) {
+            Donation d = new Donation();
+            d.setId(UUID.randomUUID());
+            d.setCreatedAt(start.minusMinutes(i));
+            rows.add(d);
+        }
+        return rows;
+    }
+
+    @Test
+    @DisplayName("page: Halaman pertama, masih ada data -> nextCursor terisi")
+    void testPage_FirstPage_HasNext() {
+        List<Donation> rows = createFeedRows(3);
+        when(donationRepo.findFeedFirstPage(null, Limit.of(3))).thenReturn(rows);
+
+        DonationPage page = donationService.getDonationPage(null, null, null, 2);
+
+        assertEquals(2, page.getItems().size());
+        assertTrue(page.hasNext());
+        assertNotNull(page.getNextCursor());
+    }
+
     @Test
-    void testCount() {
-        donationService.countHalal(false);
-        verify(donationRepo).countByIsHalal(false);
+    @DisplayName("page: Halaman terakhir -> nextCursor null")
+    void testPage_LastPage() {
+        List<Donation> rows = createFeedRows(2);
+        when(donationRepo.searchFeedFirstPage("nasi:*", true, 6)).thenReturn(rows);
+
+        DonationPage page = donationService.getDonationPage("  Nasi ", true, "", 5);
+
+        assertEquals(2, page.getItems().size());
+        assertFalse(page.hasNext());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("page: Cursor dari halaman sebelumnya dipakai sebagai posisi keyset")
+    void testPage_WithCursor() {
+        List<Donation> rows = createFeedRows(2);
+        when(donationRepo.findFeedFirstPage(null, Limit.of(2))).thenReturn(rows);
+        String cursor = donationService.getDonationPage(" ", null, null, 1).getNextCursor();
+
+        Donation last = rows.get(0);
+        when(donationRepo.findFeedPageAfter(null, last.getCreatedAt(), last.getId(), Limit.of(2)))
+                .thenReturn(List.of(rows.get(1)));
+
+        DonationPage next = donationService.getDonationPage(null, null, cursor, 1);
+
+        assertEquals(List.of(rows.get(1)), next.getItems());
+        assertFalse(next.hasNext());
+    }
+
+    @Test
+    @DisplayName("page: Keyword -> urut relevansi, cursor (rank, id) dipakai untuk halaman berikutnya")
+    void testPage_SearchWithCursor() {
+        List<Donation> rows = createFeedRows(3);
+        when(donationRepo.searchFeedFirstPage("roti:*", false, 3)).thenReturn(rows);
+        Donation last = rows.get(1);
+        when(donationRepo.findSearchRank("roti:*", last.getId())).thenReturn(Optional.of(0.0607927f));
+        String cursor = donationService.getDonationPage("roti", false, null, 2).getNextCursor();
+
+        when(donationRepo.searchFeedPageAfter("roti:*", false, 0.0607927f, last.getId(), 3))
+                .thenReturn(List.of(rows.get(2)));
+
+        DonationPage next = donationService.getDonationPage("roti", false, cursor, 2);
+
+        assertEquals(List.of(rows.get(2)), next.getItems());
+        assertFalse(next.hasNext());
+        verify(donationRepo, never()).findFeedPageAfter(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("page: Item terakhir terhapus sebelum rank-nya dibaca -> tanpa halaman berikutnya")
+    void testPage_SearchRankMissing() {
+        List<Donation> rows = createFeedRows(2);
+        when(donationRepo.searchFeedFirstPage("roti:*", null, 2)).thenReturn(rows);
+        when(donationRepo.findSearchRank("roti:*", rows.get(0).getId())).thenReturn(Optional.empty());
+
+        DonationPage page = donationService.getDonationPage("roti", null, null, 1);
+
+        assertEquals(List.of(rows.get(0)), page.getItems());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("page: Cursor feed dipakai saat mencari (atau sebaliknya) / rank tidak valid -> halaman pertama")
+    void testPage_CursorKindMismatch() {
+        List<Donation> rows = createFeedRows(2);
+        when(donationRepo.findFeedFirstPage(null, Limit.of(2))).thenReturn(rows);
+        String feedCursor = donationService.getDonationPage(null, null, null, 1).getNextCursor();
+        String rankCursor = Base64.getUrlEncoder().encodeToString(("0.5|" + rows.get(0).getId()).getBytes(StandardCharsets.UTF_8));
+        String nanCursor = Base64.getUrlEncoder().encodeToString(("NaN|" + rows.get(0).getId()).getBytes(StandardCharsets.UTF_8));
+
+        donationService.getDonationPage("roti", null, feedCursor, 1);
+        donationService.getDonationPage("roti", null, nanCursor, 1);
+        donationService.getDonationPage(null, null, rankCursor, 1);
+
+        verify(donationRepo, times(2)).searchFeedFirstPage("roti:*", null, 2);
+        verify(donationRepo, times(2)).findFeedFirstPage(null, Limit.of(2));
+        verify(donationRepo, never()).searchFeedPageAfter(any(), any(), anyFloat(), any(), anyInt());
+        verify(donationRepo, never()).findFeedPageAfter(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("page: Cursor rusak -> kembali ke halaman pertama")
+    void testPage_InvalidCursor() {
+        when(donationRepo.findFeedFirstPage(isNull(), eq(Limit.of(DonationService.MAX_PAGE_SIZE + 1))))
+                .thenReturn(List.of());
+
+        DonationPage page = donationService.getDonationPage(null, null, "bukan-cursor!!", 1000);
+
+        assertTrue(page.getItems().isEmpty());
+        verify(donationRepo, never()).findFeedPageAfter(any(), any(), any(), any());
     }
-}
\ No newline at end of file
+}
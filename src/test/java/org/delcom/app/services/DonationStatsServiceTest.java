@@ -0,0 +1,186 @@
+package org.delcom.app.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.delcom.app.dto.DonationCountRow;
+import org.delcom.app.dto.DonationStats;
+import org.delcom.app.entities.Donation;
+import org.delcom.app.repositories.DonationRepository;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DonationStatsServiceTest {
+
+    private final DonationRepository donationRepo = mock(DonationRepository.class);
+
+    // ==========================================
+    // 1. COUNTER IN-MEMORY
+    // ==========================================
+
+    @Test
+    @DisplayName("Counter: Create/delete/ubah halal/ubah status menggeser angka tanpa query")
+    void testCountersFollowStateChanges() {
+        when(donationRepo.countGroupedByHalalStatusCategory()).thenReturn(List.of());
+        DonationStatsService service = new DonationStatsService(donationRepo, 60_000);
+
+        service.onCreated(true, Donation.DonationStatus.AVAILABLE);
+        service.onCreated(true, Donation.DonationStatus.AVAILABLE);
+        service.onCreated(false, Donation.DonationStatus.AVAILABLE);
+        service.onCreated(null, null);                       // data tidak lengkap -> diabaikan
+        service.onHalalChanged(true, false);
+        service.onHalalChanged(false, false);                // tidak berubah
+        service.onHalalChanged(null, null);
+        service.onStatusChanged(Donation.DonationStatus.AVAILABLE, Donation.DonationStatus.BOOKED, 1);
+        service.onStatusChanged(Donation.DonationStatus.BOOKED, Donation.DonationStatus.BOOKED, 1);
+        service.onDeleted(false, Donation.DonationStatus.AVAILABLE);
+
+        assertEquals(1, service.getHalalCount(true));
+        assertEquals(1, service.getHalalCount(false));
+        DonationStats stats = service.getStats();
+        assertEquals(2, stats.getTotal());
+        assertEquals(1, stats.getStatusCount(Donation.DonationStatus.AVAILABLE));
+        assertEquals(1, stats.getStatusCount(Donation.DonationStatus.BOOKED));
+        assertEquals(0, stats.getStatusCount(Donation.DonationStatus.EXPIRED));
+        verify(donationRepo, times(1)).countGroupedByHalalStatusCategory(); // hanya untuk kategori
+    }
+
+    @Test
+    @DisplayName("Counter: Tidak pernah tampil negatif walau sempat drift")
+    void testCountersNeverNegative() {
+        when(donationRepo.countGroupedByHalalStatusCategory()).thenReturn(List.of());
+        DonationStatsService service = new DonationStatsService(donationRepo, 60_000);
+
+        service.onDeleted(true, Donation.DonationStatus.AVAILABLE);
+
+        assertEquals(0, service.getHalalCount(true));
+        assertEquals(0, service.getStats().getTotal());
+    }
+
+    @Test
+    @DisplayName("Counter: Aman untuk update bersamaan dari banyak thread")
+    void testConcurrentUpdates() throws Exception {
+        DonationStatsService service = new DonationStatsService(donationRepo, 60_000);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    service.onCreated(true, Donation.DonationStatus.AVAILABLE);
+                    service.onStatusChanged(Donation.DonationStatus.AVAILABLE, Donation.DonationStatus.BOOKED, 1);
+                }
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertEquals(80_000, service.getHalalCount(true));
+        when(donationRepo.countGroupedByHalalStatusCategory()).thenReturn(List.of());
+        assertEquals(80_000, service.getStats().getStatusCount(Donation.DonationStatus.BOOKED));
+        assertEquals(0, service.getStats().getStatusCount(Donation.DonationStatus.AVAILABLE));
+    }
+
+    // ==========================================
+    // 2. REKONSILIASI
+    // ==========================================
+
+    @Test
+    @DisplayName("reconcile: Counter disamakan dengan database (startup / setelah drift)")
+    void testReconcileCorrectsDrift() {
+        when(donationRepo.countGroupedByHalalStatusCategory()).thenReturn(List.of(
+                new DonationCountRow(true, Donation.DonationStatus.AVAILABLE, "Makanan Berat", 4),
+                new DonationCountRow(true, Donation.DonationStatus.BOOKED, "Makanan Berat ", 2),
+                new DonationCountRow(false, Donation.DonationStatus.AVAILABLE, "Snack", 3),
+                new DonationCountRow(null, null, null, 1),
+                new DonationCountRow(false, Donation.DonationStatus.EXPIRED, " ", 1)));
+        DonationStatsService service = new DonationStatsService(donationRepo, 60_000);
+        // Drift: counter mencatat perubahan yang tidak pernah tersimpan
+        for (int i = 0; i < 20; i++) {
+            service.onCreated(true, Donation.DonationStatus.BOOKED);
+        }
+
+        service.reconcile();
+        DonationStats stats = service.getStats();
+
+        assertEquals(10, stats.getTotal());
+        assertEquals(6, stats.getHalalCount());
+        assertEquals(4, stats.getNonHalalCount());
+        assertEquals(7, stats.getStatusCount(Donation.DonationStatus.AVAILABLE));
+        assertEquals(2, stats.getStatusCount(Donation.DonationStatus.BOOKED));
+        assertEquals(1, stats.getStatusCount(Donation.DonationStatus.EXPIRED));
+        assertEquals(List.of("Makanan Berat", "Snack", DonationStatsService.UNCATEGORIZED),
+                List.copyOf(stats.getCategoryCounts().keySet()));
+        assertEquals(6L, stats.getCategoryCounts().get("Makanan Berat"));
+        assertEquals(2L, stats.getCategoryCounts().get(DonationStatsService.UNCATEGORIZED));
+        // Kategori sudah terisi oleh rekonsiliasi -> getStats tidak query lagi
+        verify(donationRepo, times(1)).countGroupedByHalalStatusCategory();
+    }
+
+    @Test
+    @DisplayName("reconcile: Perubahan setelah rekonsiliasi tetap dihitung di atas nilai database")
+    void testChangesAfterReconcileAreKept() {
+        when(donationRepo.countGroupedByHalalStatusCategory()).thenReturn(List.of(
+                new DonationCountRow(true, Donation.DonationStatus.AVAILABLE, "Snack", 5)));
+        DonationStatsService service = new DonationStatsService(donationRepo, 60_000);
+
+        service.reconcile();
+        service.onCreated(true, Donation.DonationStatus.AVAILABLE);
+
+        assertEquals(6, service.getHalalCount(true));
+        assertEquals(6, service.getStats().getStatusCount(Donation.DonationStatus.AVAILABLE));
+    }
+
+    // ==========================================
+    // 3. CACHE KATEGORI (TTL)
+    // ==========================================
+
+    @Test
+    @DisplayName("getStats: Dalam TTL -> kategori dari cache, tidak query ulang")
+    void testCategoriesCachedWithinTtl() {
+        when(donationRepo.countGroupedByHalalStatusCategory()).thenReturn(List.of());
+        DonationStatsService service = new DonationStatsService(donationRepo, 60_000);
+
+        DonationStats first = service.getStats();
+        DonationStats second = service.getStats();
+
+        assertSame(first.getCategoryCounts(), second.getCategoryCounts());
+        assertEquals(0, first.getCategoryCounts().size());
+        verify(donationRepo, times(1)).countGroupedByHalalStatusCategory();
+    }
+
+    @Test
+    @DisplayName("getStats: TTL habis -> kategori dihitung ulang")
+    void testCategoriesReloadAfterTtl() {
+        when(donationRepo.countGroupedByHalalStatusCategory()).thenReturn(List.of());
+        DonationStatsService service = new DonationStatsService(donationRepo, 0);
+
+        service.getStats();
+        service.getStats();
+
+        verify(donationRepo, times(2)).countGroupedByHalalStatusCategory();
+    }
+
+    @Test
+    @DisplayName("getHalalCount: O(1), tidak pernah menyentuh database")
+    void testHalalCountWithoutQuery() {
+        DonationStatsService service = new DonationStatsService(donationRepo, 60_000);
+        service.onCreated(false, Donation.DonationStatus.AVAILABLE);
+
+        assertEquals(1, service.getHalalCount(false));
+        verify(donationRepo, never()).countGroupedByHalalStatusCategory();
+    }
+}
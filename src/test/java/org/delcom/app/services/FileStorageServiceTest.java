@@ -2,26 +2,49 @@ package org.delcom.app.services;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import org.delcom.app.entities.PhotoBlob;
+import org.delcom.app.repositories.PhotoBlobRepository;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.InOrder;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
-import org.springframework.web.multipart.MultipartFile;
 
 class FileStorageServiceTest {
 
     private FileStorageService fileService;
+    private final PhotoBlobRepository blobRepository = mock(PhotoBlobRepository.class);
+    private final ImageVariantService imageVariants = mock(ImageVariantService.class);
 
     @TempDir
     Path tempDir;
@@ -30,77 +53,284 @@ class FileStorageServiceTest {
     void setUp() {
         fileService = new FileStorageService();
         ReflectionTestUtils.setField(fileService, "uploadDir", tempDir.toString());
+        ReflectionTestUtils.setField(fileService, "blobRepository", blobRepository);
+        ReflectionTestUtils.setField(fileService, "imageVariants", imageVariants);
     }
 
     // ==========================================
-    // 1. TEST STORE FILE (Fokus Coverage)
+    // 1. TEST STAGING (antrean foto / PhotoJobService)
     // ==========================================
 
     @Test
-    @DisplayName("Store File: Normal (Ada Ekstensi) -> Masuk blok IF")
-    void testStoreFile_WithExtension() throws IOException {
-        UUID id = UUID.randomUUID();
-        MockMultipartFile file = new MockMultipartFile(
-                "photo", "avatar.png", "image/png", "content".getBytes());
+    @DisplayName("Stage File: Disimpan di folder staging, ekstensi dari tipe yang terverifikasi")
+    void testStageFile() throws IOException {
+        UUID stagingId = UUID.randomUUID();
+        byte[] data = png(100);
+        MockMultipartFile file = new MockMultipartFile("photo", "makan.PNG", "image/png", data);
+
+        String staged = fileService.stageFile(file, stagingId);
 
-        String result = fileService.storeFile(file, id);
+        assertEquals(stagingId + ".png", staged);
+        assertArrayEquals(data, Files.readAllBytes(tempDir.resolve(FileStorageService.STAGING_DIR).resolve(staged)));
+    }
+
+    @Test
+    @DisplayName("Stage File: Nama file kiriman client tidak menentukan ekstensi (mis. .html)")
+    void testStageFile_IgnoresClientExtension() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("photo", "foto.html", "image/png", png(100));
 
-        assertEquals("cover_" + id + ".png", result);
-        assertTrue(Files.exists(tempDir.resolve(result)));
+        assertTrue(fileService.stageFile(file, UUID.randomUUID()).endsWith(".png"));
     }
 
     @Test
-    @DisplayName("Store File: Tanpa Ekstensi -> Tidak masuk blok IF (Kanan False)")
-    void testStoreFile_NoExtension() throws IOException {
+    @DisplayName("Stage File: Tipe tidak didukung / isi bukan gambar / terlalu besar -> ditolak, staging bersih")
+    void testStageFile_Rejected() throws IOException {
         UUID id = UUID.randomUUID();
-        // "avatar" tidak punya titik
-        MockMultipartFile file = new MockMultipartFile(
-                "photo", "avatar", "image/png", "content".getBytes());
+        byte[] html = "<html><script>alert(1)</script></html>".getBytes(StandardCharsets.UTF_8);
 
-        String result = fileService.storeFile(file, id);
+        assertThrows(FileStorageService.UnsupportedImageTypeException.class,
+                () -> fileService.stageFile(new MockMultipartFile("photo", "x.html", "text/html", html), id));
+        assertThrows(FileStorageService.UnsupportedImageTypeException.class,
+                () -> fileService.stageFile(new MockMultipartFile("photo", "x.png", null, png(100)), id));
+        assertThrows(FileStorageService.UnsupportedImageTypeException.class,
+                () -> fileService.stageFile(new MockMultipartFile("photo", "x.png", "image/png", html), id));
 
-        // Ekstensi kosong
-        assertEquals("cover_" + id, result);
-        assertTrue(Files.exists(tempDir.resolve(result)));
+        ReflectionTestUtils.setField(fileService, "maxUploadBytes", 50L);
+        assertThrows(FileStorageService.UploadTooLargeException.class,
+                () -> fileService.stageFile(new MockMultipartFile("photo", "x.png", "image/png", png(100)), id));
+        assertTrue(stagingFiles().isEmpty());
+    }
+
+    private String stage(String name, String content) throws IOException {
+        Path staging = Files.createDirectories(tempDir.resolve(FileStorageService.STAGING_DIR));
+        Files.writeString(staging.resolve(name), content);
+        return name;
+    }
+
+    private static String sha256(String content) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(
+                MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
     }
 
     @Test
-    @DisplayName("Store File: Filename NULL -> Tidak masuk blok IF (Kiri False)")
-    void testStoreFile_NullFilename() throws IOException {
-        // --- PERBAIKAN UTAMA DI SINI ---
-        // Kita TIDAK BISA pakai MockMultipartFile karena dia mengubah null jadi ""
-        // Kita harus pakai Mockito untuk memaksa return null asli.
-        
-        UUID id = UUID.randomUUID();
-        MultipartFile mockFile = mock(MultipartFile.class);
-        
-        // Paksa return null
-        when(mockFile.getOriginalFilename()).thenReturn(null);
-        // Mock getInputStream supaya tidak Error NullPointerException saat copy
-        when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream("dummy".getBytes()));
+    @DisplayName("Promote: Nama file = SHA-256 isi, dibagi ke subfolder ab/cd/, staging dikosongkan")
+    void testPromoteStaged() throws Exception {
+        UUID jobId = UUID.randomUUID();
+        when(blobRepository.acquire(any(), any(), any(), any())).thenAnswer(inv -> List.of((String) inv.getArgument(1)));
+        String hash = sha256("baru");
+        String staged = stage("a.png", "baru");
+
+        String filename = fileService.acquireStaged(jobId, staged);
+        fileService.promoteStaged(staged, filename);
+
+        assertEquals(hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + ".png", filename);
+        assertEquals("baru", Files.readString(tempDir.resolve(filename)));
+        assertFalse(Files.exists(tempDir.resolve(FileStorageService.STAGING_DIR).resolve("a.png")));
+        verify(blobRepository).acquire(eq(hash), eq(filename), eq(jobId), any());
+    }
+
+    @Test
+    @DisplayName("Promote: Isi sama (ekstensi beda) -> memakai file yang sudah ada, tidak disimpan dua kali")
+    void testPromoteStaged_Duplicate() throws Exception {
+        String existing = FileStorageService.contentName(sha256("sama"), ".png");
+        when(blobRepository.acquire(eq(sha256("sama")), any(), any(), any())).thenReturn(List.of(existing));
+        Files.createDirectories(tempDir.resolve(existing).getParent());
+        Files.writeString(tempDir.resolve(existing), "sama");
+        String staged = stage("b.jpg", "sama");
+
+        assertEquals(existing, fileService.acquireStaged(UUID.randomUUID(), staged));
+        fileService.promoteStaged(staged, existing);
+
+        assertEquals("sama", Files.readString(tempDir.resolve(existing)));
+        try (Stream<Path> files = Files.list(tempDir.resolve(existing).getParent())) {
+            assertEquals(1, files.count());
+        }
+        assertTrue(stagingFiles().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Acquire: photo_file job sudah tercatat -> null; file staging tidak ada -> IOException tanpa referensi")
+    void testAcquireStaged_AlreadyAcquiredOrMissing() throws Exception {
+        when(blobRepository.acquire(any(), any(), any(), any())).thenReturn(List.of());
+
+        assertNull(fileService.acquireStaged(UUID.randomUUID(), stage("c.png", "isi")));
+
+        assertThrows(IOException.class, () -> fileService.acquireStaged(UUID.randomUUID(), "hilang.png"));
+        verify(blobRepository, times(1)).acquire(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Promote ulang: Staging sudah dipindah & target ada -> dilewati; keduanya tidak ada -> IOException")
+    void testPromoteStaged_Retry() throws Exception {
+        String staged = stage("d.png", "isi");
+        String filename = FileStorageService.contentName(sha256("isi"), ".png");
+        fileService.promoteStaged(staged, filename);
+
+        // Percobaan sebelumnya gagal setelah file dipindah
+        fileService.promoteStaged(staged, filename);
+        assertEquals("isi", Files.readString(tempDir.resolve(filename)));
+
+        assertThrows(IOException.class, () -> fileService.promoteStaged("hilang.png", "ab/cd/hilang.png"));
+        verifyNoInteractions(blobRepository);
+    }
+
+    // ==========================================
+    // 1b. TEST UPLOAD STREAMING (PUT body mentah)
+    // ==========================================
+
+    private static final byte[] PNG_HEADER = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D};
+
+    private static byte[] png(int size) {
+        byte[] data = new byte[size];
+        System.arraycopy(PNG_HEADER, 0, data, 0, PNG_HEADER.length);
+        for (int i = PNG_HEADER.length; i < size; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    // Body yang datang sedikit demi sedikit (seperti jaringan lambat)
+    private static InputStream trickle(byte[] data, int bytesPerRead) {
+        return new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, bytesPerRead));
+            }
+        };
+    }
+
+    private List<Path> stagingFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir.resolve(FileStorageService.STAGING_DIR))) {
+            return files.toList();
+        }
+    }
+
+    @Test
+    @DisplayName("Stream: Body dialirkan ke staging, nama final sesuai tipe, tanpa file .part tersisa")
+    void testStageStream() throws IOException {
+        UUID stagingId = UUID.randomUUID();
+        byte[] data = png(3 * 1024 * 1024 + 7); // lebih dari satu chunk transferFrom
 
-        // Act
-        String result = fileService.storeFile(mockFile, id);
+        String staged = fileService.stageStream(trickle(data, 5000), "image/png; charset=binary", data.length, stagingId);
 
-        // Assert
-        // Karena null, ekstensi defaultnya "" (kosong)
-        assertEquals("cover_" + id, result);
-        assertTrue(Files.exists(tempDir.resolve(result)));
+        assertEquals(stagingId + ".png", staged);
+        assertArrayEquals(data, Files.readAllBytes(tempDir.resolve(FileStorageService.STAGING_DIR).resolve(staged)));
+        assertEquals(1, stagingFiles().size());
     }
 
     @Test
-    @DisplayName("Store File: Auto Create Directory")
-    void testStoreFile_CreatesDirectory() throws IOException {
-        Path subDir = tempDir.resolve("new-folder");
-        ReflectionTestUtils.setField(fileService, "uploadDir", subDir.toString());
+    @DisplayName("Stream: Signature dicek walau byte awal datang satu per satu; tiap tipe dikenali")
+    void testStageStream_SignaturePerType() throws IOException {
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10, 'J', 'F', 'I', 'F', 0, 1, 1};
+        byte[] gif = "GIF89a\u0001\u0000\u0001\u0000\u0000\u0000".getBytes(StandardCharsets.ISO_8859_1);
+        byte[] webp = "RIFF\u0000\u0000\u0000\u0000WEBPVP8 ".getBytes(StandardCharsets.ISO_8859_1);
 
+        assertTrue(fileService.stageStream(trickle(jpeg, 1), "image/jpeg", -1, UUID.randomUUID()).endsWith(".jpg"));
+        assertTrue(fileService.stageStream(trickle(gif, 1), "IMAGE/GIF", -1, UUID.randomUUID()).endsWith(".gif"));
+        assertTrue(fileService.stageStream(trickle(webp, 1), "image/webp", -1, UUID.randomUUID()).endsWith(".webp"));
+    }
+
+    @Test
+    @DisplayName("Stream: Content-Length melebihi batas -> ditolak sebelum body dibaca")
+    void testStageStream_DeclaredTooLarge() {
+        ReflectionTestUtils.setField(fileService, "maxUploadBytes", 1024L);
+        InputStream body = mock(InputStream.class);
+
+        assertThrows(FileStorageService.UploadTooLargeException.class,
+                () -> fileService.stageStream(body, "image/png", 1025, UUID.randomUUID()));
+        verifyNoInteractions(body);
+    }
+
+    @Test
+    @DisplayName("Stream: Tanpa Content-Length, body melebihi batas -> berhenti di batas, file sementara dihapus")
+    void testStageStream_StreamedTooLarge() throws IOException {
+        ReflectionTestUtils.setField(fileService, "maxUploadBytes", 1024L);
+        ByteArrayInputStream body = new ByteArrayInputStream(png(10_000));
+
+        assertThrows(FileStorageService.UploadTooLargeException.class,
+                () -> fileService.stageStream(body, "image/png", -1, UUID.randomUUID()));
+        // Tidak membaca lebih dari batas + 1 byte
+        assertEquals(10_000 - 1025, body.available());
+        assertTrue(stagingFiles().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Stream: Tipe tidak didukung, isi tidak cocok dengan tipe, atau body kosong -> ditolak")
+    void testStageStream_UnsupportedType() throws IOException {
         UUID id = UUID.randomUUID();
-        MockMultipartFile file = new MockMultipartFile("photo", "t.txt", "text/plain", "b".getBytes());
+        assertThrows(FileStorageService.UnsupportedImageTypeException.class,
+                () -> fileService.stageStream(new ByteArrayInputStream(png(100)), "text/plain", 100, id));
+        assertThrows(FileStorageService.UnsupportedImageTypeException.class,
+                () -> fileService.stageStream(new ByteArrayInputStream(png(100)), null, 100, id));
+        assertThrows(FileStorageService.UnsupportedImageTypeException.class,
+                () -> fileService.stageStream(new ByteArrayInputStream(png(100)), "image/jpeg", 100, id));
+        assertThrows(FileStorageService.UnsupportedImageTypeException.class,
+                () -> fileService.stageStream(new ByteArrayInputStream("RIFF0000WAVE".getBytes()), "image/webp", 12, id));
+        assertThrows(FileStorageService.UnsupportedImageTypeException.class,
+                () -> fileService.stageStream(new ByteArrayInputStream(new byte[0]), "image/gif", 0, id));
+        assertTrue(stagingFiles().isEmpty());
+    }
+
+    // ==========================================
+    // 1c. RELEASE (REFERENCE COUNT)
+    // ==========================================
 
-        fileService.storeFile(file, id);
+    @Test
+    @DisplayName("Lebar varian: Dibaca & dicatat di baris photo_blobs; belum dicatat -> null")
+    void testVariantWidths() {
+        when(blobRepository.findVariantWidths("ab/cd/abcd.png")).thenReturn(Optional.of("400,800"));
+        when(blobRepository.findVariantWidths("ab/cd/baru.png")).thenReturn(Optional.empty());
+
+        assertEquals("400,800", fileService.findVariantWidths("ab/cd/abcd.png"));
+        assertNull(fileService.findVariantWidths("ab/cd/baru.png"));
 
-        assertTrue(Files.exists(subDir));
-        assertTrue(Files.exists(subDir.resolve("cover_" + id + ".txt")));
+        fileService.recordVariantWidths("ab/cd/baru.png", "400");
+        verify(blobRepository).updateVariantWidths(eq("ab/cd/baru.png"), eq("400"), any());
+    }
+
+    @Test
+    @DisplayName("Release: Masih dipakai donasi lain -> refCount berkurang, file tetap")
+    void testRelease_StillReferenced() throws IOException {
+        PhotoBlob blob = new PhotoBlob("abcd", "ab/cd/abcd.png", 2);
+        when(blobRepository.findByFilename("ab/cd/abcd.png")).thenReturn(Optional.of(blob));
+        Files.createDirectories(tempDir.resolve("ab/cd"));
+        Files.writeString(tempDir.resolve("ab/cd/abcd.png"), "isi");
+
+        assertFalse(fileService.release("ab/cd/abcd.png"));
+
+        assertEquals(1, blob.getRefCount());
+        assertTrue(Files.exists(tempDir.resolve("ab/cd/abcd.png")));
+        verify(blobRepository, never()).delete(any());
+        verifyNoInteractions(imageVariants);
+    }
+
+    @Test
+    @DisplayName("Release: Referensi terakhir -> baris, varian & file dihapus")
+    void testRelease_LastReference() throws IOException {
+        PhotoBlob blob = new PhotoBlob("abcd", "ab/cd/abcd.png", 1);
+        when(blobRepository.findByFilename("ab/cd/abcd.png")).thenReturn(Optional.of(blob));
+        Files.createDirectories(tempDir.resolve("ab/cd"));
+        Files.writeString(tempDir.resolve("ab/cd/abcd.png"), "isi");
+
+        assertTrue(fileService.release("ab/cd/abcd.png"));
+
+        InOrder order = inOrder(blobRepository, imageVariants);
+        order.verify(blobRepository).delete(blob);
+        order.verify(blobRepository).flush();
+        order.verify(imageVariants).deleteVariants("ab/cd/abcd.png");
+        assertFalse(Files.exists(tempDir.resolve("ab/cd/abcd.png")));
+    }
+
+    @Test
+    @DisplayName("Release: Foto lama tanpa baris photo_blobs -> langsung dihapus; varian gagal dihapus tidak menghalangi")
+    void testRelease_Legacy() throws IOException {
+        when(blobRepository.findByFilename("cover_x.png")).thenReturn(Optional.empty());
+        doThrow(new IOException("izin ditolak")).when(imageVariants).deleteVariants("cover_x.png");
+        Files.writeString(tempDir.resolve("cover_x.png"), "isi");
+
+        assertTrue(fileService.release("cover_x.png"));
+        assertFalse(Files.exists(tempDir.resolve("cover_x.png")));
+        verify(blobRepository, never()).delete(any());
     }
 
     // ==========================================
@@ -119,6 +349,36 @@ class FileStorageServiceTest {
         assertFalse(fileService.fileExists("missing.txt"));
     }
 
+    @Test
+    @DisplayName("Servable: Hanya file biasa di folder upload; traversal, staging & folder ditolak")
+    void testLoadServableFile() throws IOException {
+        Files.createDirectories(tempDir.resolve("ab/cd"));
+        Files.writeString(tempDir.resolve("ab/cd/foto.png"), "isi");
+        stage("antre.png", "isi");
+
+        assertEquals(tempDir.resolve("ab/cd/foto.png").toAbsolutePath().normalize(),
+                fileService.loadServableFile("ab/cd/foto.png"));
+        assertNull(fileService.loadServableFile("ab/cd/../cd/tidak-ada.png"));
+        assertNull(fileService.loadServableFile("../".repeat(tempDir.getNameCount()) + "etc/passwd"));
+        assertNull(fileService.loadServableFile(FileStorageService.STAGING_DIR + "/antre.png"));
+        assertNull(fileService.loadServableFile("ab/cd"));
+        assertNull(fileService.loadServableFile(""));
+        assertNull(fileService.loadServableFile("nul\0.png"));
+    }
+
+    @Test
+    @DisplayName("Content-addressed: Nama hash & variannya dikenali, nama lama tidak")
+    void testIsContentAddressed() {
+        String hash = "ab12" + "f".repeat(60);
+
+        assertTrue(FileStorageService.isContentAddressed(FileStorageService.contentName(hash, ".png")));
+        assertTrue(FileStorageService.isContentAddressed(FileStorageService.contentName(hash, "")));
+        assertTrue(FileStorageService.isContentAddressed("ab/12/" + hash + "_w400.jpg"));
+        assertFalse(FileStorageService.isContentAddressed("cd/12/" + hash + ".png")); // shard tidak cocok
+        assertFalse(FileStorageService.isContentAddressed("cover_" + hash + ".png"));
+        assertFalse(FileStorageService.isContentAddressed("ab/12/" + hash.substring(1) + ".png"));
+    }
+
     // ==========================================
     // 3. TEST DELETE FILE
     // ==========================================
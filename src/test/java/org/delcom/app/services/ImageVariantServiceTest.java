@@ -0,0 +1,279 @@
+package org.delcom.app.services;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ImageVariantServiceTest {
+
+    private ImageVariantService service;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        service = new ImageVariantService();
+        ReflectionTestUtils.setField(service, "uploadDir", tempDir.toString());
+    }
+
+    @Test
+    @DisplayName("Generate: Foto besar -> 3 varian, lebar sesuai, thumbnail jauh lebih kecil dari asli")
+    void testGenerate_LargePhoto() throws IOException {
+        writeImage("cover_a.jpg", photo(2400, 1600), "jpg");
+
+        List<Integer> widths = service.generate("cover_a.jpg");
+
+        assertEquals(List.of(400, 800, 1600), widths);
+        assertEquals(400, readWidth("cover_a_w400.jpg"));
+        assertEquals(267, ImageIO.read(tempDir.resolve("cover_a_w400.jpg").toFile()).getHeight());
+        assertEquals(800, readWidth("cover_a_w800.jpg"));
+        assertEquals(1600, readWidth("cover_a_w1600.jpg"));
+        // Byte per kartu list turun minimal satu orde besaran
+        long original = Files.size(tempDir.resolve("cover_a.jpg"));
+        long thumb = Files.size(tempDir.resolve("cover_a_w400.jpg"));
+        assertTrue(thumb * 10 < original, "thumb " + thumb + " B vs asli " + original + " B");
+        assertFalse(Files.exists(tempDir.resolve("cover_a_w400.jpg.tmp")));
+    }
+
+    @Test
+    @DisplayName("Generate: Foto kecil (PNG transparan) -> tidak diperbesar, hanya varian terkecil")
+    void testGenerate_SmallPhotoNotUpscaled() throws IOException {
+        writeImage("cover_b.png", new BufferedImage(300, 200, BufferedImage.TYPE_INT_ARGB), "png");
+
+        assertEquals(List.of(400), service.generate("cover_b.png"));
+        BufferedImage thumb = ImageIO.read(tempDir.resolve("cover_b_w400.jpg").toFile());
+        assertEquals(300, thumb.getWidth());
+        // Alpha diganti latar putih
+        Color center = new Color(thumb.getRGB(150, 100));
+        assertTrue(center.getRed() > 240 && center.getGreen() > 240 && center.getBlue() > 240);
+    }
+
+    @Test
+    @DisplayName("Generate: Foto sangat besar -> di-decode dengan subsampling, varian tetap benar")
+    void testGenerate_SubsampledDecode() throws IOException {
+        writeImage("cover_h.png", new BufferedImage(6400, 100, BufferedImage.TYPE_INT_RGB), "png");
+
+        assertEquals(List.of(400, 800, 1600), service.generate("cover_h.png"));
+        assertEquals(1600, readWidth("cover_h_w1600.jpg"));
+    }
+
+    @Test
+    @DisplayName("Generate: File di subfolder store (ab/cd/<hash>) -> varian di folder yang sama")
+    void testGenerate_ShardedFile() throws IOException {
+        Files.createDirectories(tempDir.resolve("ab/cd"));
+        writeImage("ab/cd/abcd.jpg", photo(900, 600), "jpg");
+
+        assertEquals(List.of(400, 800), service.generate("ab/cd/abcd.jpg"));
+        assertEquals(400, readWidth("ab/cd/abcd_w400.jpg"));
+        assertEquals("ab/cd/abcd_w400.jpg", service.src("ab/cd/abcd.jpg", "400,800", 400));
+
+        service.deleteVariants("ab/cd/abcd.jpg");
+        assertFalse(Files.exists(tempDir.resolve("ab/cd/abcd_w400.jpg")));
+        assertFalse(Files.exists(tempDir.resolve("ab/cd/abcd_w800.jpg")));
+    }
+
+    @Test
+    @DisplayName("Generate: Bukan gambar -> tanpa varian, varian foto lama ikut dihapus")
+    void testGenerate_NotAnImageRemovesStaleVariants() throws IOException {
+        writeImage("cover_c.jpg", photo(900, 600), "jpg");
+        service.generate("cover_c.jpg");
+        assertTrue(Files.exists(tempDir.resolve("cover_c_w800.jpg")));
+
+        Files.writeString(tempDir.resolve("cover_c.jpg"), "bukan gambar");
+
+        assertEquals(List.of(), service.generate("cover_c.jpg"));
+        assertFalse(Files.exists(tempDir.resolve("cover_c_w400.jpg")));
+        assertFalse(Files.exists(tempDir.resolve("cover_c_w800.jpg")));
+    }
+
+    @Test
+    @DisplayName("Generate: Header JPEG tapi data rusak -> tanpa varian (upload tidak gagal)")
+    void testGenerate_CorruptJpeg() throws IOException {
+        Files.write(tempDir.resolve("cover_d.jpg"), new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xDB, 0, 4, 1});
+
+        assertEquals(List.of(), service.generate("cover_d.jpg"));
+    }
+
+    @Test
+    @DisplayName("Generate: EXIF orientasi 6 -> varian diputar 90° (foto potret dari ponsel)")
+    void testGenerate_ExifRotation() throws IOException {
+        // Piksel tersimpan landscape: kiri merah, kanan biru
+        BufferedImage stored = new BufferedImage(1200, 800, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = stored.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, 600, 800);
+        g.setColor(Color.BLUE);
+        g.fillRect(600, 0, 600, 800);
+        g.dispose();
+        Files.write(tempDir.resolve("cover_e.jpg"), withExifOrientation(jpeg(stored), 6, false));
+
+        service.generate("cover_e.jpg");
+
+        BufferedImage thumb = ImageIO.read(tempDir.resolve("cover_e_w400.jpg").toFile());
+        assertEquals(400, thumb.getWidth());
+        assertEquals(600, thumb.getHeight());
+        // Diputar searah jarum jam: sisi kiri (merah) menjadi atas
+        assertTrue(isReddish(thumb.getRGB(200, 50)));
+        assertTrue(!isReddish(thumb.getRGB(200, 550)));
+    }
+
+    @Test
+    @DisplayName("Orientasi: 180° & 270° memutar gambar, orientasi lain dibiarkan")
+    void testApplyOrientation() {
+        BufferedImage image = new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, Color.RED.getRGB());
+
+        BufferedImage flipped = ImageVariantService.applyOrientation(image, 3);
+        assertEquals(40, flipped.getWidth());
+        assertTrue(isReddish(flipped.getRGB(39, 19)));
+
+        BufferedImage ccw = ImageVariantService.applyOrientation(image, 8);
+        assertEquals(20, ccw.getWidth());
+        assertEquals(40, ccw.getHeight());
+        assertTrue(isReddish(ccw.getRGB(0, 39)));
+
+        assertEquals(image, ImageVariantService.applyOrientation(image, 2));
+    }
+
+    @Test
+    @DisplayName("Orientasi EXIF: Big-endian, tanpa EXIF, bukan JPEG, data terpotong")
+    void testReadOrientation() throws IOException {
+        byte[] plain = jpeg(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB));
+
+        assertEquals(8, ImageVariantService.readOrientation(withExifOrientation(plain, 8, true)));
+        assertEquals(3, ImageVariantService.readOrientation(withExifOrientation(plain, 3, false)));
+        assertEquals(1, ImageVariantService.readOrientation(withExifOrientation(plain, 42, false)));
+        assertEquals(1, ImageVariantService.readOrientation(plain));
+        assertEquals(1, ImageVariantService.readOrientation("PNG".getBytes()));
+        assertEquals(1, ImageVariantService.readOrientation(new byte[] {(byte) 0xFF, 0x00, 0, 0}));
+        byte[] truncated = withExifOrientation(plain, 6, false);
+        assertEquals(1, ImageVariantService.readOrientation(Arrays.copyOf(truncated, 24)));
+        assertEquals(1, ImageVariantService.readOrientation(Arrays.copyOf(truncated, 12)));
+    }
+
+    @Test
+    @DisplayName("srcset & src: Dari lebar yang tercatat tanpa memeriksa file, fallback ke file asli")
+    void testSrcsetAndSrc() {
+        assertNull(service.srcset("cover_f.jpg", null));
+        assertNull(service.srcset("cover_f.jpg", ""));
+        assertEquals("cover_f.jpg", service.src("cover_f.jpg", null, 400));
+        assertEquals("cover_f.jpg", service.src("cover_f.jpg", "", 400));
+
+        // File varian tidak ada di folder upload: hanya catatan lebar yang dipakai
+        assertEquals("/uploads/cover_f_w400.jpg 400w, /uploads/cover_f_w800.jpg 800w",
+                service.srcset("cover_f.jpg", "400,800"));
+        assertEquals("cover_f_w400.jpg", service.src("cover_f.jpg", "400,800", 400));
+        assertEquals("cover_f_w800.jpg", service.src("cover_f.jpg", "400,800", 800));
+        // Kotak lebih besar dari varian terbesar yang ada -> varian terbesar
+        assertEquals("cover_f_w800.jpg", service.src("cover_f.jpg", "400,800", 1600));
+    }
+
+    @Test
+    @DisplayName("formatWidths & parseWidths: Hasil generate() bolak-balik lewat kolom database")
+    void testFormatAndParseWidths() throws IOException {
+        writeImage("cover_g.jpg", photo(1000, 500), "jpg");
+
+        String widths = ImageVariantService.formatWidths(service.generate("cover_g.jpg"));
+
+        assertEquals("400,800", widths);
+        assertArrayEquals(new int[] {400, 800}, ImageVariantService.parseWidths(widths));
+        assertEquals("", ImageVariantService.formatWidths(List.of()));
+        assertArrayEquals(new int[0], ImageVariantService.parseWidths(" "));
+    }
+
+    @Test
+    @DisplayName("variantName: Dengan & tanpa ekstensi")
+    void testVariantName() {
+        assertEquals("cover_x_w400.jpg", ImageVariantService.variantName("cover_x.png", 400));
+        assertEquals("cover_x_w800.jpg", ImageVariantService.variantName("cover_x", 800));
+    }
+
+    // Foto acak (noise + gradasi) supaya ukuran JPEG mendekati foto kamera asli
+    private static BufferedImage photo(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(64)) & 0xFF;
+                int gr = (y * 255 / height + random.nextInt(64)) & 0xFF;
+                image.setRGB(x, y, (r << 16) | (gr << 8) | random.nextInt(256));
+            }
+        }
+        return image;
+    }
+
+    private void writeImage(String name, BufferedImage image, String format) throws IOException {
+        assertTrue(ImageIO.write(image, format, tempDir.resolve(name).toFile()));
+    }
+
+    private int readWidth(String name) throws IOException {
+        return ImageIO.read(tempDir.resolve(name).toFile()).getWidth();
+    }
+
+    private static byte[] jpeg(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    // Sisipkan segmen APP1 "Exif" berisi satu tag Orientation tepat setelah SOI
+    private static byte[] withExifOrientation(byte[] jpeg, int orientation, boolean bigEndian) {
+        byte[] tiff = new byte[26];
+        tiff[0] = tiff[1] = (byte) (bigEndian ? 'M' : 'I');
+        put16(tiff, 2, 42, bigEndian);
+        put32(tiff, 4, 8, bigEndian);      // offset IFD0
+        put16(tiff, 8, 1, bigEndian);      // jumlah entry
+        put16(tiff, 10, 0x0112, bigEndian);
+        put16(tiff, 12, 3, bigEndian);     // tipe SHORT
+        put32(tiff, 14, 1, bigEndian);
+        put16(tiff, 18, orientation, bigEndian);
+
+        int length = 2 + 6 + tiff.length;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, 2);
+        out.write(0xFF);
+        out.write(0xE1);
+        out.write(length >> 8);
+        out.write(length & 0xFF);
+        out.writeBytes("Exif\0\0".getBytes());
+        out.writeBytes(tiff);
+        out.write(jpeg, 2, jpeg.length - 2);
+        return out.toByteArray();
+    }
+
+    private static void put16(byte[] b, int pos, int value, boolean bigEndian) {
+        b[bigEndian ? pos : pos + 1] = (byte) (value >> 8);
+        b[bigEndian ? pos + 1 : pos] = (byte) value;
+    }
+
+    private static void put32(byte[] b, int pos, int value, boolean bigEndian) {
+        put16(b, bigEndian ? pos : pos + 2, value >>> 16, bigEndian);
+        put16(b, bigEndian ? pos + 2 : pos, value & 0xFFFF, bigEndian);
+    }
+
+    private static boolean isReddish(int rgb) {
+        Color c = new Color(rgb);
+        return c.getRed() > 180 && c.getBlue() < 80;
+    }
+}
@@ -0,0 +1,72 @@
+package org.delcom.app.services;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+// Benchmark overhead pembatas login (cek IP + cek email) di jalur normal, dibanding
+// biaya BCrypt satu login. Tidak ikut `mvn test` biasa; jalankan dengan: mvn test -Pbenchmark
+@Tag("benchmark")
+class LoginRateLimiterBenchmarkTest {
+
+    private static final int THREADS = 8;
+    private static final int KEYS = 4096;
+    private static final int ITERATIONS = 500_000;
+
+    @Test
+    @DisplayName("Benchmark: Overhead checkIp + checkEmail per login, paralel")
+    void benchmarkOverhead() throws Exception {
+        // Batas longgar: yang diukur biaya cek, bukan penolakan
+        LoginRateLimiter limiter = new LoginRateLimiter(1_000_000, 1_000_000, 1_000_000, 1_000_000,
+                100_000, System::nanoTime);
+        String[] ips = new String[KEYS];
+        String[] emails = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            ips[i] = "10.0." + (i / 256) + "." + (i % 256);
+            emails[i] = "user" + i + "@mail.com";
+        }
+
+        run(limiter, ips, emails); // pemanasan
+        long began = System.nanoTime();
+        run(limiter, ips, emails);
+        double perLogin = (System.nanoTime() - began) / (double) ITERATIONS;
+
+        long bcryptBegan = System.nanoTime();
+        new org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder(10).encode("password123");
+        double bcrypt = System.nanoTime() - bcryptBegan;
+
+        System.out.printf("[benchmark] rate limiter (%d threads)  %8.0f ns/login%n", THREADS, perLogin);
+        System.out.printf("[benchmark] bcrypt cost 10            %8.0f ns/login%n", bcrypt);
+        assertTrue(perLogin * 100 < bcrypt, "Overhead pembatas harus < 1% biaya BCrypt");
+    }
+
+    private void run(LoginRateLimiter limiter, String[] ips, String[] emails) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        int perThread = ITERATIONS / THREADS;
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t * 131;
+                pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        int k = (offset + i) & (KEYS - 1);
+                        limiter.checkIp(ips[k]);
+                        limiter.checkEmail(emails[k]);
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.delcom.app.services;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LoginRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong(1_000 * SECOND);
+
+    // IP: 3 token, isi ulang 60/menit (1 per detik). Email: 2 token, isi ulang 6/menit (1 per 10 detik).
+    private LoginRateLimiter limiter(int maxKeys) {
+        return new LoginRateLimiter(3, 60, 2, 6, maxKeys, now::get);
+    }
+
+    @Test
+    @DisplayName("Burst sampai kapasitas diizinkan, berikutnya ditolak dengan waktu tunggu")
+    void testBurstThenRejected() {
+        LoginRateLimiter limiter = limiter(100);
+
+        assertEquals(0, limiter.checkIp("10.0.0.1"));
+        assertEquals(0, limiter.checkIp("10.0.0.1"));
+        assertEquals(0, limiter.checkIp("10.0.0.1"));
+        assertEquals(1000, limiter.checkIp("10.0.0.1"));
+
+        // IP lain punya bucket sendiri
+        assertEquals(0, limiter.checkIp("10.0.0.2"));
+    }
+
+    @Test
+    @DisplayName("Token terisi ulang sesuai laju")
+    void testRefill() {
+        LoginRateLimiter limiter = limiter(100);
+        for (int i = 0; i < 3; i++) {
+            limiter.checkIp("10.0.0.1");
+        }
+        assertTrue(limiter.checkIp("10.0.0.1") > 0);
+
+        now.addAndGet(SECOND / 2);
+        assertEquals(500, limiter.checkIp("10.0.0.1"));
+
+        now.addAndGet(SECOND / 2);
+        assertEquals(0, limiter.checkIp("10.0.0.1"));
+        assertTrue(limiter.checkIp("10.0.0.1") > 0);
+    }
+
+    @Test
+    @DisplayName("Email dinormalisasi (trim + lowercase), email kosong tidak dibatasi")
+    void testEmailNormalized() {
+        LoginRateLimiter limiter = limiter(100);
+
+        assertEquals(0, limiter.checkEmail("Budi@Mail.com"));
+        assertEquals(0, limiter.checkEmail(" budi@mail.com "));
+        assertEquals(10_000, limiter.checkEmail("budi@mail.com"));
+
+        assertEquals(0, limiter.checkEmail(null));
+        assertEquals(0, limiter.checkEmail("  "));
+        assertEquals(1, limiter.trackedKeys());
+    }
+
+    @Test
+    @DisplayName("IP null tetap dibatasi dengan satu bucket bersama")
+    void testNullIp() {
+        LoginRateLimiter limiter = limiter(100);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.checkIp(null));
+        }
+        assertTrue(limiter.checkIp(null) > 0);
+    }
+
+    @Test
+    @DisplayName("evictIdle membuang bucket yang sudah penuh kembali saja")
+    void testEvictIdle() {
+        LoginRateLimiter limiter = limiter(100);
+        limiter.checkIp("10.0.0.1");
+        for (int i = 0; i < 3; i++) {
+            limiter.checkIp("10.0.0.2");
+        }
+        limiter.checkEmail("budi@mail.com");
+        assertEquals(3, limiter.trackedKeys());
+
+        // 1 detik: bucket 10.0.0.1 sudah penuh, 10.0.0.2 belum, email belum (10 detik)
+        now.addAndGet(SECOND);
+        limiter.evictIdle();
+        assertEquals(2, limiter.trackedKeys());
+
+        now.addAndGet(10 * SECOND);
+        limiter.evictIdle();
+        assertEquals(0, limiter.trackedKeys());
+    }
+
+    @Test
+    @DisplayName("Saat jumlah key mencapai batas, bucket idle dibuang sebelum key baru masuk")
+    void testEvictWhenFull() {
+        LoginRateLimiter limiter = limiter(2);
+        limiter.checkIp("10.0.0.1");
+        limiter.checkIp("10.0.0.2");
+        now.addAndGet(2 * SECOND);
+
+        limiter.checkIp("10.0.0.3");
+        assertEquals(1, limiter.trackedKeys());
+    }
+
+    @Test
+    @DisplayName("Akses paralel tidak pernah melebihi kapasitas bucket")
+    void testConcurrentAcquireNeverExceedsCapacity() throws Exception {
+        LoginRateLimiter limiter = new LoginRateLimiter(50, 1, 5, 1, 100, now::get);
+        int threads = 8;
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 100; i++) {
+                        if (limiter.checkIp("10.0.0.1") == 0) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(50, allowed.get());
+    }
+}
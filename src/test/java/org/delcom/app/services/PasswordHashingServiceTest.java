@@ -0,0 +1,133 @@
+package org.delcom.app.services;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.delcom.app.utils.AdaptiveBCryptPasswordEncoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+class PasswordHashingServiceTest {
+
+    private PasswordHashingService service;
+    private ExecutorService callers;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+        if (callers != null) {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("encode/matches: Dijalankan di pool, hasil sama dengan BCrypt biasa")
+    void testEncodeAndMatches() {
+        service = new PasswordHashingService(new BCryptPasswordEncoder(4), 2, 4, 10_000);
+
+        String hash = service.encode("rahasia");
+
+        assertTrue(service.matches("rahasia", hash));
+        assertFalse(service.matches("salah", hash));
+        assertTrue(new BCryptPasswordEncoder().matches("rahasia", hash));
+    }
+
+    @Test
+    @DisplayName("needsRehash: Mengikuti upgradeEncoding dari encoder")
+    void testNeedsRehash() {
+        service = new PasswordHashingService(new AdaptiveBCryptPasswordEncoder(5), 1, 1, 10_000);
+
+        assertTrue(service.needsRehash(new BCryptPasswordEncoder(4).encode("a")));
+        assertFalse(service.needsRehash(new BCryptPasswordEncoder(5).encode("a")));
+    }
+
+    @Test
+    @DisplayName("Back-pressure: Pool & antrean penuh -> BusyException langsung, tanpa menunggu")
+    void testRejectsWhenSaturated() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder slow = mock(PasswordEncoder.class);
+        when(slow.encode(any())).thenAnswer(i -> {
+            started.countDown();
+            release.await();
+            return "hash";
+        });
+        service = new PasswordHashingService(slow, 1, 1, 10_000);
+        callers = Executors.newFixedThreadPool(2);
+
+        Future<String> running = callers.submit(() -> service.encode("a")); // dikerjakan
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> queued = callers.submit(() -> service.encode("b"));  // mengantre
+        while (service.getQueueSize() < 1) {
+            Thread.onSpinWait();
+        }
+
+        long began = System.nanoTime();
+        assertThrows(PasswordHashingService.BusyException.class, () -> service.encode("c"));
+        assertTrue(System.nanoTime() - began < TimeUnit.SECONDS.toNanos(1));
+
+        release.countDown();
+        assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hash", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Timeout: Hasil tidak selesai dalam batas waktu -> BusyException")
+    void testTimeout() {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder slow = mock(PasswordEncoder.class);
+        when(slow.matches(any(), any())).thenAnswer(i -> {
+            release.await();
+            return true;
+        });
+        service = new PasswordHashingService(slow, 1, 1, 50);
+
+        assertThrows(PasswordHashingService.BusyException.class, () -> service.matches("a", "hash"));
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Error dari encoder diteruskan apa adanya; pool size 0 = otomatis")
+    void testEncoderErrorPropagates() {
+        PasswordEncoder broken = mock(PasswordEncoder.class);
+        when(broken.encode(any())).thenThrow(new IllegalArgumentException("rawPassword cannot be null"));
+        service = new PasswordHashingService(broken, 0, 1, 10_000);
+
+        assertThrows(IllegalArgumentException.class, () -> service.encode(null));
+    }
+
+    @Test
+    @DisplayName("Interrupt: Thread pemanggil diinterupsi saat menunggu -> BusyException, flag interrupt tetap")
+    void testInterruptedCaller() {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder slow = mock(PasswordEncoder.class);
+        when(slow.encode(any())).thenAnswer(i -> {
+            release.await();
+            return "hash";
+        });
+        service = new PasswordHashingService(slow, 1, 1, 10_000);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(PasswordHashingService.BusyException.class, () -> service.encode("a"));
+            assertTrue(Thread.interrupted());
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package org.delcom.app.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.delcom.app.entities.PhotoJob;
+import org.delcom.app.repositories.DonationRepository;
+import org.delcom.app.repositories.PhotoJobRepository;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+@ExtendWith(MockitoExtension.class)
+class PhotoJobServiceTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 2000;
+
+    @Mock private PhotoJobRepository jobRepo;
+    @Mock private DonationRepository donationRepo;
+    @Mock private FileStorageService fileService;
+    @Mock private ImageVariantService imageVariants;
+
+    // Executor manual: task baru jalan saat runQueued() dipanggil
+    private final List<Runnable> queued = new ArrayList<>();
+
+    private PhotoJobService service;
+    private UUID donationId;
+
+    @BeforeEach
+    void setUp() {
+        service = newService(2, queued::add);
+        donationId = UUID.randomUUID();
+    }
+
+    private PhotoJobService newService(int workers, Executor executor) {
+        return new PhotoJobService(jobRepo, donationRepo, fileService, imageVariants,
+                workers, MAX_ATTEMPTS, RETRY_DELAY_MS, 60_000, executor);
+    }
+
+    private void runQueued() {
+        List<Runnable> tasks = new ArrayList<>(queued);
+        queued.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    private PhotoJob job(int attempts) {
+        PhotoJob job = new PhotoJob(donationId, "staged.png");
+        job.setId(UUID.randomUUID());
+        job.setStatus(PhotoJob.Status.RUNNING);
+        job.setAttempts(attempts);
+        return job;
+    }
+
+    private PhotoJob stubEnqueue() {
+        PhotoJob saved = job(0);
+        saved.setStatus(PhotoJob.Status.PENDING);
+        when(jobRepo.save(any(PhotoJob.class))).thenReturn(saved);
+        return saved;
+    }
+
+    // ==========================================
+    // ENQUEUE
+    // ==========================================
+
+    @Test
+    @DisplayName("Enqueue: Upload di-staging, job disimpan, worker menganggur langsung memprosesnya")
+    void testEnqueue_ProcessedImmediately() throws IOException {
+        MultipartFile photo = mock(MultipartFile.class);
+        when(fileService.stageFile(eq(photo), any(UUID.class))).thenReturn("staged.png");
+        PhotoJob saved = stubEnqueue();
+        when(jobRepo.claim(eq(saved.getId()), any(), any())).thenReturn(List.of(saved.getId()));
+        when(jobRepo.findById(saved.getId())).thenReturn(Optional.of(saved));
+        when(fileService.acquireStaged(any(), eq("staged.png"))).thenReturn("ab/cd/abcd.png");
+        when(imageVariants.generate("ab/cd/abcd.png")).thenReturn(List.of(400, 800));
+        when(donationRepo.swapPhotoUrl(eq(donationId), eq("ab/cd/abcd.png"), any(), any(), any())).thenReturn(Collections.singletonList(null));
+
+        // Staging sebelum donasi disimpan, job diantrekan setelahnya; request selesai sebelum foto diproses
+        assertEquals("staged.png", service.stage(photo));
+        assertSame(saved, service.enqueueStaged(donationId, "staged.png"));
+        verify(fileService, never()).acquireStaged(any(), any());
+
+        runQueued();
+
+        assertEquals("ab/cd/abcd.png", saved.getPhotoFile());
+        verify(imageVariants).generate("ab/cd/abcd.png");
+        // Lebar varian dicatat untuk foto & donasi, template tidak perlu memeriksa file
+        verify(fileService).recordVariantWidths("ab/cd/abcd.png", "400,800");
+        verify(donationRepo).swapPhotoUrl(eq(donationId), eq("ab/cd/abcd.png"), eq("400,800"), any(), any());
+        verify(jobRepo).delete(saved);
+        verify(fileService, never()).release(any());
+    }
+
+    @Test
+    @DisplayName("Enqueue stream: Body di-staging lewat stageStream lalu masuk antrean yang sama")
+    void testEnqueueStream() throws IOException {
+        InputStream body = new ByteArrayInputStream(new byte[] {1, 2, 3});
+        when(fileService.stageStream(eq(body), eq("image/png"), eq(3L), any(UUID.class))).thenReturn("staged.png");
+        PhotoJob saved = job(0);
+        when(jobRepo.save(any(PhotoJob.class))).thenAnswer(inv -> {
+            PhotoJob job = inv.getArgument(0);
+            assertEquals("staged.png", job.getStagedFile());
+            assertEquals(donationId, job.getDonationId());
+            return saved;
+        });
+
+        assertSame(saved, service.enqueueStream(donationId, body, "image/png", 3));
+        assertEquals(1, queued.size());
+    }
+
+    @Test
+    @DisplayName("Enqueue: Job sudah diambil poller -> tidak diproses dua kali")
+    void testEnqueue_AlreadyClaimed() {
+        PhotoJob saved = stubEnqueue();
+        when(jobRepo.claim(eq(saved.getId()), any(), any())).thenReturn(List.of());
+
+        service.enqueueStaged(donationId, "staged.png");
+        runQueued();
+
+        verify(jobRepo, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Enqueue: Semua worker sibuk -> job menunggu poll()")
+    void testEnqueue_AllWorkersBusy() throws IOException {
+        service = newService(1, queued::add);
+        stubEnqueue();
+
+        service.enqueueStaged(donationId, "staged.png");
+        service.enqueueStaged(donationId, "staged.png");
+
+        assertEquals(1, queued.size());
+        assertEquals(0, service.poll());
+        verify(jobRepo, never()).claimDue(any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Enqueue: Staging gagal -> IOException, job tidak dibuat")
+    void testEnqueue_StagingFails() throws IOException {
+        when(fileService.stageFile(any(), any())).thenThrow(new IOException("disk penuh"));
+
+        assertThrows(IOException.class, () -> service.stage(mock(MultipartFile.class)));
+        verifyNoInteractions(jobRepo);
+    }
+
+    // ==========================================
+    // POLL & PROSES
+    // ==========================================
+
+    @Test
+    @DisplayName("Poll: Mengambil job sebanyak worker menganggur, lease sesuai konfigurasi")
+    void testPoll_ClaimsFreeWorkers() {
+        PhotoJob first = job(1);
+        when(jobRepo.claimDue(any(), any(), eq(2))).thenAnswer(inv -> {
+            LocalDateTime now = inv.getArgument(0);
+            LocalDateTime lease = inv.getArgument(1);
+            assertEquals(Duration.ofSeconds(60), Duration.between(now, lease));
+            return List.of(first.getId());
+        });
+        when(jobRepo.findById(first.getId())).thenReturn(Optional.empty());
+
+        assertEquals(1, service.poll());
+        runQueued();
+
+        verify(jobRepo).findById(first.getId());
+    }
+
+    @Test
+    @DisplayName("Proses: Ganti foto -> referensi foto lama dilepas setelah job dihapus")
+    void testProcess_ReleasesPreviousPhoto() throws IOException {
+        PhotoJob job = job(1);
+        when(jobRepo.findById(job.getId())).thenReturn(Optional.of(job));
+        when(fileService.acquireStaged(any(), eq("staged.png"))).thenReturn("ab/cd/baru.png");
+        when(donationRepo.swapPhotoUrl(eq(donationId), eq("ab/cd/baru.png"), any(), any(), any())).thenReturn(List.of("cover_lama.png"));
+
+        service.process(job.getId());
+
+        InOrder order = inOrder(jobRepo, fileService);
+        order.verify(jobRepo).delete(job);
+        order.verify(fileService).release("cover_lama.png");
+        verify(fileService, never()).release("ab/cd/baru.png");
+    }
+
+    @Test
+    @DisplayName("Proses: Foto yang sama sudah ada -> varian dipakai ulang; foto lama == baru tidak dilepas")
+    void testProcess_DuplicatePhoto() throws IOException {
+        PhotoJob job = job(1);
+        when(jobRepo.findById(job.getId())).thenReturn(Optional.of(job));
+        when(fileService.acquireStaged(any(), eq("staged.png"))).thenReturn("ab/cd/abcd.png");
+        when(fileService.findVariantWidths("ab/cd/abcd.png")).thenReturn("400,800,1600");
+        when(donationRepo.swapPhotoUrl(eq(donationId), eq("ab/cd/abcd.png"), any(), any(), any())).thenReturn(List.of("ab/cd/abcd.png"));
+
+        service.process(job.getId());
+
+        verify(imageVariants, never()).generate(any());
+        verify(fileService, never()).recordVariantWidths(any(), any());
+        verify(donationRepo).swapPhotoUrl(eq(donationId), eq("ab/cd/abcd.png"), eq("400,800,1600"), any(), any());
+        verify(fileService, never()).release(any());
+        verify(jobRepo).delete(job);
+    }
+
+    @Test
+    @DisplayName("Proses: Percobaan ulang setelah referensi dicatat -> lanjut dari photoFile tanpa acquire lagi")
+    void testProcess_ResumesFromPhotoFile() throws IOException {
+        PhotoJob job = job(2);
+        job.setPhotoFile("ab/cd/abcd.png");
+        when(jobRepo.findById(job.getId())).thenReturn(Optional.of(job));
+        when(donationRepo.swapPhotoUrl(eq(donationId), eq("ab/cd/abcd.png"), any(), any(), any())).thenReturn(Collections.singletonList(null));
+
+        service.process(job.getId());
+
+        verify(fileService, never()).acquireStaged(any(), any());
+        // Pemindahan file diulang (dilewati FileStorageService jika sudah dipindah)
+        verify(fileService).promoteStaged("staged.png", "ab/cd/abcd.png");
+        verify(imageVariants).generate("ab/cd/abcd.png");
+        verify(jobRepo).delete(job);
+    }
+
+    @Test
+    @DisplayName("Proses: Gagal memindah file setelah acquire -> photoFile tetap tercatat untuk percobaan ulang")
+    void testProcess_MoveFailsAfterAcquire() throws IOException {
+        PhotoJob job = job(1);
+        when(jobRepo.findById(job.getId())).thenReturn(Optional.of(job));
+        when(fileService.acquireStaged(job.getId(), "staged.png")).thenReturn("ab/cd/abcd.png");
+        doThrow(new IOException("disk penuh")).when(fileService).promoteStaged("staged.png", "ab/cd/abcd.png");
+
+        service.process(job.getId());
+
+        assertEquals(PhotoJob.Status.PENDING, job.getStatus());
+        assertEquals("ab/cd/abcd.png", job.getPhotoFile());
+        verify(jobRepo).save(job);
+        verify(donationRepo, never()).swapPhotoUrl(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Proses: photoFile sudah dicatat worker lain -> berhenti tanpa menyentuh job")
+    void testProcess_AcquiredByOtherWorker() throws IOException {
+        PhotoJob job = job(2);
+        when(jobRepo.findById(job.getId())).thenReturn(Optional.of(job));
+        when(fileService.acquireStaged(job.getId(), "staged.png")).thenReturn(null);
+
+        service.process(job.getId());
+
+        verify(fileService, never()).promoteStaged(any(), any());
+        verify(jobRepo, never()).save(any());
+        verify(jobRepo, never()).delete(any());
+    }
+
+    @Test
+    @DisplayName("Proses: Donasi sudah dihapus -> referensi foto baru dilepas, job selesai")
+    void testProcess_DonationDeleted() throws IOException {
+        PhotoJob job = job(1);
+        when(jobRepo.findById(job.getId())).thenReturn(Optional.of(job));
+        when(fileService.acquireStaged(any(), eq("staged.png"))).thenReturn("ab/cd/abcd.png");
+        when(donationRepo.swapPhotoUrl(eq(donationId), eq("ab/cd/abcd.png"), any(), any(), any())).thenReturn(List.of());
+
+        service.process(job.getId());
+
+        verify(fileService).release("ab/cd/abcd.png");
+        verify(jobRepo).delete(job);
+    }
+
+    @Test
+    @DisplayName("Proses: Job lama selesai setelah job yang lebih baru -> foto baru tidak ditimpa, referensi job lama dilepas")
+    void testProcess_SupersededByNewerJob() throws IOException {
+        PhotoJob job = job(3);
+        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(5);
+        ReflectionTestUtils.setField(job, "createdAt", createdAt);
+        when(jobRepo.findById(job.getId())).thenReturn(Optional.of(job));
+        when(fileService.acquireStaged(any(), eq("staged.png"))).thenReturn("ab/cd/lama.png");
+        // Donasi sudah memasang foto dari job yang dibuat setelah job ini
+        when(donationRepo.swapPhotoUrl(eq(donationId), eq("ab/cd/lama.png"), any(), eq(createdAt), any())).thenReturn(List.of());
+
+        service.process(job.getId());
+
+        verify(fileService).release("ab/cd/lama.png");
+        verify(fileService, times(1)).release(any());
+        verify(jobRepo).delete(job);
+    }
+
+    @Test
+    @DisplayName("Proses: Gagal sebelum batas -> PENDING dengan jeda eksponensial")
+    void testProcess_RetryWithBackoff() throws IOException {
+        PhotoJob job = job(2);
+        job.setLockedUntil(LocalDateTime.now().plusMinutes(1));
+        when(jobRepo.findById(job.getId())).thenReturn(Optional.of(job));
+        when(fileService.acquireStaged(any(), any())).thenThrow(new IOException("disk lambat"));
+
+        LocalDateTime before = LocalDateTime.now();
+        service.process(job.getId());
+
+        assertEquals(PhotoJob.Status.PENDING, job.getStatus());
+        assertNull(job.getLockedUntil());
+        assertEquals("IOException: disk lambat", job.getLastError());
+        // Percobaan ke-2 gagal -> jeda 2 x 2s
+        long delayMs = Duration.between(before, job.getNextAttemptAt()).toMillis();
+        assertTrue(delayMs >= 4000 && delayMs < 5000, "jeda " + delayMs);
+        verify(jobRepo).save(job);
+        verify(jobRepo, never()).delete(any());
+    }
+
+    @Test
+    @DisplayName("Proses: Gagal di percobaan terakhir -> FAILED, pesan error dipotong")
+    void testProcess_FailsPermanently() throws IOException {
+        PhotoJob job = job(MAX_ATTEMPTS);
+        when(jobRepo.findById(job.getId())).thenReturn(Optional.of(job));
+        when(fileService.acquireStaged(any(), any())).thenReturn("ab/cd/abcd.png");
+        doThrow(new IOException("x".repeat(2000))).when(imageVariants).generate("ab/cd/abcd.png");
+
+        service.process(job.getId());
+
+        assertEquals(PhotoJob.Status.FAILED, job.getStatus());
+        assertEquals(1000, job.getLastError().length());
+        // photoFile sudah tercatat bersama referensi; job hanya disimpan saat gagal
+        assertEquals("ab/cd/abcd.png", job.getPhotoFile());
+        verify(jobRepo, times(1)).save(job);
+        verify(donationRepo, never()).swapPhotoUrl(any(), any(), any(), any(), any());
+    }
+
+    // ==========================================
+    // WORKER & SHUTDOWN
+    // ==========================================
+
+    @Test
+    @DisplayName("Worker: Error database tidak mematikan worker, slot worker dikembalikan")
+    void testWorker_RuntimeErrorReleasesSlot() throws IOException {
+        service = newService(1, queued::add);
+        stubEnqueue();
+        when(jobRepo.claim(any(), any(), any())).thenThrow(new IllegalStateException("db down"));
+
+        service.enqueueStaged(donationId, "staged.png");
+        runQueued();
+
+        when(jobRepo.claimDue(any(), any(), eq(1))).thenReturn(List.of());
+        assertEquals(0, service.poll());
+        verify(jobRepo).claimDue(any(), any(), eq(1));
+    }
+
+    @Test
+    @DisplayName("Worker: Executor menolak task (aplikasi berhenti) -> job tetap di database")
+    void testWorker_Rejected() throws IOException {
+        service = newService(1, task -> {
+            throw new RejectedExecutionException("shutdown");
+        });
+        PhotoJob saved = stubEnqueue();
+
+        assertSame(saved, service.enqueueStaged(donationId, "staged.png"));
+
+        when(jobRepo.claimDue(any(), any(), eq(1))).thenReturn(List.of());
+        assertEquals(0, service.poll());
+    }
+
+    @Test
+    @DisplayName("Shutdown: Pool worker dihentikan; executor lain diabaikan")
+    void testShutdown() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        newService(1, executor).shutdown();
+        assertTrue(executor.isShutdown());
+
+        service.shutdown();
+    }
+}
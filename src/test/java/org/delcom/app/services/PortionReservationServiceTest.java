@@ -0,0 +1,158 @@
+package org.delcom.app.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.delcom.app.entities.Donation;
+import org.delcom.app.repositories.DonationRepository;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PortionReservationServiceTest {
+
+    private final DonationRepository donationRepo = mock(DonationRepository.class);
+    private final PortionReservationService reservations = new PortionReservationService(donationRepo);
+
+    private UUID donationWithPortions(int portions) {
+        UUID id = UUID.randomUUID();
+        when(donationRepo.findAvailablePortions(id, Donation.DonationStatus.AVAILABLE)).thenReturn(Optional.of(portions));
+        return id;
+    }
+
+    // Sisa porsi "di database" yang bisa diubah test (klaim dari instance lain, porsi dikembalikan, ...)
+    private UUID donationBackedBy(AtomicInteger databasePortions) {
+        UUID id = UUID.randomUUID();
+        when(donationRepo.findAvailablePortions(id, Donation.DonationStatus.AVAILABLE))
+                .thenAnswer(inv -> Optional.of(databasePortions.get()));
+        return id;
+    }
+
+    @Test
+    @DisplayName("tryReserve: Dimuat sekali dari database, dikurangi di memori; penolakan dipastikan ke database")
+    void testReserveUntilSoldOut() {
+        AtomicInteger database = new AtomicInteger(5);
+        UUID id = donationBackedBy(database);
+
+        assertTrue(reservations.tryReserve(id, 3));
+        database.set(2);
+        assertTrue(reservations.tryReserve(id, 1)); // tanpa query: cukup di memori
+        verify(donationRepo, times(1)).findAvailablePortions(id, Donation.DonationStatus.AVAILABLE);
+
+        database.set(1);
+        assertFalse(reservations.tryReserve(id, 3)); // sisa 1 -> dicek ke database, tetap tidak cukup
+        assertTrue(reservations.tryReserve(id, 1));
+        database.set(0);
+        assertFalse(reservations.tryReserve(id, 1));
+        verify(donationRepo, times(3)).findAvailablePortions(id, Donation.DonationStatus.AVAILABLE);
+    }
+
+    @Test
+    @DisplayName("tryReserve: Counter terlalu rendah (porsi kembali di database) -> dimuat ulang, klaim tidak ditolak")
+    void testLowCounterReloadedFromDatabase() {
+        AtomicInteger database = new AtomicInteger(2);
+        UUID id = donationBackedBy(database);
+
+        assertTrue(reservations.tryReserve(id, 2)); // counter 0
+        database.set(4); // klaim gagal di instance lain / porsi ditambah pemilik
+
+        assertTrue(reservations.tryReserve(id, 3));
+        assertTrue(reservations.tryReserve(id, 1)); // counter hasil muat ulang: 4 - 3
+        database.set(0);
+        assertFalse(reservations.tryReserve(id, 1));
+    }
+
+    @Test
+    @DisplayName("tryReserve: Donasi terhapus saat counter habis -> diteruskan ke database, counter dibuang")
+    void testDeletedWhileTracked() {
+        UUID id = UUID.randomUUID();
+        when(donationRepo.findAvailablePortions(id, Donation.DonationStatus.AVAILABLE))
+                .thenReturn(Optional.of(1), Optional.empty(), Optional.of(3));
+
+        assertTrue(reservations.tryReserve(id, 1));
+        assertTrue(reservations.tryReserve(id, 1)); // tidak ada lagi -> jalur database yang melapor
+        assertTrue(reservations.tryReserve(id, 2)); // counter dimuat dari awal
+        verify(donationRepo, times(3)).findAvailablePortions(id, Donation.DonationStatus.AVAILABLE);
+    }
+
+    @Test
+    @DisplayName("tryReserve: Donasi tidak ditemukan -> diteruskan ke database (tidak di-cache)")
+    void testUnknownDonationPassesThrough() {
+        UUID id = UUID.randomUUID();
+        when(donationRepo.findAvailablePortions(any(), any())).thenReturn(Optional.empty());
+
+        assertTrue(reservations.tryReserve(id, 1));
+        assertTrue(reservations.tryReserve(id, 1));
+        verify(donationRepo, times(2)).findAvailablePortions(id, Donation.DonationStatus.AVAILABLE);
+    }
+
+    @Test
+    @DisplayName("release & invalidate: Porsi dikembalikan; counter dibuang lalu dimuat ulang")
+    void testReleaseAndInvalidate() {
+        UUID id = donationWithPortions(1);
+
+        assertTrue(reservations.tryReserve(id, 1));
+        reservations.release(id, 1);
+        assertTrue(reservations.tryReserve(id, 1));
+
+        reservations.invalidate(id);
+        reservations.release(id, 1); // tidak ada counter -> diabaikan
+        assertTrue(reservations.tryReserve(id, 1));
+        verify(donationRepo, times(2)).findAvailablePortions(id, Donation.DonationStatus.AVAILABLE);
+    }
+
+    @Test
+    @DisplayName("tryReserve: Jumlah donasi yang dilacak dibatasi MAX_TRACKED")
+    void testTrackedDonationsBounded() {
+        when(donationRepo.findAvailablePortions(any(), any())).thenReturn(Optional.of(1));
+        UUID first = UUID.randomUUID();
+        reservations.tryReserve(first, 1);
+        for (int i = 1; i <= PortionReservationService.MAX_TRACKED; i++) {
+            reservations.tryReserve(UUID.randomUUID(), 1);
+        }
+
+        // Counter donasi pertama sudah dibuang saat batas tercapai -> dimuat ulang dari database
+        assertTrue(reservations.tryReserve(first, 1));
+    }
+
+    @Test
+    @DisplayName("tryReserve: Banyak thread bersamaan tidak pernah memesan melebihi sisa porsi")
+    void testConcurrentReservationsNeverOversell() throws Exception {
+        AtomicInteger database = new AtomicInteger(1000);
+        UUID id = donationBackedBy(database);
+        AtomicInteger reserved = new AtomicInteger();
+        assertTrue(reservations.tryReserve(id, 1)); // counter dimuat (1000)
+        reserved.incrementAndGet();
+        database.set(0); // penolakan yang dicek ulang ke database tidak memuat porsi baru
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    if (reservations.tryReserve(id, 1)) {
+                        reserved.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        pool.shutdown();
+
+        assertEquals(1000, reserved.get());
+    }
+}
@@ -27,6 +27,12 @@ class UserServiceTests {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private AuthPrincipalCache principalCache;
+
+    @Mock
+    private PasswordHashingService passwordHashingService;
+
     @InjectMocks
     private UserService userService;
 
@@ -181,6 +187,7 @@ class UserServiceTests {
         assertEquals("New Name", result.getName());
         assertEquals("new@email.com", result.getEmail());
         verify(userRepository, times(1)).save(existingUser);
+        verify(principalCache).invalidateUser(id);
     }
 
     // ==========================================
@@ -228,5 +235,59 @@ class UserServiceTests {
         assertNotNull(result);
         assertEquals("newSecretPass", result.getPassword()); // Asumsi ada getter
         verify(userRepository, times(1)).save(existingUser);
+        verify(principalCache).invalidateUser(id);
+    }
+
+    // ==========================================
+    // 6. Test upgradePasswordHashIfNeeded
+    // ==========================================
+
+    @Test
+    @DisplayName("upgradePasswordHashIfNeeded: Cost sama -> tidak di-hash ulang")
+    void testUpgradePasswordHash_NotNeeded() {
+        User user = new User("Name", "email", "$2a$12$current");
+        when(passwordHashingService.needsRehash("$2a$12$current")).thenReturn(false);
+
+        userService.upgradePasswordHashIfNeeded(user, "raw");
+
+        verify(passwordHashingService, times(0)).encode(any());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("upgradePasswordHashIfNeeded: Cost lebih rendah -> hash ulang & UPDATE bersyarat (hash lama)")
+    void testUpgradePasswordHash_Rehashed() {
+        UUID id = UUID.randomUUID();
+        User user = new User("Name", "email", "$2a$10$old");
+        user.setId(id);
+        when(passwordHashingService.needsRehash("$2a$10$old")).thenReturn(true);
+        when(passwordHashingService.encode("raw")).thenReturn("$2a$12$new");
+        when(userRepository.replacePasswordHash(id, "$2a$10$old", "$2a$12$new")).thenReturn(1);
+
+        userService.upgradePasswordHashIfNeeded(user, "raw");
+
+        assertEquals("$2a$12$new", user.getPassword());
+        verify(userRepository, times(0)).save(any());
+        verify(principalCache).invalidateUser(id);
+    }
+
+    @Test
+    @DisplayName("upgradePasswordHashIfNeeded: User hilang / password sudah diganti / pool sibuk -> dilewati tanpa error")
+    void testUpgradePasswordHash_Skipped() {
+        UUID id = UUID.randomUUID();
+        User user = new User("Name", "email", "$2a$10$old");
+        user.setId(id);
+        when(passwordHashingService.needsRehash("$2a$10$old")).thenReturn(true);
+        when(passwordHashingService.encode("raw"))
+                .thenReturn("$2a$12$new")
+                .thenThrow(new PasswordHashingService.BusyException("sibuk"));
+        when(userRepository.replacePasswordHash(id, "$2a$10$old", "$2a$12$new")).thenReturn(0);
+
+        userService.upgradePasswordHashIfNeeded(user, "raw"); // user dihapus / hash berubah sejak login
+        userService.upgradePasswordHashIfNeeded(user, "raw"); // pool penuh
+
+        assertEquals("$2a$10$old", user.getPassword());
+        verify(userRepository, times(1)).replacePasswordHash(any(), any(), any());
+        verifyNoInteractions(principalCache);
     }
-}
\ No newline at end of file
+}
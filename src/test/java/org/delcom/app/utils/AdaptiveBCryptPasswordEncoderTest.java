@@ -0,0 +1,74 @@
+package org.delcom.app.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+class AdaptiveBCryptPasswordEncoderTest {
+
+    @Test
+    @DisplayName("calibrateStrength: Cost tertinggi yang waktunya masih <= target, dibatasi min/max")
+    void testCalibrateStrength() {
+        // 4 ms di cost 10 -> 8 ms di 11, 16 ms di 12, 32 ms di 13
+        List<Integer> measured = new ArrayList<>();
+        long fourMillis = 4_000_000L;
+
+        assertEquals(12, AdaptiveBCryptPasswordEncoder.calibrateStrength(20, 10, 14, s -> {
+            measured.add(s);
+            return fourMillis;
+        }));
+        assertEquals(List.of(10, 10), measured); // pemanasan + satu pengukuran di cost minimum
+
+        assertEquals(10, AdaptiveBCryptPasswordEncoder.calibrateStrength(1, 10, 14, s -> fourMillis)); // mesin lambat
+        assertEquals(14, AdaptiveBCryptPasswordEncoder.calibrateStrength(10_000, 10, 14, s -> fourMillis)); // mesin cepat
+    }
+
+    @Test
+    @DisplayName("calibrateStrength: Pengukuran sungguhan tetap di rentang yang diminta")
+    void testCalibrateStrengthRealMeasurement() {
+        int strength = AdaptiveBCryptPasswordEncoder.calibrateStrength(1, 4, 5);
+
+        assertTrue(strength >= 4 && strength <= 5);
+    }
+
+    @Test
+    @DisplayName("costOf: Ambil cost dari hash BCrypt, -1 jika bukan BCrypt")
+    void testCostOf() {
+        assertEquals(4, AdaptiveBCryptPasswordEncoder.costOf(new BCryptPasswordEncoder(4).encode("a")));
+        assertEquals(12, AdaptiveBCryptPasswordEncoder.costOf("$2b$12$abcdefghijklmnopqrstuv"));
+        assertEquals(-1, AdaptiveBCryptPasswordEncoder.costOf("plain-text"));
+        assertEquals(-1, AdaptiveBCryptPasswordEncoder.costOf(null));
+    }
+
+    @Test
+    @DisplayName("upgradeEncoding: True hanya untuk cost lebih rendah (tidak pernah diturunkan); bukan BCrypt -> false")
+    void testUpgradeEncoding() {
+        AdaptiveBCryptPasswordEncoder encoder = new AdaptiveBCryptPasswordEncoder(5);
+
+        assertEquals(5, encoder.getStrength());
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("a")));
+        assertFalse(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("a")));
+        assertFalse(encoder.upgradeEncoding(encoder.encode("a")));
+        assertFalse(encoder.upgradeEncoding("plain-text"));
+        assertFalse(encoder.upgradeEncoding(null));
+        assertTrue(encoder.matches("a", new BCryptPasswordEncoder(4).encode("a"))); // hash lama tetap bisa login
+    }
+
+    @Test
+    @DisplayName("Batas minimum: Cost di bawah min-strength dinaikkan ke batas, hash di bawahnya di-hash ulang")
+    void testMinimumStrengthFloor() {
+        AdaptiveBCryptPasswordEncoder encoder = new AdaptiveBCryptPasswordEncoder(4, 6);
+
+        assertEquals(6, encoder.getStrength());
+        assertEquals(6, AdaptiveBCryptPasswordEncoder.costOf(encoder.encode("a")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(5).encode("a")));
+        assertFalse(encoder.upgradeEncoding(encoder.encode("a")));
+        assertEquals(7, new AdaptiveBCryptPasswordEncoder(7, 6).getStrength());
+    }
+}
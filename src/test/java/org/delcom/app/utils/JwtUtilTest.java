@@ -0,0 +1,92 @@
+package org.delcom.app.utils;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+class JwtUtilTest {
+
+    @BeforeEach
+    void setUp() {
+        JwtUtil.clearVerifiedCache();
+    }
+
+    private String expiredToken(UUID userId) {
+        return Jwts.builder()
+                .subject(userId.toString())
+                .expiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(JwtUtil.getKey())
+                .compact();
+    }
+
+    @Test
+    @DisplayName("parseClaims: Token valid -> claims, verifikasi kedua memakai cache")
+    void testParseClaimsCached() {
+        UUID userId = UUID.randomUUID();
+        String token = JwtUtil.generateToken(userId);
+
+        Claims first = JwtUtil.parseClaims(token, false);
+        Claims second = JwtUtil.parseClaims(token, false);
+
+        assertNotNull(first);
+        assertSame(first, second);
+        assertEquals(userId, JwtUtil.extractUserId(first));
+    }
+
+    @Test
+    @DisplayName("parseClaims: Token rusak / kosong / tanda tangan salah -> null")
+    void testParseClaimsInvalid() {
+        String token = JwtUtil.generateToken(UUID.randomUUID());
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertNull(JwtUtil.parseClaims(tampered, true));
+        assertNull(JwtUtil.parseClaims("bukan.token.jwt", true));
+        assertNull(JwtUtil.parseClaims("", true));
+        assertNull(JwtUtil.parseClaims(null, true));
+    }
+
+    @Test
+    @DisplayName("parseClaims: Token expired hanya diterima jika ignoreExpired, juga dari cache")
+    void testParseClaimsExpired() {
+        UUID userId = UUID.randomUUID();
+        String token = expiredToken(userId);
+
+        assertNull(JwtUtil.parseClaims(token, false));
+        assertEquals(userId, JwtUtil.extractUserId(JwtUtil.parseClaims(token, true)));
+        assertNull(JwtUtil.parseClaims(token, false)); // dari cache, tetap dicek expired
+    }
+
+    @Test
+    @DisplayName("extractUserId(claims): Subject bukan UUID -> null")
+    void testExtractUserIdFromClaimsInvalidSubject() {
+        assertNull(JwtUtil.extractUserId(Jwts.claims().subject("bukan-uuid").build()));
+        assertNull(JwtUtil.extractUserId(Jwts.claims().build()));
+    }
+
+    @Test
+    @DisplayName("validateToken & extractUserId(token): Perilaku lama tetap sama")
+    void testLegacyMethods() {
+        UUID userId = UUID.randomUUID();
+        String token = JwtUtil.generateToken(userId);
+        String expired = expiredToken(userId);
+
+        assertTrue(JwtUtil.validateToken(token, false));
+        assertTrue(JwtUtil.validateToken(expired, true));
+        assertFalse(JwtUtil.validateToken(expired, false));
+        assertFalse(JwtUtil.validateToken("bukan.token.jwt", true));
+        assertEquals(userId, JwtUtil.extractUserId(token));
+        assertNull(JwtUtil.extractUserId("bukan.token.jwt"));
+    }
+}
@@ -0,0 +1,63 @@
+package org.delcom.app.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TtlCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private void advanceMillis(long millis) {
+        nanos.addAndGet(millis * 1_000_000L);
+    }
+
+    @Test
+    @DisplayName("get: Entri hilang setelah TTL lewat")
+    void testEntryExpiresAfterTtl() {
+        TtlCache<String, Integer> cache = new TtlCache<>(10, 100, nanos::get);
+        cache.put("a", 1);
+
+        advanceMillis(99);
+        assertEquals(1, cache.get("a"));
+
+        advanceMillis(1);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertNull(cache.get("tidak-ada"));
+    }
+
+    @Test
+    @DisplayName("put: Saat penuh, entri kedaluwarsa dibuang dulu; kalau masih penuh cache dikosongkan")
+    void testBoundedSize() {
+        TtlCache<String, Integer> cache = new TtlCache<>(2, 100, nanos::get);
+        cache.put("a", 1);
+        advanceMillis(60);
+        cache.put("b", 2);
+        advanceMillis(60); // "a" kedaluwarsa
+
+        cache.put("c", 3);
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.get("b"));
+
+        cache.put("d", 4); // tidak ada yang kedaluwarsa -> dikosongkan
+        assertEquals(1, cache.size());
+        assertEquals(4, cache.get("d"));
+    }
+
+    @Test
+    @DisplayName("remove & clear: Menghapus entri")
+    void testRemoveAndClear() {
+        TtlCache<String, Integer> cache = new TtlCache<>(10, 100_000);
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        cache.remove("a");
+        assertNull(cache.get("a"));
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}